@@ -0,0 +1,154 @@
+package org.molgenis.hadoop.pipeline.analyzer;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Generates a {@link JobReport} for each given job and writes them as a single JSON report. Jobs can be given as job
+ * history ({@code .jhist}) files, as directories created by {@code HadoopJobInformationRetriever.py} or as directories
+ * containing any of these (non-recursively for the {@code .jhist} files).
+ *
+ * <pre>
+ * java -jar analyzer.jar &lt;jhist file/job dir/dir&gt;... [-o &lt;report.json&gt;] [--straggler-factor &lt;x&gt;]
+ * </pre>
+ */
+public class JobHistoryAnalyzer
+{
+	private List<File> inputs = new ArrayList<>();
+	private File outputFile;
+	private double stragglerFactor = 1.5;
+
+	public static void main(String[] args) throws IOException
+	{
+		new JobHistoryAnalyzer(args).run();
+	}
+
+	/**
+	 * Digests the arguments.
+	 *
+	 * @param args
+	 *            {@link String}{@code []}
+	 * @throws IllegalArgumentException
+	 *             If the arguments are invalid.
+	 */
+	JobHistoryAnalyzer(String[] args) throws IllegalArgumentException
+	{
+		for (int i = 0; i < args.length; i++)
+		{
+			switch (args[i])
+			{
+				case "-o":
+					outputFile = new File(args[++i]);
+					break;
+				case "--straggler-factor":
+					stragglerFactor = Double.parseDouble(args[++i]);
+					break;
+				default:
+					inputs.add(new File(args[i]));
+			}
+		}
+		if (inputs.isEmpty())
+		{
+			throw new IllegalArgumentException("No job history files or directories given.");
+		}
+	}
+
+	/**
+	 * Reads all jobs and writes the report.
+	 *
+	 * @throws IOException
+	 */
+	void run() throws IOException
+	{
+		List<JobRecord> jobs = new ArrayList<>();
+		for (File input : inputs)
+		{
+			readJobs(input, jobs);
+		}
+		if (jobs.isEmpty())
+		{
+			throw new IOException("No jobs found in: " + inputs);
+		}
+
+		// Job ids increase with submission, so the reports of different runs have the same order.
+		Collections.sort(jobs, new Comparator<JobRecord>()
+		{
+			@Override
+			public int compare(JobRecord o1, JobRecord o2)
+			{
+				return o1.getId().compareTo(o2.getId());
+			}
+		});
+
+		List<Map<String, Object>> reports = new ArrayList<>();
+		for (JobRecord job : jobs)
+		{
+			reports.add(new JobReport(job, stragglerFactor).toMap());
+		}
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("stragglerFactor", stragglerFactor);
+		report.put("jobs", reports);
+
+		ObjectMapper mapper = new ObjectMapper();
+		if (outputFile != null)
+		{
+			mapper.writerWithDefaultPrettyPrinter().writeValue(outputFile, report);
+		}
+		else
+		{
+			System.out.println(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+		}
+	}
+
+	/**
+	 * Reads the job(s) from a single input.
+	 *
+	 * @param input
+	 *            {@link File}
+	 * @param jobs
+	 *            {@link List}{@code <}{@link JobRecord}{@code >} To add the read jobs to.
+	 * @throws IOException
+	 */
+	private void readJobs(File input, List<JobRecord> jobs) throws IOException
+	{
+		if (input.isFile())
+		{
+			jobs.add(new JobHistoryFileReader(new Configuration()).read(input.toURI().toString()));
+		}
+		else if (new File(input, "job_info.json").isFile())
+		{
+			jobs.add(new RestJsonDirectoryReader().read(input));
+		}
+		else if (input.isDirectory())
+		{
+			File[] children = input.listFiles(new FileFilter()
+			{
+				@Override
+				public boolean accept(File file)
+				{
+					return file.getName().endsWith(".jhist") || new File(file, "job_info.json").isFile();
+				}
+			});
+			Arrays.sort(children);
+			for (File child : children)
+			{
+				readJobs(child, jobs);
+			}
+		}
+		else
+		{
+			throw new IOException("Input does not exist: " + input);
+		}
+	}
+}
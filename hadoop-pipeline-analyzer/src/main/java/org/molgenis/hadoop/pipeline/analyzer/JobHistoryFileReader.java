@@ -0,0 +1,128 @@
+package org.molgenis.hadoop.pipeline.analyzer;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.jobhistory.JobHistoryParser;
+import org.apache.hadoop.mapreduce.jobhistory.JobHistoryParser.JobInfo;
+import org.apache.hadoop.mapreduce.jobhistory.JobHistoryParser.TaskAttemptInfo;
+import org.apache.hadoop.mapreduce.jobhistory.JobHistoryParser.TaskInfo;
+
+/**
+ * Reads a job history ({@code .jhist}) file as written by the MapReduce ApplicationMaster (found in the
+ * {@code mapreduce.jobhistory.done-dir} on HDFS) into a {@link JobRecord}. Only map and reduce tasks are included.
+ */
+public class JobHistoryFileReader
+{
+	/**
+	 * Used to access the file.
+	 */
+	private Configuration conf;
+
+	/**
+	 * Creates a new {@link JobHistoryFileReader}.
+	 *
+	 * @param conf
+	 *            {@link Configuration} Defines the {@link FileSystem} of paths without scheme.
+	 */
+	public JobHistoryFileReader(Configuration conf)
+	{
+		this.conf = conf;
+	}
+
+	/**
+	 * Reads a {@code .jhist} file.
+	 *
+	 * @param path
+	 *            {@link String}
+	 * @return {@link JobRecord}
+	 * @throws IOException
+	 */
+	public JobRecord read(String path) throws IOException
+	{
+		Path historyFile = new Path(path);
+		JobHistoryParser parser = new JobHistoryParser(historyFile.getFileSystem(conf), historyFile);
+		JobInfo jobInfo = parser.parse();
+		if (parser.getParseException() != null)
+		{
+			throw new IOException("Could not fully parse job history file: " + path, parser.getParseException());
+		}
+
+		JobRecord job = new JobRecord(jobInfo.getJobId().toString(), jobInfo.getJobname(), jobInfo.getJobStatus(),
+				jobInfo.getSubmitTime(), jobInfo.getLaunchTime(), jobInfo.getFinishTime());
+		addCounters(job.getCounters(), jobInfo.getTotalCounters());
+
+		for (TaskInfo taskInfo : jobInfo.getAllTasks().values())
+		{
+			if (taskInfo.getTaskType() != TaskType.MAP && taskInfo.getTaskType() != TaskType.REDUCE) continue;
+			job.getTasks().add(createTaskRecord(taskInfo));
+		}
+		job.sumTaskCountersIfMissing();
+		return job;
+	}
+
+	/**
+	 * Creates a {@link TaskRecord} based on the successful attempt of a task (or the last attempt if none succeeded).
+	 *
+	 * @param taskInfo
+	 *            {@link TaskInfo}
+	 * @return {@link TaskRecord}
+	 */
+	private TaskRecord createTaskRecord(TaskInfo taskInfo)
+	{
+		Map<TaskAttemptID, TaskAttemptInfo> attempts = taskInfo.getAllTaskAttempts();
+		TaskAttemptInfo attempt = taskInfo.getSuccessfulAttemptId() == null ? null
+				: attempts.get(taskInfo.getSuccessfulAttemptId());
+		if (attempt == null)
+		{
+			for (TaskAttemptInfo other : attempts.values())
+			{
+				if (attempt == null || other.getStartTime() > attempt.getStartTime()) attempt = other;
+			}
+		}
+
+		TaskRecord task;
+		if (attempt == null)
+		{
+			task = new TaskRecord(taskInfo.getTaskId().toString(), taskInfo.getTaskType(), taskInfo.getTaskStatus(),
+					null, 0, taskInfo.getStartTime(), 0, 0, taskInfo.getFinishTime());
+		}
+		else
+		{
+			task = new TaskRecord(taskInfo.getTaskId().toString(), taskInfo.getTaskType(), taskInfo.getTaskStatus(),
+					attempt.getHostname(), attempts.size(), attempt.getStartTime(), attempt.getShuffleFinishTime(),
+					attempt.getSortFinishTime(), attempt.getFinishTime());
+		}
+		addCounters(task.getCounters(), taskInfo.getCounters() != null ? taskInfo.getCounters()
+				: attempt == null ? null : attempt.getCounters());
+		return task;
+	}
+
+	/**
+	 * Adds Hadoop {@link Counters} to a {@link Map} as {@code <group name>:<counter name>}.
+	 *
+	 * @param map
+	 *            {@link Map}{@code <}{@link String}{@code , }{@link Long}{@code >}
+	 * @param counters
+	 *            {@link Counters} (can be {@code null})
+	 */
+	private static void addCounters(Map<String, Long> map, Counters counters)
+	{
+		if (counters == null) return;
+		for (CounterGroup group : counters)
+		{
+			for (Counter counter : group)
+			{
+				map.put(group.getName() + ":" + counter.getName(), counter.getValue());
+			}
+		}
+	}
+}
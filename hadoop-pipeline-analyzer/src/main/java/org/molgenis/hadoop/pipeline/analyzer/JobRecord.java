@@ -0,0 +1,120 @@
+package org.molgenis.hadoop.pipeline.analyzer;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The timing, counters and {@link TaskRecord}{@code s} of a single MapReduce job. Times are in milliseconds since the
+ * epoch, where {@code 0} means unknown.
+ */
+public class JobRecord
+{
+	private String id;
+	private String name;
+	private String status;
+	private long submitTime;
+	private long launchTime;
+	private long finishTime;
+
+	/**
+	 * The map and reduce tasks of the job.
+	 */
+	private List<TaskRecord> tasks = new ArrayList<>();
+
+	/**
+	 * The job counters, stored as {@code <group name>:<counter name>}.
+	 */
+	private Map<String, Long> counters = new TreeMap<>();
+
+	/**
+	 * Creates a new {@link JobRecord}.
+	 *
+	 * @param id
+	 *            {@link String}
+	 * @param name
+	 *            {@link String}
+	 * @param status
+	 *            {@link String}
+	 * @param submitTime
+	 *            {@code long}
+	 * @param launchTime
+	 *            {@code long}
+	 * @param finishTime
+	 *            {@code long}
+	 */
+	public JobRecord(String id, String name, String status, long submitTime, long launchTime, long finishTime)
+	{
+		this.id = requireNonNull(id);
+		this.name = name;
+		this.status = status;
+		this.submitTime = submitTime;
+		this.launchTime = launchTime;
+		this.finishTime = finishTime;
+	}
+
+	public String getId()
+	{
+		return id;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public String getStatus()
+	{
+		return status;
+	}
+
+	public long getSubmitTime()
+	{
+		return submitTime;
+	}
+
+	public long getLaunchTime()
+	{
+		return launchTime;
+	}
+
+	public long getFinishTime()
+	{
+		return finishTime;
+	}
+
+	public List<TaskRecord> getTasks()
+	{
+		return tasks;
+	}
+
+	public Map<String, Long> getCounters()
+	{
+		return counters;
+	}
+
+	/**
+	 * If no job counters are present, fills them with the sum of the task counters.
+	 */
+	public void sumTaskCountersIfMissing()
+	{
+		if (!counters.isEmpty()) return;
+		for (TaskRecord task : tasks)
+		{
+			for (Map.Entry<String, Long> entry : task.getCounters().entrySet())
+			{
+				Long value = counters.get(entry.getKey());
+				counters.put(entry.getKey(), (value == null ? 0 : value) + entry.getValue());
+			}
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "JobRecord [id=" + id + ", name=" + name + ", status=" + status + ", tasks=" + tasks.size() + "]";
+	}
+}
@@ -0,0 +1,344 @@
+package org.molgenis.hadoop.pipeline.analyzer;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.mapreduce.TaskType;
+
+/**
+ * Analyzes a {@link JobRecord}: the timeline per phase and per node, the skew across the map and reduce tasks and the
+ * straggling tasks. All times in the report are in milliseconds, where points in time are given as offset from the job
+ * launch so reports of different runs can be compared directly.
+ */
+public class JobReport
+{
+	private static final String TASK_COUNTER = "org.apache.hadoop.mapreduce.TaskCounter";
+	private static final String FILE_SYSTEM_COUNTER = "org.apache.hadoop.mapreduce.FileSystemCounter";
+
+	/**
+	 * The job to analyze.
+	 */
+	private JobRecord job;
+
+	/**
+	 * A task is a straggler if its duration is more than this factor times the median duration of its type.
+	 */
+	private double stragglerFactor;
+
+	/**
+	 * The point in time all offsets are relative to.
+	 */
+	private long referenceTime;
+
+	/**
+	 * Creates a new {@link JobReport}.
+	 *
+	 * @param job
+	 *            {@link JobRecord}
+	 * @param stragglerFactor
+	 *            {@code double} A task is a straggler if its duration is more than this factor times the median
+	 *            duration of its type.
+	 * @throws IllegalArgumentException
+	 *             If {@code stragglerFactor} is not larger than 1.
+	 */
+	public JobReport(JobRecord job, double stragglerFactor) throws IllegalArgumentException
+	{
+		if (stragglerFactor <= 1)
+		{
+			throw new IllegalArgumentException("The straggler factor should be larger than 1.");
+		}
+		this.job = requireNonNull(job);
+		this.stragglerFactor = stragglerFactor;
+
+		referenceTime = job.getLaunchTime() > 0 ? job.getLaunchTime() : job.getSubmitTime();
+	}
+
+	/**
+	 * Generates the report as an ordered {@link Map} (which can be written as JSON).
+	 *
+	 * @return {@link Map}{@code <}{@link String}{@code , }{@link Object}{@code >}
+	 */
+	public Map<String, Object> toMap()
+	{
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("job", createJobSection());
+		report.put("phases", createPhasesSection());
+		report.put("skew", createSkewSection());
+		report.put("stragglers", createStragglersSection());
+		report.put("nodes", createNodesSection());
+		report.put("counters", new TreeMap<>(job.getCounters()));
+		return report;
+	}
+
+	private Map<String, Object> createJobSection()
+	{
+		int failedAttempts = 0;
+		for (TaskRecord task : job.getTasks())
+		{
+			failedAttempts += Math.max(0, task.getAttempts() - 1);
+		}
+
+		Map<String, Object> section = new LinkedHashMap<>();
+		section.put("id", job.getId());
+		section.put("name", job.getName());
+		section.put("status", job.getStatus());
+		section.put("queueMillis", job.getLaunchTime() > 0 ? job.getLaunchTime() - job.getSubmitTime() : 0);
+		section.put("elapsedMillis", job.getFinishTime() - referenceTime);
+		section.put("mapTasks", getTasks(TaskType.MAP).size());
+		section.put("reduceTasks", getTasks(TaskType.REDUCE).size());
+		section.put("extraAttempts", failedAttempts);
+		return section;
+	}
+
+	/**
+	 * Creates the phase timeline: map (first map start until last map finish), shuffle (first reduce start until last
+	 * shuffle finish), merge (first shuffle finish until last merge finish) and reduce (first merge finish until last
+	 * reduce finish). Phases without data are left out.
+	 *
+	 * @return {@link Map}{@code <}{@link String}{@code , }{@link Object}{@code >}
+	 */
+	private Map<String, Object> createPhasesSection()
+	{
+		List<TaskRecord> maps = getTasks(TaskType.MAP);
+		List<TaskRecord> reduces = getTasks(TaskType.REDUCE);
+
+		Map<String, Object> section = new LinkedHashMap<>();
+		addPhase(section, "map", minStart(maps), maxFinish(maps));
+		long shuffleStart = minStart(reduces);
+		long shuffleEnd = 0;
+		long mergeStart = Long.MAX_VALUE;
+		long mergeEnd = 0;
+		long reduceStart = Long.MAX_VALUE;
+		for (TaskRecord task : reduces)
+		{
+			if (task.getShuffleFinishTime() > 0)
+			{
+				shuffleEnd = Math.max(shuffleEnd, task.getShuffleFinishTime());
+				mergeStart = Math.min(mergeStart, task.getShuffleFinishTime());
+			}
+			if (task.getMergeFinishTime() > 0)
+			{
+				mergeEnd = Math.max(mergeEnd, task.getMergeFinishTime());
+				reduceStart = Math.min(reduceStart, task.getMergeFinishTime());
+			}
+		}
+		addPhase(section, "shuffle", shuffleStart, shuffleEnd);
+		addPhase(section, "merge", mergeStart, mergeEnd);
+		addPhase(section, "reduce", reduceStart, maxFinish(reduces));
+		return section;
+	}
+
+	private void addPhase(Map<String, Object> section, String name, long start, long end)
+	{
+		if (start == Long.MAX_VALUE || end == 0 || end < start) return;
+
+		Map<String, Object> phase = new LinkedHashMap<>();
+		phase.put("startOffsetMillis", start - referenceTime);
+		phase.put("endOffsetMillis", end - referenceTime);
+		phase.put("durationMillis", end - start);
+		section.put(name, phase);
+	}
+
+	/**
+	 * Creates the skew statistics across the map tasks and the reduce tasks (where each reducer handles a set of
+	 * reduce groups).
+	 *
+	 * @return {@link Map}{@code <}{@link String}{@code , }{@link Object}{@code >}
+	 */
+	private Map<String, Object> createSkewSection()
+	{
+		List<TaskRecord> maps = getTasks(TaskType.MAP);
+		List<TaskRecord> reduces = getTasks(TaskType.REDUCE);
+
+		Map<String, Object> section = new LinkedHashMap<>();
+		addStatistics(section, "mapDurationMillis", durations(maps));
+		addStatistics(section, "mapInputBytes", counterValues(maps, FILE_SYSTEM_COUNTER, "HDFS_BYTES_READ"));
+		addStatistics(section, "mapOutputRecords", counterValues(maps, TASK_COUNTER, "MAP_OUTPUT_RECORDS"));
+		addStatistics(section, "mapOutputBytes", counterValues(maps, TASK_COUNTER, "MAP_OUTPUT_MATERIALIZED_BYTES"));
+		addStatistics(section, "reduceDurationMillis", durations(reduces));
+		addStatistics(section, "reduceShuffleBytes", counterValues(reduces, TASK_COUNTER, "REDUCE_SHUFFLE_BYTES"));
+		addStatistics(section, "reduceInputGroups", counterValues(reduces, TASK_COUNTER, "REDUCE_INPUT_GROUPS"));
+		addStatistics(section, "reduceInputRecords", counterValues(reduces, TASK_COUNTER, "REDUCE_INPUT_RECORDS"));
+
+		// The average number of records per reduce group of each reducer.
+		List<Long> recordsPerGroup = new ArrayList<>();
+		for (TaskRecord task : reduces)
+		{
+			Long groups = task.getCounter(TASK_COUNTER, "REDUCE_INPUT_GROUPS");
+			Long records = task.getCounter(TASK_COUNTER, "REDUCE_INPUT_RECORDS");
+			if (groups != null && records != null && groups > 0) recordsPerGroup.add(records / groups);
+		}
+		addStatistics(section, "reduceRecordsPerGroup", recordsPerGroup);
+		return section;
+	}
+
+	private static void addStatistics(Map<String, Object> section, String name, List<Long> values)
+	{
+		if (!values.isEmpty()) section.put(name, new SummaryStatistics(values).toMap());
+	}
+
+	/**
+	 * Lists the tasks with a duration of more than {@link #stragglerFactor} times the median duration of their type.
+	 *
+	 * @return {@link List}{@code <}{@link Map}{@code <}{@link String}{@code , }{@link Object}{@code >>}
+	 */
+	private List<Map<String, Object>> createStragglersSection()
+	{
+		List<Map<String, Object>> stragglers = new ArrayList<>();
+		for (TaskType type : new TaskType[] { TaskType.MAP, TaskType.REDUCE })
+		{
+			List<TaskRecord> tasks = getTasks(type);
+			if (tasks.isEmpty()) continue;
+			double median = new SummaryStatistics(durations(tasks)).getMedian();
+			if (median == 0) continue;
+
+			for (TaskRecord task : tasks)
+			{
+				if (task.getDuration() > stragglerFactor * median)
+				{
+					Map<String, Object> straggler = new LinkedHashMap<>();
+					straggler.put("id", task.getId());
+					straggler.put("type", type.toString());
+					straggler.put("host", task.getHost());
+					straggler.put("durationMillis", task.getDuration());
+					straggler.put("medianMillis", SummaryStatistics.round(median));
+					straggler.put("ratio", SummaryStatistics.round(task.getDuration() / median));
+					stragglers.add(straggler);
+				}
+			}
+		}
+		return stragglers;
+	}
+
+	/**
+	 * Creates the timeline per node: the tasks that ran on each host (ordered on start) with their totals.
+	 *
+	 * @return {@link List}{@code <}{@link Map}{@code <}{@link String}{@code , }{@link Object}{@code >>}
+	 */
+	private List<Map<String, Object>> createNodesSection()
+	{
+		Map<String, List<TaskRecord>> hostTasks = new TreeMap<>();
+		for (TaskRecord task : getTasks(null))
+		{
+			List<TaskRecord> tasks = hostTasks.get(task.getHost());
+			if (tasks == null)
+			{
+				tasks = new ArrayList<>();
+				hostTasks.put(task.getHost(), tasks);
+			}
+			tasks.add(task);
+		}
+
+		List<Map<String, Object>> nodes = new ArrayList<>();
+		for (Map.Entry<String, List<TaskRecord>> entry : hostTasks.entrySet())
+		{
+			int mapTasks = 0;
+			long busy = 0;
+			List<Map<String, Object>> timeline = new ArrayList<>();
+			for (TaskRecord task : entry.getValue())
+			{
+				if (task.getType() == TaskType.MAP) mapTasks++;
+				busy += task.getDuration();
+
+				Map<String, Object> item = new LinkedHashMap<>();
+				item.put("id", task.getId());
+				item.put("type", task.getType().toString());
+				item.put("startOffsetMillis", task.getStartTime() - referenceTime);
+				item.put("finishOffsetMillis", task.getFinishTime() - referenceTime);
+				timeline.add(item);
+			}
+
+			Map<String, Object> node = new LinkedHashMap<>();
+			node.put("host", entry.getKey());
+			node.put("mapTasks", mapTasks);
+			node.put("reduceTasks", entry.getValue().size() - mapTasks);
+			node.put("busyMillis", busy);
+			node.put("firstStartOffsetMillis", minStart(entry.getValue()) - referenceTime);
+			node.put("lastFinishOffsetMillis", maxFinish(entry.getValue()) - referenceTime);
+			node.put("tasks", timeline);
+			nodes.add(node);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Returns the tasks of a type ordered on start time (and id).
+	 *
+	 * @param type
+	 *            {@link TaskType} ({@code null} for all types)
+	 * @return {@link List}{@code <}{@link TaskRecord}{@code >}
+	 */
+	private List<TaskRecord> getTasks(TaskType type)
+	{
+		List<TaskRecord> tasks = new ArrayList<>();
+		for (TaskRecord task : job.getTasks())
+		{
+			if (type == null || task.getType() == type) tasks.add(task);
+		}
+		Collections.sort(tasks, new Comparator<TaskRecord>()
+		{
+			@Override
+			public int compare(TaskRecord o1, TaskRecord o2)
+			{
+				int c = Long.compare(o1.getStartTime(), o2.getStartTime());
+				if (c == 0) c = o1.getId().compareTo(o2.getId());
+				return c;
+			}
+		});
+		return tasks;
+	}
+
+	private static List<Long> durations(List<TaskRecord> tasks)
+	{
+		List<Long> durations = new ArrayList<>();
+		for (TaskRecord task : tasks)
+		{
+			if (task.getDuration() > 0) durations.add(task.getDuration());
+		}
+		return durations;
+	}
+
+	private static List<Long> counterValues(List<TaskRecord> tasks, String group, String name)
+	{
+		List<Long> values = new ArrayList<>();
+		for (TaskRecord task : tasks)
+		{
+			Long value = task.getCounter(group, name);
+			if (value != null) values.add(value);
+		}
+		return values;
+	}
+
+	/**
+	 * @return {@code long} The earliest (known) start time, or {@link Long#MAX_VALUE} if none.
+	 */
+	private static long minStart(List<TaskRecord> tasks)
+	{
+		long min = Long.MAX_VALUE;
+		for (TaskRecord task : tasks)
+		{
+			if (task.getStartTime() > 0) min = Math.min(min, task.getStartTime());
+		}
+		return min;
+	}
+
+	/**
+	 * @return {@code long} The latest finish time, or {@code 0} if none.
+	 */
+	private static long maxFinish(List<TaskRecord> tasks)
+	{
+		long max = 0;
+		for (TaskRecord task : tasks)
+		{
+			max = Math.max(max, task.getFinishTime());
+		}
+		return max;
+	}
+}
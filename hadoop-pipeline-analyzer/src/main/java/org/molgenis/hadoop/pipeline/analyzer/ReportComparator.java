@@ -0,0 +1,137 @@
+package org.molgenis.hadoop.pipeline.analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Compares two reports generated by the {@link JobHistoryAnalyzer} (for example of a baseline run and a run with a
+ * change) and lists the numeric values of the job, phases, skew and counters sections that changed by more than a
+ * threshold. The jobs are matched on their position in the reports. Exits with status {@code 1} if any duration
+ * (including time counters) increased by more than the threshold.
+ *
+ * <pre>
+ * java -cp analyzer.jar org.molgenis.hadoop.pipeline.analyzer.ReportComparator &lt;baseline.json&gt; &lt;current.json&gt; [--threshold &lt;fraction&gt;]
+ * </pre>
+ */
+public class ReportComparator
+{
+	/**
+	 * The sections of a job report that are compared.
+	 */
+	private static final String[] SECTIONS = { "job", "phases", "skew", "counters" };
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length != 2 && !(args.length == 4 && args[2].equals("--threshold")))
+		{
+			throw new IllegalArgumentException(
+					"Usage: ReportComparator <baseline.json> <current.json> [--threshold <fraction>]");
+		}
+		double threshold = args.length == 4 ? Double.parseDouble(args[3]) : 0.1;
+
+		ObjectMapper mapper = new ObjectMapper();
+		boolean regression = compare(mapper.readTree(new File(args[0])), mapper.readTree(new File(args[1])),
+				threshold);
+		System.exit(regression ? 1 : 0);
+	}
+
+	/**
+	 * Prints the values that changed by more than {@code threshold}.
+	 *
+	 * @param baseline
+	 *            {@link JsonNode}
+	 * @param current
+	 *            {@link JsonNode}
+	 * @param threshold
+	 *            {@code double} The relative change (as fraction).
+	 * @return {@code boolean} {@code true} if any duration increased by more than {@code threshold}.
+	 */
+	static boolean compare(JsonNode baseline, JsonNode current, double threshold)
+	{
+		JsonNode baselineJobs = baseline.path("jobs");
+		JsonNode currentJobs = current.path("jobs");
+		if (baselineJobs.size() != currentJobs.size())
+		{
+			System.out.println("# Number of jobs differs: " + baselineJobs.size() + " vs " + currentJobs.size());
+		}
+
+		boolean regression = false;
+		System.out.println("job\tmetric\tbaseline\tcurrent\tchange");
+		for (int i = 0; i < Math.min(baselineJobs.size(), currentJobs.size()); i++)
+		{
+			Map<String, Double> baselineValues = new TreeMap<>();
+			Map<String, Double> currentValues = new TreeMap<>();
+			for (String section : SECTIONS)
+			{
+				flatten(section, baselineJobs.get(i).path(section), baselineValues);
+				flatten(section, currentJobs.get(i).path(section), currentValues);
+			}
+
+			for (Map.Entry<String, Double> entry : baselineValues.entrySet())
+			{
+				Double currentValue = currentValues.get(entry.getKey());
+				if (currentValue == null) continue;
+
+				double change = entry.getValue() == 0 ? (currentValue == 0 ? 0 : Double.POSITIVE_INFINITY)
+						: (currentValue - entry.getValue()) / Math.abs(entry.getValue());
+				if (Math.abs(change) > threshold)
+				{
+					System.out.println(i + "\t" + entry.getKey() + "\t" + format(entry.getValue()) + "\t"
+							+ format(currentValue) + "\t" + String.format("%+.1f%%", change * 100));
+					if (change > 0 && isDuration(entry.getKey())) regression = true;
+				}
+			}
+		}
+		return regression;
+	}
+
+	/**
+	 * Stores all numeric values of a JSON object (recursively, skipping arrays) as {@code <path>: <value>}.
+	 *
+	 * @param path
+	 *            {@link String}
+	 * @param node
+	 *            {@link JsonNode}
+	 * @param values
+	 *            {@link Map}{@code <}{@link String}{@code , }{@link Double}{@code >}
+	 */
+	private static void flatten(String path, JsonNode node, Map<String, Double> values)
+	{
+		if (node.isNumber())
+		{
+			values.put(path, node.asDouble());
+		}
+		else if (node.isObject())
+		{
+			Iterator<Map.Entry<String, JsonNode>> fields = node.getFields();
+			while (fields.hasNext())
+			{
+				Map.Entry<String, JsonNode> field = fields.next();
+				flatten(path + "." + field.getKey(), field.getValue(), values);
+			}
+		}
+	}
+
+	/**
+	 * @param metric
+	 *            {@link String}
+	 * @return {@code boolean} Whether the metric is a duration (such as {@code phases.map.durationMillis} or the
+	 *         {@code CPU_MILLISECONDS} counter).
+	 */
+	private static boolean isDuration(String metric)
+	{
+		String name = metric.toLowerCase();
+		return name.endsWith("millis") || name.endsWith("milliseconds");
+	}
+
+	private static String format(double value)
+	{
+		return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+	}
+}
@@ -0,0 +1,160 @@
+package org.molgenis.hadoop.pipeline.analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.hadoop.mapreduce.TaskType;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Reads a directory containing the JSON files of a single job as downloaded from the MapReduce History Server REST API
+ * by {@code hadoop-pipeline-benchmarking/HadoopJobInformationRetriever.py} ({@code job_info.json},
+ * {@code job_counters.json}, {@code tasks_info.json} and {@code <task id>_attempts.json}/{@code _counters.json}) into
+ * a {@link JobRecord}.
+ */
+public class RestJsonDirectoryReader
+{
+	private ObjectMapper mapper = new ObjectMapper();
+
+	/**
+	 * Reads a job directory.
+	 *
+	 * @param directory
+	 *            {@link File}
+	 * @return {@link JobRecord}
+	 * @throws IOException
+	 *             If a required file is missing or invalid.
+	 */
+	public JobRecord read(File directory) throws IOException
+	{
+		JsonNode jobNode = readJson(new File(directory, "job_info.json")).path("job");
+		JobRecord job = new JobRecord(jobNode.path("id").asText(), jobNode.path("name").asText(),
+				jobNode.path("state").asText(), jobNode.path("submitTime").asLong(),
+				jobNode.path("startTime").asLong(), jobNode.path("finishTime").asLong());
+
+		File jobCountersFile = new File(directory, "job_counters.json");
+		if (jobCountersFile.isFile())
+		{
+			addCounters(job.getCounters(), readJson(jobCountersFile).path("jobCounters").path("counterGroup"),
+					"totalCounterValue");
+		}
+
+		for (JsonNode taskNode : readJson(new File(directory, "tasks_info.json")).path("tasks").path("task"))
+		{
+			TaskType type;
+			try
+			{
+				type = TaskType.valueOf(taskNode.path("type").asText());
+			}
+			catch (IllegalArgumentException e)
+			{
+				continue;
+			}
+			if (type != TaskType.MAP && type != TaskType.REDUCE) continue;
+			job.getTasks().add(createTaskRecord(directory, taskNode, type));
+		}
+		job.sumTaskCountersIfMissing();
+		return job;
+	}
+
+	/**
+	 * Creates a {@link TaskRecord} based on the successful attempt of a task (or the last attempt if none succeeded).
+	 *
+	 * @param directory
+	 *            {@link File}
+	 * @param taskNode
+	 *            {@link JsonNode}
+	 * @param type
+	 *            {@link TaskType}
+	 * @return {@link TaskRecord}
+	 * @throws IOException
+	 */
+	private TaskRecord createTaskRecord(File directory, JsonNode taskNode, TaskType type) throws IOException
+	{
+		String taskId = taskNode.path("id").asText();
+		String successfulAttempt = taskNode.path("successfulAttempt").asText();
+
+		JsonNode successful = null;
+		JsonNode latest = null;
+		int nAttempts = 0;
+		File attemptsFile = new File(directory, taskId + "_attempts.json");
+		if (attemptsFile.isFile())
+		{
+			for (JsonNode attemptNode : readJson(attemptsFile).path("taskAttempts").path("taskAttempt"))
+			{
+				nAttempts++;
+				if (attemptNode.path("id").asText().equals(successfulAttempt)) successful = attemptNode;
+				if (latest == null || attemptNode.path("startTime").asLong() > latest.path("startTime").asLong())
+				{
+					latest = attemptNode;
+				}
+			}
+		}
+		JsonNode attempt = successful != null ? successful : latest;
+
+		TaskRecord task;
+		if (attempt == null)
+		{
+			task = new TaskRecord(taskId, type, taskNode.path("state").asText(), null, 0,
+					taskNode.path("startTime").asLong(), 0, 0, taskNode.path("finishTime").asLong());
+		}
+		else
+		{
+			// The node address is given as <host>:<port>.
+			String host = attempt.path("nodeHttpAddress").asText().replaceFirst(":\\d+$", "");
+			task = new TaskRecord(taskId, type, taskNode.path("state").asText(), host.isEmpty() ? null : host,
+					nAttempts, attempt.path("startTime").asLong(), attempt.path("shuffleFinishTime").asLong(),
+					attempt.path("mergeFinishTime").asLong(), attempt.path("finishTime").asLong());
+		}
+
+		File countersFile = new File(directory, taskId + "_counters.json");
+		if (countersFile.isFile())
+		{
+			addCounters(task.getCounters(),
+					readJson(countersFile).path("jobTaskCounters").path("taskCounterGroup"), "value");
+		}
+		return task;
+	}
+
+	/**
+	 * Adds the counters from a REST API counter group array to a {@link Map} as {@code <group name>:<counter name>}.
+	 *
+	 * @param map
+	 *            {@link Map}{@code <}{@link String}{@code , }{@link Long}{@code >}
+	 * @param groups
+	 *            {@link JsonNode}
+	 * @param valueField
+	 *            {@link String} The field storing the counter value.
+	 */
+	private static void addCounters(Map<String, Long> map, JsonNode groups, String valueField)
+	{
+		for (JsonNode group : groups)
+		{
+			for (JsonNode counter : group.path("counter"))
+			{
+				map.put(group.path("counterGroupName").asText() + ":" + counter.path("name").asText(),
+						counter.path(valueField).asLong());
+			}
+		}
+	}
+
+	/**
+	 * Reads a JSON file.
+	 *
+	 * @param file
+	 *            {@link File}
+	 * @return {@link JsonNode}
+	 * @throws IOException
+	 *             If the file does not exist or is invalid.
+	 */
+	private JsonNode readJson(File file) throws IOException
+	{
+		if (!file.isFile())
+		{
+			throw new IOException("Missing job information file: " + file);
+		}
+		return mapper.readTree(file);
+	}
+}
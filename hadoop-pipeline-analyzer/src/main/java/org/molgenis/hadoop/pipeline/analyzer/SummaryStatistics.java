@@ -0,0 +1,138 @@
+package org.molgenis.hadoop.pipeline.analyzer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary statistics of a set of values, used for detecting skew: a high {@link #getMaxToMedian()} or
+ * {@link #getCoefficientOfVariation()} means a few tasks process much more than the others.
+ */
+public class SummaryStatistics
+{
+	private int count;
+	private long min;
+	private double median;
+	private long max;
+	private double mean;
+	private double standardDeviation;
+
+	/**
+	 * Calculates the statistics of the given values.
+	 *
+	 * @param values
+	 *            {@link Collection}{@code <}{@link Long}{@code >}
+	 * @throws IllegalArgumentException
+	 *             If {@code values} is empty.
+	 */
+	public SummaryStatistics(Collection<Long> values) throws IllegalArgumentException
+	{
+		if (values.isEmpty())
+		{
+			throw new IllegalArgumentException("At least one value is required.");
+		}
+
+		List<Long> sorted = new ArrayList<>(values);
+		Collections.sort(sorted);
+		count = sorted.size();
+		min = sorted.get(0);
+		max = sorted.get(count - 1);
+		median = count % 2 == 1 ? sorted.get(count / 2) : (sorted.get(count / 2 - 1) + sorted.get(count / 2)) / 2.0;
+
+		double sum = 0;
+		for (long value : sorted)
+		{
+			sum += value;
+		}
+		mean = sum / count;
+
+		double squaredDifferences = 0;
+		for (long value : sorted)
+		{
+			squaredDifferences += (value - mean) * (value - mean);
+		}
+		standardDeviation = Math.sqrt(squaredDifferences / count);
+	}
+
+	public int getCount()
+	{
+		return count;
+	}
+
+	public long getMin()
+	{
+		return min;
+	}
+
+	public double getMedian()
+	{
+		return median;
+	}
+
+	public long getMax()
+	{
+		return max;
+	}
+
+	public double getMean()
+	{
+		return mean;
+	}
+
+	/**
+	 * @return {@code double} The population standard deviation.
+	 */
+	public double getStandardDeviation()
+	{
+		return standardDeviation;
+	}
+
+	/**
+	 * @return {@code double} The maximum divided by the median ({@code 0} if the median is {@code 0}).
+	 */
+	public double getMaxToMedian()
+	{
+		return median == 0 ? 0 : max / median;
+	}
+
+	/**
+	 * @return {@code double} The standard deviation divided by the mean ({@code 0} if the mean is {@code 0}).
+	 */
+	public double getCoefficientOfVariation()
+	{
+		return mean == 0 ? 0 : standardDeviation / mean;
+	}
+
+	/**
+	 * Returns the statistics as an ordered {@link Map} (with the decimal values rounded to 3 decimals).
+	 *
+	 * @return {@link Map}{@code <}{@link String}{@code , }{@link Object}{@code >}
+	 */
+	public Map<String, Object> toMap()
+	{
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("count", count);
+		map.put("min", min);
+		map.put("median", round(median));
+		map.put("max", max);
+		map.put("mean", round(mean));
+		map.put("maxToMedian", round(getMaxToMedian()));
+		map.put("coefficientOfVariation", round(getCoefficientOfVariation()));
+		return map;
+	}
+
+	/**
+	 * Rounds a value to 3 decimals.
+	 *
+	 * @param value
+	 *            {@code double}
+	 * @return {@code double}
+	 */
+	static double round(double value)
+	{
+		return Math.round(value * 1000) / 1000.0;
+	}
+}
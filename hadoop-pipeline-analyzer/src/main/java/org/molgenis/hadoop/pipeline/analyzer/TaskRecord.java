@@ -0,0 +1,145 @@
+package org.molgenis.hadoop.pipeline.analyzer;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.mapreduce.TaskType;
+
+/**
+ * The timing and counters of a single map or reduce task (based on its successful attempt, or its last attempt if none
+ * succeeded). Times are in milliseconds since the epoch, where {@code 0} means unknown.
+ */
+public class TaskRecord
+{
+	private String id;
+	private TaskType type;
+	private String status;
+	private String host;
+	private int attempts;
+	private long startTime;
+	private long shuffleFinishTime;
+	private long mergeFinishTime;
+	private long finishTime;
+
+	/**
+	 * The counters of the task, stored as {@code <group name>:<counter name>}.
+	 */
+	private Map<String, Long> counters = new TreeMap<>();
+
+	/**
+	 * Creates a new {@link TaskRecord}.
+	 *
+	 * @param id
+	 *            {@link String}
+	 * @param type
+	 *            {@link TaskType}
+	 * @param status
+	 *            {@link String}
+	 * @param host
+	 *            {@link String} The host the attempt ran on.
+	 * @param attempts
+	 *            {@code int} The number of attempts of the task.
+	 * @param startTime
+	 *            {@code long}
+	 * @param shuffleFinishTime
+	 *            {@code long} Only for reduce tasks.
+	 * @param mergeFinishTime
+	 *            {@code long} Only for reduce tasks.
+	 * @param finishTime
+	 *            {@code long}
+	 */
+	public TaskRecord(String id, TaskType type, String status, String host, int attempts, long startTime,
+			long shuffleFinishTime, long mergeFinishTime, long finishTime)
+	{
+		this.id = requireNonNull(id);
+		this.type = requireNonNull(type);
+		this.status = status;
+		this.host = host == null ? "unknown" : host;
+		this.attempts = attempts;
+		this.startTime = startTime;
+		this.shuffleFinishTime = shuffleFinishTime;
+		this.mergeFinishTime = mergeFinishTime;
+		this.finishTime = finishTime;
+	}
+
+	public String getId()
+	{
+		return id;
+	}
+
+	public TaskType getType()
+	{
+		return type;
+	}
+
+	public String getStatus()
+	{
+		return status;
+	}
+
+	public String getHost()
+	{
+		return host;
+	}
+
+	public int getAttempts()
+	{
+		return attempts;
+	}
+
+	public long getStartTime()
+	{
+		return startTime;
+	}
+
+	public long getShuffleFinishTime()
+	{
+		return shuffleFinishTime;
+	}
+
+	public long getMergeFinishTime()
+	{
+		return mergeFinishTime;
+	}
+
+	public long getFinishTime()
+	{
+		return finishTime;
+	}
+
+	/**
+	 * @return {@code long} The duration of the task in milliseconds ({@code 0} if unknown).
+	 */
+	public long getDuration()
+	{
+		return startTime > 0 && finishTime >= startTime ? finishTime - startTime : 0;
+	}
+
+	public Map<String, Long> getCounters()
+	{
+		return counters;
+	}
+
+	/**
+	 * Retrieves a counter value.
+	 *
+	 * @param group
+	 *            {@link String}
+	 * @param name
+	 *            {@link String}
+	 * @return {@link Long} The value, or {@code null} if the counter is not present.
+	 */
+	public Long getCounter(String group, String name)
+	{
+		return counters.get(group + ":" + name);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "TaskRecord [id=" + id + ", type=" + type + ", status=" + status + ", host=" + host + ", attempts="
+				+ attempts + ", startTime=" + startTime + ", finishTime=" + finishTime + "]";
+	}
+}
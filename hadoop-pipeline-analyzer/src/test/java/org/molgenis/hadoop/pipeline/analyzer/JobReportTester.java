@@ -0,0 +1,117 @@
+package org.molgenis.hadoop.pipeline.analyzer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.mapreduce.TaskType;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link JobReport} and {@link SummaryStatistics}.
+ */
+public class JobReportTester
+{
+	/**
+	 * The report of a job with 4 map tasks (one straggling) and 2 reduce tasks.
+	 */
+	private Map<String, Object> report;
+
+	@BeforeClass
+	public void beforeClass()
+	{
+		JobRecord job = new JobRecord("job_1_0001", "test", "SUCCEEDED", 1000, 2000, 60000);
+		job.getTasks().add(createMap("task_1_0001_m_000000", "node1", 3000, 13000, 100));
+		job.getTasks().add(createMap("task_1_0001_m_000001", "node1", 3000, 14000, 100));
+		job.getTasks().add(createMap("task_1_0001_m_000002", "node2", 3000, 12000, 100));
+		job.getTasks().add(createMap("task_1_0001_m_000003", "node2", 4000, 34000, 500));
+		job.getTasks().add(new TaskRecord("task_1_0001_r_000000", TaskType.REDUCE, "SUCCEEDED", "node1", 1, 10000,
+				35000, 36000, 50000));
+		job.getTasks().add(new TaskRecord("task_1_0001_r_000001", TaskType.REDUCE, "SUCCEEDED", "node2", 2, 11000,
+				35500, 37000, 58000));
+		report = new JobReport(job, 1.5).toMap();
+	}
+
+	private static TaskRecord createMap(String id, String host, long start, long finish, long outputRecords)
+	{
+		TaskRecord task = new TaskRecord(id, TaskType.MAP, "SUCCEEDED", host, 1, start, 0, 0, finish);
+		task.getCounters().put("org.apache.hadoop.mapreduce.TaskCounter:MAP_OUTPUT_RECORDS", outputRecords);
+		return task;
+	}
+
+	/**
+	 * Tests whether the phases are relative to the job launch time.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testPhases()
+	{
+		Map<String, Object> phases = (Map<String, Object>) report.get("phases");
+		Map<String, Object> map = (Map<String, Object>) phases.get("map");
+		Assert.assertEquals(map.get("startOffsetMillis"), 1000L);
+		Assert.assertEquals(map.get("endOffsetMillis"), 32000L);
+		Map<String, Object> shuffle = (Map<String, Object>) phases.get("shuffle");
+		Assert.assertEquals(shuffle.get("durationMillis"), 25500L);
+		Map<String, Object> reduce = (Map<String, Object>) phases.get("reduce");
+		Assert.assertEquals(reduce.get("startOffsetMillis"), 34000L);
+		Assert.assertEquals(reduce.get("endOffsetMillis"), 56000L);
+	}
+
+	/**
+	 * Tests whether only the map task that is much slower than the median is a straggler.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testStragglers()
+	{
+		List<Map<String, Object>> stragglers = (List<Map<String, Object>>) report.get("stragglers");
+		Assert.assertEquals(stragglers.size(), 1);
+		Assert.assertEquals(stragglers.get(0).get("id"), "task_1_0001_m_000003");
+		Assert.assertEquals(stragglers.get(0).get("medianMillis"), 10500.0);
+	}
+
+	/**
+	 * Tests whether the skew statistics are calculated for the task counters.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSkew()
+	{
+		Map<String, Object> skew = (Map<String, Object>) report.get("skew");
+		Map<String, Object> records = (Map<String, Object>) skew.get("mapOutputRecords");
+		Assert.assertEquals(records.get("median"), 100.0);
+		Assert.assertEquals(records.get("maxToMedian"), 5.0);
+		Assert.assertNull(skew.get("reduceShuffleBytes"));
+	}
+
+	/**
+	 * Tests whether the tasks are grouped per node.
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testNodes()
+	{
+		List<Map<String, Object>> nodes = (List<Map<String, Object>>) report.get("nodes");
+		Assert.assertEquals(nodes.size(), 2);
+		Assert.assertEquals(nodes.get(1).get("host"), "node2");
+		Assert.assertEquals(nodes.get(1).get("mapTasks"), 2);
+		Assert.assertEquals(nodes.get(1).get("reduceTasks"), 1);
+		Assert.assertEquals(nodes.get(1).get("busyMillis"), 86000L);
+	}
+
+	/**
+	 * Tests the summary statistics of an even number of values.
+	 */
+	@Test
+	public void testSummaryStatistics()
+	{
+		SummaryStatistics statistics = new SummaryStatistics(Arrays.asList(4L, 1L, 3L, 2L));
+		Assert.assertEquals(statistics.getMin(), 1);
+		Assert.assertEquals(statistics.getMax(), 4);
+		Assert.assertEquals(statistics.getMedian(), 2.5);
+		Assert.assertEquals(statistics.getMean(), 2.5);
+		Assert.assertEquals(SummaryStatistics.round(statistics.getCoefficientOfVariation()), 0.447);
+	}
+}
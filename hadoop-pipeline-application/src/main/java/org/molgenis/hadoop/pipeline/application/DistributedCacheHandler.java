@@ -3,8 +3,11 @@ package org.molgenis.hadoop.pipeline.application;
 import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
+import java.net.URI;
 
 import org.apache.commons.io.FilenameUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.molgenis.hadoop.pipeline.application.inputdigestion.CommandLineInputParser;
@@ -21,13 +24,21 @@ public class DistributedCacheHandler
 	// the archives are added to the distributed cache in addCacheToJob().
 	private static final int TOOLS_ARCHIVE = 0;
 
-	// Static instance variables for storing the file positions stored in the distributed cache using
-	// addCacheToJob() from this class. Be sure the position numbers stored here reflect the order that
-	// the files are added to the distributed cache in addCacheToJob().
-	private static final int REFERENCE_FASTA_FILE = 0;
-	private static final int REFERENCE_DICT_FILE = 7;
-	private static final int BED_FILE = 8;
-	private static final int SAMPLES_INFO__FILE = 9;
+	/**
+	 * Prefix of the configuration properties storing the location of each {@link CacheFile}, so the files are looked
+	 * up by name instead of by their position in {@link JobContext#getCacheFiles()} (which depends on the optional
+	 * files being added or not).
+	 */
+	private static final String CACHE_FILE_PROPERTY_PREFIX = "hadoop.pipeline.cachefile.";
+
+	/**
+	 * The files added to the distributed cache that are retrieved by the tasks. Note that the bed file is not added
+	 * when fixed windows are used (see {@link DistributedCacheHandler#hasBedFile()}).
+	 */
+	public enum CacheFile
+	{
+		REFERENCE_FASTA, REFERENCE_DICT, BED, SAMPLES_INFO, REGION_STORE
+	}
 
 	/**
 	 * The object storing the files added to the distributed cache.
@@ -92,18 +103,65 @@ public class DistributedCacheHandler
 		// Make sure the correct position number is stored in the static instance variables!
 		job.addCacheArchive(parser.getToolsArchiveLocation().toUri()); // [0]
 
-		// IMPORTANT: input order defines position in array for retrieval!!!
-		// Make sure the correct position number is stored in the static instance variables!
-		job.addCacheFile(parser.getAlignmentReferenceFastaFile().toUri()); // [0]
-		job.addCacheFile(parser.getAlignmentReferenceFastaAmbFile().toUri()); // [1]
-		job.addCacheFile(parser.getAlignmentReferenceFastaAnnFile().toUri()); // [2]
-		job.addCacheFile(parser.getAlignmentReferenceFastaBwtFile().toUri()); // [3]
-		job.addCacheFile(parser.getAlignmentReferenceFastaFaiFile().toUri()); // [4]
-		job.addCacheFile(parser.getAlignmentReferenceFastaPacFile().toUri()); // [5]
-		job.addCacheFile(parser.getAlignmentReferenceFastaSaFile().toUri()); // [6]
-		job.addCacheFile(parser.getAlignmentReferenceDictFile().toUri()); // [7]
-		job.addCacheFile(parser.getBedFile().toUri()); // [8]
-		job.addCacheFile(parser.getSamplesInfoFile().toUri()); // [9]
+		// The bwa index files are only needed next to the reference fasta file, so are not looked up.
+		addCacheFile(job, CacheFile.REFERENCE_FASTA, parser.getAlignmentReferenceFastaFile().toUri());
+		job.addCacheFile(parser.getAlignmentReferenceFastaAmbFile().toUri());
+		job.addCacheFile(parser.getAlignmentReferenceFastaAnnFile().toUri());
+		job.addCacheFile(parser.getAlignmentReferenceFastaBwtFile().toUri());
+		job.addCacheFile(parser.getAlignmentReferenceFastaFaiFile().toUri());
+		job.addCacheFile(parser.getAlignmentReferenceFastaPacFile().toUri());
+		job.addCacheFile(parser.getAlignmentReferenceFastaSaFile().toUri());
+		addCacheFile(job, CacheFile.REFERENCE_DICT, parser.getAlignmentReferenceDictFile().toUri());
+		if (hasBedFile()) addCacheFile(job, CacheFile.BED, parser.getBedFile().toUri());
+		addCacheFile(job, CacheFile.SAMPLES_INFO, parser.getSamplesInfoFile().toUri());
+	}
+
+	/**
+	 * Adds a region store file (see {@link org.molgenis.hadoop.pipeline.application.cachedigestion.RegionStore}) to
+	 * the distributed cache. Should be called after {@link #addCacheToJob(InputParser)}.
+	 * 
+	 * @param regionStoreFile
+	 *            {@link Path}
+	 */
+	public void addRegionStoreToJob(Path regionStoreFile)
+	{
+		// Quick validation if the JobContext is a Job.
+		if (!isJob) return;
+
+		addCacheFile((Job) context, CacheFile.REGION_STORE, regionStoreFile.toUri());
+	}
+
+	/**
+	 * Adds a file to the distributed cache of a {@link Job} and stores its location under the name of the
+	 * {@link CacheFile}.
+	 * 
+	 * @param job
+	 *            {@link Job}
+	 * @param cacheFile
+	 *            {@link CacheFile}
+	 * @param uri
+	 *            {@link URI}
+	 */
+	private static void addCacheFile(Job job, CacheFile cacheFile, URI uri)
+	{
+		job.addCacheFile(uri);
+		setCacheFile(job.getConfiguration(), cacheFile, uri);
+	}
+
+	/**
+	 * Stores the location of a file under the name of the {@link CacheFile} in a {@link Configuration}. Only needed
+	 * when the file is added to the distributed cache without a {@link DistributedCacheHandler} (such as in tests).
+	 * 
+	 * @param conf
+	 *            {@link Configuration}
+	 * @param cacheFile
+	 *            {@link CacheFile}
+	 * @param uri
+	 *            {@link URI} The location as added to the distributed cache.
+	 */
+	public static void setCacheFile(Configuration conf, CacheFile cacheFile, URI uri)
+	{
+		conf.set(CACHE_FILE_PROPERTY_PREFIX + cacheFile.name().toLowerCase(), uri.toString());
 	}
 
 	/**
@@ -149,7 +207,7 @@ public class DistributedCacheHandler
 	 */
 	public String getReferenceFastaFile() throws IOException
 	{
-		return getFileFromCache(REFERENCE_FASTA_FILE);
+		return getFileFromCache(CacheFile.REFERENCE_FASTA);
 	}
 
 	/**
@@ -160,7 +218,7 @@ public class DistributedCacheHandler
 	 */
 	public String getReferenceDictFile() throws IOException
 	{
-		return getFileFromCache(REFERENCE_DICT_FILE);
+		return getFileFromCache(CacheFile.REFERENCE_DICT);
 	}
 
 	/**
@@ -171,7 +229,11 @@ public class DistributedCacheHandler
 	 */
 	public String getBedFile() throws IOException
 	{
-		return getFileFromCache(BED_FILE);
+		if (!hasBedFile())
+		{
+			throw new IOException("No bed file is available when " + PipelineProperties.BINNING_WINDOW + " is set.");
+		}
+		return getFileFromCache(CacheFile.BED);
 	}
 
 	/**
@@ -182,7 +244,54 @@ public class DistributedCacheHandler
 	 */
 	public String getSamplesInfoFile() throws IOException
 	{
-		return getFileFromCache(SAMPLES_INFO__FILE);
+		return getFileFromCache(CacheFile.SAMPLES_INFO);
+	}
+
+	/**
+	 * Whether a region store file was added to the distributed cache using {@link #addRegionStoreToJob(Path)}.
+	 * 
+	 * @return {@code boolean}
+	 */
+	public boolean hasRegionStoreFile()
+	{
+		return getCacheFileUri(CacheFile.REGION_STORE) != null;
+	}
+
+	/**
+	 * Whether the bed file is (or should be) added to the distributed cache. It is not needed when the reference is
+	 * divided into fixed windows (see {@link PipelineProperties#BINNING_WINDOW}).
+	 * 
+	 * @return {@code boolean}
+	 */
+	public boolean hasBedFile()
+	{
+		return context.getConfiguration().getInt(PipelineProperties.BINNING_WINDOW,
+				PipelineProperties.BINNING_WINDOW_DEFAULT) <= 0;
+	}
+
+	/**
+	 * {@link String} of the region store file stored in {@link JobContext#getCacheFiles()}.
+	 * 
+	 * @return {@link String}
+	 * @throws IOException
+	 * @see {@link #hasRegionStoreFile()}
+	 */
+	public String getRegionStoreFile() throws IOException
+	{
+		return getFileFromCache(CacheFile.REGION_STORE);
+	}
+
+	/**
+	 * {@link Path} of the region store file as it was added using {@link #addRegionStoreToJob(Path)} (instead of the
+	 * name of the local copy in the working directory of a task).
+	 * 
+	 * @return {@link Path}
+	 * @throws IOException
+	 * @see {@link #hasRegionStoreFile()}
+	 */
+	public Path getRegionStorePath() throws IOException
+	{
+		return new Path(getRequiredCacheFileUri(CacheFile.REGION_STORE));
 	}
 
 	/**
@@ -199,15 +308,50 @@ public class DistributedCacheHandler
 	}
 
 	/**
-	 * Get the location of the file added to the distributed file on position {@code pos}.
+	 * Get the name of the file stored as {@code cacheFile}, which is the name of its local copy in the working
+	 * directory of a task (the fragment of its {@link URI} if present, otherwise the file name).
 	 * 
-	 * @param pos
-	 *            {@code int}
+	 * @param cacheFile
+	 *            {@link CacheFile}
 	 * @return {@link String} File path.
 	 * @throws IOException
+	 *             If no file is stored as {@code cacheFile}.
+	 */
+	private String getFileFromCache(CacheFile cacheFile) throws IOException
+	{
+		URI uri = getRequiredCacheFileUri(cacheFile);
+		return uri.getFragment() != null ? uri.getFragment() : FilenameUtils.getName(uri.getPath());
+	}
+
+	/**
+	 * Get the location of the file stored as {@code cacheFile}.
+	 * 
+	 * @param cacheFile
+	 *            {@link CacheFile}
+	 * @return {@link URI}
+	 * @throws IOException
+	 *             If no file is stored as {@code cacheFile}.
+	 */
+	private URI getRequiredCacheFileUri(CacheFile cacheFile) throws IOException
+	{
+		URI uri = getCacheFileUri(cacheFile);
+		if (uri == null)
+		{
+			throw new IOException("No " + cacheFile + " file was added to the distributed cache.");
+		}
+		return uri;
+	}
+
+	/**
+	 * Get the location of the file stored as {@code cacheFile}.
+	 * 
+	 * @param cacheFile
+	 *            {@link CacheFile}
+	 * @return {@link URI}, or {@code null} if no file is stored as {@code cacheFile}.
 	 */
-	private String getFileFromCache(int pos) throws IOException
+	private URI getCacheFileUri(CacheFile cacheFile)
 	{
-		return FilenameUtils.getName(context.getCacheFiles()[pos].toString());
+		String uri = context.getConfiguration().get(CACHE_FILE_PROPERTY_PREFIX + cacheFile.name().toLowerCase());
+		return uri == null ? null : URI.create(uri);
 	}
 }
@@ -1,14 +1,25 @@
 package org.molgenis.hadoop.pipeline.application;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
 
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.LocatedFileStatus;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Cluster;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobSubmissionFiles;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
@@ -18,14 +29,28 @@ import org.apache.hadoop.util.GenericOptionsParser;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.log4j.Logger;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.ContigRegionsMap;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.HadoopBedFormatFileReader;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.HadoopRefSeqDictReader;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.HadoopSamplesInfoFileReader;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.RegionCoalescer;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.RegionStore;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.SampleLookup;
+import org.molgenis.hadoop.pipeline.application.formats.BamOutputFormat;
 import org.molgenis.hadoop.pipeline.application.formats.SortedBamOutputFormat;
 import org.molgenis.hadoop.pipeline.application.inputdigestion.CommandLineInputParser;
 import org.molgenis.hadoop.pipeline.application.mapreduce.HadoopPipelineMapper;
 import org.molgenis.hadoop.pipeline.application.mapreduce.HadoopPipelineReducer;
+import org.molgenis.hadoop.pipeline.application.mapreduce.SamRecordGroupsRetriever;
+import org.molgenis.hadoop.pipeline.application.mapreduce.WindowGroupsRetriever;
+import org.molgenis.hadoop.pipeline.application.metrics.AlignmentQcMetricsCollector;
 import org.molgenis.hadoop.pipeline.application.partitioners.RegionSamRecordGroupingComparator;
 import org.molgenis.hadoop.pipeline.application.partitioners.RegionSamRecordPartitioner;
+import org.molgenis.hadoop.pipeline.application.sequences.QualityBinner;
+import org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable;
+import org.molgenis.hadoop.pipeline.application.writables.RegionBitmapBamRecordWritable;
 import org.molgenis.hadoop.pipeline.application.writables.RegionWithSortableSamRecordWritable;
-import org.seqdoop.hadoop_bam.SAMRecordWritable;
 
 import mr.wholeFile.WholeFileInputFormat;
 
@@ -39,6 +64,12 @@ public class HadoopPipelineApplication extends Configured implements Tool
 	 */
 	private static final Logger logger = Logger.getLogger(HadoopPipelineApplication.class);
 
+	/**
+	 * The name of the super-regions manifest within the output directory (see
+	 * {@link PipelineProperties#COALESCING_MAX_SIZE}).
+	 */
+	public static final String REGIONS_MANIFEST_FILE = "regions.bed";
+
 	/**
 	 * Default main class that calls {@link ToolRunner} to execute Hadoop MapReduce.
 	 * 
@@ -84,6 +115,88 @@ public class HadoopPipelineApplication extends Configured implements Tool
 	 */
 	@Override
 	public int run(String[] args) throws IOException, ParseException, ClassNotFoundException, InterruptedException
+	{
+		Job job = createJob(args);
+		try
+		{
+			// Returns 0 if job completed successfully. If not, returns 1.
+			if (!job.waitForCompletion(true))
+			{
+				return 1;
+			}
+			finishJob(job);
+			return 0;
+		}
+		finally
+		{
+			cleanupJob(job);
+		}
+	}
+
+	/**
+	 * Finishes a successfully completed job by moving the super-regions manifest (if present) into the output
+	 * directory and merging the alignment quality control metrics of the tasks into a metrics file per sample (if
+	 * {@link PipelineProperties#QC_METRICS} is enabled). Should be followed by {@link #cleanupJob(Job)}.
+	 * 
+	 * @param job
+	 *            {@link Job}
+	 * @throws IOException
+	 */
+	public void finishJob(Job job) throws IOException
+	{
+		DistributedCacheHandler cacheHandler = new DistributedCacheHandler(job);
+		if (cacheHandler.hasRegionStoreFile())
+		{
+			Path manifestFile = getManifestFile(cacheHandler.getRegionStorePath());
+			FileSystem fileSys = manifestFile.getFileSystem(job.getConfiguration());
+			if (fileSys.exists(manifestFile))
+			{
+				Path outputFile = new Path(FileOutputFormat.getOutputPath(job), REGIONS_MANIFEST_FILE);
+				FileUtil.copy(fileSys, manifestFile, outputFile.getFileSystem(job.getConfiguration()), outputFile,
+						true, job.getConfiguration());
+			}
+		}
+
+		if (job.getConfiguration().getBoolean(PipelineProperties.QC_METRICS, PipelineProperties.QC_METRICS_DEFAULT))
+		{
+			int samples = AlignmentQcMetricsCollector.merge(job.getConfiguration(),
+					FileOutputFormat.getOutputPath(job));
+			logger.info("Wrote the alignment QC metrics of " + samples + " sample(s).");
+		}
+	}
+
+	/**
+	 * Removes the region store file and the super-regions manifest (if not moved by {@link #finishJob(Job)}) staged by
+	 * {@link #createRegionStore(FileSystem, CommandLineInputParser)}. Should be called whether the job succeeded or
+	 * not.
+	 * 
+	 * @param job
+	 *            {@link Job}
+	 * @throws IOException
+	 */
+	public void cleanupJob(Job job) throws IOException
+	{
+		DistributedCacheHandler cacheHandler = new DistributedCacheHandler(job);
+		if (cacheHandler.hasRegionStoreFile())
+		{
+			Path regionStoreFile = cacheHandler.getRegionStorePath();
+			FileSystem fileSys = regionStoreFile.getFileSystem(job.getConfiguration());
+			fileSys.delete(regionStoreFile, false);
+			fileSys.delete(getManifestFile(regionStoreFile), false);
+		}
+	}
+
+	/**
+	 * Configures the Hadoop MapReduce job (without submitting it).
+	 * 
+	 * @param args
+	 *            {@link String}{@code []} User input excluding what is digested by {@link GenericOptionsParser}.
+	 * @return {@link Job}
+	 * @throws IOException
+	 * @throws ParseException
+	 * @throws InterruptedException
+	 */
+	public Job createJob(String[] args) throws IOException, ParseException, InterruptedException
 	{
 		// Writes Configuration properties to logger.debug that can (and have) cause(d) out of memory/timeout errors or
 		// other problems.
@@ -98,12 +211,50 @@ public class HadoopPipelineApplication extends Configured implements Tool
 
 		// Digests application-specific command line arguments. Throws an Exception if the input arguments are invalid.
 		CommandLineInputParser parser = new CommandLineInputParser(fileSys, args);
+		validateInputSamples(fileSys, parser);
 
 		// Generates the job and basic settings.
 		Job job = Job.getInstance(getConf());
 		job.setJarByClass(HadoopPipelineApplication.class);
 		job.setJobName("HadoopPipelineApplication");
 
+		// Configures map output compression (if a codec is given).
+		String mapOutputCodec = getConf().get(PipelineProperties.MAP_OUTPUT_CODEC);
+		if (mapOutputCodec != null)
+		{
+			MapOutputCodec.fromName(mapOutputCodec).configure(job.getConfiguration());
+		}
+
+		// Validates the quality bins (if set), so invalid bins fail before the job is submitted.
+		QualityBinner.create(getConf());
+
+		// Validates the grouping settings (fixed windows or a bed file).
+		int window = getConf().getInt(PipelineProperties.BINNING_WINDOW, PipelineProperties.BINNING_WINDOW_DEFAULT);
+		if (window > 0)
+		{
+			WindowGroupsRetriever.validate(window,
+					getConf().getInt(PipelineProperties.BINNING_OVERLAP, PipelineProperties.BINNING_OVERLAP_DEFAULT));
+			// Windows are not clustered (overlapping windows would form a single cluster per contig).
+			if (getConf().getBoolean(PipelineProperties.REGION_DEDUPLICATION,
+					PipelineProperties.REGION_DEDUPLICATION_DEFAULT))
+			{
+				throw new IllegalArgumentException(PipelineProperties.REGION_DEDUPLICATION + " and "
+						+ PipelineProperties.BINNING_WINDOW + " cannot be enabled together.");
+			}
+			// Windows already have a fixed size.
+			if (getConf().getInt(PipelineProperties.COALESCING_MAX_SIZE,
+					PipelineProperties.COALESCING_MAX_SIZE_DEFAULT) > 0)
+			{
+				throw new IllegalArgumentException(PipelineProperties.COALESCING_MAX_SIZE + " and "
+						+ PipelineProperties.BINNING_WINDOW + " cannot be enabled together.");
+			}
+		}
+		else if (parser.getBedFile() == null)
+		{
+			throw new IllegalArgumentException(
+					"A bed file is required when " + PipelineProperties.BINNING_WINDOW + " is not set.");
+		}
+
 		// Adds needed files to the distributed cache.
 		DistributedCacheHandler cacheHandler = new DistributedCacheHandler(job);
 		cacheHandler.addCacheToJob(parser);
@@ -135,15 +286,172 @@ public class HadoopPipelineApplication extends Configured implements Tool
 
 		// Sets a multiple outputs writer for writing different files from a single reducer.
 		MultipleOutputs.addNamedOutput(job, "recordsPerRegion", SortedBamOutputFormat.class, NullWritable.class,
-				SAMRecordWritable.class);
+				BamRecordWritable.class);
+
+		// Sets a multiple outputs writer for the mappers writing the unmapped/invalid read pairs directly (unsorted).
+		if (getConf().getBoolean(PipelineProperties.SIDE_OUTPUTS, PipelineProperties.SIDE_OUTPUTS_DEFAULT))
+		{
+			MultipleOutputs.addNamedOutput(job, "sideRecords", BamOutputFormat.class, NullWritable.class,
+					BamRecordWritable.class);
+		}
+
+		// Sets a multiple outputs writer for the mappers writing the discordant read pairs and split reads (unsorted).
+		if (getConf().getBoolean(PipelineProperties.SV_EVIDENCE, PipelineProperties.SV_EVIDENCE_DEFAULT))
+		{
+			MultipleOutputs.addNamedOutput(job, "svEvidence", BamOutputFormat.class, NullWritable.class,
+					BamRecordWritable.class);
+		}
 
 		// Sets Mapper/Reducer output keys/values.
 		job.setMapOutputKeyClass(RegionWithSortableSamRecordWritable.class);
-		job.setMapOutputValueClass(SAMRecordWritable.class);
+		job.setMapOutputValueClass(BamRecordWritable.class);
+		if (getConf().getBoolean(PipelineProperties.REGION_DEDUPLICATION,
+				PipelineProperties.REGION_DEDUPLICATION_DEFAULT))
+		{
+			// Records are batched per region, so these cannot be shipped once per cluster.
+			if (getConf().getBoolean(PipelineProperties.REGION_BATCHING, PipelineProperties.REGION_BATCHING_DEFAULT))
+			{
+				throw new IllegalArgumentException(PipelineProperties.REGION_DEDUPLICATION + " and "
+						+ PipelineProperties.REGION_BATCHING + " cannot be enabled together.");
+			}
+			job.setMapOutputValueClass(RegionBitmapBamRecordWritable.class);
+		}
 		job.setOutputKeyClass(NullWritable.class);
-		job.setOutputValueClass(SAMRecordWritable.class);
+		job.setOutputValueClass(BamRecordWritable.class);
+
+		// Stages the region store last, so an invalid configuration does not leave it behind.
+		if (cacheHandler.hasBedFile())
+		{
+			cacheHandler.addRegionStoreToJob(createRegionStore(fileSys, parser));
+		}
+
+		return job;
+	}
+
+	/**
+	 * Compiles the bed file into a {@link RegionStore} file, so the tasks can memory-map the regions instead of each
+	 * parsing the bed file. The file is stored in the staging directory of the job submitter (the output directory
+	 * cannot be created before the job is submitted) and removed by {@link #cleanupJob(Job)} (or when the
+	 * {@link FileSystem} is closed, if the driver exits before that). If {@link PipelineProperties#COALESCING_MAX_SIZE}
+	 * is set, the regions are first merged into super-regions and a manifest of these is staged next to the region
+	 * store (see {@link #getManifestFile(Path)}), which {@link #finishJob(Job)} moves into the output directory. The
+	 * contigs of the bed file are validated against the reference dictionary, as the tasks look up the regions by
+	 * reference index.
+	 * 
+	 * @param fileSys
+	 *            {@link FileSystem}
+	 * @param parser
+	 *            {@link CommandLineInputParser}
+	 * @return {@link Path} The created region store file.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 * @throws IllegalArgumentException
+	 *             If the bed file contains contigs that are not present in the reference dictionary.
+	 */
+	private Path createRegionStore(FileSystem fileSys, CommandLineInputParser parser)
+			throws IOException, InterruptedException
+	{
+		Path stagingDir;
+		Cluster cluster = new Cluster(getConf());
+		try
+		{
+			stagingDir = JobSubmissionFiles.getStagingDir(cluster, getConf());
+		}
+		finally
+		{
+			cluster.close();
+		}
+		// The job id is not known yet, so a random name prevents collisions between jobs of the same user.
+		Path regionStoreFile = new Path(stagingDir, "regions_" + UUID.randomUUID());
+		ContigRegionsMap regions;
+		try (InputStream bedFile = fileSys.open(parser.getBedFile()))
+		{
+			regions = new HadoopBedFormatFileReader().read(bedFile);
+		}
+		try (InputStream dictFile = fileSys.open(parser.getAlignmentReferenceDictFile()))
+		{
+			SamRecordGroupsRetriever.validateContigs(regions.keySet(), new HadoopRefSeqDictReader().read(dictFile));
+		}
 
-		// Returns 0 if job completed successfully. If not, returns 1.
-		return job.waitForCompletion(true) ? 0 : 1;
+		// Merges small regions into super-regions (if set).
+		int maxSize = getConf().getInt(PipelineProperties.COALESCING_MAX_SIZE,
+				PipelineProperties.COALESCING_MAX_SIZE_DEFAULT);
+		if (maxSize > 0)
+		{
+			Map<Region, Region> plan = new RegionCoalescer(maxSize, getConf()
+					.getInt(PipelineProperties.COALESCING_MAX_GAP, PipelineProperties.COALESCING_MAX_GAP_DEFAULT))
+							.plan(regions);
+			regions = RegionCoalescer.getSuperRegions(plan);
+			logger.info("Merged " + plan.size() + " regions into " + regions.numberOfRegions() + " super-regions.");
+
+			Path manifestFile = getManifestFile(regionStoreFile);
+			try (OutputStream manifest = fileSys.create(manifestFile, true))
+			{
+				RegionCoalescer.writeManifest(plan, manifest);
+			}
+			fileSys.deleteOnExit(manifestFile);
+		}
+
+		try (OutputStream regionStore = fileSys.create(regionStoreFile, true))
+		{
+			RegionStore.write(regions, regionStore);
+		}
+		fileSys.deleteOnExit(regionStoreFile);
+		return fileSys.makeQualified(regionStoreFile);
+	}
+
+	/**
+	 * The staged super-regions manifest belonging to a region store file.
+	 * 
+	 * @param regionStoreFile
+	 *            {@link Path}
+	 * @return {@link Path}
+	 */
+	private static Path getManifestFile(Path regionStoreFile)
+	{
+		return regionStoreFile.suffix(".bed");
+	}
+
+	/**
+	 * Checks whether the samplesheet is valid for the input files, so an incorrectly named input directory fails the
+	 * job before it is submitted (instead of failing its map tasks while the job is running).
+	 * 
+	 * @param fileSys
+	 *            {@link FileSystem}
+	 * @param parser
+	 *            {@link CommandLineInputParser}
+	 * @throws IOException
+	 *             If an input file does not belong to any sample in the samplesheet.
+	 * @throws IllegalArgumentException
+	 *             If the samplesheet contains multiple samples with the same comparison name.
+	 */
+	private void validateInputSamples(FileSystem fileSys, CommandLineInputParser parser)
+			throws IOException, IllegalArgumentException
+	{
+		SampleLookup samples;
+		try (InputStream samplesheet = fileSys.open(parser.getSamplesInfoFile()))
+		{
+			samples = new SampleLookup(new HadoopSamplesInfoFileReader().read(samplesheet));
+		}
+
+		// Only the input files that are aligned by the mapper need to belong to a sample.
+		boolean recursive = getConf().getBoolean(FileInputFormat.INPUT_DIR_RECURSIVE, false);
+		Set<String> unknownDirs = new TreeSet<>();
+		for (Path inputDir : parser.getInputDirs())
+		{
+			RemoteIterator<LocatedFileStatus> files = fileSys.listFiles(inputDir, recursive);
+			while (files.hasNext())
+			{
+				String inputFile = files.next().getPath().toString();
+				if (inputFile.endsWith(".fq.gz") && samples.get(inputFile) == null)
+				{
+					unknownDirs.add(SampleLookup.getSampleDirName(inputFile));
+				}
+			}
+		}
+		if (!unknownDirs.isEmpty())
+		{
+			throw new IOException("Samplesheet is missing information about the input directories: " + unknownDirs);
+		}
 	}
 }
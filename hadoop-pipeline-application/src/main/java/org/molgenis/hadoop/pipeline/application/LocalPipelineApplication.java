@@ -0,0 +1,93 @@
+package org.molgenis.hadoop.pipeline.application;
+
+import java.io.IOException;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.util.GenericOptionsParser;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+import org.molgenis.hadoop.pipeline.application.localexecution.LocalJobExecutor;
+
+/**
+ * Alternative main application class that executes the same job as the {@link HadoopPipelineApplication} within a
+ * single JVM (see {@link LocalJobExecutor}), without the job startup and shuffle overhead of a cluster. Uses the same
+ * arguments and generates the same output, but is only suitable for small inputs (such as a single sample) as all
+ * map output is kept in memory.
+ */
+public class LocalPipelineApplication extends Configured implements Tool
+{
+	/**
+	 * Logger to write information to.
+	 */
+	private static final Logger logger = Logger.getLogger(LocalPipelineApplication.class);
+
+	/**
+	 * Default main class that calls {@link ToolRunner} to execute the job locally.
+	 *
+	 * @param args
+	 *            {@link String}{@code []} User input.
+	 */
+	public static void main(String[] args)
+	{
+		try
+		{
+			// Digests Hadoop's Generic Options.
+			GenericOptionsParser genericOptionsParser = new GenericOptionsParser(args);
+
+			// Run the application.
+			try
+			{
+				System.exit(ToolRunner.run(genericOptionsParser.getConfiguration(), new LocalPipelineApplication(),
+						genericOptionsParser.getRemainingArgs()));
+			}
+			catch (Exception e) // Catches all internal errors.
+			{
+				logger.error(e.getMessage());
+				logger.debug(ExceptionUtils.getFullStackTrace(e));
+			}
+		}
+		catch (IOException e) // Catches errors caused by Hadoop's GenericOptionsParser.
+		{
+			logger.error(e.getMessage());
+			logger.debug(ExceptionUtils.getFullStackTrace(e));
+		}
+		System.exit(1);
+	}
+
+	/**
+	 * Configures the job using {@link HadoopPipelineApplication#createJob(String[])} and executes it locally.
+	 *
+	 * @param args
+	 *            {@link String}{@code []} User input excluding what is digested by {@link GenericOptionsParser}.
+	 * @throws IOException
+	 * @throws ParseException
+	 * @throws InterruptedException
+	 * @throws ClassNotFoundException
+	 */
+	@Override
+	public int run(String[] args) throws IOException, ParseException, ClassNotFoundException, InterruptedException
+	{
+		HadoopPipelineApplication application = new HadoopPipelineApplication();
+		application.setConf(getConf());
+		Job job = application.createJob(args);
+		try
+		{
+			int threads = getConf().getInt(PipelineProperties.LOCAL_THREADS,
+					Runtime.getRuntime().availableProcessors());
+			Counters counters = new LocalJobExecutor(job, threads).run();
+			logger.info("Job completed successfully. " + counters);
+			application.finishJob(job);
+		}
+		finally
+		{
+			application.cleanupJob(job);
+		}
+
+		return 0;
+	}
+}
@@ -0,0 +1,70 @@
+package org.molgenis.hadoop.pipeline.application;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.compress.BZip2Codec;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.io.compress.Lz4Codec;
+import org.apache.hadoop.io.compress.SnappyCodec;
+
+/**
+ * The codecs that can be used for compressing the map output (see {@link PipelineProperties#MAP_OUTPUT_CODEC}). Note
+ * that {@link #LZ4} and {@link #SNAPPY} require the native Hadoop libraries to be available on the cluster nodes.
+ */
+public enum MapOutputCodec
+{
+	NONE(null), DEFAULT(DefaultCodec.class), GZIP(GzipCodec.class), BZIP2(BZip2Codec.class), LZ4(
+			Lz4Codec.class), SNAPPY(SnappyCodec.class);
+
+	/**
+	 * The Hadoop {@link CompressionCodec} belonging to this option ({@code null} for {@link #NONE}).
+	 */
+	private Class<? extends CompressionCodec> codecClass;
+
+	public Class<? extends CompressionCodec> getCodecClass()
+	{
+		return codecClass;
+	}
+
+	private MapOutputCodec(Class<? extends CompressionCodec> codecClass)
+	{
+		this.codecClass = codecClass;
+	}
+
+	/**
+	 * Retrieves the {@link MapOutputCodec} belonging to a name (case insensitive).
+	 *
+	 * @param name
+	 *            {@link String}
+	 * @return {@link MapOutputCodec}
+	 * @throws IllegalArgumentException
+	 *             If no {@link MapOutputCodec} exists with the given name.
+	 */
+	public static MapOutputCodec fromName(String name) throws IllegalArgumentException
+	{
+		for (MapOutputCodec codec : values())
+		{
+			if (codec.name().equalsIgnoreCase(name.trim()))
+			{
+				return codec;
+			}
+		}
+		throw new IllegalArgumentException("Invalid value for " + PipelineProperties.MAP_OUTPUT_CODEC + ": " + name);
+	}
+
+	/**
+	 * Sets the Hadoop map output compression properties in the {@link Configuration} according to this codec.
+	 *
+	 * @param conf
+	 *            {@link Configuration}
+	 */
+	public void configure(Configuration conf)
+	{
+		conf.setBoolean("mapreduce.map.output.compress", codecClass != null);
+		if (codecClass != null)
+		{
+			conf.setClass("mapreduce.map.output.compress.codec", codecClass, CompressionCodec.class);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package org.molgenis.hadoop.pipeline.application;
+
+/**
+ * Stores the {@link org.apache.hadoop.conf.Configuration} property names (and their defaults) that can be used to tune
+ * the application. These can be set on the command line using Hadoop's Generic Options:
+ * {@code -D <property>=<value>}.
+ */
+public abstract class PipelineProperties
+{
+	/**
+	 * Whether the mapper should parse the SAM output of BWA using a byte-level parser that directly generates
+	 * BAM-encoded records (instead of htsjdk's text parser).
+	 */
+	public static final String BYTE_LEVEL_SAM_PARSING = "hadoop.pipeline.sam.bytelevelparsing";
+	public static final boolean BYTE_LEVEL_SAM_PARSING_DEFAULT = false;
+
+	/**
+	 * Whether the mapper should buffer the records per region and write them as sorted batches (multiple records per
+	 * map output value) instead of writing each record separately.
+	 */
+	public static final String REGION_BATCHING = "hadoop.pipeline.regionbatching";
+	public static final boolean REGION_BATCHING_DEFAULT = false;
+
+	/**
+	 * The maximum number of bytes that are buffered for a single region before its batch is written.
+	 */
+	public static final String REGION_BATCHING_MAX_REGION_BYTES = "hadoop.pipeline.regionbatching.maxregionbytes";
+	public static final int REGION_BATCHING_MAX_REGION_BYTES_DEFAULT = 1048576;
+
+	/**
+	 * The maximum number of bytes that are buffered in total before all batches are written.
+	 */
+	public static final String REGION_BATCHING_MAX_BUFFER_BYTES = "hadoop.pipeline.regionbatching.maxbufferbytes";
+	public static final long REGION_BATCHING_MAX_BUFFER_BYTES_DEFAULT = 67108864L;
+
+	/**
+	 * Whether the mapper should write each record only once per cluster of overlapping regions (together with a bitmap
+	 * of the regions it belongs to) instead of once per region. Cannot be combined with {@link #REGION_BATCHING}.
+	 */
+	public static final String REGION_DEDUPLICATION = "hadoop.pipeline.regiondeduplication";
+	public static final boolean REGION_DEDUPLICATION_DEFAULT = false;
+
+	/**
+	 * The size of the fixed windows the reference is divided into (see
+	 * {@link org.molgenis.hadoop.pipeline.application.mapreduce.WindowGroupsRetriever}). If larger than 0, these
+	 * windows are used as regions instead of the regions from the bed file (which is then not needed).
+	 */
+	public static final String BINNING_WINDOW = "hadoop.pipeline.binning.window";
+	public static final int BINNING_WINDOW_DEFAULT = 0;
+
+	/**
+	 * The number of bases consecutive windows overlap when {@link #BINNING_WINDOW} is used (must be smaller than the
+	 * window size).
+	 */
+	public static final String BINNING_OVERLAP = "hadoop.pipeline.binning.overlap";
+	public static final int BINNING_OVERLAP_DEFAULT = 0;
+
+	/**
+	 * The maximum size of the super-regions the regions of the bed file are merged into (see
+	 * {@link org.molgenis.hadoop.pipeline.application.cachedigestion.RegionCoalescer}). If larger than 0, the
+	 * super-regions are used as regions and a manifest describing the super-region of each bed file region is moved
+	 * into the output directory once the job succeeded
+	 * ({@code <output>/}{@value HadoopPipelineApplication#REGIONS_MANIFEST_FILE}).
+	 */
+	public static final String COALESCING_MAX_SIZE = "hadoop.pipeline.coalescing.maxsize";
+	public static final int COALESCING_MAX_SIZE_DEFAULT = 0;
+
+	/**
+	 * The maximum number of bases between two regions that are merged when {@link #COALESCING_MAX_SIZE} is used.
+	 */
+	public static final String COALESCING_MAX_GAP = "hadoop.pipeline.coalescing.maxgap";
+	public static final int COALESCING_MAX_GAP_DEFAULT = 1000;
+
+	/**
+	 * The codec used for compressing the map output (see {@link MapOutputCodec} for the possible values). If not set,
+	 * Hadoop's own {@code mapreduce.map.output.compress} settings are used.
+	 */
+	public static final String MAP_OUTPUT_CODEC = "hadoop.pipeline.mapoutput.codec";
+
+	/**
+	 * Whether the time and bytes per processing stage should be recorded (see
+	 * {@link org.molgenis.hadoop.pipeline.application.metrics.Stage}). The totals are published as Hadoop counters and
+	 * the latency histograms are reported to the {@link #METRICS_SINK}.
+	 */
+	public static final String STAGE_METRICS = "hadoop.pipeline.stagemetrics";
+	public static final boolean STAGE_METRICS_DEFAULT = false;
+
+	/**
+	 * The {@link org.molgenis.hadoop.pipeline.application.metrics.MetricsSink} implementation the latency histograms
+	 * are reported to (defaults to {@link org.molgenis.hadoop.pipeline.application.metrics.FileMetricsSink}).
+	 */
+	public static final String METRICS_SINK = "hadoop.pipeline.metrics.sink";
+
+	/**
+	 * The directory the {@link org.molgenis.hadoop.pipeline.application.metrics.FileMetricsSink} writes to directly,
+	 * with a file per task attempt (including failed, killed and speculative attempts). If not set, a file per
+	 * committed task is written to {@code _metrics} inside the job output directory.
+	 */
+	public static final String METRICS_DIR = "hadoop.pipeline.metrics.dir";
+
+	/**
+	 * Whether the samples should be processed as a batch, where each sample gets its own output directory of region
+	 * files (instead of all samples being written to the same region files).
+	 */
+	public static final String BATCH_MODE = "hadoop.pipeline.batchmode";
+	public static final boolean BATCH_MODE_DEFAULT = false;
+
+	/**
+	 * Whether the unmapped and invalid read pairs are written by the mappers directly to side output files, instead of
+	 * all being shuffled to the single reducer handling the unmapped/invalid region (these are not sorted).
+	 */
+	public static final String SIDE_OUTPUTS = "hadoop.pipeline.sideoutputs";
+	public static final boolean SIDE_OUTPUTS_DEFAULT = false;
+
+	/**
+	 * Whether the mappers collect alignment quality control metrics (flagstat counts, insert sizes and mapping
+	 * qualities) per read group, which are merged into a metrics file per sample once the job has finished (see
+	 * {@link org.molgenis.hadoop.pipeline.application.metrics.AlignmentQcMetricsCollector}).
+	 */
+	public static final String QC_METRICS = "hadoop.pipeline.qcmetrics";
+	public static final boolean QC_METRICS_DEFAULT = false;
+
+	/**
+	 * The bins the base qualities are reduced to by the mappers, either {@code illumina8} or a comma-separated list of
+	 * {@code <low>-<high>:<value>} bins (see {@link org.molgenis.hadoop.pipeline.application.sequences.QualityBinner}).
+	 * This is lossy, so the binning is recorded as {@code @PG} header line. If not set, the qualities are not binned.
+	 */
+	public static final String QUALITY_BINNING = "hadoop.pipeline.qualitybinning";
+
+	/**
+	 * Whether the mappers set the mate information (mate position and flags, and the {@code MC} and {@code MQ} tags)
+	 * of every record using the other read of the read pair, so the output does not need to be name-sorted and fixed
+	 * afterwards (see {@link org.molgenis.hadoop.pipeline.application.sequences.AlignedReadPair#setMateInformation()}).
+	 */
+	public static final String MATE_INFORMATION = "hadoop.pipeline.mateinformation";
+	public static final boolean MATE_INFORMATION_DEFAULT = false;
+
+	/**
+	 * Whether the mappers write the structural variant evidence (the primary records of discordant read pairs and all
+	 * records of split reads) to side output files, so structural variant callers do not need to read all output.
+	 */
+	public static final String SV_EVIDENCE = "hadoop.pipeline.svevidence";
+	public static final boolean SV_EVIDENCE_DEFAULT = false;
+
+	/**
+	 * The directory in which the BWA output of each input split is cached (see
+	 * {@link org.molgenis.hadoop.pipeline.application.mapreduce.AlignmentCache}). If not set, no cache is used.
+	 */
+	public static final String ALIGNMENT_CACHE_DIR = "hadoop.pipeline.alignmentcache.dir";
+
+	/**
+	 * The number of tasks executed in parallel by the {@link LocalPipelineApplication} (defaults to the number of
+	 * available processors).
+	 */
+	public static final String LOCAL_THREADS = "hadoop.pipeline.local.threads";
+}
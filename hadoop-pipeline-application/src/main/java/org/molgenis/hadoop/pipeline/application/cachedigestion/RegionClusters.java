@@ -0,0 +1,141 @@
+package org.molgenis.hadoop.pipeline.application.cachedigestion;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Groups the overlapping {@link Region}{@code s} from a {@link ContigRegionsMap} into clusters. A cluster is
+ * represented by a {@link Region} spanning all its member {@link Region}{@code s}, and each member {@link Region} has a
+ * fixed index within its cluster. As each {@link Region} belongs to exactly one cluster, a cluster can be used as
+ * shuffle key while the member indices can be used to define to which {@link Region}{@code s} a record belongs.
+ */
+public class RegionClusters
+{
+	/**
+	 * The cluster each {@link Region} belongs to.
+	 */
+	private Map<Region, Region> regionClusters = new HashMap<>();
+
+	/**
+	 * The index of each {@link Region} within its cluster.
+	 */
+	private Map<Region, Integer> regionIndices = new HashMap<>();
+
+	/**
+	 * The member {@link Region}{@code s} of each cluster (ordered on their index).
+	 */
+	private Map<Region, ImmutableList<Region>> clusterRegions = new HashMap<>();
+
+	/**
+	 * Creates the clusters for the given {@link ContigRegionsMap}. {@link Region}{@code s} are part of the same cluster
+	 * if they overlap (either directly or through other {@link Region}{@code s}).
+	 *
+	 * @param contigRegionsMap
+	 *            {@link ContigRegionsMap}
+	 */
+	public RegionClusters(ContigRegionsMap contigRegionsMap)
+	{
+		requireNonNull(contigRegionsMap);
+
+		for (List<Region> regions : contigRegionsMap.values())
+		{
+			// The regions are sorted on start position, so a cluster ends once a region starts after its end.
+			List<Region> members = new ArrayList<>();
+			int clusterEnd = 0;
+			for (Region region : regions)
+			{
+				if (!members.isEmpty() && region.getStart() > clusterEnd)
+				{
+					addCluster(members, clusterEnd);
+					members = new ArrayList<>();
+				}
+				members.add(region);
+				clusterEnd = members.size() == 1 ? region.getEnd() : Math.max(clusterEnd, region.getEnd());
+			}
+			if (!members.isEmpty())
+			{
+				addCluster(members, clusterEnd);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of clusters.
+	 *
+	 * @return {@code int}
+	 */
+	public int size()
+	{
+		return clusterRegions.size();
+	}
+
+	/**
+	 * Returns the cluster a {@link Region} belongs to.
+	 *
+	 * @param region
+	 *            {@link Region}
+	 * @return {@link Region} The cluster, or {@code null} if the {@link Region} is unknown.
+	 */
+	public Region getCluster(Region region)
+	{
+		return regionClusters.get(region);
+	}
+
+	/**
+	 * Returns the index of a {@link Region} within its cluster.
+	 *
+	 * @param region
+	 *            {@link Region}
+	 * @return {@code int}
+	 * @throws IllegalArgumentException
+	 *             If the {@link Region} is unknown.
+	 */
+	public int getIndexInCluster(Region region) throws IllegalArgumentException
+	{
+		Integer index = regionIndices.get(region);
+		if (index == null)
+		{
+			throw new IllegalArgumentException("Region is not part of any cluster: " + region);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the member {@link Region}{@code s} of a cluster, where the position within the {@link List} equals
+	 * {@link #getIndexInCluster(Region)}.
+	 *
+	 * @param cluster
+	 *            {@link Region}
+	 * @return {@link ImmutableList}{@code <}{@link Region}{@code >} The member {@link Region}{@code s}, or {@code null}
+	 *         if {@code cluster} is not a cluster.
+	 */
+	public ImmutableList<Region> getClusterRegions(Region cluster)
+	{
+		return clusterRegions.get(cluster);
+	}
+
+	/**
+	 * Stores a single cluster.
+	 *
+	 * @param members
+	 *            {@link List}{@code <}{@link Region}{@code >}
+	 * @param clusterEnd
+	 *            {@code int}
+	 */
+	private void addCluster(List<Region> members, int clusterEnd)
+	{
+		Region cluster = new Region(members.get(0).getContig(), members.get(0).getStart(), clusterEnd);
+		clusterRegions.put(cluster, ImmutableList.copyOf(members));
+		for (int i = 0; i < members.size(); i++)
+		{
+			regionClusters.put(members.get(i), cluster);
+			regionIndices.put(members.get(i), i);
+		}
+	}
+}
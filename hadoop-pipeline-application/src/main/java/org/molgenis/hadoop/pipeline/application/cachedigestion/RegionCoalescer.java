@@ -0,0 +1,158 @@
+package org.molgenis.hadoop.pipeline.application.cachedigestion;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Plans how the (sorted) {@link Region}{@code s} of a {@link ContigRegionsMap} are merged into larger super-regions, so
+ * many small targets (such as those of an exome) do not each result in their own reduce group and output file.
+ * Consecutive {@link Region}{@code s} of a contig are merged as long as the gap between them is not larger than the
+ * maximum gap and the super-region does not become larger than the maximum size. A {@link Region} that is already
+ * larger than the maximum size is kept as it is.
+ */
+public class RegionCoalescer
+{
+	/**
+	 * The maximum size of a super-region (unless it consists of a single {@link Region}).
+	 */
+	private int maxSize;
+
+	/**
+	 * The maximum number of bases between two {@link Region}{@code s} that are merged.
+	 */
+	private int maxGap;
+
+	/**
+	 * Creates a new {@link RegionCoalescer}.
+	 *
+	 * @param maxSize
+	 *            {@code int} The maximum size of a super-region.
+	 * @param maxGap
+	 *            {@code int} The maximum number of bases between two {@link Region}{@code s} that are merged.
+	 * @throws IllegalArgumentException
+	 *             If {@code maxSize} is smaller than 1 or {@code maxGap} is negative.
+	 */
+	public RegionCoalescer(int maxSize, int maxGap) throws IllegalArgumentException
+	{
+		if (maxSize < 1)
+		{
+			throw new IllegalArgumentException("Maximum super-region size must be at least 1: " + maxSize);
+		}
+		if (maxGap < 0)
+		{
+			throw new IllegalArgumentException("Maximum gap between merged regions cannot be negative: " + maxGap);
+		}
+		this.maxSize = maxSize;
+		this.maxGap = maxGap;
+	}
+
+	/**
+	 * Plans the super-regions.
+	 *
+	 * @param targets
+	 *            {@link ContigRegionsMap} The {@link Region}{@code s} to be merged.
+	 * @return {@link Map}{@code <}{@link Region}{@code , }{@link Region}{@code >} The super-region (value) of each
+	 *         target (key), sorted by contig and position.
+	 */
+	public Map<Region, Region> plan(ContigRegionsMap targets)
+	{
+		Map<Region, Region> plan = new LinkedHashMap<>();
+		for (String contig : new TreeSet<>(requireNonNull(targets).keySet()))
+		{
+			List<Region> members = new ArrayList<>();
+			int start = 0;
+			int end = 0;
+			for (Region target : targets.get(contig))
+			{
+				if (!members.isEmpty() && (target.getStart() - end - 1 > maxGap
+						|| Math.max(end, target.getEnd()) - start + 1 > maxSize))
+				{
+					addSuperRegion(plan, members, start, end);
+					members.clear();
+				}
+				if (members.isEmpty())
+				{
+					start = target.getStart();
+					end = target.getEnd();
+				}
+				members.add(target);
+				end = Math.max(end, target.getEnd());
+			}
+			if (!members.isEmpty())
+			{
+				addSuperRegion(plan, members, start, end);
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * Adds a super-region for each of its members to the plan.
+	 *
+	 * @param plan
+	 *            {@link Map}{@code <}{@link Region}{@code , }{@link Region}{@code >}
+	 * @param members
+	 *            {@link List}{@code <}{@link Region}{@code >}
+	 * @param start
+	 *            {@code int}
+	 * @param end
+	 *            {@code int}
+	 */
+	private void addSuperRegion(Map<Region, Region> plan, List<Region> members, int start, int end)
+	{
+		Region superRegion = new Region(members.get(0).getContig(), start, end);
+		for (Region member : members)
+		{
+			plan.put(member, superRegion);
+		}
+	}
+
+	/**
+	 * Returns the super-regions of a plan.
+	 *
+	 * @param plan
+	 *            {@link Map}{@code <}{@link Region}{@code , }{@link Region}{@code >} Created by
+	 *            {@link #plan(ContigRegionsMap)}.
+	 * @return {@link ContigRegionsMap}
+	 */
+	public static ContigRegionsMap getSuperRegions(Map<Region, Region> plan)
+	{
+		return new ContigRegionsMapBuilder().addAll(new ArrayList<>(new LinkedHashSet<>(plan.values()))).build();
+	}
+
+	/**
+	 * Writes a plan as manifest in BED-format, where each line contains a target and as name the output file prefix
+	 * of its super-region ({@code <contig>-<start>-<end>}).
+	 *
+	 * @param plan
+	 *            {@link Map}{@code <}{@link Region}{@code , }{@link Region}{@code >} Created by
+	 *            {@link #plan(ContigRegionsMap)}.
+	 * @param outputStream
+	 *            {@link OutputStream} (is not closed).
+	 * @throws IOException
+	 */
+	public static void writeManifest(Map<Region, Region> plan, OutputStream outputStream) throws IOException
+	{
+		Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+		for (Map.Entry<Region, Region> entry : plan.entrySet())
+		{
+			Region target = entry.getKey();
+			Region superRegion = entry.getValue();
+			// BED-format is 0-based with an exclusive end (Regions are 1-based with an inclusive end).
+			writer.write(target.getContig() + "\t" + (target.getStart() - 1) + "\t" + target.getEnd() + "\t"
+					+ superRegion.getContig() + "-" + superRegion.getStart() + "-" + superRegion.getEnd() + "\n");
+		}
+		writer.flush();
+	}
+}
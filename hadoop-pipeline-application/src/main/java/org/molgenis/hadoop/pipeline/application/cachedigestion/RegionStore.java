@@ -0,0 +1,319 @@
+package org.molgenis.hadoop.pipeline.application.cachedigestion;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.molgenis.hadoop.pipeline.application.DistributedCacheHandler;
+import org.molgenis.hadoop.pipeline.application.exceptions.UncheckedIOException;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Compact, read-only storage of the {@link Region}{@code s} from a {@link ContigRegionsMap}. For each contig, the
+ * sorted start and end positions are stored as primitive {@code int} arrays, so no {@link Region} instances are needed
+ * until a {@link Region} is actually retrieved. The binary format (big-endian) is:
+ *
+ * <pre>
+ * int magic, int version, int number of contigs
+ * for each contig: int name length, byte[] name (UTF-8), int number of regions, int[] starts, int[] ends
+ * </pre>
+ *
+ * The file is created once when the job is configured and memory-mapped by the tasks (see {@link #map(File)}), so
+ * creating a {@link RegionStore} does not depend on the number of {@link Region}{@code s} and the pages are shared by
+ * all tasks on a node.
+ */
+public class RegionStore
+{
+	/**
+	 * Identifies a region store file ("HPRS").
+	 */
+	private static final int MAGIC = 0x48505253;
+
+	/**
+	 * Should be changed whenever the binary format changes.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * The {@link ContigRegions} per contig (in the order they were stored).
+	 */
+	private Map<String, ContigRegions> contigRegions = new LinkedHashMap<>();
+
+	/**
+	 * Creates a new {@link RegionStore} from a {@link ByteBuffer} containing the binary format.
+	 *
+	 * @param buffer
+	 *            {@link ByteBuffer}
+	 * @throws IOException
+	 *             If the {@link ByteBuffer} does not contain a valid region store.
+	 */
+	private RegionStore(ByteBuffer buffer) throws IOException
+	{
+		try
+		{
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+			{
+				throw new IOException("Not a (supported) region store.");
+			}
+			int contigs = buffer.getInt();
+			for (int i = 0; i < contigs; i++)
+			{
+				byte[] name = new byte[buffer.getInt()];
+				buffer.get(name);
+				String contig = new String(name, StandardCharsets.UTF_8);
+				int size = buffer.getInt();
+				IntBuffer starts = slice(buffer, size);
+				IntBuffer ends = slice(buffer, size);
+				contigRegions.put(contig, new ContigRegions(contig, starts, ends));
+			}
+		}
+		catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e)
+		{
+			throw new IOException("Region store is truncated or corrupt.", e);
+		}
+	}
+
+	/**
+	 * Returns the next {@code size} {@code int}{@code s} of a {@link ByteBuffer} as {@link IntBuffer} (without copying
+	 * them) and moves the position of the {@link ByteBuffer} behind them.
+	 *
+	 * @param buffer
+	 *            {@link ByteBuffer}
+	 * @param size
+	 *            {@code int}
+	 * @return {@link IntBuffer}
+	 */
+	private static IntBuffer slice(ByteBuffer buffer, int size)
+	{
+		ByteBuffer slice = buffer.slice();
+		slice.limit(size * 4);
+		buffer.position(buffer.position() + size * 4);
+		return slice.asIntBuffer();
+	}
+
+	/**
+	 * Writes the {@link Region}{@code s} of a {@link ContigRegionsMap} in the binary format of a {@link RegionStore}.
+	 *
+	 * @param contigRegionsMap
+	 *            {@link ContigRegionsMap}
+	 * @param outputStream
+	 *            {@link OutputStream} (is not closed).
+	 * @throws IOException
+	 */
+	public static void write(ContigRegionsMap contigRegionsMap, OutputStream outputStream) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(outputStream);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(contigRegionsMap.size());
+		for (Map.Entry<String, ImmutableList<Region>> entry : contigRegionsMap.entrySet())
+		{
+			byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+			out.writeInt(name.length);
+			out.write(name);
+
+			List<Region> regions = entry.getValue();
+			out.writeInt(regions.size());
+			for (Region region : regions)
+			{
+				out.writeInt(region.getStart());
+			}
+			for (Region region : regions)
+			{
+				out.writeInt(region.getEnd());
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Creates a {@link RegionStore} (on the heap) from a {@link ContigRegionsMap}.
+	 *
+	 * @param contigRegionsMap
+	 *            {@link ContigRegionsMap}
+	 * @return {@link RegionStore}
+	 */
+	public static RegionStore create(ContigRegionsMap contigRegionsMap)
+	{
+		try
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			write(requireNonNull(contigRegionsMap), bytes);
+			return new RegionStore(ByteBuffer.wrap(bytes.toByteArray()));
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Memory-maps a region store file (read-only).
+	 *
+	 * @param file
+	 *            {@link File}
+	 * @return {@link RegionStore}
+	 * @throws IOException
+	 */
+	public static RegionStore map(File file) throws IOException
+	{
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+				FileChannel channel = randomAccessFile.getChannel())
+		{
+			if (channel.size() > Integer.MAX_VALUE)
+			{
+				throw new IOException("Region store is too large to be memory-mapped: " + file);
+			}
+			// The mapping stays valid after the channel is closed.
+			return new RegionStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Retrieves the {@link RegionStore} of a job. Memory-maps the region store file if it was added to the distributed
+	 * cache, otherwise reads the bed file.
+	 *
+	 * @param cacheHandler
+	 *            {@link DistributedCacheHandler}
+	 * @return {@link RegionStore}
+	 * @throws IOException
+	 */
+	public static RegionStore retrieve(DistributedCacheHandler cacheHandler) throws IOException
+	{
+		if (cacheHandler.hasRegionStoreFile())
+		{
+			return map(new File(cacheHandler.getRegionStoreFile()));
+		}
+		return create(new HadoopBedFormatFileReader().read(cacheHandler.getBedFile()));
+	}
+
+	/**
+	 * Returns the {@link ContigRegions} of a contig.
+	 *
+	 * @param contig
+	 *            {@link String}
+	 * @return {@link ContigRegions}, or {@code null} if the contig has no {@link Region}{@code s}.
+	 */
+	public ContigRegions get(String contig)
+	{
+		return contigRegions.get(contig);
+	}
+
+	/**
+	 * @return {@link Collection}{@code <}{@link ContigRegions}{@code >} The {@link ContigRegions} of all contigs.
+	 */
+	public Collection<ContigRegions> values()
+	{
+		return Collections.unmodifiableCollection(contigRegions.values());
+	}
+
+	/**
+	 * Returns the total number of {@link Region}{@code s} stored.
+	 *
+	 * @return {@code int}
+	 */
+	public int numberOfRegions()
+	{
+		int nRegions = 0;
+		for (ContigRegions regions : contigRegions.values())
+		{
+			nRegions += regions.size();
+		}
+		return nRegions;
+	}
+
+	/**
+	 * Creates a {@link ContigRegionsMap} containing all {@link Region}{@code s} (for code that needs the
+	 * {@link Region} instances).
+	 *
+	 * @return {@link ContigRegionsMap}
+	 */
+	public ContigRegionsMap toContigRegionsMap()
+	{
+		ContigRegionsMapBuilder builder = new ContigRegionsMapBuilder();
+		for (ContigRegions regions : contigRegions.values())
+		{
+			for (int i = 0; i < regions.size(); i++)
+			{
+				builder.add(regions.getRegion(i));
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * The sorted {@link Region}{@code s} of a single contig.
+	 */
+	public static class ContigRegions
+	{
+		private String contig;
+		private IntBuffer starts;
+		private IntBuffer ends;
+
+		private ContigRegions(String contig, IntBuffer starts, IntBuffer ends)
+		{
+			this.contig = contig;
+			this.starts = starts;
+			this.ends = ends;
+		}
+
+		public String getContig()
+		{
+			return contig;
+		}
+
+		/**
+		 * @return {@code int} The number of {@link Region}{@code s}.
+		 */
+		public int size()
+		{
+			return starts.limit();
+		}
+
+		/**
+		 * @param index
+		 *            {@code int}
+		 * @return {@code int} The start of the {@link Region} at {@code index}.
+		 */
+		public int getStart(int index)
+		{
+			return starts.get(index);
+		}
+
+		/**
+		 * @param index
+		 *            {@code int}
+		 * @return {@code int} The end of the {@link Region} at {@code index}.
+		 */
+		public int getEnd(int index)
+		{
+			return ends.get(index);
+		}
+
+		/**
+		 * @param index
+		 *            {@code int}
+		 * @return {@link Region} A new {@link Region} instance for the {@link Region} at {@code index}.
+		 */
+		public Region getRegion(int index)
+		{
+			return new Region(contig, starts.get(index), ends.get(index));
+		}
+	}
+}
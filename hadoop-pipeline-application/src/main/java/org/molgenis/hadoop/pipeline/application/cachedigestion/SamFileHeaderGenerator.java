@@ -6,6 +6,7 @@ import java.util.Map;
 
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.molgenis.hadoop.pipeline.application.DistributedCacheHandler;
+import org.molgenis.hadoop.pipeline.application.sequences.QualityBinner;
 
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMFileHeader.SortOrder;
@@ -29,6 +30,24 @@ public abstract class SamFileHeaderGenerator
 	 */
 	public static SAMFileHeader retrieveSamFileHeader(TaskAttemptContext context)
 			throws IllegalArgumentException, IOException
+	{
+		return retrieveSamFileHeader(context, (String) null);
+	}
+
+	/**
+	 * Same as {@link #retrieveSamFileHeader(TaskAttemptContext)}, but only adds the read groups ({@code @RG} tags) of a
+	 * single sample (used for the output files of a sample in batch mode).
+	 * 
+	 * @param context
+	 *            {@link TaskAttemptContext}
+	 * @param sample
+	 *            {@link String} The sample id, or {@code null} to add the read groups of all samples.
+	 * @return {@link SAMFileHeader}
+	 * @throws IllegalArgumentException
+	 * @throws IOException
+	 */
+	public static SAMFileHeader retrieveSamFileHeader(TaskAttemptContext context, String sample)
+			throws IllegalArgumentException, IOException
 	{
 		DistributedCacheHandler cacheHandler = new DistributedCacheHandler(context);
 
@@ -46,12 +65,22 @@ public abstract class SamFileHeaderGenerator
 		// Add the @PG tags for the tools within the tools archive that were used (define manually!!!).
 		samFileHeader.addProgramRecord(tools.get("bwa"));
 
+		// Adds a @PG tag for the quality binning done by the mapper (if enabled), as the qualities differ from bwa's.
+		QualityBinner qualityBinner = QualityBinner.create(context.getConfiguration());
+		if (qualityBinner != null)
+		{
+			samFileHeader.addProgramRecord(qualityBinner.createProgramRecord(tools.get("bwa")));
+		}
+
 		// Retrieves the samples stored in the samples information file and adds them as SAMReadGroupRecords (@RG tags).
 		String samplesInfoFile = cacheHandler.getSamplesInfoFile();
 		List<Sample> samples = new HadoopSamplesInfoFileReader().read(samplesInfoFile);
-		for (Sample sample : samples)
+		for (Sample samplesInfo : samples)
 		{
-			samFileHeader.addReadGroup(sample.getAsReadGroupRecord());
+			if (sample == null || sample.equals(samplesInfo.getExternalSampleId()))
+			{
+				samFileHeader.addReadGroup(samplesInfo.getAsReadGroupRecord());
+			}
 		}
 
 		// Returns the completed SAMFileHeader.
@@ -72,7 +101,27 @@ public abstract class SamFileHeaderGenerator
 	public static SAMFileHeader retrieveSamFileHeader(TaskAttemptContext context, SortOrder order)
 			throws IllegalArgumentException, IOException
 	{
-		SAMFileHeader header = retrieveSamFileHeader(context);
+		return retrieveSamFileHeader(context, order, null);
+	}
+
+	/**
+	 * Wrapper for {@link #retrieveSamFileHeader(TaskAttemptContext, String)} that also allows for setting a
+	 * {@link SortOrder}.
+	 * 
+	 * @param context
+	 *            {@link TaskAttemptContext}
+	 * @param order
+	 *            {@link SortOrder}
+	 * @param sample
+	 *            {@link String} The sample id, or {@code null} to add the read groups of all samples.
+	 * @return {@link SAMFileHeader}
+	 * @throws IllegalArgumentException
+	 * @throws IOException
+	 */
+	public static SAMFileHeader retrieveSamFileHeader(TaskAttemptContext context, SortOrder order, String sample)
+			throws IllegalArgumentException, IOException
+	{
+		SAMFileHeader header = retrieveSamFileHeader(context, sample);
 		header.setSortOrder(order);
 		return header;
 	}
@@ -47,6 +47,21 @@ public class Sample
 	 */
 	private int lane; // Is the @RG ID.
 
+	/**
+	 * The comparison name (precomputed, as it is needed for each input split).
+	 */
+	private String comparisonName;
+
+	/**
+	 * The {@code @RG} line (precomputed, as it is needed for each input split).
+	 */
+	private String readGroupLine;
+
+	/**
+	 * The {@code @RG} line that can be used as process argument (see {@link #getSafeReadGroupLine()}).
+	 */
+	private String safeReadGroupLine;
+
 	public String getExternalSampleId()
 	{
 		return externalSampleId;
@@ -85,8 +100,7 @@ public class Sample
 	 */
 	public String getComparisonName()
 	{
-		return String.format("%1$s_%2$s_%3$4s_%4$s_L%5$s", sequencingStartDate, sequencer, run, flowcell, lane)
-				.replace(' ', '0');
+		return comparisonName;
 	}
 
 	/**
@@ -96,8 +110,7 @@ public class Sample
 	 */
 	public String getReadGroupLine()
 	{
-		return String.format("@RG\tID:%6$s\tPL:illumina\tLB:%2$s_%3$s_%4$s_%5$s_L%6$s\tSM:%1$s", externalSampleId,
-				sequencingStartDate, sequencer, run, flowcell, lane);
+		return readGroupLine;
 	}
 
 	/**
@@ -109,7 +122,7 @@ public class Sample
 	 */
 	public String getSafeReadGroupLine()
 	{
-		return getReadGroupLine().replace("\t", "\\t");
+		return safeReadGroupLine;
 	}
 
 	/**
@@ -156,6 +169,13 @@ public class Sample
 		this.run = run;
 		this.flowcell = flowcell;
 		this.lane = lane;
+
+		comparisonName = String
+				.format("%1$s_%2$s_%3$4s_%4$s_L%5$s", sequencingStartDate, sequencer, run, flowcell, lane)
+				.replace(' ', '0');
+		readGroupLine = String.format("@RG\tID:%6$s\tPL:illumina\tLB:%2$s_%3$s_%4$s_%5$s_L%6$s\tSM:%1$s",
+				externalSampleId, sequencingStartDate, sequencer, run, flowcell, lane);
+		safeReadGroupLine = readGroupLine.replace("\t", "\\t");
 	}
 
 	@Override
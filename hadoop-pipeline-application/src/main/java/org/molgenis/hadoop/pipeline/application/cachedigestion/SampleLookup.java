@@ -0,0 +1,78 @@
+package org.molgenis.hadoop.pipeline.application.cachedigestion;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * Retrieves the {@link Sample} an input split belongs to using the name of the directory the input split is stored in
+ * (which should be equal to {@link Sample#getComparisonName()}). The {@link Sample}{@code s} are indexed once, so a
+ * lookup does not depend on the number of {@link Sample}{@code s} in the samplesheet.
+ */
+public class SampleLookup
+{
+	/**
+	 * The {@link Sample}{@code s} stored by their {@link Sample#getComparisonName()}.
+	 */
+	private Map<String, Sample> samples = new LinkedHashMap<>();
+
+	/**
+	 * Creates a new {@link SampleLookup}.
+	 *
+	 * @param samples
+	 *            {@link List}{@code <}{@link Sample}{@code >}
+	 * @throws IllegalArgumentException
+	 *             If multiple {@link Sample}{@code s} have the same {@link Sample#getComparisonName()} (so an input
+	 *             split could belong to more than one {@link Sample}).
+	 */
+	public SampleLookup(List<Sample> samples) throws IllegalArgumentException
+	{
+		for (Sample sample : requireNonNull(samples))
+		{
+			if (this.samples.put(sample.getComparisonName(), sample) != null)
+			{
+				throw new IllegalArgumentException(
+						"Samplesheet contains multiple samples for: " + sample.getComparisonName());
+			}
+		}
+	}
+
+	/**
+	 * @return {@link Collection}{@code <}{@link Sample}{@code >} All {@link Sample}{@code s} (in samplesheet order).
+	 */
+	public Collection<Sample> getSamples()
+	{
+		return Collections.unmodifiableCollection(samples.values());
+	}
+
+	/**
+	 * Retrieves the {@link Sample} an input split belongs to.
+	 *
+	 * @param inputSplitPath
+	 *            {@link String}
+	 * @return {@link Sample} The {@link Sample} that matches with the {@code inputSplitPath}, or {@code null} if
+	 *         there is none.
+	 */
+	public Sample get(String inputSplitPath)
+	{
+		return samples.get(getSampleDirName(inputSplitPath));
+	}
+
+	/**
+	 * Retrieves the name of the directory an input split is stored in.
+	 *
+	 * @param inputSplitPath
+	 *            {@link String}
+	 * @return {@link String}
+	 */
+	public static String getSampleDirName(String inputSplitPath)
+	{
+		return FilenameUtils.getName(FilenameUtils.getPathNoEndSeparator(inputSplitPath));
+	}
+}
@@ -2,31 +2,52 @@ package org.molgenis.hadoop.pipeline.application.formats;
 
 import java.io.IOException;
 
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.OutputFormat;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.molgenis.hadoop.pipeline.application.PipelineProperties;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.SamFileHeaderGenerator;
-import org.seqdoop.hadoop_bam.BAMOutputFormat;
-import org.seqdoop.hadoop_bam.KeyIgnoringBAMOutputFormat;
-import org.seqdoop.hadoop_bam.KeyIgnoringBAMRecordWriter;
-import org.seqdoop.hadoop_bam.SAMRecordWritable;
+import org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable;
 
 import htsjdk.samtools.SAMFileHeader;
 
 /**
- * Custom implementation replacing {@link KeyIgnoringBAMOutputFormat} where the {@link SAMFileHeader} is generated using
- * the {@link TaskAttemptContext} from {@link #getRecordWriter(TaskAttemptContext)}. This means the
- * {@link SAMFileHeader} is generated at the moment a {@link RecordWriter} is retrieved from the {@link OutputFormat}.
- * This allows the distributed cache to be used for generating the {@link SAMFileHeader}.
+ * Custom {@link FileOutputFormat} writing {@link BamRecordWritable}{@code s} to a BAM file using a
+ * {@link RawBamRecordWriter}, where the {@link SAMFileHeader} is generated using the {@link TaskAttemptContext} from
+ * {@link #getRecordWriter(TaskAttemptContext)}. This means the {@link SAMFileHeader} is generated at the moment a
+ * {@link RecordWriter} is retrieved from the {@link OutputFormat}. This allows the distributed cache to be used for
+ * generating the {@link SAMFileHeader}.
  * 
  * @param <K>
  */
-public class BamOutputFormat<K> extends BAMOutputFormat<K>
+public class BamOutputFormat<K> extends FileOutputFormat<K, BamRecordWritable>
 {
 	@Override
-	public RecordWriter<K, SAMRecordWritable> getRecordWriter(TaskAttemptContext ctx) throws IOException
+	public RecordWriter<K, BamRecordWritable> getRecordWriter(TaskAttemptContext ctx) throws IOException
 	{
-		return new KeyIgnoringBAMRecordWriter<K>(getDefaultWorkFile(ctx, ".bam"),
-				SamFileHeaderGenerator.retrieveSamFileHeader(ctx), true, ctx);
+		Path file = getDefaultWorkFile(ctx, ".bam");
+		return new RawBamRecordWriter<K>(file,
+				SamFileHeaderGenerator.retrieveSamFileHeader(ctx, getBatchSample(ctx, file)), ctx);
+	}
+
+	/**
+	 * Retrieves the sample a file is written for when {@link PipelineProperties#BATCH_MODE} is enabled (the output of
+	 * each sample is written to a directory named after its sample id).
+	 * 
+	 * @param ctx
+	 *            {@link TaskAttemptContext}
+	 * @param file
+	 *            {@link Path} The file to be written.
+	 * @return {@link String} The sample id, or {@code null} if batch mode is disabled.
+	 */
+	protected static String getBatchSample(TaskAttemptContext ctx, Path file)
+	{
+		if (!ctx.getConfiguration().getBoolean(PipelineProperties.BATCH_MODE, PipelineProperties.BATCH_MODE_DEFAULT))
+		{
+			return null;
+		}
+		return file.getParent().getName();
 	}
 }
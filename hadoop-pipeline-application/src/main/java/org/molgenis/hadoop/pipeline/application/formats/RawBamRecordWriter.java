@@ -0,0 +1,91 @@
+package org.molgenis.hadoop.pipeline.application.formats;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMTextHeaderCodec;
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+
+/**
+ * {@link RecordWriter} that writes the raw BAM-encoded bytes from {@link BamRecordWritable}{@code s} directly into a
+ * BGZF-compressed BAM file (so without decoding them to a {@link htsjdk.samtools.SAMRecord} first). The key is
+ * ignored.
+ *
+ * @param <K>
+ */
+public class RawBamRecordWriter<K> extends RecordWriter<K, BamRecordWritable>
+{
+	/**
+	 * The magic string a BAM file starts with.
+	 */
+	private static final byte[] BAM_MAGIC = { 'B', 'A', 'M', 1 };
+
+	/**
+	 * The BGZF-compressed output stream.
+	 */
+	private BlockCompressedOutputStream outputStream;
+
+	/**
+	 * Creates a new {@link RawBamRecordWriter} and writes the BAM header.
+	 *
+	 * @param output
+	 *            {@link Path} The file to write to.
+	 * @param header
+	 *            {@link SAMFileHeader} The header to write.
+	 * @param context
+	 *            {@link TaskAttemptContext}
+	 * @throws IOException
+	 */
+	public RawBamRecordWriter(Path output, SAMFileHeader header, TaskAttemptContext context) throws IOException
+	{
+		requireNonNull(header);
+		outputStream = new BlockCompressedOutputStream(
+				output.getFileSystem(context.getConfiguration()).create(output), null);
+		writeHeader(header);
+	}
+
+	/**
+	 * Writes the BAM header (magic string, header text and the reference sequences).
+	 *
+	 * @param header
+	 *            {@link SAMFileHeader}
+	 */
+	private void writeHeader(SAMFileHeader header)
+	{
+		StringWriter headerText = new StringWriter();
+		new SAMTextHeaderCodec().encode(headerText, header);
+
+		BinaryCodec codec = new BinaryCodec(outputStream);
+		codec.writeBytes(BAM_MAGIC);
+		codec.writeString(headerText.toString(), true, false);
+		codec.writeInt(header.getSequenceDictionary().size());
+		for (SAMSequenceRecord sequenceRecord : header.getSequenceDictionary().getSequences())
+		{
+			codec.writeString(sequenceRecord.getSequenceName(), true, true);
+			codec.writeInt(sequenceRecord.getSequenceLength());
+		}
+	}
+
+	@Override
+	public void write(K key, BamRecordWritable value) throws IOException
+	{
+		outputStream.write(value.getBytes(), 0, value.getLength());
+	}
+
+	@Override
+	public void close(TaskAttemptContext context) throws IOException
+	{
+		// Also writes the BGZF end-of-file marker block.
+		outputStream.close();
+	}
+}
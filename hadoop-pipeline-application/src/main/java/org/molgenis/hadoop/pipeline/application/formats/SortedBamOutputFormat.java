@@ -2,12 +2,13 @@ package org.molgenis.hadoop.pipeline.application.formats;
 
 import java.io.IOException;
 
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.SamFileHeaderGenerator;
-import org.seqdoop.hadoop_bam.KeyIgnoringBAMRecordWriter;
-import org.seqdoop.hadoop_bam.SAMRecordWritable;
+import org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable;
 
+import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMFileHeader.SortOrder;
 
 /**
@@ -20,9 +21,11 @@ import htsjdk.samtools.SAMFileHeader.SortOrder;
 public class SortedBamOutputFormat<K> extends BamOutputFormat<K>
 {
 	@Override
-	public RecordWriter<K, SAMRecordWritable> getRecordWriter(TaskAttemptContext ctx) throws IOException
+	public RecordWriter<K, BamRecordWritable> getRecordWriter(TaskAttemptContext ctx) throws IOException
 	{
-		return new KeyIgnoringBAMRecordWriter<K>(getDefaultWorkFile(ctx, ".bam"),
-				SamFileHeaderGenerator.retrieveSamFileHeader(ctx, SortOrder.coordinate), true, ctx);
+		Path file = getDefaultWorkFile(ctx, ".bam");
+		SAMFileHeader header = SamFileHeaderGenerator.retrieveSamFileHeader(ctx, SortOrder.coordinate,
+				getBatchSample(ctx, file));
+		return new RawBamRecordWriter<K>(file, header, ctx);
 	}
 }
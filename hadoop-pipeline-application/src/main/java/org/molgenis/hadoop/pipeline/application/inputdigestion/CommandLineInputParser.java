@@ -60,7 +60,7 @@ public class CommandLineInputParser extends InputParser
 	 */
 	public void printHelpMessage()
 	{
-		String cmdSyntax = "yarn jar HadoopPipelineApplicationWithDependencies.jar [-D <property>=<value>]... -t <tools> -i <input> [-i <input>]... -o <output> -r <reference> -s <samples> -b <bed>";
+		String cmdSyntax = "yarn jar HadoopPipelineApplicationWithDependencies.jar [-D <property>=<value>]... -t <tools> -i <input> [-i <input>]... -o <output> -r <reference> -s <samples> [-b <bed>]";
 		String helpHeader = "";
 		String helpFooter = "Molgenis hadoop-pipeline";
 
@@ -98,9 +98,10 @@ public class CommandLineInputParser extends InputParser
 								+ " using the same prefix.")
 				.create("r"));
 
-		options.addOption(OptionBuilder.withArgName("bed").hasArg().isRequired(true)
+		options.addOption(OptionBuilder.withArgName("bed").hasArg().isRequired(false)
 				.withDescription(
-						"BED formatted file describing how to group the aligned SAMRecords during the shuffle/sort phase.")
+						"BED formatted file describing how to group the aligned SAMRecords during the shuffle/sort phase."
+								+ " Required unless hadoop.pipeline.binning.window is set.")
 				.create("b"));
 
 		options.addOption(OptionBuilder.withArgName("samples").hasArg().isRequired(true)
@@ -335,8 +335,8 @@ public abstract class InputParser
 							+ getAlignmentReferenceDictFile());
 		}
 
-		// Checks validity bed file.
-		if (!checkIfPathIsFile(bedFile))
+		// Checks validity bed file (if given).
+		if (bedFile != null && !checkIfPathIsFile(bedFile))
 		{
 			validInput = false;
 			System.err.println("BED file describing the grouping of the SAM records does not exist.");
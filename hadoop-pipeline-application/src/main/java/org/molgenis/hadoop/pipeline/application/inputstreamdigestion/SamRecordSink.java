@@ -1,9 +1,15 @@
 package org.molgenis.hadoop.pipeline.application.inputstreamdigestion;
 
+import static java.util.Objects.requireNonNull;
+
 import java.io.IOException;
 import java.io.InputStream;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.molgenis.hadoop.pipeline.application.metrics.Stage;
+import org.molgenis.hadoop.pipeline.application.metrics.StageTimer;
+import org.molgenis.hadoop.pipeline.application.sequences.QualityBinner;
 
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMRecordIterator;
@@ -17,6 +23,77 @@ import htsjdk.samtools.ValidationStringency;
  */
 public abstract class SamRecordSink extends Sink<SAMRecord>
 {
+	/**
+	 * Whether the {@link InputStream} should be parsed using a {@link SamTextRecordReader} instead of htsjdk's
+	 * {@link SamReader}.
+	 */
+	private boolean byteLevelParsing;
+
+	/**
+	 * Records the time spent on decoding the {@link InputStream} as {@link Stage#SAM_DECODE}.
+	 */
+	private StageTimer timer;
+
+	/**
+	 * Bins the base qualities of each {@link SAMRecord} before it is digested (or {@code null} if these are kept
+	 * as-is).
+	 */
+	private QualityBinner qualityBinner;
+
+	/**
+	 * Creates a new {@link SamRecordSink} that uses htsjdk's {@link SamReader} for parsing the {@link InputStream}.
+	 */
+	public SamRecordSink()
+	{
+		this(false);
+	}
+
+	/**
+	 * Creates a new {@link SamRecordSink}.
+	 * 
+	 * @param byteLevelParsing
+	 *            {@code boolean} If {@code true}, the {@link InputStream} is parsed using a {@link SamTextRecordReader}
+	 *            (which generates lazily decoded BAM-encoded {@link SAMRecord}{@code s}). If {@code false}, htsjdk's
+	 *            {@link SamReader} is used.
+	 */
+	public SamRecordSink(boolean byteLevelParsing)
+	{
+		this(byteLevelParsing, new StageTimer(false));
+	}
+
+	/**
+	 * Creates a new {@link SamRecordSink} that records the time spent on retrieving each {@link SAMRecord} (including
+	 * the time waiting for the {@link InputStream}) and the number of bytes read as {@link Stage#SAM_DECODE}.
+	 * 
+	 * @param byteLevelParsing
+	 *            {@code boolean} See {@link #SamRecordSink(boolean)}.
+	 * @param timer
+	 *            {@link StageTimer}
+	 */
+	public SamRecordSink(boolean byteLevelParsing, StageTimer timer)
+	{
+		this(byteLevelParsing, timer, null);
+	}
+
+	/**
+	 * Same as {@link #SamRecordSink(boolean, StageTimer)}, but also bins the base qualities of each {@link SAMRecord}
+	 * before it is digested. When using byte-level parsing, the qualities are binned while parsing them, so the
+	 * BAM-encoded block of the record stays intact.
+	 * 
+	 * @param byteLevelParsing
+	 *            {@code boolean} See {@link #SamRecordSink(boolean)}.
+	 * @param timer
+	 *            {@link StageTimer}
+	 * @param qualityBinner
+	 *            {@link QualityBinner} (or {@code null} to keep the base qualities as-is).
+	 */
+	public SamRecordSink(boolean byteLevelParsing, StageTimer timer, QualityBinner qualityBinner)
+	{
+		this.byteLevelParsing = byteLevelParsing;
+		this.timer = requireNonNull(timer);
+		this.qualityBinner = qualityBinner;
+	}
+
 	/**
 	 * Digests a SAM-formatted {@link InputStream}. For each {@link SAMRecord} present in the {@link InputStream},
 	 * {@link #digestStreamItem(SAMRecord)} is called.
@@ -24,6 +101,38 @@ public abstract class SamRecordSink extends Sink<SAMRecord>
 	@Override
 	public void handleInputStream(InputStream inputStream) throws IOException
 	{
+		CountingInputStream countingStream = null;
+		if (timer.isEnabled())
+		{
+			countingStream = new CountingInputStream(inputStream);
+			inputStream = countingStream;
+		}
+
+		try
+		{
+			handleInputStreamWithParser(inputStream);
+		}
+		finally
+		{
+			if (countingStream != null) timer.addBytes(Stage.SAM_DECODE, countingStream.getByteCount());
+		}
+	}
+
+	/**
+	 * Digests a SAM-formatted {@link InputStream} using the configured parser.
+	 * 
+	 * @param inputStream
+	 *            {@link InputStream}
+	 * @throws IOException
+	 */
+	private void handleInputStreamWithParser(InputStream inputStream) throws IOException
+	{
+		if (byteLevelParsing)
+		{
+			handleInputStreamByteLevel(inputStream);
+			return;
+		}
+
 		SamReader samReader = null;
 		try
 		{
@@ -31,9 +140,14 @@ public abstract class SamRecordSink extends Sink<SAMRecord>
 					.validationStringency(ValidationStringency.LENIENT);
 			samReader = samReaderFactory.open(SamInputResource.of(inputStream));
 			SAMRecordIterator samIterator = samReader.iterator();
+			long start = timer.start();
 			while (samIterator.hasNext())
 			{
-				digestStreamItem(samIterator.next());
+				SAMRecord record = samIterator.next();
+				if (qualityBinner != null) qualityBinner.bin(record);
+				timer.stop(Stage.SAM_DECODE, start);
+				digestStreamItem(record);
+				start = timer.start();
 			}
 			finishStreamProcessing();
 		}
@@ -43,6 +157,35 @@ public abstract class SamRecordSink extends Sink<SAMRecord>
 		}
 	}
 
+	/**
+	 * Digests a SAM-formatted {@link InputStream} using a {@link SamTextRecordReader}. For each {@link SAMRecord}
+	 * present in the {@link InputStream}, {@link #digestStreamItem(SAMRecord)} is called.
+	 * 
+	 * @param inputStream
+	 *            {@link InputStream}
+	 * @throws IOException
+	 */
+	private void handleInputStreamByteLevel(InputStream inputStream) throws IOException
+	{
+		try
+		{
+			SamTextRecordReader reader = new SamTextRecordReader(inputStream, qualityBinner);
+			SAMRecord record;
+			long start = timer.start();
+			while ((record = reader.next()) != null)
+			{
+				timer.stop(Stage.SAM_DECODE, start);
+				digestStreamItem(record);
+				start = timer.start();
+			}
+			finishStreamProcessing();
+		}
+		finally
+		{
+			IOUtils.closeQuietly(inputStream);
+		}
+	}
+
 	/**
 	 * Digests a single {@link SAMRecord} from the {@link InputStream}. Be sure to create a custom {@code @Override}
 	 * implementation that defines what should be done with each {@link SAMRecord}!
@@ -0,0 +1,745 @@
+package org.molgenis.hadoop.pipeline.application.inputstreamdigestion;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.molgenis.hadoop.pipeline.application.sequences.QualityBinner;
+
+import htsjdk.samtools.DefaultSAMRecordFactory;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordFactory;
+
+/**
+ * Parses single SAM-formatted lines directly from their bytes into BAM-encoded {@link SAMRecord}{@code s}. Only the
+ * fixed-length fields are stored directly within the {@link SAMRecord}, while the read name, CIGAR, bases, qualities
+ * and tags are stored as a BAM-encoded binary block that is only decoded by htsjdk when they are actually requested.
+ * This circumvents the {@link String} splitting, {@link htsjdk.samtools.Cigar} generation and tag parsing done by
+ * htsjdk's SAM text parser, and allows the BAM encoding of a record (as done when writing it to a
+ * {@link org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable}) to simply copy the already encoded
+ * binary block.
+ */
+public class SamTextRecordParser
+{
+	/**
+	 * The number of mandatory fields present in a SAM record line.
+	 */
+	private static final int MANDATORY_FIELDS = 11;
+
+	/**
+	 * Value used to fill the base qualities with if these are missing ({@code *}).
+	 */
+	private static final byte MISSING_BASE_QUALITY = (byte) 0xFF;
+
+	/**
+	 * Offset of the phred-scaled base qualities within a SAM record line.
+	 */
+	private static final int BASE_QUALITY_OFFSET = 33;
+
+	/**
+	 * Maps a SAM base character to its 4-bit BAM encoding. Invalid characters are stored as {@code -1}.
+	 */
+	private static final byte[] BASE_CODES = new byte[256];
+
+	/**
+	 * Maps a CIGAR operator character to its BAM encoding. Invalid characters are stored as {@code -1}.
+	 */
+	private static final byte[] CIGAR_OPERATOR_CODES = new byte[256];
+
+	static
+	{
+		Arrays.fill(BASE_CODES, (byte) -1);
+		String bases = "=ACMGRSVTWYHKDBN";
+		for (int i = 0; i < bases.length(); i++)
+		{
+			BASE_CODES[bases.charAt(i)] = (byte) i;
+			BASE_CODES[Character.toLowerCase(bases.charAt(i))] = (byte) i;
+		}
+		BASE_CODES['.'] = BASE_CODES['N'];
+
+		Arrays.fill(CIGAR_OPERATOR_CODES, (byte) -1);
+		String cigarOperators = "MIDNSHP=X";
+		for (int i = 0; i < cigarOperators.length(); i++)
+		{
+			CIGAR_OPERATOR_CODES[cigarOperators.charAt(i)] = (byte) i;
+		}
+	}
+
+	/**
+	 * The header the generated {@link SAMRecord}{@code s} belong to. Used to resolve the reference sequence names.
+	 */
+	private SAMFileHeader header;
+
+	/**
+	 * Bins the parsed base qualities (or {@code null} if these are kept as-is).
+	 */
+	private QualityBinner qualityBinner;
+
+	/**
+	 * Factory used to create the BAM-encoded {@link SAMRecord}{@code s}.
+	 */
+	private SAMRecordFactory recordFactory = DefaultSAMRecordFactory.getInstance();
+
+	/**
+	 * The last resolved reference sequence name. As consecutive records (especially those from a single read pair) are
+	 * often aligned to the same reference sequence, this removes most {@link String} generation and lookups.
+	 */
+	private byte[] lastReferenceName = new byte[0];
+
+	/**
+	 * The reference sequence index belonging to {@link #lastReferenceName}.
+	 */
+	private int lastReferenceIndex = SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX;
+
+	/**
+	 * Reusable buffer in which the BAM-encoded variable-length block of a record is generated.
+	 */
+	private byte[] buffer = new byte[1024];
+
+	/**
+	 * The number of bytes used in {@link #buffer} for the current record.
+	 */
+	private int size;
+
+	/**
+	 * The start positions of the mandatory fields within the line currently being parsed.
+	 */
+	private int[] fieldStarts = new int[MANDATORY_FIELDS];
+
+	/**
+	 * The (exclusive) end positions of the mandatory fields within the line currently being parsed.
+	 */
+	private int[] fieldEnds = new int[MANDATORY_FIELDS];
+
+	/**
+	 * Creates a new {@link SamTextRecordParser}.
+	 *
+	 * @param header
+	 *            {@link SAMFileHeader} The header the parsed {@link SAMRecord}{@code s} belong to.
+	 */
+	public SamTextRecordParser(SAMFileHeader header)
+	{
+		this(header, null);
+	}
+
+	/**
+	 * Creates a new {@link SamTextRecordParser} that bins the base qualities while parsing them.
+	 *
+	 * @param header
+	 *            {@link SAMFileHeader} The header the parsed {@link SAMRecord}{@code s} belong to.
+	 * @param qualityBinner
+	 *            {@link QualityBinner} (or {@code null} to keep the base qualities as-is).
+	 */
+	public SamTextRecordParser(SAMFileHeader header, QualityBinner qualityBinner)
+	{
+		this.header = requireNonNull(header);
+		this.qualityBinner = qualityBinner;
+	}
+
+	/**
+	 * Parses a single SAM record line (without line terminator).
+	 *
+	 * @param line
+	 *            {@code byte[]} Stores the line to be parsed.
+	 * @param length
+	 *            {@code int} The number of bytes from {@code line} that belong to the line.
+	 * @return {@link SAMRecord}
+	 * @throws IOException
+	 *             If the line is not a valid SAM record.
+	 */
+	public SAMRecord parse(byte[] line, int length) throws IOException
+	{
+		// Retrieves the positions of the mandatory fields and where the optional fields (tags) start.
+		int tagsStart = splitMandatoryFields(line, length);
+		size = 0;
+
+		// QNAME (stored null-terminated).
+		int readNameLength = fieldEnds[0] - fieldStarts[0] + 1;
+		if (readNameLength > 255)
+		{
+			throw new IOException("Read name too long: " + toString(line, length));
+		}
+		writeBytes(line, fieldStarts[0], fieldEnds[0]);
+		writeByte(0);
+
+		// FLAG, RNAME, POS & MAPQ.
+		int flags = (int) parseInteger(line, 1, length);
+		int referenceIndex = resolveReferenceIndex(line, 2, length);
+		int alignmentStart = (int) parseInteger(line, 3, length);
+		int mappingQuality = (int) parseInteger(line, 4, length);
+
+		// CIGAR.
+		int cigarLength = 0;
+		int referenceLength = 0;
+		if (!isMissing(line, 5))
+		{
+			int operationLength = 0;
+			boolean hasDigits = false;
+			for (int i = fieldStarts[5]; i < fieldEnds[5]; i++)
+			{
+				byte b = line[i];
+				if (b >= '0' && b <= '9')
+				{
+					operationLength = operationLength * 10 + (b - '0');
+					hasDigits = true;
+				}
+				else
+				{
+					byte operator = CIGAR_OPERATOR_CODES[b & 0xFF];
+					if (operator == -1 || !hasDigits)
+					{
+						throw new IOException("Invalid CIGAR: " + toString(line, length));
+					}
+					writeInt(operationLength << 4 | operator);
+					// M, D, N, = & X consume reference bases.
+					if (operator == 0 || operator == 2 || operator == 3 || operator == 7 || operator == 8)
+					{
+						referenceLength += operationLength;
+					}
+					cigarLength++;
+					operationLength = 0;
+					hasDigits = false;
+				}
+			}
+			if (hasDigits)
+			{
+				throw new IOException("Invalid CIGAR: " + toString(line, length));
+			}
+		}
+
+		// RNEXT, PNEXT & TLEN.
+		int mateReferenceIndex = fieldEnds[6] - fieldStarts[6] == 1 && line[fieldStarts[6]] == '=' ? referenceIndex
+				: resolveReferenceIndex(line, 6, length);
+		int mateAlignmentStart = (int) parseInteger(line, 7, length);
+		int insertSize = (int) parseInteger(line, 8, length);
+
+		// SEQ (4-bit encoded, 2 bases per byte).
+		int readLength = 0;
+		if (!isMissing(line, 9))
+		{
+			readLength = fieldEnds[9] - fieldStarts[9];
+			ensureCapacity((readLength + 1) / 2);
+			for (int i = fieldStarts[9]; i < fieldEnds[9]; i += 2)
+			{
+				int high = BASE_CODES[line[i] & 0xFF];
+				int low = i + 1 < fieldEnds[9] ? BASE_CODES[line[i + 1] & 0xFF] : 0;
+				if (high == -1 || low == -1)
+				{
+					throw new IOException("Invalid base in sequence: " + toString(line, length));
+				}
+				buffer[size++] = (byte) (high << 4 | low);
+			}
+		}
+
+		// QUAL.
+		ensureCapacity(readLength);
+		if (isMissing(line, 10))
+		{
+			Arrays.fill(buffer, size, size + readLength, MISSING_BASE_QUALITY);
+			size += readLength;
+		}
+		else
+		{
+			if (fieldEnds[10] - fieldStarts[10] != readLength)
+			{
+				throw new IOException("Sequence and quality lengths differ: " + toString(line, length));
+			}
+			for (int i = fieldStarts[10]; i < fieldEnds[10]; i++)
+			{
+				buffer[size++] = (byte) (line[i] - BASE_QUALITY_OFFSET);
+			}
+			if (qualityBinner != null)
+			{
+				qualityBinner.bin(buffer, size - readLength, readLength);
+			}
+		}
+
+		// Optional fields.
+		int tagStart = tagsStart;
+		while (tagStart < length)
+		{
+			int tagEnd = indexOf(line, (byte) '\t', tagStart, length);
+			writeTag(line, tagStart, tagEnd, length);
+			tagStart = tagEnd + 1;
+		}
+
+		return recordFactory.createBAMRecord(header, referenceIndex, alignmentStart, (short) readNameLength,
+				(short) mappingQuality, calculateIndexingBin(flags, alignmentStart, referenceLength), cigarLength, flags,
+				readLength, mateReferenceIndex, mateAlignmentStart, insertSize, Arrays.copyOf(buffer, size));
+	}
+
+	/**
+	 * Stores the start and end positions of the mandatory fields in {@link #fieldStarts} and {@link #fieldEnds}.
+	 *
+	 * @param line
+	 *            {@code byte[]}
+	 * @param length
+	 *            {@code int}
+	 * @return {@code int} The position the optional fields start at (equals {@code length} if there are none).
+	 * @throws IOException
+	 *             If less than {@link #MANDATORY_FIELDS} fields are present.
+	 */
+	private int splitMandatoryFields(byte[] line, int length) throws IOException
+	{
+		int start = 0;
+		for (int field = 0; field < MANDATORY_FIELDS; field++)
+		{
+			if (start >= length)
+			{
+				throw new IOException("Invalid SAM line, less than " + MANDATORY_FIELDS + " fields: "
+						+ toString(line, length));
+			}
+			int end = indexOf(line, (byte) '\t', start, length);
+			fieldStarts[field] = start;
+			fieldEnds[field] = end;
+			start = end + 1;
+		}
+		return Math.min(start, length);
+	}
+
+	/**
+	 * Retrieves the reference sequence index of a RNAME/RNEXT field.
+	 *
+	 * @param line
+	 *            {@code byte[]}
+	 * @param field
+	 *            {@code int} The field to be resolved.
+	 * @param length
+	 *            {@code int}
+	 * @return {@code int} The reference sequence index, or {@link SAMRecord#NO_ALIGNMENT_REFERENCE_INDEX} if the
+	 *         field contains {@code *}.
+	 * @throws IOException
+	 *             If the reference sequence is not present in the header.
+	 */
+	private int resolveReferenceIndex(byte[] line, int field, int length) throws IOException
+	{
+		if (isMissing(line, field))
+		{
+			return SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX;
+		}
+
+		// Compares the name to the last resolved name before doing an actual lookup.
+		int nameLength = fieldEnds[field] - fieldStarts[field];
+		if (nameLength == lastReferenceName.length)
+		{
+			boolean equal = true;
+			for (int i = 0; i < nameLength && equal; i++)
+			{
+				equal = lastReferenceName[i] == line[fieldStarts[field] + i];
+			}
+			if (equal)
+			{
+				return lastReferenceIndex;
+			}
+		}
+
+		String name = new String(line, fieldStarts[field], nameLength, StandardCharsets.US_ASCII);
+		int index = header.getSequenceIndex(name);
+		if (index == -1)
+		{
+			throw new IOException("Reference sequence \"" + name + "\" not present in header: " + toString(line, length));
+		}
+		lastReferenceName = Arrays.copyOfRange(line, fieldStarts[field], fieldEnds[field]);
+		lastReferenceIndex = index;
+		return index;
+	}
+
+	/**
+	 * Writes a single optional field (tag) in BAM-encoding to {@link #buffer}.
+	 *
+	 * @param line
+	 *            {@code byte[]}
+	 * @param start
+	 *            {@code int} Start of the optional field.
+	 * @param end
+	 *            {@code int} End (exclusive) of the optional field.
+	 * @param length
+	 *            {@code int}
+	 * @throws IOException
+	 *             If the optional field is invalid.
+	 */
+	private void writeTag(byte[] line, int start, int end, int length) throws IOException
+	{
+		if (end - start < 5 || line[start + 2] != ':' || line[start + 4] != ':')
+		{
+			throw new IOException("Invalid optional field: " + toString(line, length));
+		}
+		writeByte(line[start]);
+		writeByte(line[start + 1]);
+		int valueStart = start + 5;
+
+		switch (line[start + 3])
+		{
+			case 'A':
+				if (end - valueStart != 1)
+				{
+					throw new IOException("Invalid character optional field: " + toString(line, length));
+				}
+				writeByte('A');
+				writeByte(line[valueStart]);
+				break;
+			case 'i':
+				writeIntegerTagValue(parseInteger(line, valueStart, end, length));
+				break;
+			case 'f':
+				writeByte('f');
+				writeInt(Float.floatToIntBits(parseFloat(line, valueStart, end, length)));
+				break;
+			case 'Z':
+			case 'H':
+				writeByte(line[start + 3]);
+				writeBytes(line, valueStart, end);
+				writeByte(0);
+				break;
+			case 'B':
+				writeArrayTagValue(line, valueStart, end, length);
+				break;
+			default:
+				throw new IOException("Invalid optional field type: " + toString(line, length));
+		}
+	}
+
+	/**
+	 * Writes an integer optional field value using the smallest fitting BAM integer type, preferring a signed type
+	 * (the same as htsjdk's {@code BinaryTagCodec}).
+	 *
+	 * @param value
+	 *            {@code long}
+	 * @throws IOException
+	 *             If the value does not fit within any BAM integer type.
+	 */
+	private void writeIntegerTagValue(long value) throws IOException
+	{
+		if (value < Integer.MIN_VALUE || value > 0xFFFFFFFFL)
+		{
+			throw new IOException("Integer optional field value out of range: " + value);
+		}
+		if (value <= Byte.MAX_VALUE)
+		{
+			if (value >= Byte.MIN_VALUE)
+			{
+				writeByte('c');
+				writeByte((int) value);
+			}
+			else if (value >= Short.MIN_VALUE)
+			{
+				writeByte('s');
+				writeShort((int) value);
+			}
+			else
+			{
+				writeByte('i');
+				writeInt((int) value);
+			}
+		}
+		else
+		{
+			if (value <= 0xFF)
+			{
+				writeByte('C');
+				writeByte((int) value);
+			}
+			else if (value <= Short.MAX_VALUE)
+			{
+				writeByte('s');
+				writeShort((int) value);
+			}
+			else if (value <= 0xFFFF)
+			{
+				writeByte('S');
+				writeShort((int) value);
+			}
+			else if (value <= Integer.MAX_VALUE)
+			{
+				writeByte('i');
+				writeInt((int) value);
+			}
+			else
+			{
+				writeByte('I');
+				writeInt((int) value);
+			}
+		}
+	}
+
+	/**
+	 * Writes an array ({@code B}) optional field value.
+	 *
+	 * @param line
+	 *            {@code byte[]}
+	 * @param start
+	 *            {@code int} Start of the value (the array subtype).
+	 * @param end
+	 *            {@code int} End (exclusive) of the value.
+	 * @param length
+	 *            {@code int}
+	 * @throws IOException
+	 *             If the array is invalid.
+	 */
+	private void writeArrayTagValue(byte[] line, int start, int end, int length) throws IOException
+	{
+		if (end - start < 1)
+		{
+			throw new IOException("Invalid array optional field: " + toString(line, length));
+		}
+		byte subtype = line[start];
+
+		// Counts the number of elements (each element is preceded by a comma).
+		int count = 0;
+		for (int i = start + 1; i < end; i++)
+		{
+			if (line[i] == ',') count++;
+		}
+
+		writeByte('B');
+		writeByte(subtype);
+		writeInt(count);
+
+		int elementStart = start + 2;
+		for (int i = 0; i < count; i++)
+		{
+			int elementEnd = indexOf(line, (byte) ',', elementStart, end);
+			switch (subtype)
+			{
+				case 'c':
+				case 'C':
+					writeByte((int) parseInteger(line, elementStart, elementEnd, length));
+					break;
+				case 's':
+				case 'S':
+					writeShort((int) parseInteger(line, elementStart, elementEnd, length));
+					break;
+				case 'i':
+				case 'I':
+					writeInt((int) parseInteger(line, elementStart, elementEnd, length));
+					break;
+				case 'f':
+					writeInt(Float.floatToIntBits(parseFloat(line, elementStart, elementEnd, length)));
+					break;
+				default:
+					throw new IOException("Invalid array optional field subtype: " + toString(line, length));
+			}
+			elementStart = elementEnd + 1;
+		}
+	}
+
+	/**
+	 * Calculates the BAM indexing bin in the same way as htsjdk does for a {@link SAMRecord}.
+	 *
+	 * @param flags
+	 *            {@code int}
+	 * @param alignmentStart
+	 *            {@code int} 1-based alignment start.
+	 * @param referenceLength
+	 *            {@code int} The number of reference bases covered by the CIGAR.
+	 * @return {@code int}
+	 */
+	private static int calculateIndexingBin(int flags, int alignmentStart, int referenceLength)
+	{
+		// 0-based start and 0-based exclusive end.
+		int start = alignmentStart - 1;
+		int end = (flags & 0x4) != 0 ? 0 : alignmentStart + referenceLength - 1;
+		if (end <= 0)
+		{
+			end = start + 1;
+		}
+		return regionToBin(start, end);
+	}
+
+	/**
+	 * Calculates the bin for a 0-based region ({@code end} exclusive) as described in the SAM specification.
+	 *
+	 * @param start
+	 *            {@code int}
+	 * @param end
+	 *            {@code int}
+	 * @return {@code int}
+	 */
+	private static int regionToBin(int start, int end)
+	{
+		--end;
+		if (start >> 14 == end >> 14) return ((1 << 15) - 1) / 7 + (start >> 14);
+		if (start >> 17 == end >> 17) return ((1 << 12) - 1) / 7 + (start >> 17);
+		if (start >> 20 == end >> 20) return ((1 << 9) - 1) / 7 + (start >> 20);
+		if (start >> 23 == end >> 23) return ((1 << 6) - 1) / 7 + (start >> 23);
+		if (start >> 26 == end >> 26) return ((1 << 3) - 1) / 7 + (start >> 26);
+		return 0;
+	}
+
+	/**
+	 * Whether a mandatory field contains only {@code *}.
+	 *
+	 * @param line
+	 *            {@code byte[]}
+	 * @param field
+	 *            {@code int}
+	 * @return {@code boolean}
+	 */
+	private boolean isMissing(byte[] line, int field)
+	{
+		return fieldEnds[field] - fieldStarts[field] == 1 && line[fieldStarts[field]] == '*';
+	}
+
+	/**
+	 * Parses a mandatory field as integer.
+	 *
+	 * @param line
+	 *            {@code byte[]}
+	 * @param field
+	 *            {@code int}
+	 * @param length
+	 *            {@code int}
+	 * @return {@code long}
+	 * @throws IOException
+	 */
+	private long parseInteger(byte[] line, int field, int length) throws IOException
+	{
+		return parseInteger(line, fieldStarts[field], fieldEnds[field], length);
+	}
+
+	/**
+	 * Parses a part of the line as integer.
+	 *
+	 * @param line
+	 *            {@code byte[]}
+	 * @param start
+	 *            {@code int}
+	 * @param end
+	 *            {@code int} (exclusive)
+	 * @param length
+	 *            {@code int}
+	 * @return {@code long}
+	 * @throws IOException
+	 *             If the given part is not a valid integer.
+	 */
+	private static long parseInteger(byte[] line, int start, int end, int length) throws IOException
+	{
+		boolean negative = start < end && line[start] == '-';
+		int i = negative || (start < end && line[start] == '+') ? start + 1 : start;
+		if (i == end || end - i > 18)
+		{
+			throw new IOException("Invalid integer value: " + toString(line, length));
+		}
+
+		long value = 0;
+		for (; i < end; i++)
+		{
+			int digit = line[i] - '0';
+			if (digit < 0 || digit > 9)
+			{
+				throw new IOException("Invalid integer value: " + toString(line, length));
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses a part of the line as float.
+	 *
+	 * @param line
+	 *            {@code byte[]}
+	 * @param start
+	 *            {@code int}
+	 * @param end
+	 *            {@code int} (exclusive)
+	 * @param length
+	 *            {@code int}
+	 * @return {@code float}
+	 * @throws IOException
+	 *             If the given part is not a valid float.
+	 */
+	private static float parseFloat(byte[] line, int start, int end, int length) throws IOException
+	{
+		try
+		{
+			return Float.parseFloat(new String(line, start, end - start, StandardCharsets.US_ASCII));
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IOException("Invalid float value: " + toString(line, length), e);
+		}
+	}
+
+	/**
+	 * Returns the position of the first occurrence of {@code b} from {@code start} onwards.
+	 *
+	 * @param line
+	 *            {@code byte[]}
+	 * @param b
+	 *            {@code byte}
+	 * @param start
+	 *            {@code int}
+	 * @param end
+	 *            {@code int} (exclusive)
+	 * @return {@code int} The position of {@code b}, or {@code end} if it is not present.
+	 */
+	private static int indexOf(byte[] line, byte b, int start, int end)
+	{
+		for (int i = start; i < end; i++)
+		{
+			if (line[i] == b) return i;
+		}
+		return end;
+	}
+
+	/**
+	 * Converts the line to a {@link String} (for use in error messages).
+	 *
+	 * @param line
+	 *            {@code byte[]}
+	 * @param length
+	 *            {@code int}
+	 * @return {@link String}
+	 */
+	private static String toString(byte[] line, int length)
+	{
+		return new String(line, 0, length, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Makes sure {@link #buffer} can store an additional {@code additional} bytes.
+	 *
+	 * @param additional
+	 *            {@code int}
+	 */
+	private void ensureCapacity(int additional)
+	{
+		if (size + additional > buffer.length)
+		{
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+		}
+	}
+
+	private void writeByte(int value)
+	{
+		ensureCapacity(1);
+		buffer[size++] = (byte) value;
+	}
+
+	private void writeShort(int value)
+	{
+		ensureCapacity(2);
+		buffer[size++] = (byte) value;
+		buffer[size++] = (byte) (value >> 8);
+	}
+
+	private void writeInt(int value)
+	{
+		ensureCapacity(4);
+		buffer[size++] = (byte) value;
+		buffer[size++] = (byte) (value >> 8);
+		buffer[size++] = (byte) (value >> 16);
+		buffer[size++] = (byte) (value >> 24);
+	}
+
+	private void writeBytes(byte[] bytes, int start, int end)
+	{
+		ensureCapacity(end - start);
+		System.arraycopy(bytes, start, buffer, size, end - start);
+		size += end - start;
+	}
+}
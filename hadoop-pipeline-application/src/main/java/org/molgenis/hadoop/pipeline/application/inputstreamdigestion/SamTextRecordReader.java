@@ -0,0 +1,224 @@
+package org.molgenis.hadoop.pipeline.application.inputstreamdigestion;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.molgenis.hadoop.pipeline.application.sequences.QualityBinner;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMTextHeaderCodec;
+import htsjdk.samtools.util.StringLineReader;
+
+/**
+ * Reads a SAM-formatted {@link InputStream} line-by-line as bytes and converts each record line to a BAM-encoded
+ * {@link SAMRecord} using a {@link SamTextRecordParser}. The header lines are parsed using htsjdk's
+ * {@link SAMTextHeaderCodec}.
+ */
+public class SamTextRecordReader
+{
+	/**
+	 * The {@link InputStream} to read from.
+	 */
+	private InputStream inputStream;
+
+	/**
+	 * Buffer storing the data read from {@link #inputStream}.
+	 */
+	private byte[] chunk = new byte[65536];
+
+	/**
+	 * The position in {@link #chunk} of the next byte to be digested.
+	 */
+	private int chunkPosition = 0;
+
+	/**
+	 * The number of bytes stored in {@link #chunk}.
+	 */
+	private int chunkLength = 0;
+
+	/**
+	 * Buffer storing the current line.
+	 */
+	private byte[] line = new byte[1024];
+
+	/**
+	 * The number of bytes stored in {@link #line}.
+	 */
+	private int lineLength = 0;
+
+	/**
+	 * Whether {@link #line} stores a line that still needs to be digested.
+	 */
+	private boolean lineBuffered = false;
+
+	/**
+	 * The header of the SAM-formatted data (available after the first call to {@link #next()}).
+	 */
+	private SAMFileHeader header;
+
+	/**
+	 * Parser for the SAM record lines (available after the first call to {@link #next()}).
+	 */
+	private SamTextRecordParser parser;
+
+	/**
+	 * Bins the base qualities of the records (or {@code null} if these are kept as-is).
+	 */
+	private QualityBinner qualityBinner;
+
+	/**
+	 * Creates a new {@link SamTextRecordReader}.
+	 *
+	 * @param inputStream
+	 *            {@link InputStream}
+	 */
+	public SamTextRecordReader(InputStream inputStream)
+	{
+		this(inputStream, null);
+	}
+
+	/**
+	 * Creates a new {@link SamTextRecordReader} that bins the base qualities of the records.
+	 *
+	 * @param inputStream
+	 *            {@link InputStream}
+	 * @param qualityBinner
+	 *            {@link QualityBinner} (or {@code null} to keep the base qualities as-is).
+	 */
+	public SamTextRecordReader(InputStream inputStream, QualityBinner qualityBinner)
+	{
+		this.inputStream = requireNonNull(inputStream);
+		this.qualityBinner = qualityBinner;
+	}
+
+	/**
+	 * Returns the header of the SAM-formatted data.
+	 *
+	 * @return {@link SAMFileHeader}
+	 * @throws IOException
+	 */
+	public SAMFileHeader getFileHeader() throws IOException
+	{
+		if (header == null)
+		{
+			readHeader();
+		}
+		return header;
+	}
+
+	/**
+	 * Returns the next {@link SAMRecord}.
+	 *
+	 * @return {@link SAMRecord}, or {@code null} if no records are left.
+	 * @throws IOException
+	 */
+	public SAMRecord next() throws IOException
+	{
+		// Reads the header first (which leaves the first record line in the line buffer, if present).
+		if (header == null)
+		{
+			readHeader();
+		}
+
+		// Reads the next non-empty line if the line buffer does not store an undigested line.
+		if (!lineBuffered)
+		{
+			do
+			{
+				if (!readLine())
+				{
+					return null;
+				}
+			}
+			while (lineLength == 0);
+		}
+		lineBuffered = false;
+
+		if (line[0] == '@')
+		{
+			throw new IOException("Header line found after first record: "
+					+ new String(line, 0, lineLength, StandardCharsets.US_ASCII));
+		}
+		return parser.parse(line, lineLength);
+	}
+
+	/**
+	 * Reads all header lines and stops after reading the first non-header line (which is then stored in
+	 * {@link #line}).
+	 *
+	 * @throws IOException
+	 */
+	private void readHeader() throws IOException
+	{
+		StringBuilder headerText = new StringBuilder();
+		boolean hasLine;
+		while ((hasLine = readLine()) && lineLength > 0 && line[0] == '@')
+		{
+			headerText.append(new String(line, 0, lineLength, StandardCharsets.UTF_8)).append('\n');
+		}
+
+		// Stores whether the last read line is a (not yet digested) record line.
+		lineBuffered = hasLine && lineLength > 0;
+
+		header = new SAMTextHeaderCodec().decode(new StringLineReader(headerText.toString()), null);
+		parser = new SamTextRecordParser(header, qualityBinner);
+	}
+
+	/**
+	 * Reads the next line (excluding the line terminator) into {@link #line}.
+	 *
+	 * @return {@code boolean} {@code false} if the end of the stream was reached without reading any data, otherwise
+	 *         {@code true}.
+	 * @throws IOException
+	 */
+	private boolean readLine() throws IOException
+	{
+		lineLength = 0;
+		boolean readAnything = false;
+		while (true)
+		{
+			// Refills the chunk if it is fully digested.
+			if (chunkPosition == chunkLength)
+			{
+				chunkLength = inputStream.read(chunk);
+				chunkPosition = 0;
+				if (chunkLength == -1)
+				{
+					chunkLength = 0;
+					return readAnything;
+				}
+			}
+			readAnything = true;
+
+			// Looks for a line terminator in the remaining chunk and copies the data until then to the line.
+			int end = chunkPosition;
+			while (end < chunkLength && chunk[end] != '\n')
+			{
+				end++;
+			}
+			if (lineLength + end - chunkPosition > line.length)
+			{
+				line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + end - chunkPosition));
+			}
+			System.arraycopy(chunk, chunkPosition, line, lineLength, end - chunkPosition);
+			lineLength += end - chunkPosition;
+
+			// If a line terminator was found, skips it and returns the line (excluding a possible carriage return).
+			if (end < chunkLength)
+			{
+				chunkPosition = end + 1;
+				if (lineLength > 0 && line[lineLength - 1] == '\r')
+				{
+					lineLength--;
+				}
+				return true;
+			}
+			chunkPosition = end;
+		}
+	}
+}
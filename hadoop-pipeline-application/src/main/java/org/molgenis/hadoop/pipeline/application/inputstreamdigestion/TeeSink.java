@@ -0,0 +1,72 @@
+package org.molgenis.hadoop.pipeline.application.inputstreamdigestion;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+/**
+ * {@link Sink} that digests an {@link InputStream} using another {@link Sink} while copying all its bytes to an
+ * {@link OutputStream} (which is not closed).
+ *
+ * @param <T>
+ *            The type to be digested for each {@link InputStream} item.
+ */
+public class TeeSink<T> extends Sink<T>
+{
+	/**
+	 * The {@link Sink} that digests the {@link InputStream}.
+	 */
+	private Sink<T> sink;
+
+	/**
+	 * The {@link OutputStream} to copy the {@link InputStream} to.
+	 */
+	private OutputStream copy;
+
+	/**
+	 * Creates a new {@link TeeSink}.
+	 *
+	 * @param sink
+	 *            {@link Sink}{@code <T>}
+	 * @param copy
+	 *            {@link OutputStream}
+	 */
+	public TeeSink(Sink<T> sink, OutputStream copy)
+	{
+		this.sink = requireNonNull(sink);
+		this.copy = requireNonNull(copy);
+	}
+
+	/**
+	 * Digests the {@link InputStream} using the wrapped {@link Sink}. Any bytes that were not read by the wrapped
+	 * {@link Sink} are copied afterwards (closing the {@link InputStream} is therefore delayed until then), so the copy
+	 * always contains the complete {@link InputStream}.
+	 */
+	@Override
+	public void handleInputStream(InputStream inputStream) throws IOException
+	{
+		InputStream teeStream = new TeeInputStream(inputStream, copy, false);
+		try
+		{
+			sink.handleInputStream(new CloseShieldInputStream(teeStream));
+			IOUtils.copy(teeStream, NullOutputStream.NULL_OUTPUT_STREAM);
+		}
+		finally
+		{
+			IOUtils.closeQuietly(inputStream);
+		}
+	}
+
+	@Override
+	protected void digestStreamItem(T item) throws IOException
+	{
+		sink.digestStreamItem(item);
+	}
+}
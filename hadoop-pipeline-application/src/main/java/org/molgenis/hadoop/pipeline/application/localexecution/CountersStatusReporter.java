@@ -0,0 +1,74 @@
+package org.molgenis.hadoop.pipeline.application.localexecution;
+
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.log4j.Logger;
+
+/**
+ * {@link StatusReporter} storing the counters of a single task that is run by a {@link TaskRunner} (as
+ * {@link Counter}{@code s} are not thread-safe, each task has its own). Progress is ignored.
+ */
+public class CountersStatusReporter extends StatusReporter
+{
+	/**
+	 * Logger to write information to.
+	 */
+	private static final Logger logger = Logger.getLogger(CountersStatusReporter.class);
+
+	/**
+	 * The counters of the task.
+	 */
+	private Counters counters = new Counters();
+
+	/**
+	 * @return {@link Counters} The counters of the task.
+	 */
+	public Counters getCounters()
+	{
+		return counters;
+	}
+
+	@Override
+	public Counter getCounter(Enum<?> name)
+	{
+		return counters.findCounter(name);
+	}
+
+	@Override
+	public Counter getCounter(String group, String name)
+	{
+		return counters.findCounter(group, name);
+	}
+
+	@Override
+	public void progress()
+	{
+	}
+
+	@Override
+	public float getProgress()
+	{
+		return 0;
+	}
+
+	@Override
+	public void setStatus(String status)
+	{
+		logger.debug(status);
+	}
+
+	/**
+	 * Adds the counters of the task to the job counters.
+	 *
+	 * @param jobCounters
+	 *            {@link Counters}
+	 */
+	public void addTo(Counters jobCounters)
+	{
+		synchronized (jobCounters)
+		{
+			jobCounters.incrAllCounters(counters);
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package org.molgenis.hadoop.pipeline.application.localexecution;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.util.RunJar;
+import org.apache.log4j.Logger;
+import org.molgenis.hadoop.pipeline.application.DistributedCacheHandler;
+
+/**
+ * Makes the files and archives of the distributed cache of a {@link JobContext} available in the current working
+ * directory (under their file name), similar to how YARN localizes them for each task. This way the
+ * {@link DistributedCacheHandler} can be used without a cluster. Local files are symlinked, files on other file
+ * systems are copied and archives are extracted. All created files are removed again by {@link #close()}.
+ */
+public class LocalDistributedCache implements Closeable
+{
+	/**
+	 * Logger to write information to.
+	 */
+	private static final Logger logger = Logger.getLogger(LocalDistributedCache.class);
+
+	/**
+	 * The files/directories created in the working directory.
+	 */
+	private List<File> created = new ArrayList<>();
+
+	/**
+	 * Localizes the distributed cache of the given {@link JobContext}.
+	 *
+	 * @param context
+	 *            {@link JobContext}
+	 * @throws IOException
+	 *             If a file with the same name as a cache file already exists in the working directory or a cache file
+	 *             could not be localized.
+	 */
+	public LocalDistributedCache(JobContext context) throws IOException
+	{
+		requireNonNull(context);
+		try
+		{
+			URI[] files = context.getCacheFiles();
+			for (int i = 0; files != null && i < files.length; i++)
+			{
+				localizeFile(context.getConfiguration(), files[i]);
+			}
+			URI[] archives = context.getCacheArchives();
+			for (int i = 0; archives != null && i < archives.length; i++)
+			{
+				localizeArchive(context.getConfiguration(), archives[i]);
+			}
+		}
+		catch (IOException e)
+		{
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Symlinks (if local) or copies a cache file to the working directory.
+	 *
+	 * @param conf
+	 *            {@link Configuration}
+	 * @param uri
+	 *            {@link URI}
+	 * @throws IOException
+	 */
+	private void localizeFile(Configuration conf, URI uri) throws IOException
+	{
+		Path path = new Path(uri);
+		FileSystem fileSys = path.getFileSystem(conf);
+		File target = createTarget(uri);
+
+		if (fileSys.getUri().getScheme().equals("file"))
+		{
+			Files.createSymbolicLink(target.toPath(), new File(fileSys.makeQualified(path).toUri()).toPath());
+		}
+		else
+		{
+			fileSys.copyToLocalFile(path, new Path(target.getAbsolutePath()));
+		}
+	}
+
+	/**
+	 * Extracts a cache archive into a directory in the working directory (named after the archive).
+	 *
+	 * @param conf
+	 *            {@link Configuration}
+	 * @param uri
+	 *            {@link URI}
+	 * @throws IOException
+	 */
+	private void localizeArchive(Configuration conf, URI uri) throws IOException
+	{
+		Path path = new Path(uri);
+		FileSystem fileSys = path.getFileSystem(conf);
+		File target = createTarget(uri);
+		File archive = File.createTempFile("archive", "." + FilenameUtils.getExtension(target.getName()));
+		try
+		{
+			fileSys.copyToLocalFile(path, new Path(archive.getAbsolutePath()));
+			unpackArchive(archive, target.getName(), target);
+		}
+		finally
+		{
+			archive.delete();
+		}
+	}
+
+	/**
+	 * Extracts an archive into a directory, using its name to determine the archive type (zip/jar or (gzipped) tar).
+	 *
+	 * @param archive
+	 *            {@link File}
+	 * @param name
+	 *            {@link String} The name of the archive (which can differ from that of the {@link File} itself).
+	 * @param target
+	 *            {@link File} The directory to extract the archive to.
+	 * @throws IOException
+	 *             If the archive type is not supported or the archive could not be extracted.
+	 */
+	public static void unpackArchive(File archive, String name, File target) throws IOException
+	{
+		String lowerCaseName = name.toLowerCase();
+		if (lowerCaseName.endsWith(".jar") || lowerCaseName.endsWith(".zip"))
+		{
+			RunJar.unJar(archive, target);
+		}
+		else if (lowerCaseName.endsWith(".tar.gz") || lowerCaseName.endsWith(".tgz") || lowerCaseName.endsWith(".tar"))
+		{
+			FileUtil.unTar(archive, target);
+		}
+		else
+		{
+			throw new IOException("Unsupported archive type: " + name);
+		}
+	}
+
+	/**
+	 * Returns the {@link File} in the working directory a cache file/archive should be localized to.
+	 *
+	 * @param uri
+	 *            {@link URI}
+	 * @return {@link File}
+	 * @throws IOException
+	 *             If the {@link File} already exists.
+	 */
+	private File createTarget(URI uri) throws IOException
+	{
+		File target = new File(FilenameUtils.getName(uri.getPath())).getAbsoluteFile();
+		if (Files.exists(target.toPath(), LinkOption.NOFOLLOW_LINKS))
+		{
+			throw new IOException("Could not localize " + uri + " as " + target + " already exists.");
+		}
+		created.add(target);
+		logger.debug("Localizing " + uri + " as " + target);
+		return target;
+	}
+
+	/**
+	 * Removes all localized files/directories from the working directory (symlinks are removed, not their targets).
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		for (File file : created)
+		{
+			if (Files.isSymbolicLink(file.toPath()) || file.isFile())
+			{
+				file.delete();
+			}
+			else if (file.isDirectory())
+			{
+				FileUtils.deleteDirectory(file);
+			}
+		}
+		created.clear();
+	}
+}
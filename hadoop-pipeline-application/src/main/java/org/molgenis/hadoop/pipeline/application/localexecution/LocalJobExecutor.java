@@ -0,0 +1,303 @@
+package org.molgenis.hadoop.pipeline.application.localexecution;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.TaskID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Executes a configured MapReduce {@link Job} within the current JVM using a {@link ForkJoinPool}, without submitting
+ * it to a cluster (or Hadoop's local job runner). The job's own input format, mapper, partitioner, comparators,
+ * reducer, output format and output committer are used, so the output is identical to that of the cluster job.
+ * However, the map output is kept in memory (see {@link MapOutputCollector}) and sorted per partition (see
+ * {@link SortedPartitionIterator}) instead of being spilled, shuffled and merged. Therefore, the heap should be able to
+ * store the complete map output, making it only suitable for small inputs (such as a single sample).
+ */
+public class LocalJobExecutor
+{
+	/**
+	 * Logger to write information to.
+	 */
+	private static final Logger logger = Logger.getLogger(LocalJobExecutor.class);
+
+	/**
+	 * The job to execute.
+	 */
+	private Job job;
+
+	/**
+	 * The number of tasks that are executed in parallel.
+	 */
+	private int threads;
+
+	/**
+	 * The id used for the task attempts.
+	 */
+	private JobID jobId = new JobID("local" + System.currentTimeMillis(), 1);
+
+	/**
+	 * Creates a new {@link LocalJobExecutor}.
+	 *
+	 * @param job
+	 *            {@link Job} A configured (but not submitted) job.
+	 * @param threads
+	 *            {@code int} The number of tasks that are executed in parallel.
+	 * @throws IllegalArgumentException
+	 *             If {@code threads} is lower than 1 or the job has no reduce tasks.
+	 */
+	public LocalJobExecutor(Job job, int threads) throws IllegalArgumentException
+	{
+		this.job = requireNonNull(job);
+		if (threads < 1)
+		{
+			throw new IllegalArgumentException("At least 1 thread is required: " + threads);
+		}
+		if (job.getNumReduceTasks() < 1)
+		{
+			throw new IllegalArgumentException("Map-only jobs are not supported.");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Executes the job.
+	 *
+	 * @return {@link Counters} The counters of all tasks.
+	 * @throws IOException
+	 *             If the output already exists or any of the tasks failed.
+	 * @throws InterruptedException
+	 * @throws ClassNotFoundException
+	 *             If any of the configured classes could not be found.
+	 */
+	public Counters run() throws IOException, InterruptedException, ClassNotFoundException
+	{
+		Configuration conf = job.getConfiguration();
+		OutputFormat<?, ?> outputFormat = ReflectionUtils.newInstance(job.getOutputFormatClass(), conf);
+		outputFormat.checkOutputSpecs(job);
+
+		JobContext jobContext = new JobContextImpl(conf, jobId);
+		OutputCommitter committer = outputFormat
+				.getOutputCommitter(new TaskAttemptContextImpl(conf, createAttemptId(TaskType.JOB_SETUP, 0)));
+		committer.setupJob(jobContext);
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try (LocalDistributedCache cache = new LocalDistributedCache(job))
+		{
+			Counters counters = new Counters();
+
+			// Runs the map tasks (one for each input split).
+			List<InputSplit> splits = ReflectionUtils.newInstance(job.getInputFormatClass(), conf).getSplits(job);
+			logger.info("Running " + splits.size() + " map tasks using " + threads + " threads.");
+			List<Callable<MapOutputCollector<?, ?>>> mapTasks = new ArrayList<>();
+			for (int i = 0; i < splits.size(); i++)
+			{
+				mapTasks.add(new MapTask(i, splits.get(i), counters));
+			}
+			List<MapOutputCollector<?, ?>> mapOutputs = getAll(pool.invokeAll(mapTasks));
+
+			// Runs the reduce tasks (one for each partition).
+			logger.info("Running " + job.getNumReduceTasks() + " reduce tasks using " + threads + " threads.");
+			List<Callable<Void>> reduceTasks = new ArrayList<>();
+			for (int i = 0; i < job.getNumReduceTasks(); i++)
+			{
+				reduceTasks.add(new ReduceTask(i, mapOutputs, counters));
+			}
+			getAll(pool.invokeAll(reduceTasks));
+
+			committer.commitJob(jobContext);
+			return counters;
+		}
+		catch (IOException | InterruptedException | RuntimeException e)
+		{
+			committer.abortJob(jobContext, JobStatus.State.FAILED);
+			throw e;
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Creates the id of the (first and only) attempt of a task.
+	 *
+	 * @param type
+	 *            {@link TaskType}
+	 * @param id
+	 *            {@code int} The number of the task within its type.
+	 * @return {@link TaskAttemptID}
+	 */
+	private TaskAttemptID createAttemptId(TaskType type, int id)
+	{
+		return new TaskAttemptID(new TaskID(jobId, type, id), 0);
+	}
+
+	/**
+	 * Waits for all tasks to finish and returns their results.
+	 *
+	 * @param futures
+	 *            {@link List}{@code <}{@link Future}{@code <T>>}
+	 * @return {@link List}{@code <T>}
+	 * @throws IOException
+	 *             If any of the tasks failed.
+	 * @throws InterruptedException
+	 */
+	private static <T> List<T> getAll(List<Future<T>> futures) throws IOException, InterruptedException
+	{
+		List<T> results = new ArrayList<>();
+		for (Future<T> future : futures)
+		{
+			try
+			{
+				results.add(future.get());
+			}
+			catch (ExecutionException e)
+			{
+				if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+				if (e.getCause() instanceof InterruptedException) throw (InterruptedException) e.getCause();
+				throw new IOException("Task failed: " + e.getCause(), e.getCause());
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Runs the mapper on a single {@link InputSplit} and collects its output in memory.
+	 */
+	private class MapTask implements Callable<MapOutputCollector<?, ?>>
+	{
+		/**
+		 * The number of the map task.
+		 */
+		private int id;
+
+		/**
+		 * The split to be processed.
+		 */
+		private InputSplit split;
+
+		/**
+		 * The job counters the task counters are added to.
+		 */
+		private Counters jobCounters;
+
+		/**
+		 * Creates a new {@link MapTask}.
+		 *
+		 * @param id
+		 *            {@code int} The number of the map task.
+		 * @param split
+		 *            {@link InputSplit}
+		 * @param jobCounters
+		 *            {@link Counters} The job counters the task counters are added to.
+		 */
+		MapTask(int id, InputSplit split, Counters jobCounters)
+		{
+			this.id = id;
+			this.split = split;
+			this.jobCounters = jobCounters;
+		}
+
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public MapOutputCollector<?, ?> call() throws Exception
+		{
+			TaskAttemptID attemptId = createAttemptId(TaskType.MAP, id);
+			Configuration conf = TaskRunner.createTaskConf(job.getConfiguration(), attemptId);
+			CountersStatusReporter reporter = new CountersStatusReporter();
+			TaskAttemptContext taskContext = new TaskAttemptContextImpl(conf, attemptId, reporter);
+
+			InputFormat inputFormat = ReflectionUtils.newInstance(taskContext.getInputFormatClass(), conf);
+			Partitioner partitioner = ReflectionUtils.newInstance(taskContext.getPartitionerClass(), conf);
+			MapOutputCollector collector = new MapOutputCollector(conf, partitioner, job.getNumReduceTasks(),
+					taskContext.getMapOutputKeyClass(), taskContext.getMapOutputValueClass(),
+					reporter.getCounter(TaskCounter.MAP_OUTPUT_RECORDS));
+			TaskRunner.runMapper(conf, attemptId, split, inputFormat.createRecordReader(split, taskContext), collector,
+					reporter);
+
+			reporter.addTo(jobCounters);
+			logger.debug("Finished " + attemptId + " (" + split + ").");
+			return collector;
+		}
+	}
+
+	/**
+	 * Runs the reducer on the sorted key/value pairs of a single partition and commits its output.
+	 */
+	private class ReduceTask implements Callable<Void>
+	{
+		/**
+		 * The number of the reduce task (equal to the partition it processes).
+		 */
+		private int id;
+
+		/**
+		 * The output of all map tasks.
+		 */
+		private List<MapOutputCollector<?, ?>> mapOutputs;
+
+		/**
+		 * The job counters the task counters are added to.
+		 */
+		private Counters jobCounters;
+
+		/**
+		 * Creates a new {@link ReduceTask}.
+		 *
+		 * @param id
+		 *            {@code int} The number of the reduce task (equal to the partition it processes).
+		 * @param mapOutputs
+		 *            {@link List}{@code <}{@link MapOutputCollector}{@code >} The output of all map tasks.
+		 * @param jobCounters
+		 *            {@link Counters} The job counters the task counters are added to.
+		 */
+		ReduceTask(int id, List<MapOutputCollector<?, ?>> mapOutputs, Counters jobCounters)
+		{
+			this.id = id;
+			this.mapOutputs = mapOutputs;
+			this.jobCounters = jobCounters;
+		}
+
+		@Override
+		public Void call() throws Exception
+		{
+			TaskAttemptID attemptId = createAttemptId(TaskType.REDUCE, id);
+			Configuration conf = TaskRunner.createTaskConf(job.getConfiguration(), attemptId);
+			CountersStatusReporter reporter = new CountersStatusReporter();
+
+			SortedPartitionIterator input = new SortedPartitionIterator(mapOutputs, id,
+					new TaskAttemptContextImpl(conf, attemptId).getSortComparator());
+			TaskRunner.runReducer(conf, attemptId, input, reporter);
+
+			reporter.addTo(jobCounters);
+			logger.debug("Finished " + attemptId + " (" + input.getSize() + " records).");
+			return null;
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package org.molgenis.hadoop.pipeline.application.localexecution;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.serializer.SerializationFactory;
+import org.apache.hadoop.io.serializer.Serializer;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+/**
+ * {@link RecordWriter} used as output of a map task by the {@link LocalJobExecutor}. Serializes each key/value pair
+ * directly into an in-memory buffer of the partition defined by the job's {@link Partitioner} (instead of spilling
+ * them to disk for the shuffle). The serialized key/value pairs can be read back per partition using
+ * {@link #getData(int)} together with their offsets and lengths.
+ *
+ * @param <K>
+ *            The map output key class.
+ * @param <V>
+ *            The map output value class.
+ */
+public class MapOutputCollector<K, V> extends RecordWriter<K, V>
+{
+	/**
+	 * Used to define the partition of each key/value pair.
+	 */
+	private Partitioner<K, V> partitioner;
+
+	/**
+	 * The serialized key/value pairs per partition.
+	 */
+	private Partition[] partitions;
+
+	/**
+	 * The serializers, writing to the buffer of the partition the current key/value pair belongs to.
+	 */
+	private Serializer<K> keySerializer;
+	private Serializer<V> valueSerializer;
+
+	/**
+	 * Redirects the serializers to the buffer of the current partition.
+	 */
+	private SwitchableOutputStream out = new SwitchableOutputStream();
+
+	/**
+	 * Counts the map output records.
+	 */
+	private Counter outputRecordsCounter;
+
+	/**
+	 * Creates a new {@link MapOutputCollector}.
+	 *
+	 * @param conf
+	 *            {@link Configuration}
+	 * @param partitioner
+	 *            {@link Partitioner}{@code <K, V>}
+	 * @param numPartitions
+	 *            {@code int}
+	 * @param keyClass
+	 *            {@link Class}{@code <K>}
+	 * @param valueClass
+	 *            {@link Class}{@code <V>}
+	 * @param outputRecordsCounter
+	 *            {@link Counter}
+	 * @throws IOException
+	 */
+	public MapOutputCollector(Configuration conf, Partitioner<K, V> partitioner, int numPartitions, Class<K> keyClass,
+			Class<V> valueClass, Counter outputRecordsCounter) throws IOException
+	{
+		this.partitioner = requireNonNull(partitioner);
+		this.outputRecordsCounter = requireNonNull(outputRecordsCounter);
+
+		partitions = new Partition[numPartitions];
+		for (int i = 0; i < numPartitions; i++)
+		{
+			partitions[i] = new Partition();
+		}
+
+		SerializationFactory serializationFactory = new SerializationFactory(conf);
+		keySerializer = serializationFactory.getSerializer(keyClass);
+		keySerializer.open(out);
+		valueSerializer = serializationFactory.getSerializer(valueClass);
+		valueSerializer.open(out);
+	}
+
+	@Override
+	public void write(K key, V value) throws IOException, InterruptedException
+	{
+		int partitionIndex = partitions.length == 1 ? 0 : partitioner.getPartition(key, value, partitions.length);
+		Partition partition = partitions[partitionIndex];
+		out.setBuffer(partition.buffer);
+
+		int keyStart = partition.buffer.getLength();
+		keySerializer.serialize(key);
+		int valueStart = partition.buffer.getLength();
+		valueSerializer.serialize(value);
+		partition.add(keyStart, valueStart, partition.buffer.getLength());
+
+		outputRecordsCounter.increment(1);
+	}
+
+	@Override
+	public void close(TaskAttemptContext context) throws IOException, InterruptedException
+	{
+		keySerializer.close();
+		valueSerializer.close();
+	}
+
+	/**
+	 * @param partition
+	 *            {@code int}
+	 * @return {@code int} The number of key/value pairs written to the partition.
+	 */
+	public int getSize(int partition)
+	{
+		return partitions[partition].size;
+	}
+
+	/**
+	 * @param partition
+	 *            {@code int}
+	 * @return {@code long} The number of bytes written to the partition.
+	 */
+	public long getBytes(int partition)
+	{
+		return partitions[partition].buffer.getLength();
+	}
+
+	/**
+	 * @param partition
+	 *            {@code int}
+	 * @return {@code byte[]} The buffer storing the serialized key/value pairs of the partition (only valid up to
+	 *         {@link #getBytes(int)}).
+	 */
+	public byte[] getData(int partition)
+	{
+		return partitions[partition].buffer.getData();
+	}
+
+	/**
+	 * @param partition
+	 *            {@code int}
+	 * @param index
+	 *            {@code int}
+	 * @return {@code int} The offset of the serialized key of the {@code index}th key/value pair in
+	 *         {@link #getData(int)}.
+	 */
+	public int getKeyOffset(int partition, int index)
+	{
+		return partitions[partition].offsets[index * 3];
+	}
+
+	/**
+	 * @param partition
+	 *            {@code int}
+	 * @param index
+	 *            {@code int}
+	 * @return {@code int} The length of the serialized key of the {@code index}th key/value pair.
+	 */
+	public int getKeyLength(int partition, int index)
+	{
+		return partitions[partition].offsets[index * 3 + 1] - partitions[partition].offsets[index * 3];
+	}
+
+	/**
+	 * @param partition
+	 *            {@code int}
+	 * @param index
+	 *            {@code int}
+	 * @return {@code int} The offset of the serialized value of the {@code index}th key/value pair in
+	 *         {@link #getData(int)}.
+	 */
+	public int getValueOffset(int partition, int index)
+	{
+		return partitions[partition].offsets[index * 3 + 1];
+	}
+
+	/**
+	 * @param partition
+	 *            {@code int}
+	 * @param index
+	 *            {@code int}
+	 * @return {@code int} The length of the serialized value of the {@code index}th key/value pair.
+	 */
+	public int getValueLength(int partition, int index)
+	{
+		return partitions[partition].offsets[index * 3 + 2] - partitions[partition].offsets[index * 3 + 1];
+	}
+
+	/**
+	 * The serialized key/value pairs of a single partition.
+	 */
+	private static class Partition
+	{
+		private DataOutputBuffer buffer = new DataOutputBuffer();
+
+		/**
+		 * The key start, value start and value end of each key/value pair.
+		 */
+		private int[] offsets = new int[3 * 1024];
+		private int size;
+
+		void add(int keyStart, int valueStart, int valueEnd)
+		{
+			if (offsets.length < (size + 1) * 3)
+			{
+				int[] newOffsets = new int[offsets.length * 2];
+				System.arraycopy(offsets, 0, newOffsets, 0, offsets.length);
+				offsets = newOffsets;
+			}
+			offsets[size * 3] = keyStart;
+			offsets[size * 3 + 1] = valueStart;
+			offsets[size * 3 + 2] = valueEnd;
+			size++;
+		}
+	}
+
+	/**
+	 * {@link OutputStream} that writes to a replaceable {@link DataOutputBuffer} (as a {@link Serializer} can
+	 * only be opened once).
+	 */
+	private static class SwitchableOutputStream extends OutputStream
+	{
+		private DataOutputBuffer buffer;
+
+		void setBuffer(DataOutputBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			buffer.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			buffer.write(b, off, len);
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package org.molgenis.hadoop.pipeline.application.localexecution;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.mapred.RawKeyValueIterator;
+import org.apache.hadoop.util.IndexedSortable;
+import org.apache.hadoop.util.Progress;
+import org.apache.hadoop.util.QuickSort;
+
+/**
+ * {@link RawKeyValueIterator} over the key/value pairs of a single partition from all {@link MapOutputCollector}
+ * {@code s}, sorted in memory using the job's sort comparator. This replaces the shuffle and merge of a reduce task
+ * when the job is executed by the {@link LocalJobExecutor}. Only references to the serialized key/value pairs are
+ * sorted, the data itself is not copied.
+ */
+public class SortedPartitionIterator implements RawKeyValueIterator
+{
+	/**
+	 * The map outputs (in order of the map tasks).
+	 */
+	private List<MapOutputCollector<?, ?>> mapOutputs;
+
+	/**
+	 * The partition to iterate over.
+	 */
+	private int partition;
+
+	/**
+	 * The sorted key/value pairs, each stored as {@code <map output index> << 32 | <index within map output>}.
+	 */
+	private long[] references;
+
+	/**
+	 * The position of the current key/value pair in {@link #references}.
+	 */
+	private int current = -1;
+
+	private DataInputBuffer key = new DataInputBuffer();
+	private DataInputBuffer value = new DataInputBuffer();
+	private Progress progress = new Progress();
+
+	/**
+	 * Sorts the key/value pairs of a partition.
+	 *
+	 * @param mapOutputs
+	 *            {@link List}{@code <}{@link MapOutputCollector}{@code >}
+	 * @param partition
+	 *            {@code int}
+	 * @param comparator
+	 *            {@link RawComparator} The sort comparator.
+	 * @throws IOException
+	 *             If the partition contains more key/value pairs than can be stored in an array.
+	 */
+	public SortedPartitionIterator(List<MapOutputCollector<?, ?>> mapOutputs, int partition,
+			final RawComparator<?> comparator) throws IOException
+	{
+		this.mapOutputs = requireNonNull(mapOutputs);
+		this.partition = partition;
+		requireNonNull(comparator);
+
+		long size = 0;
+		for (MapOutputCollector<?, ?> mapOutput : mapOutputs)
+		{
+			size += mapOutput.getSize(partition);
+		}
+		if (size > Integer.MAX_VALUE - 8)
+		{
+			throw new IOException("Too many map output records for partition " + partition + ": " + size);
+		}
+
+		references = new long[(int) size];
+		int i = 0;
+		for (int output = 0; output < mapOutputs.size(); output++)
+		{
+			for (int index = 0; index < mapOutputs.get(output).getSize(partition); index++)
+			{
+				references[i++] = ((long) output << 32) | index;
+			}
+		}
+
+		new QuickSort().sort(new IndexedSortable()
+		{
+			@Override
+			public int compare(int i, int j)
+			{
+				MapOutputCollector<?, ?> first = getMapOutput(references[i]);
+				MapOutputCollector<?, ?> second = getMapOutput(references[j]);
+				int firstIndex = (int) references[i];
+				int secondIndex = (int) references[j];
+
+				int c = comparator.compare(first.getData(SortedPartitionIterator.this.partition),
+						first.getKeyOffset(SortedPartitionIterator.this.partition, firstIndex),
+						first.getKeyLength(SortedPartitionIterator.this.partition, firstIndex),
+						second.getData(SortedPartitionIterator.this.partition),
+						second.getKeyOffset(SortedPartitionIterator.this.partition, secondIndex),
+						second.getKeyLength(SortedPartitionIterator.this.partition, secondIndex));
+				// Equal keys keep the order of the map tasks so the output is reproducible.
+				return c != 0 ? c : Long.compare(references[i], references[j]);
+			}
+
+			@Override
+			public void swap(int i, int j)
+			{
+				long tmp = references[i];
+				references[i] = references[j];
+				references[j] = tmp;
+			}
+		}, 0, references.length);
+	}
+
+	/**
+	 * @return {@code int} The number of key/value pairs.
+	 */
+	public int getSize()
+	{
+		return references.length;
+	}
+
+	private MapOutputCollector<?, ?> getMapOutput(long reference)
+	{
+		return mapOutputs.get((int) (reference >>> 32));
+	}
+
+	@Override
+	public DataInputBuffer getKey() throws IOException
+	{
+		return key;
+	}
+
+	@Override
+	public DataInputBuffer getValue() throws IOException
+	{
+		return value;
+	}
+
+	@Override
+	public boolean next() throws IOException
+	{
+		if (++current >= references.length) return false;
+
+		MapOutputCollector<?, ?> mapOutput = getMapOutput(references[current]);
+		int index = (int) references[current];
+		key.reset(mapOutput.getData(partition), mapOutput.getKeyOffset(partition, index),
+				mapOutput.getKeyLength(partition, index));
+		value.reset(mapOutput.getData(partition), mapOutput.getValueOffset(partition, index),
+				mapOutput.getValueLength(partition, index));
+		progress.set((current + 1) / (float) references.length);
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+	}
+
+	@Override
+	public Progress getProgress()
+	{
+		return progress;
+	}
+}
@@ -0,0 +1,166 @@
+package org.molgenis.hadoop.pipeline.application.localexecution;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RawKeyValueIterator;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.map.WrappedMapper;
+import org.apache.hadoop.mapreduce.lib.reduce.WrappedReducer;
+import org.apache.hadoop.mapreduce.task.MapContextImpl;
+import org.apache.hadoop.mapreduce.task.ReduceContextImpl;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Runs the mapper or reducer of a configured job as a single task outside of a MapReduce framework, using Hadoop's
+ * own context implementations. The input, map output and reduce input are provided by the caller (such as the
+ * {@link LocalJobExecutor}), while the reduce output is written and committed using the job's output format.
+ */
+public abstract class TaskRunner
+{
+	/**
+	 * Creates the {@link Configuration} of a single task (a copy of the job {@link Configuration} with the
+	 * task-specific properties set).
+	 *
+	 * @param jobConf
+	 *            {@link Configuration}
+	 * @param attemptId
+	 *            {@link TaskAttemptID}
+	 * @return {@link Configuration}
+	 */
+	public static Configuration createTaskConf(Configuration jobConf, TaskAttemptID attemptId)
+	{
+		JobConf conf = new JobConf(jobConf);
+		conf.set(MRJobConfig.ID, attemptId.getJobID().toString());
+		conf.set(MRJobConfig.TASK_ID, attemptId.getTaskID().toString());
+		conf.set(MRJobConfig.TASK_ATTEMPT_ID, attemptId.toString());
+		conf.setBoolean(MRJobConfig.TASK_ISMAP, attemptId.getTaskType() == TaskType.MAP);
+		conf.setInt(MRJobConfig.TASK_PARTITION, attemptId.getTaskID().getId());
+		return conf;
+	}
+
+	/**
+	 * Runs the job's mapper on all records from {@code reader} and writes its output to {@code output}. Both are
+	 * closed afterwards. Files the mapper writes directly to the job output (such as side outputs) are committed using
+	 * the job's output format.
+	 *
+	 * @param conf
+	 *            {@link Configuration} The task configuration (see
+	 *            {@link #createTaskConf(Configuration, TaskAttemptID)}).
+	 * @param attemptId
+	 *            {@link TaskAttemptID}
+	 * @param split
+	 *            {@link InputSplit}
+	 * @param reader
+	 *            {@link RecordReader} (is initialized by this method)
+	 * @param output
+	 *            {@link RecordWriter}
+	 * @param reporter
+	 *            {@link StatusReporter}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 * @throws ClassNotFoundException
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static void runMapper(Configuration conf, TaskAttemptID attemptId, InputSplit split, RecordReader reader,
+			RecordWriter output, StatusReporter reporter)
+			throws IOException, InterruptedException, ClassNotFoundException
+	{
+		TaskAttemptContext taskContext = new TaskAttemptContextImpl(conf, attemptId, reporter);
+		Mapper mapper = ReflectionUtils.newInstance(taskContext.getMapperClass(), conf);
+		OutputFormat outputFormat = ReflectionUtils.newInstance(taskContext.getOutputFormatClass(), conf);
+		OutputCommitter committer = outputFormat.getOutputCommitter(taskContext);
+		committer.setupTask(taskContext);
+
+		MapContextImpl mapContext = new MapContextImpl(conf, attemptId, reader, output, committer, reporter, split);
+		try
+		{
+			reader.initialize(split, mapContext);
+			mapper.run(new WrappedMapper().getMapContext(mapContext));
+
+			if (committer.needsTaskCommit(taskContext))
+			{
+				committer.commitTask(taskContext);
+			}
+		}
+		catch (IOException | InterruptedException | RuntimeException e)
+		{
+			committer.abortTask(taskContext);
+			throw e;
+		}
+		finally
+		{
+			reader.close();
+			output.close(mapContext);
+		}
+	}
+
+	/**
+	 * Runs the job's reducer on the sorted key/value pairs from {@code input}, writes its output using the job's
+	 * output format and commits the task output (or aborts it on failure).
+	 *
+	 * @param conf
+	 *            {@link Configuration} The task configuration (see
+	 *            {@link #createTaskConf(Configuration, TaskAttemptID)}).
+	 * @param attemptId
+	 *            {@link TaskAttemptID}
+	 * @param input
+	 *            {@link RawKeyValueIterator} The serialized map output keys/values, sorted using the job's sort
+	 *            comparator.
+	 * @param reporter
+	 *            {@link StatusReporter}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 * @throws ClassNotFoundException
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static void runReducer(Configuration conf, TaskAttemptID attemptId, RawKeyValueIterator input,
+			StatusReporter reporter) throws IOException, InterruptedException, ClassNotFoundException
+	{
+		TaskAttemptContext taskContext = new TaskAttemptContextImpl(conf, attemptId, reporter);
+		OutputFormat outputFormat = ReflectionUtils.newInstance(taskContext.getOutputFormatClass(), conf);
+		OutputCommitter committer = outputFormat.getOutputCommitter(taskContext);
+		committer.setupTask(taskContext);
+
+		try
+		{
+			RecordWriter writer = outputFormat.getRecordWriter(taskContext);
+			Reducer reducer = ReflectionUtils.newInstance(taskContext.getReducerClass(), conf);
+			ReduceContextImpl reduceContext = new ReduceContextImpl(conf, attemptId, input,
+					reporter.getCounter(TaskCounter.REDUCE_INPUT_GROUPS),
+					reporter.getCounter(TaskCounter.REDUCE_INPUT_RECORDS), writer, committer, reporter,
+					taskContext.getGroupingComparator(), taskContext.getMapOutputKeyClass(),
+					taskContext.getMapOutputValueClass());
+			reducer.run(new WrappedReducer().getReducerContext(reduceContext));
+			writer.close(taskContext);
+
+			if (committer.needsTaskCommit(taskContext))
+			{
+				committer.commitTask(taskContext);
+			}
+		}
+		catch (IOException | InterruptedException | ClassNotFoundException | RuntimeException e)
+		{
+			committer.abortTask(taskContext);
+			throw e;
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+}
@@ -0,0 +1,291 @@
+package org.molgenis.hadoop.pipeline.application.mapreduce;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.log4j.Logger;
+import org.molgenis.hadoop.pipeline.application.DistributedCacheHandler;
+import org.molgenis.hadoop.pipeline.application.PipelineProperties;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.HadoopToolsXmlReader;
+
+/**
+ * Content-addressed cache of the BWA output for input splits, so re-running a job (for example after adding a sample
+ * or replacing a bad lane) only aligns the input splits that changed. Each entry is stored as a gzipped SAM file named
+ * after the SHA-256 hash of:
+ * <ul>
+ * <li>the BWA arguments used by the {@link HadoopPipelineMapper} (and the format of the cache entries)</li>
+ * <li>the BWA version (from the tools archive {@code info.xml})</li>
+ * <li>the reference (its file name and sequence dictionary)</li>
+ * <li>the read group line of the sample</li>
+ * <li>the content of the input split</li>
+ * </ul>
+ * Entries are written to a temporary file first and only renamed to their final name after BWA finished
+ * successfully, so concurrent (speculative) tasks and failed tasks never leave incomplete entries behind.
+ */
+public class AlignmentCache
+{
+	/**
+	 * Logger to write information to.
+	 */
+	private static final Logger logger = Logger.getLogger(AlignmentCache.class);
+
+	/**
+	 * Should be changed whenever the BWA arguments or the format of the entries changes (invalidating all existing
+	 * entries).
+	 */
+	private static final String FORMAT_VERSION = "bwa mem -p -M -R <read group line>|sam.gz|1";
+
+	/**
+	 * The extension of the cache entries.
+	 */
+	private static final String EXTENSION = ".sam.gz";
+
+	/**
+	 * Counters for the cache lookups.
+	 */
+	public enum Lookup
+	{
+		HIT, MISS, STORED
+	}
+
+	/**
+	 * The file system the cache is stored on.
+	 */
+	private FileSystem fileSys;
+
+	/**
+	 * The cache directory.
+	 */
+	private Path directory;
+
+	/**
+	 * The digest of everything shared by all input splits of a job (see {@link #FORMAT_VERSION}, BWA version and
+	 * reference).
+	 */
+	private byte[] jobDigest;
+
+	/**
+	 * Identifies the temporary files written by this task attempt.
+	 */
+	private String attemptId;
+
+	/**
+	 * Creates a new {@link AlignmentCache}.
+	 *
+	 * @param fileSys
+	 *            {@link FileSystem}
+	 * @param directory
+	 *            {@link Path} The cache directory (created when the first entry is stored).
+	 * @param bwaVersion
+	 *            {@link String}
+	 * @param referenceName
+	 *            {@link String} The file name of the reference fasta file.
+	 * @param referenceDict
+	 *            {@link InputStream} The sequence dictionary of the reference (is closed afterwards).
+	 * @param attemptId
+	 *            {@link String} The id of the task attempt using the cache.
+	 * @throws IOException
+	 */
+	public AlignmentCache(FileSystem fileSys, Path directory, String bwaVersion, String referenceName,
+			InputStream referenceDict, String attemptId) throws IOException
+	{
+		this.fileSys = requireNonNull(fileSys);
+		this.directory = requireNonNull(directory);
+		this.attemptId = requireNonNull(attemptId);
+
+		MessageDigest digest = createDigest();
+		update(digest, FORMAT_VERSION);
+		update(digest, requireNonNull(bwaVersion));
+		update(digest, requireNonNull(referenceName));
+		try
+		{
+			digest.update(IOUtils.toByteArray(referenceDict));
+		}
+		finally
+		{
+			IOUtils.closeQuietly(referenceDict);
+		}
+		jobDigest = digest.digest();
+	}
+
+	/**
+	 * Creates an {@link AlignmentCache} if {@link PipelineProperties#ALIGNMENT_CACHE_DIR} is set.
+	 *
+	 * @param context
+	 *            {@link TaskAttemptContext}
+	 * @return {@link AlignmentCache} or {@code null} if the cache is disabled.
+	 * @throws IOException
+	 */
+	public static AlignmentCache create(TaskAttemptContext context) throws IOException
+	{
+		Configuration conf = context.getConfiguration();
+		String directory = conf.get(PipelineProperties.ALIGNMENT_CACHE_DIR);
+		if (directory == null || directory.isEmpty()) return null;
+
+		DistributedCacheHandler cacheHandler = new DistributedCacheHandler(context);
+		String bwaVersion = new HadoopToolsXmlReader().read(cacheHandler.getInfoXmlFileFromToolsArchive()).get("bwa")
+				.getProgramVersion();
+		String referenceDictFile = cacheHandler.getReferenceDictFile();
+
+		Path path = new Path(directory);
+		return new AlignmentCache(path.getFileSystem(conf), path, bwaVersion,
+				FilenameUtils.getName(cacheHandler.getReferenceFastaFile()),
+				FileSystem.getLocal(conf).open(new Path(referenceDictFile)), context.getTaskAttemptID().toString());
+	}
+
+	/**
+	 * Creates the key of the cache entry for an input split.
+	 *
+	 * @param input
+	 *            {@code byte[]} The content of the input split.
+	 * @param length
+	 *            {@code int} The number of bytes used from {@code input}.
+	 * @param readGroupLine
+	 *            {@link String} The read group line given to BWA.
+	 * @return {@link String} A hexadecimal SHA-256 hash.
+	 */
+	public String createKey(byte[] input, int length, String readGroupLine)
+	{
+		MessageDigest digest = createDigest();
+		digest.update(jobDigest);
+		update(digest, readGroupLine);
+		digest.update(input, 0, length);
+		return Hex.encodeHexString(digest.digest());
+	}
+
+	/**
+	 * Opens a cache entry.
+	 *
+	 * @param key
+	 *            {@link String}
+	 * @return {@link InputStream} The (decompressed) SAM output of BWA, or {@code null} if no entry exists.
+	 * @throws IOException
+	 */
+	public InputStream open(String key) throws IOException
+	{
+		Path path = getPath(key);
+		if (!fileSys.exists(path)) return null;
+		logger.debug("Alignment cache hit: " + path);
+		return new GZIPInputStream(fileSys.open(path));
+	}
+
+	/**
+	 * Creates a new cache entry. The entry is only stored once {@link Entry#commit()} is called.
+	 *
+	 * @param key
+	 *            {@link String}
+	 * @return {@link Entry}
+	 * @throws IOException
+	 */
+	public Entry create(String key) throws IOException
+	{
+		return new Entry(key);
+	}
+
+	private Path getPath(String key)
+	{
+		return new Path(directory, key + EXTENSION);
+	}
+
+	private static MessageDigest createDigest()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Adds a {@link String} (prefixed by its length, so separate fields can not be confused) to a
+	 * {@link MessageDigest}.
+	 *
+	 * @param digest
+	 *            {@link MessageDigest}
+	 * @param value
+	 *            {@link String}
+	 */
+	private static void update(MessageDigest digest, String value)
+	{
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) ':');
+		digest.update(bytes);
+	}
+
+	/**
+	 * A cache entry that is being written.
+	 */
+	public class Entry implements Closeable
+	{
+		private Path path;
+		private Path temporaryPath;
+		private OutputStream outputStream;
+		private boolean closed = false;
+
+		private Entry(String key) throws IOException
+		{
+			path = getPath(key);
+			temporaryPath = new Path(new Path(directory, "_temporary"), key + "_" + attemptId + EXTENSION);
+			outputStream = new GZIPOutputStream(fileSys.create(temporaryPath, true));
+		}
+
+		/**
+		 * @return {@link OutputStream} To write the SAM output of BWA to.
+		 */
+		public OutputStream getOutputStream()
+		{
+			return outputStream;
+		}
+
+		/**
+		 * Stores the entry under its final name (unless another task stored the same entry in the meantime).
+		 *
+		 * @return {@code boolean} {@code true} if the entry was stored, {@code false} if it already existed.
+		 * @throws IOException
+		 */
+		public boolean commit() throws IOException
+		{
+			closed = true;
+			outputStream.close();
+			if (!fileSys.exists(path) && fileSys.rename(temporaryPath, path))
+			{
+				logger.debug("Stored alignment cache entry: " + path);
+				return true;
+			}
+			fileSys.delete(temporaryPath, false);
+			return false;
+		}
+
+		/**
+		 * Discards the entry if it was not committed.
+		 */
+		@Override
+		public void close() throws IOException
+		{
+			if (closed) return;
+			closed = true;
+			IOUtils.closeQuietly(outputStream);
+			fileSys.delete(temporaryPath, false);
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package org.molgenis.hadoop.pipeline.application.mapreduce;
+
+import java.util.List;
+
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Retrieves the {@link Region}{@code s} (groups) a {@link SAMRecord} belongs to.
+ */
+public interface GroupsRetriever
+{
+	/**
+	 * Returns a {@link List} containing all {@link Region}{@code s} which range match with the given {@link SAMRecord}.
+	 * These also include {@link Region}{@code s} which partially match with the given {@link SAMRecord}.
+	 * 
+	 * @param record
+	 *            {@link SAMRecord} To be used to find the {@link Region}{@code s} that are within range of it.
+	 * @return {@link List}{@code <}{@link Region}{@code >} The {@link Region}{@code s} within range of the given
+	 *         {@link SAMRecord}. If no matches were found, returns an empty {@link List}.
+	 */
+	List<Region> retrieveGroupsWithinRange(SAMRecord record);
+}
@@ -1,36 +1,55 @@
 package org.molgenis.hadoop.pipeline.application.mapreduce;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
 import org.apache.log4j.Logger;
 import org.molgenis.hadoop.pipeline.application.DistributedCacheHandler;
-import org.molgenis.hadoop.pipeline.application.cachedigestion.ContigRegionsMap;
-import org.molgenis.hadoop.pipeline.application.cachedigestion.HadoopBedFormatFileReader;
+import org.molgenis.hadoop.pipeline.application.PipelineProperties;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.HadoopRefSeqDictReader;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.HadoopSamplesInfoFileReader;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.RegionClusters;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.RegionStore;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.Sample;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.SampleLookup;
 import org.molgenis.hadoop.pipeline.application.inputstreamdigestion.SamRecordSink;
+import org.molgenis.hadoop.pipeline.application.inputstreamdigestion.TeeSink;
+import org.molgenis.hadoop.pipeline.application.metrics.AlignmentQcMetrics;
+import org.molgenis.hadoop.pipeline.application.metrics.AlignmentQcMetricsCollector;
+import org.molgenis.hadoop.pipeline.application.metrics.EnumCounters;
+import org.molgenis.hadoop.pipeline.application.metrics.Stage;
+import org.molgenis.hadoop.pipeline.application.metrics.StageTimer;
 import org.molgenis.hadoop.pipeline.application.processes.PipeRunner;
 import org.molgenis.hadoop.pipeline.application.sequences.AlignedRead;
 import org.molgenis.hadoop.pipeline.application.sequences.AlignedReadPair;
+import org.molgenis.hadoop.pipeline.application.sequences.QualityBinner;
+import org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable;
+import org.molgenis.hadoop.pipeline.application.writables.RegionBitmapBamRecordWritable;
 import org.molgenis.hadoop.pipeline.application.writables.RegionWithSortableSamRecordWritable;
-import org.seqdoop.hadoop_bam.SAMRecordWritable;
+import org.molgenis.hadoop.pipeline.application.writables.RegionWritable;
 
 import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
 
 /**
  * Hadoop MapReduce Job mapper.
  */
 public class HadoopPipelineMapper
-		extends Mapper<Text, BytesWritable, RegionWithSortableSamRecordWritable, SAMRecordWritable>
+		extends Mapper<Text, BytesWritable, RegionWithSortableSamRecordWritable, BamRecordWritable>
 {
 	/**
 	 * Logger to write information to.
@@ -53,12 +72,118 @@ public class HadoopPipelineMapper
 	 * area the {@link SAMRecord} was aligned to on the reference data compared to a BED file stored contig/start/end
 	 * data).
 	 */
-	private SamRecordGroupsRetriever groupsRetriever;
+	private GroupsRetriever groupsRetriever;
 
 	/**
 	 * The possible samples an input split can belong to.
 	 */
-	private List<Sample> samples;
+	private SampleLookup samples;
+
+	/**
+	 * Reusable map output value (is serialized directly when written to the context).
+	 */
+	private BamRecordWritable recordWritable = new BamRecordWritable();
+
+	/**
+	 * Whether the BWA output should be parsed using the byte-level SAM parser.
+	 */
+	private boolean byteLevelSamParsing;
+
+	/**
+	 * Bins the base qualities of the BWA output (or {@code null} if quality binning is disabled).
+	 */
+	private QualityBinner qualityBinner;
+
+	/**
+	 * Whether the mate information of the records should be set using the other read of the read pair.
+	 */
+	private boolean mateInformation;
+
+	/**
+	 * Buffers the records per region before writing them as batches (only used if region batching is enabled).
+	 */
+	private RegionRecordBuffer recordBuffer;
+
+	/**
+	 * The clusters of overlapping regions (only used if region deduplication is enabled).
+	 */
+	private RegionClusters regionClusters;
+
+	/**
+	 * Reusable map output value when region deduplication is enabled.
+	 */
+	private RegionBitmapBamRecordWritable regionBitmapWritable = new RegionBitmapBamRecordWritable();
+
+	/**
+	 * Records the time and bytes per processing {@link Stage} (if enabled).
+	 */
+	private StageTimer timer = new StageTimer(false);
+
+	/**
+	 * Counts the read pairs per {@link AlignedReadPair.Type} (published to the Hadoop counters after each input split).
+	 */
+	private EnumCounters<AlignedReadPair.Type> readPairTypes = new EnumCounters<>(AlignedReadPair.Type.class);
+
+	/**
+	 * Stores the BWA output per input split (only used if an alignment cache directory is set).
+	 */
+	private AlignmentCache alignmentCache;
+
+	/**
+	 * Whether the sample id should be added to the output keys, so each sample gets its own output files.
+	 */
+	private boolean batchMode;
+
+	/**
+	 * The sample id added to the output keys of the current input split (empty if batch mode is disabled).
+	 */
+	private String outputSample = "";
+
+	/**
+	 * Writes the unmapped and invalid read pairs directly to the output (only used if side outputs are enabled).
+	 */
+	private MultipleOutputs<RegionWithSortableSamRecordWritable, BamRecordWritable> sideOutputs;
+
+	/**
+	 * Writes the discordant read pairs and split reads to separate files (only used if structural variant evidence
+	 * output is enabled).
+	 */
+	private MultipleOutputs<RegionWithSortableSamRecordWritable, BamRecordWritable> svEvidenceOutputs;
+
+	/**
+	 * Collects the alignment quality control metrics per read group (only used if these are enabled).
+	 */
+	private AlignmentQcMetricsCollector qcMetricsCollector;
+
+	/**
+	 * The alignment quality control metrics of the read group of the current input split.
+	 */
+	private AlignmentQcMetrics qcMetrics;
+
+	/**
+	 * Same as {@link Mapper#run(Context)}, but records the time spent on reading each input split as
+	 * {@link Stage#HDFS_READ} and publishes the read pair type counters after each input split.
+	 */
+	@Override
+	public void run(Context context) throws IOException, InterruptedException
+	{
+		setup(context);
+		try
+		{
+			long start = timer.start();
+			while (context.nextKeyValue())
+			{
+				timer.stop(Stage.HDFS_READ, start, context.getCurrentValue().getLength());
+				map(context.getCurrentKey(), context.getCurrentValue(), context);
+				readPairTypes.publish(context);
+				start = timer.start();
+			}
+		}
+		finally
+		{
+			cleanup(context);
+		}
+	}
 
 	/**
 	 * Function called at the beginning of a task.
@@ -66,7 +191,79 @@ public class HadoopPipelineMapper
 	@Override
 	protected void setup(Context context) throws IOException, InterruptedException
 	{
+		timer = StageTimer.create(context.getConfiguration());
 		digestCache(context);
+		alignmentCache = AlignmentCache.create(context);
+		byteLevelSamParsing = context.getConfiguration().getBoolean(PipelineProperties.BYTE_LEVEL_SAM_PARSING,
+				PipelineProperties.BYTE_LEVEL_SAM_PARSING_DEFAULT);
+		qualityBinner = QualityBinner.create(context.getConfiguration());
+		mateInformation = context.getConfiguration().getBoolean(PipelineProperties.MATE_INFORMATION,
+				PipelineProperties.MATE_INFORMATION_DEFAULT);
+		batchMode = context.getConfiguration().getBoolean(PipelineProperties.BATCH_MODE,
+				PipelineProperties.BATCH_MODE_DEFAULT);
+		if (batchMode)
+		{
+			validateSampleIds();
+		}
+		if (context.getConfiguration().getBoolean(PipelineProperties.SIDE_OUTPUTS,
+				PipelineProperties.SIDE_OUTPUTS_DEFAULT))
+		{
+			sideOutputs = new MultipleOutputs<RegionWithSortableSamRecordWritable, BamRecordWritable>(context);
+		}
+		if (context.getConfiguration().getBoolean(PipelineProperties.SV_EVIDENCE,
+				PipelineProperties.SV_EVIDENCE_DEFAULT))
+		{
+			svEvidenceOutputs = new MultipleOutputs<RegionWithSortableSamRecordWritable, BamRecordWritable>(context);
+		}
+		if (context.getConfiguration().getBoolean(PipelineProperties.QC_METRICS,
+				PipelineProperties.QC_METRICS_DEFAULT))
+		{
+			qcMetricsCollector = new AlignmentQcMetricsCollector();
+		}
+
+		if (context.getConfiguration().getBoolean(PipelineProperties.REGION_BATCHING,
+				PipelineProperties.REGION_BATCHING_DEFAULT))
+		{
+			recordBuffer = new RegionRecordBuffer(
+					context.getConfiguration().getInt(PipelineProperties.REGION_BATCHING_MAX_REGION_BYTES,
+							PipelineProperties.REGION_BATCHING_MAX_REGION_BYTES_DEFAULT),
+					context.getConfiguration().getLong(PipelineProperties.REGION_BATCHING_MAX_BUFFER_BYTES,
+							PipelineProperties.REGION_BATCHING_MAX_BUFFER_BYTES_DEFAULT));
+		}
+	}
+
+	/**
+	 * Function called at the end of a task.
+	 */
+	@Override
+	protected void cleanup(Context context) throws IOException, InterruptedException
+	{
+		// Writes the records that are still buffered.
+		if (recordBuffer != null)
+		{
+			long start = timer.start();
+			recordBuffer.flush(context);
+			timer.stop(Stage.CONTEXT_WRITE, start);
+		}
+		if (sideOutputs != null)
+		{
+			long start = timer.start();
+			sideOutputs.close();
+			timer.stop(Stage.BAM_WRITE, start);
+		}
+		if (svEvidenceOutputs != null)
+		{
+			long start = timer.start();
+			svEvidenceOutputs.close();
+			timer.stop(Stage.BAM_WRITE, start);
+		}
+		if (qcMetricsCollector != null)
+		{
+			qcMetricsCollector.write(context);
+		}
+
+		readPairTypes.publish(context);
+		timer.publish(context);
 	}
 
 	/**
@@ -82,8 +279,16 @@ public class HadoopPipelineMapper
 		{
 			// Retrieve the sample belonging to the input split.
 			Sample sample = retrieveCorrectSample(key.toString());
+			if (batchMode)
+			{
+				outputSample = sample.getExternalSampleId();
+			}
+			if (qcMetricsCollector != null)
+			{
+				qcMetrics = qcMetricsCollector.get(sample);
+			}
 
-			SamRecordSink sink = new SamRecordSink()
+			SamRecordSink sink = new SamRecordSink(byteLevelSamParsing, timer, qualityBinner)
 			{
 				// Stores aligned records belonging to a single read pair.
 				ArrayList<SAMRecord> readItems = new ArrayList<>();
@@ -136,10 +341,69 @@ public class HadoopPipelineMapper
 				}
 			};
 
+			// Replays the cached BWA output if the input split was aligned before.
+			String cacheKey = null;
+			if (alignmentCache != null)
+			{
+				cacheKey = alignmentCache.createKey(value.getBytes(), value.getLength(), sample.getSafeReadGroupLine());
+				InputStream cachedOutput = alignmentCache.open(cacheKey);
+				if (cachedOutput != null)
+				{
+					logger.debug("Using cached alignments for input split: \"" + key.toString() + "\".");
+					context.getCounter(AlignmentCache.Lookup.HIT).increment(1);
+					sink.handleInputStream(cachedOutput);
+					return;
+				}
+				context.getCounter(AlignmentCache.Lookup.MISS).increment(1);
+			}
+
 			logger.debug("Executing pipeline with input split: \"" + key.toString() + "\" and read group line \""
 					+ sample.getReadGroupLine() + "\".");
-			PipeRunner.startPipeline(value.getBytes(), sink, new ProcessBuilder(bwaTool, "mem", "-p", "-M", "-R",
-					sample.getSafeReadGroupLine(), alignmentReferenceFastaFile, "-").start());
+			long start = timer.start();
+			Process bwa = new ProcessBuilder(bwaTool, "mem", "-p", "-M", "-R", sample.getSafeReadGroupLine(),
+					alignmentReferenceFastaFile, "-").start();
+			if (cacheKey == null)
+			{
+				PipeRunner.startPipeline(value.getBytes(), sink, timer, bwa);
+			}
+			else
+			{
+				alignAndCache(value, sink, bwa, cacheKey, context);
+			}
+			timer.stop(Stage.BWA_WALL, start, value.getLength());
+		}
+	}
+
+	/**
+	 * Runs BWA while storing its output in the {@link AlignmentCache}. The output is only stored if BWA finished
+	 * successfully.
+	 * 
+	 * @param value
+	 *            {@link BytesWritable} The input split.
+	 * @param sink
+	 *            {@link SamRecordSink} To digest the BWA output.
+	 * @param bwa
+	 *            {@link Process}
+	 * @param cacheKey
+	 *            {@link String}
+	 * @param context
+	 *            {@link Context}
+	 * @throws IOException
+	 */
+	private void alignAndCache(BytesWritable value, SamRecordSink sink, Process bwa, String cacheKey, Context context)
+			throws IOException
+	{
+		try (AlignmentCache.Entry entry = alignmentCache.create(cacheKey))
+		{
+			PipeRunner.startPipeline(value.getBytes(), new TeeSink<>(sink, entry.getOutputStream()), timer, bwa);
+			if (bwa.exitValue() != 0)
+			{
+				logger.warn("Not caching the alignments as BWA exited with status " + bwa.exitValue() + ".");
+			}
+			else if (entry.commit())
+			{
+				context.getCounter(AlignmentCache.Lookup.STORED).increment(1);
+			}
 		}
 	}
 
@@ -157,23 +421,42 @@ public class HadoopPipelineMapper
 			throws IOException, InterruptedException
 	{
 		// Digests the BWA output SAMRecords from a single read pair.
+		long start = timer.start();
 		AlignedReadPair readPair = new AlignedReadPair(records);
 
-		// Increments the Hadoop enum counter by 1 for this read pair type.
-		readPair.getType().increment(context);
+		// Increments the counter by 1 for this read pair type.
+		readPairTypes.increment(readPair.getType());
+		if (mateInformation)
+		{
+			// Done before the records are split across the regions, as both reads are only together here.
+			readPair.setMateInformation();
+		}
+		if (qcMetrics != null)
+		{
+			for (SAMRecord record : records)
+			{
+				qcMetrics.add(record);
+			}
+		}
+		timer.stop(Stage.PAIR_GROUPING, start);
+
+		if (svEvidenceOutputs != null)
+		{
+			writeStructuralVariantEvidence(readPair);
+		}
 
 		// What is written to context depends on the read pair type.
 		switch (readPair.getType())
 		{
 			case BOTH_UNMAPPED:
 				// Only write records of read pair to unmapped Region key.
-				writeReadPairRecordsToContext(context, Region.unmapped(), readPair);
+				writeReadPairRecordsToContextOrSideOutput(context, Region.unmapped(), readPair);
 				break;
 			case ONE_UNMAPPED_ONE_MAPPED:
 			case ONE_UNMAPPED_ONE_MULTIMAPPED:
 			case ONE_UNMAPPED_ONE_MULTIMAPPED_SUPPLEMENTARY_ONLY:
 				// First write records of read pair to unmapped region key -> no break!
-				writeReadPairRecordsToContext(context, Region.unmapped(), readPair);
+				writeReadPairRecordsToContextOrSideOutput(context, Region.unmapped(), readPair);
 			case BOTH_MAPPED:
 			case BOTH_MULTIMAPPED:
 			case BOTH_MULTIMAPPED_SUPPLEMENTARY_ONLY:
@@ -182,6 +465,11 @@ public class HadoopPipelineMapper
 			case ONE_MULTIMAPPED_ONE_MULTIMAPPED_SUPPLEMENTARY_ONLY:
 				// Write each record to every region any of the records matched with.
 				Set<Region> regions = retrieveReadPairUniqueRegions(readPair);
+				if (regionClusters != null)
+				{
+					writeReadPairRecordsToClusters(context, regions, readPair);
+					break;
+				}
 				for (Region region : regions)
 				{
 					writeReadPairRecordsToContext(context, region, readPair);
@@ -189,10 +477,57 @@ public class HadoopPipelineMapper
 				break;
 			case INVALID:
 				// Only write records of read pair to invalid Region key.
-				writeReadPairRecordsToContext(context, Region.invalid(), readPair);
+				writeReadPairRecordsToContextOrSideOutput(context, Region.invalid(), readPair);
+		}
+	}
+
+	/**
+	 * Writes the structural variant evidence of an {@link AlignedReadPair} (similar to samblaster's
+	 * {@code --discordantFile} and {@code --splitterFile}): the primary records of a discordant read pair are written
+	 * to {@code discordants-m-NNNNN.bam} and all records of a split read to {@code splitters-m-NNNNN.bam} (inside the
+	 * directory of the sample in batch mode). The records are written in addition to the normal output.
+	 * 
+	 * @param readPair
+	 *            {@link AlignedReadPair}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void writeStructuralVariantEvidence(AlignedReadPair readPair) throws IOException, InterruptedException
+	{
+		if (readPair.isDiscordant())
+		{
+			writeRecordToSvEvidenceOutput("discordants", readPair.getFirst().getPrimaryRecord());
+			writeRecordToSvEvidenceOutput("discordants", readPair.getSecond().getPrimaryRecord());
+		}
+		for (AlignedRead read : new AlignedRead[] { readPair.getFirst(), readPair.getSecond() })
+		{
+			if (!read.isSplit()) continue;
+			for (SAMRecord record : read.getRecords())
+			{
+				writeRecordToSvEvidenceOutput("splitters", record);
+			}
 		}
 	}
 
+	/**
+	 * Writes a single {@link SAMRecord} to a structural variant evidence file.
+	 * 
+	 * @param name
+	 *            {@link String} The name of the file (without task suffix).
+	 * @param record
+	 *            {@link SAMRecord}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void writeRecordToSvEvidenceOutput(String name, SAMRecord record) throws IOException, InterruptedException
+	{
+		long start = timer.start();
+		recordWritable.set(record);
+		svEvidenceOutputs.write("svEvidence", NullWritable.get(), recordWritable,
+				outputSample.isEmpty() ? name : outputSample + "/" + name);
+		timer.stop(Stage.BAM_WRITE, start, recordWritable.getLength());
+	}
+
 	/**
 	 * Retrieve all unique {@link Region}{@code s} the {@link SAMRecord}{@code s} from an {@link AlignedReadPair} match
 	 * with.
@@ -204,9 +539,11 @@ public class HadoopPipelineMapper
 	private Set<Region> retrieveReadPairUniqueRegions(AlignedReadPair readPair)
 	{
 		// Generates a set containing the unique regions only.
+		long start = timer.start();
 		Set<Region> regionsPairSet = new HashSet<>();
 		regionsPairSet.addAll(retrieveReadUniqueRegions(readPair.getFirst()));
 		regionsPairSet.addAll(retrieveReadUniqueRegions(readPair.getSecond()));
+		timer.stop(Stage.REGION_LOOKUP, start);
 		return regionsPairSet;
 	}
 
@@ -252,6 +589,109 @@ public class HadoopPipelineMapper
 		writeReadRecordToContexts(context, region, readPair.getSecond());
 	}
 
+	/**
+	 * Write all {@link SAMRecord}{@code s} from an {@link AlignedReadPair} directly to the side output file of the
+	 * {@link Region} if side outputs are enabled (bypassing the shuffle), otherwise to the {@link Context}. The side
+	 * output files are named after the {@link Region} contig ({@code unmapped-m-NNNNN.bam} or
+	 * {@code invalid-m-NNNNN.bam}, inside the directory of the sample in batch mode).
+	 * 
+	 * @param context
+	 *            {@link Context}
+	 * @param region
+	 *            {@link Region} {@link Region#unmapped()} or {@link Region#invalid()}.
+	 * @param readPair
+	 *            {@link AlignedReadPair}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void writeReadPairRecordsToContextOrSideOutput(Context context, Region region, AlignedReadPair readPair)
+			throws IOException, InterruptedException
+	{
+		if (sideOutputs == null)
+		{
+			writeReadPairRecordsToContext(context, region, readPair);
+			return;
+		}
+
+		String outputFileName = outputSample.isEmpty() ? region.getContig() : outputSample + "/" + region.getContig();
+		for (AlignedRead read : new AlignedRead[] { readPair.getFirst(), readPair.getSecond() })
+		{
+			for (SAMRecord record : read.getRecords())
+			{
+				long start = timer.start();
+				recordWritable.set(record);
+				sideOutputs.write("sideRecords", NullWritable.get(), recordWritable, outputFileName);
+				timer.stop(Stage.BAM_WRITE, start, recordWritable.getLength());
+			}
+		}
+	}
+
+	/**
+	 * Write all {@link SAMRecord}{@code s} from an {@link AlignedReadPair} to the {@link Context} once for each cluster
+	 * of overlapping {@link Region}{@code s}, together with a bitmap defining to which {@link Region}{@code s} of the
+	 * cluster the {@link SAMRecord}{@code s} belong.
+	 * 
+	 * @param context
+	 *            {@link Context}
+	 * @param regions
+	 *            {@link Set}{@code <}{@link Region}{@code >}
+	 * @param readPair
+	 *            {@link AlignedReadPair}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void writeReadPairRecordsToClusters(Context context, Set<Region> regions, AlignedReadPair readPair)
+			throws IOException, InterruptedException
+	{
+		// Generates the bitmap for each cluster.
+		Map<Region, BitSet> clusterBitmaps = new HashMap<>();
+		for (Region region : regions)
+		{
+			Region cluster = regionClusters.getCluster(region);
+			BitSet bitmap = clusterBitmaps.get(cluster);
+			if (bitmap == null)
+			{
+				bitmap = new BitSet();
+				clusterBitmaps.put(cluster, bitmap);
+			}
+			bitmap.set(regionClusters.getIndexInCluster(region));
+		}
+
+		for (Map.Entry<Region, BitSet> entry : clusterBitmaps.entrySet())
+		{
+			writeReadRecordsToCluster(context, entry.getKey(), entry.getValue(), readPair.getFirst());
+			writeReadRecordsToCluster(context, entry.getKey(), entry.getValue(), readPair.getSecond());
+		}
+	}
+
+	/**
+	 * Write all {@link SAMRecord}{@code s} from an {@link AlignedRead} to the {@link Context} using the cluster as part
+	 * of the {@link RegionWithSortableSamRecordWritable} to be used as {@link Mapper} output key.
+	 * 
+	 * @param context
+	 *            {@link Context}
+	 * @param cluster
+	 *            {@link Region}
+	 * @param bitmap
+	 *            {@link BitSet}
+	 * @param read
+	 *            {@link AlignedRead}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void writeReadRecordsToCluster(Context context, Region cluster, BitSet bitmap, AlignedRead read)
+			throws IOException, InterruptedException
+	{
+		for (SAMRecord record : read.getRecords())
+		{
+			long start = timer.start();
+			regionBitmapWritable.set(record, bitmap);
+			context.write(new RegionWithSortableSamRecordWritable(cluster, outputSample, record),
+					regionBitmapWritable);
+			timer.stop(Stage.CONTEXT_WRITE, start, regionBitmapWritable.getLength());
+		}
+	}
+
 	/**
 	 * Write all {@link SAMRecord}{@code s} from an {@link AlignedRead} to the {@link Context} using the {@link Region}
 	 * as part of the {@link RegionWithSortableSamRecordWritable} to be used as {@link Mapper} output key.
@@ -290,9 +730,30 @@ public class HadoopPipelineMapper
 	private void writeRecordToContext(Context context, Region region, SAMRecord record)
 			throws IOException, InterruptedException
 	{
-		SAMRecordWritable recordWritable = new SAMRecordWritable();
-		recordWritable.set(record);
-		context.write(new RegionWithSortableSamRecordWritable(region, record), recordWritable);
+		long start = timer.start();
+		long byteCount = 0;
+
+		// If region batching is enabled, only buffers the record (the bytes are not known until the batch is written).
+		if (recordBuffer != null)
+		{
+			recordBuffer.add(context, new RegionWritable(region, outputSample), record);
+		}
+		// If region deduplication is enabled, all values must be a RegionBitmapBamRecordWritable (an empty bitmap refers
+		// to the key region itself).
+		else if (regionClusters != null)
+		{
+			regionBitmapWritable.set(record, new BitSet());
+			context.write(new RegionWithSortableSamRecordWritable(region, outputSample, record),
+					regionBitmapWritable);
+			byteCount = regionBitmapWritable.getLength();
+		}
+		else
+		{
+			recordWritable.set(record);
+			context.write(new RegionWithSortableSamRecordWritable(region, outputSample, record), recordWritable);
+			byteCount = recordWritable.getLength();
+		}
+		timer.stop(Stage.CONTEXT_WRITE, start, byteCount);
 	}
 
 	/**
@@ -310,14 +771,50 @@ public class HadoopPipelineMapper
 		bwaTool = cacheHandler.getBwaToolFromToolsArchive();
 		alignmentReferenceFastaFile = cacheHandler.getReferenceFastaFile();
 
-		// Retrieves the groups stored in the bed-file which can be used for SAMRecord grouping.
-		String bedFile = cacheHandler.getBedFile();
-		ContigRegionsMap possibleGroups = new HadoopBedFormatFileReader().read(bedFile);
-		groupsRetriever = new SamRecordGroupsRetriever(possibleGroups);
+		// Uses fixed windows of the reference for SAMRecord grouping if set (no bed-file is available then).
+		SAMSequenceDictionary dictionary = new HadoopRefSeqDictReader().read(cacheHandler.getReferenceDictFile());
+		int window = context.getConfiguration().getInt(PipelineProperties.BINNING_WINDOW,
+				PipelineProperties.BINNING_WINDOW_DEFAULT);
+		if (window > 0)
+		{
+			groupsRetriever = new WindowGroupsRetriever(dictionary, window, context.getConfiguration()
+					.getInt(PipelineProperties.BINNING_OVERLAP, PipelineProperties.BINNING_OVERLAP_DEFAULT));
+		}
+		// Otherwise retrieves the groups stored in the bed-file which can be used for SAMRecord grouping (looked up by
+		// reference index).
+		else
+		{
+			RegionStore possibleGroups = RegionStore.retrieve(cacheHandler);
+			groupsRetriever = new SamRecordGroupsRetriever(possibleGroups, dictionary);
+			if (context.getConfiguration().getBoolean(PipelineProperties.REGION_DEDUPLICATION,
+					PipelineProperties.REGION_DEDUPLICATION_DEFAULT))
+			{
+				regionClusters = new RegionClusters(possibleGroups.toContigRegionsMap());
+			}
+		}
 
 		// Retrieves the samples stored in the samples information file.
 		String samplesInfoFile = cacheHandler.getSamplesInfoFile();
-		samples = new HadoopSamplesInfoFileReader().read(samplesInfoFile);
+		samples = new SampleLookup(new HadoopSamplesInfoFileReader().read(samplesInfoFile));
+	}
+
+	/**
+	 * Checks whether all sample ids can be used as output directory name (which is needed in batch mode).
+	 * 
+	 * @throws IOException
+	 *             If a sample id contains characters other than letters, digits, '.', '_' or '-' (or starts with a
+	 *             '.').
+	 */
+	private void validateSampleIds() throws IOException
+	{
+		for (Sample sample : samples.getSamples())
+		{
+			if (!sample.getExternalSampleId().matches("[A-Za-z0-9_-][A-Za-z0-9._-]*"))
+			{
+				throw new IOException("Sample id can not be used as output directory name in batch mode: \""
+						+ sample.getExternalSampleId() + "\".");
+			}
+		}
 	}
 
 	/**
@@ -354,8 +851,8 @@ public class HadoopPipelineMapper
 	}
 
 	/**
-	 * Returns the first found {@link Sample} that matches to the current input split (only one match should be present
-	 * in {@link #samples}).
+	 * Returns the {@link Sample} that matches to the current input split (duplicates are refused when
+	 * {@link #samples} is created).
 	 * 
 	 * @param inputSplitPath
 	 *            {@link String}
@@ -365,18 +862,11 @@ public class HadoopPipelineMapper
 	 */
 	private Sample retrieveCorrectSample(String inputSplitPath) throws IOException
 	{
-		// Retrieves the parent directory name from the input split file.
-		String sampleDirName = FilenameUtils.getName(FilenameUtils.getPathNoEndSeparator(inputSplitPath));
-
-		// Goes through each available sample for comparison.
-		for (Sample sample : samples)
+		// Retrieves the sample of which the comparison name equals the last directory in the input split path.
+		Sample sample = samples.get(inputSplitPath);
+		if (sample != null)
 		{
-			// If the sample comparison name equals the last directory in the input split path,
-			// returns the sample.
-			if (sample.getComparisonName().equals(sampleDirName))
-			{
-				return sample;
-			}
+			return sample;
 		}
 		// If no matching sample was found, throws an Exception.
 		throw new IOException("Incorrectly named path or samplesheet missing information about: " + inputSplitPath);
@@ -1,25 +1,99 @@
 package org.molgenis.hadoop.pipeline.application.mapreduce;
 
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.ReduceContext;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.molgenis.hadoop.pipeline.application.DistributedCacheHandler;
+import org.molgenis.hadoop.pipeline.application.PipelineProperties;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.RegionClusters;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.RegionStore;
+import org.molgenis.hadoop.pipeline.application.metrics.Stage;
+import org.molgenis.hadoop.pipeline.application.metrics.StageTimer;
+import org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable;
+import org.molgenis.hadoop.pipeline.application.writables.RegionBitmapBamRecordWritable;
 import org.molgenis.hadoop.pipeline.application.writables.RegionWithSortableSamRecordWritable;
-import org.seqdoop.hadoop_bam.SAMRecordWritable;
 
 /**
  * Hadoop MapReduce Job reducer.
  */
 public class HadoopPipelineReducer
-		extends Reducer<RegionWithSortableSamRecordWritable, SAMRecordWritable, NullWritable, SAMRecordWritable>
+		extends Reducer<RegionWithSortableSamRecordWritable, BamRecordWritable, NullWritable, BamRecordWritable>
 {
 	/**
 	 * Collector for reducer output.
 	 */
-	private MultipleOutputs<NullWritable, SAMRecordWritable> outputCollector;
+	private MultipleOutputs<NullWritable, BamRecordWritable> outputCollector;
+
+	/**
+	 * Whether the values are batches of records created by a {@link RegionRecordBuffer} (which need to be merged).
+	 */
+	private boolean regionBatching;
+
+	/**
+	 * The clusters of overlapping regions (only used if region deduplication is enabled, in which case the keys are
+	 * clusters and the values are {@link RegionBitmapBamRecordWritable}{@code s}).
+	 */
+	private RegionClusters regionClusters;
+
+	/**
+	 * Merges the batches of a region (only used if region batching is enabled).
+	 */
+	private RegionBatchMerger batchMerger;
+
+	/**
+	 * The output file the {@link #batchMerger} writes to.
+	 */
+	private String batchOutputFileName;
+
+	/**
+	 * Records the time and bytes per processing {@link Stage} (if enabled).
+	 */
+	private StageTimer timer = new StageTimer(false);
+
+	/**
+	 * Same as {@link Reducer#run(Context)}, but records the time spent on each group (excluding the time spent on
+	 * writing the output) as {@link Stage#REDUCE_GROUP_ITERATION}.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void run(Context context) throws IOException, InterruptedException
+	{
+		setup(context);
+		try
+		{
+			long start = timer.start();
+			long writeNanos = timer.getNanos(Stage.BAM_WRITE);
+			while (context.nextKey())
+			{
+				reduce(context.getCurrentKey(), context.getValues(), context);
+				// If a back up store is used, reset it.
+				Iterator<BamRecordWritable> iterator = context.getValues().iterator();
+				if (iterator instanceof ReduceContext.ValueIterator)
+				{
+					((ReduceContext.ValueIterator<BamRecordWritable>) iterator).resetBackupStore();
+				}
+
+				if (timer.isEnabled())
+				{
+					long groupWriteNanos = timer.getNanos(Stage.BAM_WRITE) - writeNanos;
+					timer.record(Stage.REDUCE_GROUP_ITERATION, System.nanoTime() - start - groupWriteNanos, 0);
+					start = timer.start();
+					writeNanos = timer.getNanos(Stage.BAM_WRITE);
+				}
+			}
+		}
+		finally
+		{
+			cleanup(context);
+		}
+	}
 
 	/**
 	 * Function called at the beginning of a task.
@@ -27,49 +101,176 @@ public class HadoopPipelineReducer
 	@Override
 	protected void setup(Context context) throws IOException, InterruptedException
 	{
+		timer = StageTimer.create(context.getConfiguration());
+
 		// Initiate a new output collector.
-		outputCollector = new MultipleOutputs<NullWritable, SAMRecordWritable>(context);
+		outputCollector = new MultipleOutputs<NullWritable, BamRecordWritable>(context);
+
+		regionBatching = context.getConfiguration().getBoolean(PipelineProperties.REGION_BATCHING,
+				PipelineProperties.REGION_BATCHING_DEFAULT);
+		if (regionBatching)
+		{
+			batchMerger = new RegionBatchMerger()
+			{
+				@Override
+				protected void write(BamRecordWritable records) throws IOException, InterruptedException
+				{
+					HadoopPipelineReducer.this.write(records, batchOutputFileName);
+				}
+			};
+		}
+
+		if (context.getConfiguration().getBoolean(PipelineProperties.REGION_DEDUPLICATION,
+				PipelineProperties.REGION_DEDUPLICATION_DEFAULT))
+		{
+			RegionStore regionStore = RegionStore.retrieve(new DistributedCacheHandler(context));
+			regionClusters = new RegionClusters(regionStore.toContigRegionsMap());
+		}
 	}
 
 	/**
 	 * Function run on a key with an {@link Iterable} containing the values belonging to that key.
 	 */
 	@Override
-	protected void reduce(RegionWithSortableSamRecordWritable key, Iterable<SAMRecordWritable> values, Context context)
+	protected void reduce(RegionWithSortableSamRecordWritable key, Iterable<BamRecordWritable> values, Context context)
 			throws IOException, InterruptedException
 	{
-		// Retrieve the Region from the Writable.
+		// Retrieve the Region (and sample in batch mode) from the Writable.
 		Region region = key.get();
+		String sample = key.getRegionWritable().getSample();
 
-		// Writes the aligned SAMRecord data.
-		Iterator<SAMRecordWritable> iterator = values.iterator();
+		// Batches need to be merged.
+		if (regionBatching)
+		{
+			reduceBatches(key, values, generateOutputFileName(sample, region));
+			return;
+		}
+
+		// Expands the records of a cluster to their regions.
+		if (regionClusters != null)
+		{
+			reduceCluster(sample, region, values);
+			return;
+		}
+
+		// Writes the aligned records as raw BAM-encoded data (no SAMRecords are generated).
+		String outputFileName = generateOutputFileName(sample, region);
+		Iterator<BamRecordWritable> iterator = values.iterator();
 		while (iterator.hasNext())
 		{
-			outputCollector.write("recordsPerRegion", NullWritable.get(), iterator.next(),
-					generateOutputFileName(region));
+			write(iterator.next(), outputFileName);
 		}
 	}
 
+	/**
+	 * Writes the records of a cluster to the output files of each {@link Region} defined in their bitmap. As the records
+	 * are sorted for the whole cluster, they are also sorted within each {@link Region}.
+	 * 
+	 * @param sample
+	 *            {@link String} The sample id (empty if batch mode is disabled).
+	 * @param cluster
+	 *            {@link Region}
+	 * @param values
+	 *            {@link Iterable}{@code <}{@link BamRecordWritable}{@code >}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void reduceCluster(String sample, Region cluster, Iterable<BamRecordWritable> values)
+			throws IOException, InterruptedException
+	{
+		// Generates the output file names of the regions within the cluster (if the key is an actual cluster).
+		String clusterOutputFileName = generateOutputFileName(sample, cluster);
+		List<Region> members = regionClusters.getClusterRegions(cluster);
+		String[] outputFileNames = new String[members == null ? 0 : members.size()];
+		for (int i = 0; i < outputFileNames.length; i++)
+		{
+			outputFileNames[i] = generateOutputFileName(sample, members.get(i));
+		}
+
+		for (BamRecordWritable value : values)
+		{
+			BitSet bitmap = ((RegionBitmapBamRecordWritable) value).getRegions();
+
+			// An empty bitmap refers to the key region itself (such as the unmapped/invalid regions).
+			if (bitmap.isEmpty())
+			{
+				write(value, clusterOutputFileName);
+			}
+			for (int i = bitmap.nextSetBit(0); i >= 0; i = bitmap.nextSetBit(i + 1))
+			{
+				write(value, outputFileNames[i]);
+			}
+		}
+	}
+
+	/**
+	 * Merges the sorted batches from the {@link RegionRecordBuffer}{@code s} of the mappers using the
+	 * {@link RegionBatchMerger}.
+	 * 
+	 * @param key
+	 *            {@link RegionWithSortableSamRecordWritable} (Hadoop updates its content for each value)
+	 * @param values
+	 *            {@link Iterable}{@code <}{@link BamRecordWritable}{@code >}
+	 * @param outputFileName
+	 *            {@link String}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void reduceBatches(RegionWithSortableSamRecordWritable key, Iterable<BamRecordWritable> values,
+			String outputFileName) throws IOException, InterruptedException
+	{
+		batchOutputFileName = outputFileName;
+		for (BamRecordWritable batch : values)
+		{
+			batchMerger.add(batch, key.getSamRecordReferenceIndex(), key.getSamRecordStart());
+		}
+		batchMerger.finish();
+	}
+
+	/**
+	 * Writes a record to the output file of a {@link Region}.
+	 * 
+	 * @param value
+	 *            {@link BamRecordWritable}
+	 * @param outputFileName
+	 *            {@link String}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void write(BamRecordWritable value, String outputFileName) throws IOException, InterruptedException
+	{
+		long start = timer.start();
+		outputCollector.write("recordsPerRegion", NullWritable.get(), value, outputFileName);
+		timer.stop(Stage.BAM_WRITE, start, value.getLength());
+	}
+
 	/**
 	 * Function called at the end of a task.
 	 */
 	@Override
 	protected void cleanup(Context context) throws IOException, InterruptedException
 	{
+		long start = timer.start();
 		outputCollector.close();
+		timer.stop(Stage.BAM_WRITE, start);
+		timer.publish(context);
 	}
 
 	/**
 	 * Generates a {@link String} containing the start of the file name prefix to where the output should be written to
 	 * (inside the output directory). The actual output file name might slightly differ however (for example by having
-	 * something like {@code -r-<reducer number>} appended behind the given name).
+	 * something like {@code -r-<reducer number>} appended behind the given name). In batch mode, the file is placed
+	 * in a directory named after the sample.
 	 * 
+	 * @param sample
+	 *            {@link String} The sample id (empty if batch mode is disabled).
 	 * @param region
 	 *            {@link Region} Used to define the file name.
 	 * @return {@link String} File name to be used.
 	 */
-	private String generateOutputFileName(Region region)
+	private String generateOutputFileName(String sample, Region region)
 	{
-		return region.getContig() + "-" + region.getStart() + "-" + region.getEnd();
+		String fileName = region.getContig() + "-" + region.getStart() + "-" + region.getEnd();
+		return sample.isEmpty() ? fileName : sample + "/" + fileName;
 	}
 }
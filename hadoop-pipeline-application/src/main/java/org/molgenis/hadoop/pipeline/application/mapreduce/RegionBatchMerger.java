@@ -0,0 +1,217 @@
+package org.molgenis.hadoop.pipeline.application.mapreduce;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable;
+import org.molgenis.hadoop.pipeline.application.writables.RegionWithSortableSamRecordWritable;
+
+/**
+ * Merges the sorted batches of BAM-encoded records created by the {@link RegionRecordBuffer}{@code s} of the mappers
+ * for a single {@link Region} into records sorted on position. The batches are given in the order of the position of
+ * their first record, so after adding a batch all pending records with a position lower than or equal to the position
+ * of that first record can be written, as any following batch only contains records with a higher or equal position.
+ * The pending records are tracked by a cursor per batch, so no objects or copies are created per record: consecutive
+ * records of a batch that precede the records of all other batches are written at once, directly from the batch (only
+ * the batch itself is copied once, as Hadoop reuses the value instance). Note that a {@link RegionBatchMerger} is not
+ * thread-safe.
+ */
+public abstract class RegionBatchMerger
+{
+	/**
+	 * Cursors into the batches that still contain records to be written (ordered on the position of their next record).
+	 */
+	private PriorityQueue<BatchCursor> cursors = new PriorityQueue<>();
+
+	/**
+	 * Cursors (and their batch buffers) that can be reused for the next batch.
+	 */
+	private ArrayDeque<BatchCursor> freeCursors = new ArrayDeque<>();
+
+	/**
+	 * Reusable value for writing a part of a batch.
+	 */
+	private BamRecordWritable outputValue = new BamRecordWritable();
+
+	/**
+	 * The number of batches added since the last {@link #finish()}.
+	 */
+	private long order = 0;
+
+	/**
+	 * Adds a batch and writes all pending records up to the position of its first record.
+	 *
+	 * @param batch
+	 *            {@link BamRecordWritable} The sorted records of a batch (which is copied, so it can be reused after
+	 *            this call).
+	 * @param referenceIndex
+	 *            {@code int} The reference index of the first record of the batch (as stored in its key).
+	 * @param start
+	 *            {@code int} The alignment start of the first record of the batch (as stored in its key).
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void add(BamRecordWritable batch, int referenceIndex, int start) throws IOException, InterruptedException
+	{
+		if (batch.getLength() > 0)
+		{
+			BatchCursor cursor = freeCursors.isEmpty() ? new BatchCursor() : freeCursors.pop();
+			cursor.reset(batch, order++);
+			cursors.add(cursor);
+		}
+		writePendingRecords(toPosition(referenceIndex, start));
+	}
+
+	/**
+	 * Writes all pending records, after which the batches of the next {@link Region} can be added.
+	 *
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void finish() throws IOException, InterruptedException
+	{
+		writePendingRecords(Long.MAX_VALUE);
+		order = 0;
+	}
+
+	/**
+	 * Writes one or more consecutive records.
+	 *
+	 * @param records
+	 *            {@link BamRecordWritable}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	protected abstract void write(BamRecordWritable records) throws IOException, InterruptedException;
+
+	/**
+	 * Writes all pending records with a position lower than or equal to {@code maxPosition}.
+	 *
+	 * @param maxPosition
+	 *            {@code long}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void writePendingRecords(long maxPosition) throws IOException, InterruptedException
+	{
+		while (!cursors.isEmpty() && cursors.peek().position <= maxPosition)
+		{
+			BatchCursor cursor = cursors.poll();
+			BatchCursor next = cursors.peek();
+
+			int start = cursor.offset;
+			do
+			{
+				cursor.advance();
+			}
+			while (cursor.hasRecord() && cursor.position <= maxPosition
+					&& (next == null || cursor.compareTo(next) < 0));
+
+			if (start == 0 && !cursor.hasRecord())
+			{
+				write(cursor.batch);
+			}
+			else
+			{
+				outputValue.set(cursor.batch.getBytes(), start, cursor.offset - start);
+				write(outputValue);
+			}
+
+			if (cursor.hasRecord())
+			{
+				cursors.add(cursor);
+			}
+			else
+			{
+				freeCursors.push(cursor);
+			}
+		}
+	}
+
+	/**
+	 * Converts a reference index and start position to a single sortable {@code long} (where a reference index of
+	 * {@code -1} is regarded as highest value, similar to {@link RegionWithSortableSamRecordWritable}).
+	 *
+	 * @param referenceIndex
+	 *            {@code int}
+	 * @param start
+	 *            {@code int}
+	 * @return {@code long}
+	 */
+	private static long toPosition(int referenceIndex, int start)
+	{
+		long reference = referenceIndex == -1 ? Integer.MAX_VALUE : referenceIndex;
+		return (reference << 32) + start;
+	}
+
+	/**
+	 * Points to the next record to be written within a batch of BAM-encoded records.
+	 */
+	private static class BatchCursor implements Comparable<BatchCursor>
+	{
+		/**
+		 * A copy of the batch (reused when the cursor is reused).
+		 */
+		private BamRecordWritable batch = new BamRecordWritable();
+
+		/**
+		 * The order in which the batch was added (used for records with an equal position).
+		 */
+		private long order;
+
+		/**
+		 * The offset of the next record within the batch.
+		 */
+		private int offset;
+
+		/**
+		 * The position of the next record (see {@link RegionBatchMerger#toPosition(int, int)}).
+		 */
+		private long position;
+
+		/**
+		 * Points the cursor to the first record of a copy of a batch.
+		 *
+		 * @param source
+		 *            {@link BamRecordWritable}
+		 * @param order
+		 *            {@code long}
+		 */
+		void reset(BamRecordWritable source, long order)
+		{
+			batch.set(source.getBytes(), 0, source.getLength());
+			this.order = order;
+			offset = 0;
+			updatePosition();
+		}
+
+		boolean hasRecord()
+		{
+			return offset < batch.getLength();
+		}
+
+		/**
+		 * Moves the cursor to the next record.
+		 */
+		void advance()
+		{
+			offset += batch.getRecordLength(offset);
+			if (hasRecord()) updatePosition();
+		}
+
+		private void updatePosition()
+		{
+			position = toPosition(batch.getReferenceIndex(offset), batch.getAlignmentStart(offset));
+		}
+
+		@Override
+		public int compareTo(BatchCursor other)
+		{
+			int c = Long.compare(position, other.position);
+			if (c == 0) c = Long.compare(order, other.order);
+			return c;
+		}
+	}
+}
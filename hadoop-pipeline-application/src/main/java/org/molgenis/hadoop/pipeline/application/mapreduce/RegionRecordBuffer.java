@@ -0,0 +1,266 @@
+package org.molgenis.hadoop.pipeline.application.mapreduce;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hadoop.util.IndexedSortable;
+import org.apache.hadoop.util.QuickSort;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable;
+import org.molgenis.hadoop.pipeline.application.writables.RegionWithSortableSamRecordWritable;
+import org.molgenis.hadoop.pipeline.application.writables.RegionWritable;
+
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Map-side buffer that collects the BAM-encoded {@link SAMRecord}{@code s} per {@link Region} and writes them as
+ * sorted batches (a single {@link BamRecordWritable} storing multiple records) to the context. This reduces the number
+ * of key/value pairs that need to be sorted, spilled and shuffled. The key of a batch is based on the first record of
+ * the sorted batch, so a reducer receiving multiple batches for a single {@link Region} needs to merge them (see
+ * {@link HadoopPipelineReducer}).
+ */
+public class RegionRecordBuffer
+{
+	/**
+	 * The buffered records per {@link Region} (and sample, see {@link RegionWritable}).
+	 */
+	private Map<RegionWritable, RegionBatch> batches = new HashMap<>();
+
+	/**
+	 * The maximum number of bytes a single {@link Region} can buffer before it is written to the context.
+	 */
+	private int maxRegionBytes;
+
+	/**
+	 * The maximum number of bytes that can be buffered in total before all {@link Region}{@code s} are written to the
+	 * context.
+	 */
+	private long maxBufferBytes;
+
+	/**
+	 * The number of bytes currently buffered.
+	 */
+	private long bufferedBytes = 0;
+
+	/**
+	 * Used for BAM-encoding a single {@link SAMRecord}.
+	 */
+	private BamRecordWritable encodedRecord = new BamRecordWritable();
+
+	/**
+	 * Reusable output value.
+	 */
+	private BamRecordWritable outputValue = new BamRecordWritable();
+
+	/**
+	 * Sorter for the records within a single {@link RegionBatch}.
+	 */
+	private QuickSort sorter = new QuickSort();
+
+	/**
+	 * Creates a new {@link RegionRecordBuffer}.
+	 *
+	 * @param maxRegionBytes
+	 *            {@code int} The maximum number of bytes a single {@link Region} can buffer.
+	 * @param maxBufferBytes
+	 *            {@code long} The maximum number of bytes that can be buffered in total.
+	 */
+	public RegionRecordBuffer(int maxRegionBytes, long maxBufferBytes)
+	{
+		if (maxRegionBytes < 1 || maxBufferBytes < 1)
+		{
+			throw new IllegalArgumentException("Buffer sizes should be positive.");
+		}
+		this.maxRegionBytes = maxRegionBytes;
+		this.maxBufferBytes = maxBufferBytes;
+	}
+
+	/**
+	 * Adds a {@link SAMRecord} to the buffer of a {@link Region}. If a buffer limit is reached, the buffered records
+	 * are written to the {@code context}.
+	 *
+	 * @param context
+	 *            {@link TaskInputOutputContext}
+	 * @param region
+	 *            {@link RegionWritable} The {@link Region} (and sample).
+	 * @param record
+	 *            {@link SAMRecord}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void add(TaskInputOutputContext<?, ?, RegionWithSortableSamRecordWritable, BamRecordWritable> context,
+			RegionWritable region, SAMRecord record) throws IOException, InterruptedException
+	{
+		encodedRecord.set(record);
+		add(context, region, encodedRecord);
+	}
+
+	/**
+	 * Same as {@link #add(TaskInputOutputContext, RegionWritable, SAMRecord)}, but for an already BAM-encoded record.
+	 *
+	 * @param context
+	 *            {@link TaskInputOutputContext}
+	 * @param region
+	 *            {@link RegionWritable} The {@link Region} (and sample).
+	 * @param record
+	 *            {@link BamRecordWritable} Storing a single record (which is copied).
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void add(TaskInputOutputContext<?, ?, RegionWithSortableSamRecordWritable, BamRecordWritable> context,
+			RegionWritable region, BamRecordWritable record) throws IOException, InterruptedException
+	{
+		RegionBatch batch = batches.get(region);
+		if (batch == null)
+		{
+			batch = new RegionBatch();
+			batches.put(region, batch);
+		}
+		batch.add(record);
+		bufferedBytes += record.getLength();
+
+		// Writes the region batch if it is full.
+		if (batch.getSize() >= maxRegionBytes)
+		{
+			writeBatch(context, region, batch);
+			bufferedBytes -= batch.getSize();
+			batches.remove(region);
+		}
+
+		// Writes all batches if the total buffer is full.
+		if (bufferedBytes >= maxBufferBytes)
+		{
+			flush(context);
+		}
+	}
+
+	/**
+	 * Writes all buffered records to the {@code context}.
+	 *
+	 * @param context
+	 *            {@link TaskInputOutputContext}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void flush(TaskInputOutputContext<?, ?, RegionWithSortableSamRecordWritable, BamRecordWritable> context)
+			throws IOException, InterruptedException
+	{
+		Iterator<Map.Entry<RegionWritable, RegionBatch>> iterator = batches.entrySet().iterator();
+		while (iterator.hasNext())
+		{
+			Map.Entry<RegionWritable, RegionBatch> entry = iterator.next();
+			writeBatch(context, entry.getKey(), entry.getValue());
+			iterator.remove();
+		}
+		bufferedBytes = 0;
+	}
+
+	/**
+	 * Sorts the records from a {@link RegionBatch} and writes them as a single value to the {@code context}.
+	 *
+	 * @param context
+	 *            {@link TaskInputOutputContext}
+	 * @param region
+	 *            {@link RegionWritable}
+	 * @param batch
+	 *            {@link RegionBatch}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void writeBatch(TaskInputOutputContext<?, ?, RegionWithSortableSamRecordWritable, BamRecordWritable> context,
+			RegionWritable region, RegionBatch batch) throws IOException, InterruptedException
+	{
+		sorter.sort(batch, 0, batch.count);
+
+		outputValue.clear();
+		for (int i = 0; i < batch.count; i++)
+		{
+			outputValue.append(batch.arena, batch.offsets[i], batch.lengths[i]);
+		}
+		context.write(new RegionWithSortableSamRecordWritable(region, batch.referenceIndices[0], batch.starts[0]),
+				outputValue);
+	}
+
+	/**
+	 * Stores the BAM-encoded records of a single {@link Region} in a byte arena together with their sort fields.
+	 */
+	private static class RegionBatch implements IndexedSortable
+	{
+		private byte[] arena = new byte[4096];
+		private int size = 0;
+		private int count = 0;
+		private int[] offsets = new int[16];
+		private int[] lengths = new int[16];
+		private int[] referenceIndices = new int[16];
+		private int[] starts = new int[16];
+
+		int getSize()
+		{
+			return size;
+		}
+
+		/**
+		 * Adds the (single) record stored in {@code record}.
+		 *
+		 * @param record
+		 *            {@link BamRecordWritable}
+		 */
+		void add(BamRecordWritable record)
+		{
+			if (count == offsets.length)
+			{
+				offsets = Arrays.copyOf(offsets, count * 2);
+				lengths = Arrays.copyOf(lengths, count * 2);
+				referenceIndices = Arrays.copyOf(referenceIndices, count * 2);
+				starts = Arrays.copyOf(starts, count * 2);
+			}
+			if (size + record.getLength() > arena.length)
+			{
+				arena = Arrays.copyOf(arena, Math.max(arena.length * 2, size + record.getLength()));
+			}
+
+			System.arraycopy(record.getBytes(), 0, arena, size, record.getLength());
+			offsets[count] = size;
+			lengths[count] = record.getLength();
+			referenceIndices[count] = record.getReferenceIndex();
+			starts[count] = record.getAlignmentStart();
+			size += record.getLength();
+			count++;
+		}
+
+		/**
+		 * Compares in the same way as {@link RegionWithSortableSamRecordWritable#compareTo(RegionWithSortableSamRecordWritable)}
+		 * (within a single {@link Region}).
+		 */
+		@Override
+		public int compare(int i, int j)
+		{
+			int c;
+			// Compares reference index where -1 is regarded as highest value.
+			if (referenceIndices[i] == -1 || referenceIndices[j] == -1) c = referenceIndices[j] - referenceIndices[i];
+			else c = referenceIndices[i] - referenceIndices[j];
+			if (c == 0) c = starts[i] - starts[j];
+			return c;
+		}
+
+		@Override
+		public void swap(int i, int j)
+		{
+			swap(offsets, i, j);
+			swap(lengths, i, j);
+			swap(referenceIndices, i, j);
+			swap(starts, i, j);
+		}
+
+		private static void swap(int[] array, int i, int j)
+		{
+			int tmp = array[i];
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+	}
+}
@@ -3,21 +3,25 @@ package org.molgenis.hadoop.pipeline.application.mapreduce;
 import static java.util.Objects.requireNonNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.TreeSet;
 
 import org.apache.log4j.Logger;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.ContigRegionsMap;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
-
-import com.google.common.collect.ImmutableList;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.RegionStore;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.RegionStore.ContigRegions;
 
 import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
 
 /**
  * Can retrieve the {@link Region}{@code s} a {@link SAMRecord} belongs to when grouping a {@link SAMRecord} on their
  * alignment position and the {@link Region}{@code s} defining the ranges for each individual group.
  */
-public class SamRecordGroupsRetriever
+public class SamRecordGroupsRetriever implements GroupsRetriever
 {
 	/**
 	 * Logger to write information to.
@@ -27,7 +31,18 @@ public class SamRecordGroupsRetriever
 	/**
 	 * Stores the {@link Region}{@code s} to which a {@link SAMRecord} can match with.
 	 */
-	private ContigRegionsMap contigRegionsMap;
+	private RegionStore regionStore;
+
+	/**
+	 * The contig names per reference index (only set if a {@link SAMSequenceDictionary} was given).
+	 */
+	private String[] contigs;
+
+	/**
+	 * The {@link ContigRegions} per reference index, so these can be retrieved without hashing the contig name of each
+	 * {@link SAMRecord} (only set if a {@link SAMSequenceDictionary} was given).
+	 */
+	private ContigRegions[] regionsPerReferenceIndex;
 
 	/**
 	 * Create a new instance using a set of {@link Region}{@code s} which can be used for retrieving the {@link Region}
@@ -39,7 +54,82 @@ public class SamRecordGroupsRetriever
 	 */
 	public SamRecordGroupsRetriever(ContigRegionsMap contigRegionsMap)
 	{
-		this.contigRegionsMap = requireNonNull(contigRegionsMap);
+		this(RegionStore.create(contigRegionsMap));
+	}
+
+	/**
+	 * Create a new instance using a {@link RegionStore}.
+	 * 
+	 * @param regionStore
+	 *            {@link RegionStore} Storing the {@link Region}{@code s} to be used for matching with a
+	 *            {@link SAMRecord}.
+	 */
+	public SamRecordGroupsRetriever(RegionStore regionStore)
+	{
+		this.regionStore = requireNonNull(regionStore);
+	}
+
+	/**
+	 * Create a new instance using a {@link RegionStore} where the {@link Region}{@code s} are looked up using the
+	 * reference index of a {@link SAMRecord} instead of its contig name.
+	 * 
+	 * @param regionStore
+	 *            {@link RegionStore} Storing the {@link Region}{@code s} to be used for matching with a
+	 *            {@link SAMRecord}.
+	 * @param dictionary
+	 *            {@link SAMSequenceDictionary} The contigs (in the same order as the reference used for alignment).
+	 * @throws IllegalArgumentException
+	 *             If the {@link RegionStore} contains contigs that are not present in the
+	 *             {@link SAMSequenceDictionary}.
+	 */
+	public SamRecordGroupsRetriever(RegionStore regionStore, SAMSequenceDictionary dictionary)
+			throws IllegalArgumentException
+	{
+		this(regionStore);
+
+		List<String> storedContigs = new ArrayList<>();
+		for (ContigRegions regions : regionStore.values())
+		{
+			storedContigs.add(regions.getContig());
+		}
+		validateContigs(storedContigs, dictionary);
+
+		List<SAMSequenceRecord> sequences = dictionary.getSequences();
+		contigs = new String[sequences.size()];
+		regionsPerReferenceIndex = new ContigRegions[sequences.size()];
+		for (int i = 0; i < sequences.size(); i++)
+		{
+			contigs[i] = sequences.get(i).getSequenceName();
+			regionsPerReferenceIndex[i] = regionStore.get(contigs[i]);
+		}
+	}
+
+	/**
+	 * Validates whether all contigs of the {@link Region}{@code s} are present in a {@link SAMSequenceDictionary}.
+	 * 
+	 * @param regionContigs
+	 *            {@link Collection}{@code <}{@link String}{@code >}
+	 * @param dictionary
+	 *            {@link SAMSequenceDictionary}
+	 * @throws IllegalArgumentException
+	 *             If one or more contigs are not present in the {@link SAMSequenceDictionary}.
+	 */
+	public static void validateContigs(Collection<String> regionContigs, SAMSequenceDictionary dictionary)
+			throws IllegalArgumentException
+	{
+		TreeSet<String> unknownContigs = new TreeSet<>();
+		for (String contig : regionContigs)
+		{
+			if (requireNonNull(dictionary).getSequence(contig) == null)
+			{
+				unknownContigs.add(contig);
+			}
+		}
+		if (!unknownContigs.isEmpty())
+		{
+			throw new IllegalArgumentException(
+					"Regions contain contigs that are not present in the reference dictionary: " + unknownContigs);
+		}
 	}
 
 	/**
@@ -51,13 +141,79 @@ public class SamRecordGroupsRetriever
 	 * @return {@link List}{@code <}{@link Region}{@code >} The {@link Region}{@code s} within range of the given
 	 *         {@link SAMRecord}. If no matches were found, returns an empty {@link List}.
 	 */
+	@Override
 	public List<Region> retrieveGroupsWithinRange(SAMRecord record)
+	{
+		return retrieveGroupsWithinRange(retrieveContigRegions(record), record.getStart(), record.getEnd());
+	}
+
+	/**
+	 * Returns a {@link List} containing all {@link Region}{@code s} of a contig that (partially) match with a range.
+	 * Requires a {@link SAMSequenceDictionary} to be given when creating this instance.
+	 * 
+	 * @param referenceIndex
+	 *            {@code int} The index of the contig in the {@link SAMSequenceDictionary}.
+	 * @param start
+	 *            {@code int} 1-based, inclusive.
+	 * @param end
+	 *            {@code int} 1-based, inclusive.
+	 * @return {@link List}{@code <}{@link Region}{@code >} If no matches were found, returns an empty {@link List}.
+	 * @throws IllegalStateException
+	 *             If no {@link SAMSequenceDictionary} was given.
+	 */
+	public List<Region> retrieveGroupsWithinRange(int referenceIndex, int start, int end) throws IllegalStateException
+	{
+		if (regionsPerReferenceIndex == null)
+		{
+			throw new IllegalStateException("Lookup by reference index requires a sequence dictionary.");
+		}
+		if (referenceIndex < 0 || referenceIndex >= regionsPerReferenceIndex.length)
+		{
+			return new ArrayList<>();
+		}
+		return retrieveGroupsWithinRange(regionsPerReferenceIndex[referenceIndex], start, end);
+	}
+
+	/**
+	 * Retrieves the {@link ContigRegions} matching the contig of a {@link SAMRecord}. Uses the reference index if a
+	 * {@link SAMSequenceDictionary} was given (the contig name is only compared as safeguard against a
+	 * {@link SAMRecord} using a different dictionary order), otherwise the contig name.
+	 * 
+	 * @param record
+	 *            {@link SAMRecord}
+	 * @return {@link ContigRegions}, or {@code null} if the contig has no {@link Region}{@code s}.
+	 */
+	private ContigRegions retrieveContigRegions(SAMRecord record)
+	{
+		if (regionsPerReferenceIndex != null)
+		{
+			Integer referenceIndex = record.getReferenceIndex();
+			if (referenceIndex != null && referenceIndex >= 0 && referenceIndex < contigs.length
+					&& contigs[referenceIndex].equals(record.getContig()))
+			{
+				return regionsPerReferenceIndex[referenceIndex];
+			}
+		}
+		return regionStore.get(record.getContig());
+	}
+
+	/**
+	 * Returns a {@link List} containing all {@link Region}{@code s} of a contig that (partially) match with a range.
+	 * 
+	 * @param regionsMatchingContig
+	 *            {@link ContigRegions} (can be {@code null}).
+	 * @param start
+	 *            {@code int} 1-based, inclusive.
+	 * @param end
+	 *            {@code int} 1-based, inclusive.
+	 * @return {@link List}{@code <}{@link Region}{@code >}
+	 */
+	private List<Region> retrieveGroupsWithinRange(ContigRegions regionsMatchingContig, int start, int end)
 	{
 		// Stores the regions that match the SAMRecord.
 		List<Region> matchingRegions = new ArrayList<>();
 
-		// Retrieves the Regions matching the SAMRecord contig. If none are found, returns an empty list.
-		ImmutableList<Region> regionsMatchingContig = contigRegionsMap.get(record.getContig());
+		// If no Regions are found for the SAMRecord contig, returns an empty list.
 		if (regionsMatchingContig == null)
 		{
 			return matchingRegions;
@@ -68,7 +224,7 @@ public class SamRecordGroupsRetriever
 		// SAMRecord end value or if no remaining Region are present. If the search for the first Region
 		// returned null, skips looking for any other Region that might match and simply returns and empty
 		// List.
-		Integer firstGroupIndex = retrieveFirstGroupWithEndHigherThanRecordStart(record, regionsMatchingContig);
+		Integer firstGroupIndex = retrieveFirstGroupWithEndHigherThanRecordStart(start, regionsMatchingContig);
 
 		// Checks if a single match was found. Skips further looking.
 		if (firstGroupIndex != null)
@@ -76,30 +232,28 @@ public class SamRecordGroupsRetriever
 			// Goes through the following Region looking for additional matches.
 			for (int i = firstGroupIndex; i < regionsMatchingContig.size(); i++)
 			{
-				Region group = regionsMatchingContig.get(i);
-				if (group.getStart() > record.getEnd())
+				if (regionsMatchingContig.getStart(i) > end)
 				{
 					break;
 				}
-				matchingRegions.add(group);
+				matchingRegions.add(regionsMatchingContig.getRegion(i));
 			}
 		}
 		return matchingRegions;
 	}
 
 	/**
-	 * Wrapper for first call to {@link #retrieveFirstGroupWithEndHigherThanRecordStart(Integer, List, int, int)}.
+	 * Wrapper for first call to {@link #retrieveFirstGroupWithEndHigherThanRecordStart(int, ContigRegions, int, int)}.
 	 * 
-	 * @param record
-	 *            {@link SAMRecord} The {@link SAMRecord} to retrieve {@code startPosition} from.
+	 * @param recordStart
+	 *            {@code int} Value stored in {@link SAMRecord#getStart()}.
 	 * @param list
-	 *            {@link List}{@code <}{@link Region}{@code >} Used for position comparison with the given
-	 *            {@code recordStart}.
+	 *            {@link ContigRegions} Used for position comparison with the given {@code recordStart}.
 	 * @return {@code int} value if position was found, otherwise {@code null}.
 	 */
-	private Integer retrieveFirstGroupWithEndHigherThanRecordStart(SAMRecord record, List<Region> list)
+	private Integer retrieveFirstGroupWithEndHigherThanRecordStart(int recordStart, ContigRegions list)
 	{
-		return retrieveFirstGroupWithEndHigherThanRecordStart(record.getStart(), list, 0, list.size() - 1);
+		return retrieveFirstGroupWithEndHigherThanRecordStart(recordStart, list, 0, list.size() - 1);
 	}
 
 	/**
@@ -110,15 +264,14 @@ public class SamRecordGroupsRetriever
 	 * @param recordStart
 	 *            {@code final} {@code int} Value stored in {@link SAMRecord#getStart()}.
 	 * @param list
-	 *            {@code final} {@link List}{@code <}{@link Region}{@code >} Used for position comparison with the given
-	 *            {@code recordStart}.
+	 *            {@code final} {@link ContigRegions} Used for position comparison with the given {@code recordStart}.
 	 * @param low
 	 *            {@code int} Bottom position to be used for {@code list}.
 	 * @param high
 	 *            {@code int} Upper position to be used for {@code list}.
 	 * @return {@code int} Value if position was found, otherwise {@code null}.
 	 */
-	private Integer retrieveFirstGroupWithEndHigherThanRecordStart(final int recordStart, final List<Region> list,
+	private Integer retrieveFirstGroupWithEndHigherThanRecordStart(final int recordStart, final ContigRegions list,
 			int low, int high)
 	{
 		// Retrieves basic information for further usage.
@@ -128,7 +281,7 @@ public class SamRecordGroupsRetriever
 		logger.debug("Entered recursion. Low=" + low + ", middle=" + middle + ", high=" + high);
 
 		// Retrieves end value of the group present in the middle of the list.
-		int middleGroupEnd = list.get(middle).getEnd();
+		int middleGroupEnd = list.getEnd(middle);
 
 		// If the low position is the same as the high position, the remaining List only contains 1 remaining Region.
 		// Ignores comparisons using multiple list elements.
@@ -143,7 +296,7 @@ public class SamRecordGroupsRetriever
 		else
 		{
 			// When there are at least 2 elements in the list, retrieve a second element for comparisons.
-			int MiddleMinusOneGroupEnd = list.get(middle - 1).getEnd();
+			int MiddleMinusOneGroupEnd = list.getEnd(middle - 1);
 
 			// If middle position is the first one with an end value equal or higher than the record start, returns the
 			// middle position value.
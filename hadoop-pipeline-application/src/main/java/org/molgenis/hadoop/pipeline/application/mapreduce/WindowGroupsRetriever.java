@@ -0,0 +1,182 @@
+package org.molgenis.hadoop.pipeline.application.mapreduce;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+
+/**
+ * {@link GroupsRetriever} that divides each contig of the reference into fixed windows, so the {@link Region}{@code s}
+ * a {@link SAMRecord} belongs to can be calculated instead of searched for. Window {@code i} of a contig ranges from
+ * {@code i * (window - overlap) + 1} to {@code i * (window - overlap) + window} (1-based, inclusive), where the last
+ * window of a contig ends at the contig length.
+ */
+public class WindowGroupsRetriever implements GroupsRetriever
+{
+	/**
+	 * The contig names per reference index.
+	 */
+	private String[] contigs;
+
+	/**
+	 * The contig lengths per reference index.
+	 */
+	private int[] lengths;
+
+	/**
+	 * The index of the last window per reference index.
+	 */
+	private int[] lastWindows;
+
+	/**
+	 * The reference index per contig name (for {@link SAMRecord}{@code s} with an unexpected reference index).
+	 */
+	private Map<String, Integer> referenceIndices = new HashMap<>();
+
+	/**
+	 * The size of a window.
+	 */
+	private int window;
+
+	/**
+	 * The distance between the starts of two consecutive windows.
+	 */
+	private int step;
+
+	/**
+	 * Creates a new {@link WindowGroupsRetriever}.
+	 *
+	 * @param dictionary
+	 *            {@link SAMSequenceDictionary} The contigs (in the same order as the reference used for alignment).
+	 * @param window
+	 *            {@code int} The size of a window.
+	 * @param overlap
+	 *            {@code int} The number of bases consecutive windows overlap.
+	 * @throws IllegalArgumentException
+	 *             If the window or overlap are invalid (see {@link #validate(int, int)}).
+	 */
+	public WindowGroupsRetriever(SAMSequenceDictionary dictionary, int window, int overlap)
+			throws IllegalArgumentException
+	{
+		validate(window, overlap);
+		this.window = window;
+		step = window - overlap;
+
+		List<SAMSequenceRecord> sequences = requireNonNull(dictionary).getSequences();
+		contigs = new String[sequences.size()];
+		lengths = new int[sequences.size()];
+		lastWindows = new int[sequences.size()];
+		for (int i = 0; i < sequences.size(); i++)
+		{
+			contigs[i] = sequences.get(i).getSequenceName();
+			lengths[i] = sequences.get(i).getSequenceLength();
+			lastWindows[i] = lengths[i] <= window ? 0 : ceilDiv(lengths[i] - window, step);
+			referenceIndices.put(contigs[i], i);
+		}
+	}
+
+	/**
+	 * Validates a window size and overlap.
+	 *
+	 * @param window
+	 *            {@code int}
+	 * @param overlap
+	 *            {@code int}
+	 * @throws IllegalArgumentException
+	 *             If the window is smaller than 1, or the overlap is negative or not smaller than the window.
+	 */
+	public static void validate(int window, int overlap) throws IllegalArgumentException
+	{
+		if (window < 1)
+		{
+			throw new IllegalArgumentException("Window size must be at least 1: " + window);
+		}
+		if (overlap < 0 || overlap >= window)
+		{
+			throw new IllegalArgumentException(
+					"Window overlap must be at least 0 and smaller than the window size (" + window + "): " + overlap);
+		}
+	}
+
+	@Override
+	public List<Region> retrieveGroupsWithinRange(SAMRecord record)
+	{
+		Integer referenceIndex = record.getReferenceIndex();
+		if (referenceIndex == null || referenceIndex < 0 || referenceIndex >= contigs.length
+				|| !contigs[referenceIndex].equals(record.getContig()))
+		{
+			referenceIndex = referenceIndices.get(record.getContig());
+		}
+		if (referenceIndex == null)
+		{
+			return new ArrayList<>();
+		}
+		return retrieveGroupsWithinRange(referenceIndex, record.getStart(), record.getEnd());
+	}
+
+	/**
+	 * Returns the windows overlapping with a range.
+	 *
+	 * @param referenceIndex
+	 *            {@code int}
+	 * @param start
+	 *            {@code int} 1-based, inclusive.
+	 * @param end
+	 *            {@code int} 1-based, inclusive.
+	 * @return {@link List}{@code <}{@link Region}{@code >}
+	 */
+	public List<Region> retrieveGroupsWithinRange(int referenceIndex, int start, int end)
+	{
+		if (end < 1 || end < start || start > lengths[referenceIndex])
+		{
+			return new ArrayList<>();
+		}
+		int first = Math.max(0, ceilDiv(start - window, step));
+		int last = Math.min(lastWindows[referenceIndex], (end - 1) / step);
+
+		List<Region> matchingRegions = new ArrayList<>(Math.max(0, last - first + 1));
+		for (int i = first; i <= last; i++)
+		{
+			matchingRegions.add(getRegion(referenceIndex, i));
+		}
+		return matchingRegions;
+	}
+
+	/**
+	 * Returns a window as {@link Region}.
+	 *
+	 * @param referenceIndex
+	 *            {@code int}
+	 * @param index
+	 *            {@code int} The index of the window within the contig.
+	 * @return {@link Region}
+	 */
+	public Region getRegion(int referenceIndex, int index)
+	{
+		long start = (long) index * step + 1;
+		return new Region(contigs[referenceIndex], (int) start,
+				(int) Math.min(start - 1 + window, lengths[referenceIndex]));
+	}
+
+	/**
+	 * Divides two {@code int}{@code s} rounding up (for a positive divisor).
+	 *
+	 * @param dividend
+	 *            {@code int}
+	 * @param divisor
+	 *            {@code int}
+	 * @return {@code int}
+	 */
+	private static int ceilDiv(int dividend, int divisor)
+	{
+		return dividend > 0 ? (dividend - 1) / divisor + 1 : -(-dividend / divisor);
+	}
+}
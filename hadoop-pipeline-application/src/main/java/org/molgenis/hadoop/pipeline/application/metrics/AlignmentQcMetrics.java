@@ -0,0 +1,323 @@
+package org.molgenis.hadoop.pipeline.application.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Alignment quality control metrics of a single read group, similar to those of {@code samtools flagstat} (see
+ * {@link Flagstat}), the insert size histogram of Picard {@code CollectInsertSizeMetrics} and a mapping quality
+ * histogram. All metrics are stored as primitive counts, so they can be collected for each {@link SAMRecord} without
+ * additional allocations and merged by adding up the counts. Note that an {@link AlignmentQcMetrics} is not
+ * thread-safe.
+ */
+public class AlignmentQcMetrics
+{
+	/**
+	 * The column names of the rows written by {@link #write(String, Writer)}.
+	 */
+	public static final String HEADER = "sample\tread_group\tlibrary\tmetric\tkey\tcount";
+
+	/**
+	 * Insert sizes larger than this are counted as this size.
+	 */
+	public static final int MAX_INSERT_SIZE = 10000;
+
+	private static final int FLAG_PAIRED = 0x1;
+	private static final int FLAG_PROPER_PAIR = 0x2;
+	private static final int FLAG_UNMAPPED = 0x4;
+	private static final int FLAG_MATE_UNMAPPED = 0x8;
+	private static final int FLAG_FIRST_OF_PAIR = 0x40;
+	private static final int FLAG_SECOND_OF_PAIR = 0x80;
+	private static final int FLAG_SECONDARY = 0x100;
+	private static final int FLAG_QC_FAIL = 0x200;
+	private static final int FLAG_DUPLICATE = 0x400;
+	private static final int FLAG_SUPPLEMENTARY = 0x800;
+
+	/**
+	 * The metric names used in the written rows.
+	 */
+	private static final String FLAGSTAT_QC_PASSED = "flagstat_qc_passed";
+	private static final String FLAGSTAT_QC_FAILED = "flagstat_qc_failed";
+	private static final String INSERT_SIZE = "insert_size";
+	private static final String MAPQ = "mapq";
+
+	/**
+	 * The {@link Flagstat} counts of the records that passed quality control.
+	 */
+	private long[] qcPassed = new long[Flagstat.values().length];
+
+	/**
+	 * The {@link Flagstat} counts of the records that failed quality control.
+	 */
+	private long[] qcFailed = new long[Flagstat.values().length];
+
+	/**
+	 * The number of read pairs per insert size.
+	 */
+	private long[] insertSizes = new long[MAX_INSERT_SIZE + 1];
+
+	/**
+	 * The number of primary mapped records per mapping quality.
+	 */
+	private long[] mappingQualities = new long[256];
+
+	/**
+	 * Adds a {@link SAMRecord} to the metrics.
+	 *
+	 * @param record
+	 *            {@link SAMRecord}
+	 */
+	public void add(SAMRecord record)
+	{
+		add(record.getFlags(), record.getReferenceIndex(), record.getMateReferenceIndex(),
+				record.getMappingQuality(), record.getInferredInsertSize());
+	}
+
+	/**
+	 * Adds a record to the metrics using its fields.
+	 *
+	 * @param flags
+	 *            {@code int}
+	 * @param referenceIndex
+	 *            {@code int}
+	 * @param mateReferenceIndex
+	 *            {@code int}
+	 * @param mappingQuality
+	 *            {@code int}
+	 * @param insertSize
+	 *            {@code int}
+	 */
+	public void add(int flags, int referenceIndex, int mateReferenceIndex, int mappingQuality, int insertSize)
+	{
+		long[] counts = (flags & FLAG_QC_FAIL) == 0 ? qcPassed : qcFailed;
+		boolean mapped = (flags & FLAG_UNMAPPED) == 0;
+
+		counts[Flagstat.TOTAL.ordinal()]++;
+		if ((flags & FLAG_SECONDARY) != 0)
+		{
+			counts[Flagstat.SECONDARY.ordinal()]++;
+		}
+		else if ((flags & FLAG_SUPPLEMENTARY) != 0)
+		{
+			counts[Flagstat.SUPPLEMENTARY.ordinal()]++;
+		}
+		else
+		{
+			if (mapped)
+			{
+				mappingQualities[mappingQuality & 0xFF]++;
+			}
+			if ((flags & FLAG_PAIRED) != 0)
+			{
+				addPaired(counts, flags, mapped, referenceIndex, mateReferenceIndex, mappingQuality, insertSize);
+			}
+		}
+		if (mapped)
+		{
+			counts[Flagstat.MAPPED.ordinal()]++;
+		}
+		if ((flags & FLAG_DUPLICATE) != 0)
+		{
+			counts[Flagstat.DUPLICATES.ordinal()]++;
+		}
+	}
+
+	/**
+	 * Adds the pair-related metrics of a primary paired record.
+	 *
+	 * @param counts
+	 *            {@code long[]} The {@link Flagstat} counts to be updated.
+	 * @param flags
+	 *            {@code int}
+	 * @param mapped
+	 *            {@code boolean}
+	 * @param referenceIndex
+	 *            {@code int}
+	 * @param mateReferenceIndex
+	 *            {@code int}
+	 * @param mappingQuality
+	 *            {@code int}
+	 * @param insertSize
+	 *            {@code int}
+	 */
+	private void addPaired(long[] counts, int flags, boolean mapped, int referenceIndex, int mateReferenceIndex,
+			int mappingQuality, int insertSize)
+	{
+		counts[Flagstat.PAIRED.ordinal()]++;
+		if ((flags & FLAG_FIRST_OF_PAIR) != 0) counts[Flagstat.READ1.ordinal()]++;
+		if ((flags & FLAG_SECOND_OF_PAIR) != 0) counts[Flagstat.READ2.ordinal()]++;
+		if (!mapped) return;
+
+		if ((flags & FLAG_PROPER_PAIR) != 0) counts[Flagstat.PROPERLY_PAIRED.ordinal()]++;
+		if ((flags & FLAG_MATE_UNMAPPED) != 0)
+		{
+			counts[Flagstat.SINGLETONS.ordinal()]++;
+			return;
+		}
+
+		counts[Flagstat.WITH_MATE_MAPPED.ordinal()]++;
+		if (referenceIndex != mateReferenceIndex)
+		{
+			counts[Flagstat.MATE_ON_DIFFERENT_CONTIG.ordinal()]++;
+			if (mappingQuality >= 5) counts[Flagstat.MATE_ON_DIFFERENT_CONTIG_MAPQ5.ordinal()]++;
+		}
+
+		// Similar to Picard, each pair is counted once (using the second read) and duplicates are excluded.
+		if ((flags & FLAG_FIRST_OF_PAIR) == 0 && (flags & FLAG_DUPLICATE) == 0 && insertSize != 0)
+		{
+			insertSizes[Math.min(Math.abs(insertSize), MAX_INSERT_SIZE)]++;
+		}
+	}
+
+	/**
+	 * Adds the counts of another {@link AlignmentQcMetrics} to this one.
+	 *
+	 * @param other
+	 *            {@link AlignmentQcMetrics}
+	 */
+	public void add(AlignmentQcMetrics other)
+	{
+		addAll(qcPassed, other.qcPassed);
+		addAll(qcFailed, other.qcFailed);
+		addAll(insertSizes, other.insertSizes);
+		addAll(mappingQualities, other.mappingQualities);
+	}
+
+	private static void addAll(long[] counts, long[] otherCounts)
+	{
+		for (int i = 0; i < counts.length; i++)
+		{
+			counts[i] += otherCounts[i];
+		}
+	}
+
+	/**
+	 * Adds a single row as written by {@link #write(String, Writer)} (excluding the prefix columns) to the metrics.
+	 *
+	 * @param metric
+	 *            {@link String}
+	 * @param key
+	 *            {@link String}
+	 * @param count
+	 *            {@code long}
+	 * @throws IllegalArgumentException
+	 *             If the metric or key is unknown.
+	 */
+	public void addRow(String metric, String key, long count) throws IllegalArgumentException
+	{
+		try
+		{
+			switch (metric)
+			{
+				case FLAGSTAT_QC_PASSED:
+					qcPassed[Flagstat.valueOf(key.toUpperCase()).ordinal()] += count;
+					break;
+				case FLAGSTAT_QC_FAILED:
+					qcFailed[Flagstat.valueOf(key.toUpperCase()).ordinal()] += count;
+					break;
+				case INSERT_SIZE:
+					insertSizes[Integer.parseInt(key)] += count;
+					break;
+				case MAPQ:
+					mappingQualities[Integer.parseInt(key)] += count;
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown metric: " + metric);
+			}
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{
+			throw new IllegalArgumentException("Invalid " + metric + " key: " + key, e);
+		}
+	}
+
+	/**
+	 * Returns a {@link Flagstat} count.
+	 *
+	 * @param flagstat
+	 *            {@link Flagstat}
+	 * @param qcFailed
+	 *            {@code boolean} Whether the count of the records that failed quality control should be returned.
+	 * @return {@code long}
+	 */
+	public long get(Flagstat flagstat, boolean qcFailed)
+	{
+		return (qcFailed ? this.qcFailed : qcPassed)[flagstat.ordinal()];
+	}
+
+	/**
+	 * @param insertSize
+	 *            {@code int} (where {@link #MAX_INSERT_SIZE} includes all larger insert sizes).
+	 * @return {@code long} The number of read pairs with the insert size.
+	 */
+	public long getInsertSizeCount(int insertSize)
+	{
+		return insertSizes[insertSize];
+	}
+
+	/**
+	 * @param mappingQuality
+	 *            {@code int}
+	 * @return {@code long} The number of primary mapped records with the mapping quality.
+	 */
+	public long getMappingQualityCount(int mappingQuality)
+	{
+		return mappingQualities[mappingQuality];
+	}
+
+	/**
+	 * Writes the metrics as tab-separated rows (see {@link #HEADER}). All {@link Flagstat} counts are written, while
+	 * the histograms only contain the keys with a count.
+	 *
+	 * @param prefix
+	 *            {@link String} The sample, read group and library columns (tab-separated).
+	 * @param writer
+	 *            {@link Writer}
+	 * @throws IOException
+	 */
+	public void write(String prefix, Writer writer) throws IOException
+	{
+		for (Flagstat flagstat : Flagstat.values())
+		{
+			writeRow(prefix, FLAGSTAT_QC_PASSED, flagstat.toString(), qcPassed[flagstat.ordinal()], writer);
+		}
+		for (Flagstat flagstat : Flagstat.values())
+		{
+			writeRow(prefix, FLAGSTAT_QC_FAILED, flagstat.toString(), qcFailed[flagstat.ordinal()], writer);
+		}
+		writeHistogram(prefix, INSERT_SIZE, insertSizes, writer);
+		writeHistogram(prefix, MAPQ, mappingQualities, writer);
+	}
+
+	private static void writeHistogram(String prefix, String metric, long[] counts, Writer writer) throws IOException
+	{
+		for (int i = 0; i < counts.length; i++)
+		{
+			if (counts[i] != 0) writeRow(prefix, metric, Integer.toString(i), counts[i], writer);
+		}
+	}
+
+	private static void writeRow(String prefix, String metric, String key, long count, Writer writer)
+			throws IOException
+	{
+		writer.write(prefix + "\t" + metric + "\t" + key + "\t" + count + "\n");
+	}
+
+	/**
+	 * The counts reported by {@code samtools flagstat}. Except for {@link #TOTAL}, {@link #MAPPED} and
+	 * {@link #DUPLICATES}, the counts after {@link #SUPPLEMENTARY} only include primary records.
+	 */
+	public enum Flagstat
+	{
+		TOTAL, SECONDARY, SUPPLEMENTARY, DUPLICATES, MAPPED, PAIRED, READ1, READ2, PROPERLY_PAIRED, WITH_MATE_MAPPED,
+		SINGLETONS, MATE_ON_DIFFERENT_CONTIG, MATE_ON_DIFFERENT_CONTIG_MAPQ5;
+
+		@Override
+		public String toString()
+		{
+			return name().toLowerCase();
+		}
+	}
+}
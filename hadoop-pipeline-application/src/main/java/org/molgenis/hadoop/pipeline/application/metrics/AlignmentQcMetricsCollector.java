@@ -0,0 +1,165 @@
+package org.molgenis.hadoop.pipeline.application.metrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Sample;
+
+import htsjdk.samtools.SAMReadGroupRecord;
+
+/**
+ * Collects the {@link AlignmentQcMetrics} per read group within a single task. Each task writes its metrics to a part
+ * file in {@link #PARTS_DIR} (using the work output path of the task, so only the output of successful task attempts
+ * is committed), after which {@link #merge(Configuration, Path)} merges the part files into a single metrics file per
+ * sample once the job has finished.
+ */
+public class AlignmentQcMetricsCollector
+{
+	/**
+	 * The directory (inside the job output directory) containing the part files.
+	 */
+	public static final String PARTS_DIR = "_qc";
+
+	/**
+	 * The extension of the merged metrics file of each sample.
+	 */
+	public static final String EXTENSION = ".qc.tsv";
+
+	/**
+	 * The {@link AlignmentQcMetrics} per read group (with as key the sample, read group and library columns).
+	 */
+	private Map<String, AlignmentQcMetrics> metricsPerReadGroup = new LinkedHashMap<>();
+
+	/**
+	 * Returns the {@link AlignmentQcMetrics} of the read group of a {@link Sample}.
+	 *
+	 * @param sample
+	 *            {@link Sample}
+	 * @return {@link AlignmentQcMetrics}
+	 */
+	public AlignmentQcMetrics get(Sample sample)
+	{
+		SAMReadGroupRecord readGroup = sample.getAsReadGroupRecord();
+		String key = sample.getExternalSampleId() + "\t" + readGroup.getId() + "\t" + readGroup.getLibrary();
+		AlignmentQcMetrics metrics = metricsPerReadGroup.get(key);
+		if (metrics == null)
+		{
+			metrics = new AlignmentQcMetrics();
+			metricsPerReadGroup.put(key, metrics);
+		}
+		return metrics;
+	}
+
+	/**
+	 * Writes the collected metrics of a task to a part file named after the task id.
+	 *
+	 * @param context
+	 *            {@link TaskInputOutputContext}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void write(TaskInputOutputContext<?, ?, ?, ?> context) throws IOException, InterruptedException
+	{
+		if (metricsPerReadGroup.isEmpty()) return;
+
+		Path file = new Path(new Path(FileOutputFormat.getWorkOutputPath(context), PARTS_DIR),
+				context.getTaskAttemptID().getTaskID() + ".tsv");
+		FileSystem fileSystem = file.getFileSystem(context.getConfiguration());
+		try (Writer writer = new OutputStreamWriter(fileSystem.create(file, true), StandardCharsets.UTF_8))
+		{
+			writer.write(AlignmentQcMetrics.HEADER + "\n");
+			for (Map.Entry<String, AlignmentQcMetrics> entry : metricsPerReadGroup.entrySet())
+			{
+				entry.getValue().write(entry.getKey(), writer);
+			}
+		}
+	}
+
+	/**
+	 * Merges the part files in {@link #PARTS_DIR} of a job output directory into a metrics file per sample (named
+	 * {@code <sample>}{@value #EXTENSION}) and removes the part files.
+	 *
+	 * @param conf
+	 *            {@link Configuration}
+	 * @param outputDir
+	 *            {@link Path} The job output directory.
+	 * @return {@code int} The number of metrics files written.
+	 * @throws IOException
+	 *             If the part files could not be read or the metrics files could not be written.
+	 */
+	public static int merge(Configuration conf, Path outputDir) throws IOException
+	{
+		Path partsDir = new Path(outputDir, PARTS_DIR);
+		FileSystem fileSystem = partsDir.getFileSystem(conf);
+		if (!fileSystem.exists(partsDir)) return 0;
+
+		// The metrics per sample, per read group.
+		Map<String, Map<String, AlignmentQcMetrics>> metricsPerSample = new TreeMap<>();
+		for (FileStatus part : fileSystem.listStatus(partsDir))
+		{
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(fileSystem.open(part.getPath()), StandardCharsets.UTF_8)))
+			{
+				reader.readLine(); // Header.
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					String[] columns = line.split("\t");
+					if (columns.length != 6)
+					{
+						throw new IOException("Invalid line in " + part.getPath() + ": " + line);
+					}
+					Map<String, AlignmentQcMetrics> readGroups = metricsPerSample.get(columns[0]);
+					if (readGroups == null)
+					{
+						readGroups = new TreeMap<>();
+						metricsPerSample.put(columns[0], readGroups);
+					}
+					String readGroup = columns[0] + "\t" + columns[1] + "\t" + columns[2];
+					AlignmentQcMetrics metrics = readGroups.get(readGroup);
+					if (metrics == null)
+					{
+						metrics = new AlignmentQcMetrics();
+						readGroups.put(readGroup, metrics);
+					}
+					try
+					{
+						metrics.addRow(columns[3], columns[4], Long.parseLong(columns[5]));
+					}
+					catch (IllegalArgumentException e)
+					{
+						throw new IOException("Invalid line in " + part.getPath() + ": " + line, e);
+					}
+				}
+			}
+		}
+
+		for (Map.Entry<String, Map<String, AlignmentQcMetrics>> sample : metricsPerSample.entrySet())
+		{
+			Path file = new Path(outputDir, sample.getKey() + EXTENSION);
+			try (Writer writer = new OutputStreamWriter(fileSystem.create(file, true), StandardCharsets.UTF_8))
+			{
+				writer.write(AlignmentQcMetrics.HEADER + "\n");
+				for (Map.Entry<String, AlignmentQcMetrics> readGroup : sample.getValue().entrySet())
+				{
+					readGroup.getValue().write(readGroup.getKey(), writer);
+				}
+			}
+		}
+		fileSystem.delete(partsDir, true);
+		return metricsPerSample.size();
+	}
+}
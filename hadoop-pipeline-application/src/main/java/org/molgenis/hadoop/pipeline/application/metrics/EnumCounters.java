@@ -0,0 +1,76 @@
+package org.molgenis.hadoop.pipeline.application.metrics;
+
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+/**
+ * Accumulates Hadoop enum counters within a single task in a {@code long} array (indexed by ordinal), so incrementing a
+ * counter does not require a lookup in the Hadoop counters. The accumulated counts are added to the Hadoop counters
+ * by {@link #publish(TaskAttemptContext)}, which should be called periodically and at the end of a task. Note that an
+ * {@link EnumCounters} is not thread-safe.
+ *
+ * @param <E>
+ *            The enum defining the counters.
+ */
+public class EnumCounters<E extends Enum<E>>
+{
+	/**
+	 * The counters in the order of their ordinal.
+	 */
+	private E[] counters;
+
+	/**
+	 * The counts that are not published yet per counter ordinal.
+	 */
+	private long[] counts;
+
+	/**
+	 * Creates a new {@link EnumCounters}.
+	 *
+	 * @param type
+	 *            {@link Class}{@code <E>} The enum defining the counters.
+	 */
+	public EnumCounters(Class<E> type)
+	{
+		counters = type.getEnumConstants();
+		counts = new long[counters.length];
+	}
+
+	/**
+	 * Adds 1 to a counter.
+	 *
+	 * @param counter
+	 *            {@code E}
+	 */
+	public void increment(E counter)
+	{
+		counts[counter.ordinal()]++;
+	}
+
+	/**
+	 * Returns the count of a counter that is not published yet.
+	 *
+	 * @param counter
+	 *            {@code E}
+	 * @return {@code long}
+	 */
+	public long get(E counter)
+	{
+		return counts[counter.ordinal()];
+	}
+
+	/**
+	 * Adds the accumulated counts to the Hadoop counters of a task and resets them.
+	 *
+	 * @param context
+	 *            {@link TaskAttemptContext}
+	 */
+	public void publish(TaskAttemptContext context)
+	{
+		for (int i = 0; i < counts.length; i++)
+		{
+			if (counts[i] == 0) continue;
+			context.getCounter(counters[i]).increment(counts[i]);
+			counts[i] = 0;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package org.molgenis.hadoop.pipeline.application.metrics;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.molgenis.hadoop.pipeline.application.PipelineProperties;
+
+/**
+ * {@link MetricsSink} that writes the metrics of each task to a tab-separated file. By default, the file is named
+ * after the task id and written to {@value #METRICS_DIR_NAME} in the work output path of the task attempt, so only the
+ * metrics of committed attempts end up in the job output directory (similar to the
+ * {@link AlignmentQcMetricsCollector}). If {@link PipelineProperties#METRICS_DIR} is set, the file is named after the
+ * task attempt id and written directly to that directory instead, which therefore also contains the metrics of
+ * failed, killed and speculative attempts. All durations are in microseconds except for the total, which is in
+ * milliseconds (similar to the Hadoop counters).
+ */
+public class FileMetricsSink implements MetricsSink
+{
+	/**
+	 * The directory (inside the job output directory) containing the metrics files by default.
+	 */
+	public static final String METRICS_DIR_NAME = "_metrics";
+
+	@Override
+	public void report(TaskAttemptContext context, StageTimer timer) throws IOException
+	{
+		String metricsDir = context.getConfiguration().get(PipelineProperties.METRICS_DIR);
+		Path file;
+		if (metricsDir != null)
+		{
+			file = new Path(metricsDir, context.getTaskAttemptID() + ".tsv");
+		}
+		else
+		{
+			// The work path of the job's output committer (the sink is not given the output format of the task).
+			Path workPath = new FileOutputCommitter(FileOutputFormat.getOutputPath(context), context).getWorkPath();
+			file = new Path(new Path(workPath, METRICS_DIR_NAME), context.getTaskAttemptID().getTaskID() + ".tsv");
+		}
+
+		FileSystem fileSystem = file.getFileSystem(context.getConfiguration());
+		try (Writer writer = new OutputStreamWriter(fileSystem.create(file, true), StandardCharsets.UTF_8))
+		{
+			writer.write("stage\tcount\ttotal_ms\tbytes\tmean_us\tp50_us\tp90_us\tp99_us\tmax_us\n");
+			for (Stage stage : Stage.values())
+			{
+				LatencyHistogram histogram = timer.getHistogram(stage);
+				if (histogram.getCount() == 0) continue;
+				writer.write(stage + "\t" + histogram.getCount() + "\t" + timer.getNanos(stage) / 1000000 + "\t"
+						+ timer.getBytes(stage) + "\t" + histogram.getMean() / 1000 + "\t"
+						+ histogram.getPercentile(50) / 1000 + "\t" + histogram.getPercentile(90) / 1000 + "\t"
+						+ histogram.getPercentile(99) / 1000 + "\t" + histogram.getMax() / 1000 + "\n");
+			}
+		}
+	}
+}
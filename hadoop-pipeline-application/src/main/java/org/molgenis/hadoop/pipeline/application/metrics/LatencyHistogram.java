@@ -0,0 +1,115 @@
+package org.molgenis.hadoop.pipeline.application.metrics;
+
+/**
+ * Histogram of latencies (in nanoseconds) using power-of-two buckets, so recording a value is cheap enough for
+ * per-record use. Percentiles are therefore approximations (the upper bound of the bucket containing the percentile).
+ */
+public class LatencyHistogram
+{
+	/**
+	 * Bucket {@code i} counts the values {@code v} for which {@code 2^(i-1) <= v < 2^i} (bucket {@code 0} counts
+	 * {@code 0}).
+	 */
+	private long[] buckets = new long[64];
+
+	private long count = 0;
+	private long total = 0;
+	private long max = 0;
+
+	/**
+	 * @return {@code long} The number of recorded values.
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * @return {@code long} The sum of all recorded values.
+	 */
+	public long getTotal()
+	{
+		return total;
+	}
+
+	/**
+	 * @return {@code long} The highest recorded value ({@code 0} if no values were recorded).
+	 */
+	public long getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * Records a single value.
+	 *
+	 * @param nanos
+	 *            {@code long} (negative values are recorded as {@code 0})
+	 */
+	public void record(long nanos)
+	{
+		if (nanos < 0) nanos = 0;
+		buckets[64 - Long.numberOfLeadingZeros(nanos)]++;
+		count++;
+		total += nanos;
+		if (nanos > max) max = nanos;
+	}
+
+	/**
+	 * Returns the mean of the recorded values.
+	 *
+	 * @return {@code long} ({@code 0} if no values were recorded)
+	 */
+	public long getMean()
+	{
+		return count == 0 ? 0 : total / count;
+	}
+
+	/**
+	 * Returns an approximation of a percentile: the upper bound of the bucket containing it (limited by
+	 * {@link #getMax()}).
+	 *
+	 * @param percentile
+	 *            {@code double} Between 0 and 100.
+	 * @return {@code long} ({@code 0} if no values were recorded)
+	 * @throws IllegalArgumentException
+	 *             If {@code percentile} is not between 0 and 100.
+	 */
+	public long getPercentile(double percentile) throws IllegalArgumentException
+	{
+		if (percentile < 0 || percentile > 100)
+		{
+			throw new IllegalArgumentException("Percentile should be between 0 and 100: " + percentile);
+		}
+		if (count == 0) return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < buckets.length; i++)
+		{
+			seen += buckets[i];
+			if (seen >= rank)
+			{
+				return i == 0 ? 0 : Math.min(max, (1L << i) - 1);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Adds all values recorded in another {@link LatencyHistogram} to this one.
+	 *
+	 * @param other
+	 *            {@link LatencyHistogram}
+	 */
+	public void merge(LatencyHistogram other)
+	{
+		for (int i = 0; i < buckets.length; i++)
+		{
+			buckets[i] += other.buckets[i];
+		}
+		count += other.count;
+		total += other.total;
+		max = Math.max(max, other.max);
+	}
+}
@@ -0,0 +1,25 @@
+package org.molgenis.hadoop.pipeline.application.metrics;
+
+import java.io.IOException;
+
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.molgenis.hadoop.pipeline.application.PipelineProperties;
+
+/**
+ * Destination for the per-task metrics collected by a {@link StageTimer}. The implementation to be used is defined by
+ * {@link PipelineProperties#METRICS_SINK} and requires a public no-argument constructor (if it implements
+ * {@link org.apache.hadoop.conf.Configurable}, the job configuration is set after creation).
+ */
+public interface MetricsSink
+{
+	/**
+	 * Reports the metrics of a single task attempt.
+	 *
+	 * @param context
+	 *            {@link TaskAttemptContext}
+	 * @param timer
+	 *            {@link StageTimer}
+	 * @throws IOException
+	 */
+	void report(TaskAttemptContext context, StageTimer timer) throws IOException;
+}
@@ -0,0 +1,80 @@
+package org.molgenis.hadoop.pipeline.application.metrics;
+
+/**
+ * The processing stages of the mapper and reducer that are instrumented by a {@link StageTimer}. Note that some stages
+ * are nested: {@link #BWA_WALL} includes all stages digesting the bwa output, and {@link #SAM_DECODE} includes the time
+ * waiting for bwa to output the next record.
+ */
+public enum Stage
+{
+	/**
+	 * Mapper: reading an input split from HDFS (the {@link org.apache.hadoop.mapreduce.RecordReader}).
+	 */
+	HDFS_READ,
+
+	/**
+	 * Mapper: writing an input split to the stdin of bwa (ends once bwa has read all data).
+	 */
+	BWA_STDIN_WRITE,
+
+	/**
+	 * Mapper: wall time of a bwa process (from start until exit, including digesting its output).
+	 */
+	BWA_WALL,
+
+	/**
+	 * Mapper: decoding the SAM output of bwa into records.
+	 */
+	SAM_DECODE,
+
+	/**
+	 * Mapper: grouping the records of a read pair and determining its type.
+	 */
+	PAIR_GROUPING,
+
+	/**
+	 * Mapper: looking up the regions the records of a read pair belong to.
+	 */
+	REGION_LOOKUP,
+
+	/**
+	 * Mapper: writing records to the map output.
+	 */
+	CONTEXT_WRITE,
+
+	/**
+	 * Reducer: retrieving the keys and iterating over (and merging) the values of a group, excluding
+	 * {@link #BAM_WRITE}.
+	 */
+	REDUCE_GROUP_ITERATION,
+
+	/**
+	 * Reducer: writing records to the BAM output files (or mapper: writing records to the side output files).
+	 */
+	BAM_WRITE;
+
+	/**
+	 * The name of the Hadoop counter group containing the stage counters.
+	 */
+	public static final String COUNTER_GROUP = Stage.class.getName();
+
+	/**
+	 * Returns the name of the Hadoop counter storing the time (in milliseconds) spent in this stage.
+	 *
+	 * @return {@link String}
+	 */
+	public String getTimeCounterName()
+	{
+		return name() + "_MILLIS";
+	}
+
+	/**
+	 * Returns the name of the Hadoop counter storing the number of bytes processed in this stage.
+	 *
+	 * @return {@link String}
+	 */
+	public String getBytesCounterName()
+	{
+		return name() + "_BYTES";
+	}
+}
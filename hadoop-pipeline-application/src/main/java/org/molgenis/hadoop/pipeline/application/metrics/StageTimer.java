@@ -0,0 +1,198 @@
+package org.molgenis.hadoop.pipeline.application.metrics;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.molgenis.hadoop.pipeline.application.PipelineProperties;
+
+/**
+ * Collects the time and bytes spent per {@link Stage} within a single task. The totals are published as Hadoop counters
+ * (see {@link Stage#COUNTER_GROUP}) while the {@link LatencyHistogram}{@code s} are reported to a {@link MetricsSink}.
+ * A disabled {@link StageTimer} ignores all calls, so it can be used unconditionally. Note that a {@link StageTimer} is
+ * not thread-safe.
+ */
+public class StageTimer
+{
+	/**
+	 * Whether anything is recorded.
+	 */
+	private boolean enabled;
+
+	/**
+	 * The total number of nanoseconds per {@link Stage}.
+	 */
+	private long[] nanos = new long[Stage.values().length];
+
+	/**
+	 * The total number of bytes per {@link Stage}.
+	 */
+	private long[] bytes = new long[Stage.values().length];
+
+	/**
+	 * The latencies per {@link Stage}.
+	 */
+	private LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+
+	/**
+	 * Creates a new {@link StageTimer}.
+	 *
+	 * @param enabled
+	 *            {@code boolean} If {@code false}, nothing is recorded.
+	 */
+	public StageTimer(boolean enabled)
+	{
+		this.enabled = enabled;
+		for (int i = 0; i < histograms.length; i++)
+		{
+			histograms[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Creates a new {@link StageTimer} that is enabled if {@link PipelineProperties#STAGE_METRICS} is set.
+	 *
+	 * @param conf
+	 *            {@link Configuration}
+	 * @return {@link StageTimer}
+	 */
+	public static StageTimer create(Configuration conf)
+	{
+		return new StageTimer(
+				conf.getBoolean(PipelineProperties.STAGE_METRICS, PipelineProperties.STAGE_METRICS_DEFAULT));
+	}
+
+	/**
+	 * @return {@code boolean} Whether anything is recorded.
+	 */
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * Returns the start time to be given to {@link #stop(Stage, long)}.
+	 *
+	 * @return {@code long} The current {@link System#nanoTime()} (or {@code 0} if disabled).
+	 */
+	public long start()
+	{
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the time passed since {@code startNanos} for a {@link Stage}.
+	 *
+	 * @param stage
+	 *            {@link Stage}
+	 * @param startNanos
+	 *            {@code long} As returned by {@link #start()}.
+	 */
+	public void stop(Stage stage, long startNanos)
+	{
+		if (enabled) record(stage, System.nanoTime() - startNanos, 0);
+	}
+
+	/**
+	 * Records the time passed since {@code startNanos} and the number of bytes processed for a {@link Stage}.
+	 *
+	 * @param stage
+	 *            {@link Stage}
+	 * @param startNanos
+	 *            {@code long} As returned by {@link #start()}.
+	 * @param byteCount
+	 *            {@code long}
+	 */
+	public void stop(Stage stage, long startNanos, long byteCount)
+	{
+		if (enabled) record(stage, System.nanoTime() - startNanos, byteCount);
+	}
+
+	/**
+	 * Records an already measured duration and the number of bytes processed for a {@link Stage}.
+	 *
+	 * @param stage
+	 *            {@link Stage}
+	 * @param durationNanos
+	 *            {@code long}
+	 * @param byteCount
+	 *            {@code long}
+	 */
+	public void record(Stage stage, long durationNanos, long byteCount)
+	{
+		if (!enabled) return;
+		nanos[stage.ordinal()] += durationNanos;
+		bytes[stage.ordinal()] += byteCount;
+		histograms[stage.ordinal()].record(durationNanos);
+	}
+
+	/**
+	 * Adds a number of bytes processed for a {@link Stage} (without recording a duration).
+	 *
+	 * @param stage
+	 *            {@link Stage}
+	 * @param byteCount
+	 *            {@code long}
+	 */
+	public void addBytes(Stage stage, long byteCount)
+	{
+		if (enabled) bytes[stage.ordinal()] += byteCount;
+	}
+
+	/**
+	 * @param stage
+	 *            {@link Stage}
+	 * @return {@code long} The total number of nanoseconds recorded for the {@link Stage}.
+	 */
+	public long getNanos(Stage stage)
+	{
+		return nanos[stage.ordinal()];
+	}
+
+	/**
+	 * @param stage
+	 *            {@link Stage}
+	 * @return {@code long} The total number of bytes recorded for the {@link Stage}.
+	 */
+	public long getBytes(Stage stage)
+	{
+		return bytes[stage.ordinal()];
+	}
+
+	/**
+	 * @param stage
+	 *            {@link Stage}
+	 * @return {@link LatencyHistogram} The latencies recorded for the {@link Stage}.
+	 */
+	public LatencyHistogram getHistogram(Stage stage)
+	{
+		return histograms[stage.ordinal()];
+	}
+
+	/**
+	 * Increments the Hadoop counters with the recorded totals and reports the recorded latencies to the
+	 * {@link MetricsSink} defined by {@link PipelineProperties#METRICS_SINK}. Only {@link Stage}{@code s} for which
+	 * anything was recorded are published. Does nothing if disabled.
+	 *
+	 * @param context
+	 *            {@link TaskAttemptContext}
+	 * @throws IOException
+	 */
+	public void publish(TaskAttemptContext context) throws IOException
+	{
+		if (!enabled) return;
+
+		for (Stage stage : Stage.values())
+		{
+			if (getHistogram(stage).getCount() == 0) continue;
+			context.getCounter(Stage.COUNTER_GROUP, stage.getTimeCounterName()).increment(getNanos(stage) / 1000000);
+			context.getCounter(Stage.COUNTER_GROUP, stage.getBytesCounterName()).increment(getBytes(stage));
+		}
+
+		Configuration conf = context.getConfiguration();
+		MetricsSink sink = ReflectionUtils.newInstance(
+				conf.getClass(PipelineProperties.METRICS_SINK, FileMetricsSink.class, MetricsSink.class), conf);
+		sink.report(context, this);
+	}
+}
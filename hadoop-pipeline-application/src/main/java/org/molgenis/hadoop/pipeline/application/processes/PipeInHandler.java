@@ -23,6 +23,11 @@ public class PipeInHandler implements Runnable
 	 */
 	private byte[] inputData;
 
+	/**
+	 * The number of nanoseconds it took to write the data (set once writing is finished).
+	 */
+	private volatile long durationNanos;
+
 	/**
 	 * Initiates a new {@link PipeInHandler}.
 	 * 
@@ -35,12 +40,18 @@ public class PipeInHandler implements Runnable
 		this.inputData = requireNonNull(inputData);
 	}
 
+	long getDurationNanos()
+	{
+		return durationNanos;
+	}
+
 	/**
 	 * Writes the {@code inputData} to the {@code outputStream}.
 	 */
 	@Override
 	public void run()
 	{
+		long start = System.nanoTime();
 		try
 		{
 			IOUtils.write(inputData, outputStream);
@@ -52,6 +63,7 @@ public class PipeInHandler implements Runnable
 		finally
 		{
 			IOUtils.closeQuietly(outputStream);
+			durationNanos = System.nanoTime() - start;
 		}
 	}
 }
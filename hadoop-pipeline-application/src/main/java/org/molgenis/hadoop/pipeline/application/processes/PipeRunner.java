@@ -9,6 +9,8 @@ import java.io.OutputStream;
 import org.apache.commons.io.IOUtils;
 import org.molgenis.hadoop.pipeline.application.exceptions.UncheckedIOException;
 import org.molgenis.hadoop.pipeline.application.inputstreamdigestion.Sink;
+import org.molgenis.hadoop.pipeline.application.metrics.Stage;
+import org.molgenis.hadoop.pipeline.application.metrics.StageTimer;
 
 /**
  * Class for running a pipe of one or more {@link Process}{@code es}.
@@ -53,12 +55,32 @@ public class PipeRunner implements Runnable
 	 *            1 or more {@link Process}
 	 */
 	public static <T> void startPipeline(byte[] inputData, Sink<T> sink, Process... processes)
+	{
+		startPipeline(inputData, sink, new StageTimer(false), processes);
+	}
+
+	/**
+	 * Same as {@link #startPipeline(byte[], Sink, Process...)}, but additionally records the time it took to write the
+	 * {@code inputData} to the first {@link Process} as {@link Stage#BWA_STDIN_WRITE} in the {@link StageTimer}.
+	 * 
+	 * @param inputData
+	 *            {@code byte[]}
+	 * @param sink
+	 *            {@link Sink}
+	 * @param timer
+	 *            {@link StageTimer}
+	 * @param processes
+	 *            1 or more {@link Process}
+	 */
+	public static <T> void startPipeline(byte[] inputData, Sink<T> sink, StageTimer timer, Process... processes)
 	{
 		// Defines the first process.
 		Process process1 = processes[0];
 
 		// Initiates a stream to write the inputData to the first process.
-		new Thread(new PipeInHandler(process1.getOutputStream(), inputData)).start();
+		PipeInHandler pipeInHandler = new PipeInHandler(process1.getOutputStream(), inputData);
+		Thread pipeInThread = new Thread(pipeInHandler);
+		pipeInThread.start();
 
 		// If there are multiple processes in the pipeline, goes through these as well.
 		if (processes.length > 1)
@@ -81,6 +103,13 @@ public class PipeRunner implements Runnable
 		try
 		{
 			process1.waitFor();
+
+			// The writing thread is finished once the first process has read all data (or has exited).
+			if (timer.isEnabled())
+			{
+				pipeInThread.join();
+				timer.record(Stage.BWA_STDIN_WRITE, pipeInHandler.getDurationNanos(), inputData.length);
+			}
 		}
 		catch (InterruptedException e)
 		{
@@ -2,6 +2,7 @@ package org.molgenis.hadoop.pipeline.application.sequences;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
@@ -13,6 +14,26 @@ import htsjdk.samtools.SAMRecord;
  */
 public class AlignedRead
 {
+	/**
+	 * SAM flag: template having multiple segments in sequencing.
+	 */
+	private static final int FLAG_PAIRED = 0x1;
+
+	/**
+	 * SAM flag: segment unmapped.
+	 */
+	private static final int FLAG_UNMAPPED = 0x4;
+
+	/**
+	 * SAM flag: the first segment in the template.
+	 */
+	private static final int FLAG_FIRST_OF_PAIR = 0x40;
+
+	/**
+	 * SAM flags: secondary alignment (0x100) or supplementary alignment (0x800).
+	 */
+	private static final int FLAGS_SECONDARY_OR_SUPPLEMENTARY = 0x900;
+
 	/**
 	 * The {@link SAMRecord}{@code s} belonging to the aligned read.
 	 */
@@ -34,6 +55,18 @@ public class AlignedRead
 		return type != Type.INVALID;
 	}
 
+	/**
+	 * Returns whether the read is a split read, so whether it has secondary/supplementary records next to its primary
+	 * record (where BWA's {@code -M} marks the shorter parts of a split alignment as secondary). If
+	 * {@link #isValid()}{@code == false}, returns {@code false}.
+	 * 
+	 * @return {@code boolean}
+	 */
+	public boolean isSplit()
+	{
+		return type == Type.MULTIMAPPED || type == Type.MULTIMAPPED_SUPPLEMENTARY_ONLY;
+	}
+
 	/**
 	 * Returns the primary read only ({@link SAMRecord#isSecondaryOrSupplementary()}{@code == false}). If
 	 * {@link #isValid()}{@code == false}, returns {@code null} instead.
@@ -104,15 +137,72 @@ public class AlignedRead
 	}
 
 	/**
-	 * Orders the stored {@link SAMRecord}{@code s} using {@link #orderRecords()} and retrieves the
-	 * {@link AlignedRead.Type} of this {@link AlignedRead}. Call this method if the stored {@link List}{@code <}
-	 * {@link SAMRecord}{@code >} has been adjusted (outside of {@link AlignedRead#setRecords(List)}) after
-	 * initialization of the class instance.
+	 * Orders the stored {@link SAMRecord}{@code s} and retrieves the {@link AlignedRead.Type} of this
+	 * {@link AlignedRead}. Call this method if the stored {@link List}{@code <}{@link SAMRecord}{@code >} has been
+	 * adjusted (outside of {@link AlignedRead#setRecords(List)}) after initialization of the class instance.
 	 */
 	public void update()
 	{
-		orderRecords();
-		type = Type.determineType(records);
+		type = classifyAndOrderRecords();
+	}
+
+	/**
+	 * Determines the {@link AlignedRead.Type} from the flags of the {@link SAMRecord}{@code s} in a single pass and
+	 * orders the {@link SAMRecord}{@code s} so that the primary record is at the start. The {@link AlignedRead} is
+	 * {@link Type#INVALID} if it does not contain exactly one primary record, or if it contains records of both reads
+	 * from a read pair.
+	 * 
+	 * @return {@link AlignedRead.Type}
+	 */
+	private Type classifyAndOrderRecords()
+	{
+		int primaryCount = 0;
+		int primaryIndex = -1;
+		int primaryFlags = 0;
+		int firstOfPairCount = 0;
+		for (int i = 0; i < records.size(); i++)
+		{
+			int flags = records.get(i).getFlags();
+			if ((flags & FLAGS_SECONDARY_OR_SUPPLEMENTARY) == 0)
+			{
+				primaryCount++;
+				primaryIndex = i;
+				primaryFlags = flags;
+			}
+			if ((flags & FLAG_FIRST_OF_PAIR) != 0)
+			{
+				firstOfPairCount++;
+			}
+		}
+
+		// No or multiple primary records are invalid (keeps the ordering as done by orderRecords()).
+		if (primaryCount != 1)
+		{
+			orderRecords();
+			return Type.INVALID;
+		}
+
+		// Moves the primary record to the first position (keeping the order of the other records).
+		if (primaryIndex > 0)
+		{
+			Collections.rotate(records.subList(0, primaryIndex + 1), 1);
+		}
+
+		// If there is only 1 record, it can either be mapped or unmapped.
+		boolean unmapped = (primaryFlags & FLAG_UNMAPPED) != 0;
+		if (records.size() == 1)
+		{
+			return unmapped ? Type.UNMAPPED : Type.MAPPED;
+		}
+
+		// If the records belong to a read pair and include records from the other read, returns INVALID.
+		if ((primaryFlags & FLAG_PAIRED) != 0 && firstOfPairCount != 0 && firstOfPairCount != records.size())
+		{
+			return Type.INVALID;
+		}
+
+		// Primary and supplementary reads can be mapped or only the latter.
+		return unmapped ? Type.MULTIMAPPED_SUPPLEMENTARY_ONLY : Type.MULTIMAPPED;
 	}
 
 	/**
@@ -161,52 +251,6 @@ public class AlignedRead
 		 */
 		INVALID;
 
-		/**
-		 * Determines the {@link AlignedRead.Type} of a {@link List}{@code <}{@link SAMRecord}{@code >}. If the
-		 * {@link List}{@code <}{@link SAMRecord}{@code >} does not adhere to the requirements, returns
-		 * {@link AlignedRead.Type#INVALID}. Otherwise, returns one of the other possible types. Assumes the given
-		 * {@link List}{@code <}{@link SAMRecord}{@code >} is ordered using {@link AlignedRead#orderRecords()}.
-		 * 
-		 * @param records
-		 *            {@link List}{@code <}{@link SAMRecord}{@code >}
-		 * @return {@link AlignedRead.Type}
-		 */
-		private static Type determineType(List<SAMRecord> records)
-		{
-			// When list is empty, type is INVALID.
-			if (records.size() == 0) return INVALID;
-
-			// Retrieves first record and validates whether it is a primary record.
-			// As the input parameter 'records' is sorted using AlignedRead's orderRecords(),
-			// it can be assumed the primary record(s) are it the first position(s).
-			SAMRecord firstRecord = records.get(0);
-			if (firstRecord.isSecondaryOrSupplementary()) return INVALID;
-
-			// If there is only 1 record, it can either be mapped or unmapped.
-			if (records.size() == 1)
-			{
-				return firstRecord.getReadUnmappedFlag() ? UNMAPPED : MAPPED;
-			}
-			else // If there are multiple records:
-			{
-				// Validates that the second record is not a primary record.
-				if (!records.get(1).isSecondaryOrSupplementary()) return INVALID;
-
-				// If the records belong to a read pair read and includes records that are from the other read compared
-				// to the first record, returns INVALID.
-				if (firstRecord.getReadPairedFlag())
-				{
-					for (SAMRecord record : records)
-					{
-						if (record.getFirstOfPairFlag() != firstRecord.getFirstOfPairFlag()) return INVALID;
-					}
-				}
-
-				// Primary and supplementary reads can be mapped or only the latter.
-				return firstRecord.getReadUnmappedFlag() ? MULTIMAPPED_SUPPLEMENTARY_ONLY : MULTIMAPPED;
-			}
-		}
-
 		/**
 		 * Add +1 to the {@link TaskAttemptContext} counter of this {@link AlignedRead.Type} and returns itself as well.
 		 * 
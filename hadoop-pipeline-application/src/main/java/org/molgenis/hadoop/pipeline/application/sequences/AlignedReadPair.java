@@ -1,11 +1,8 @@
 package org.molgenis.hadoop.pipeline.application.sequences;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 
@@ -16,6 +13,16 @@ import htsjdk.samtools.SAMRecord;
  */
 public class AlignedReadPair
 {
+	/**
+	 * SAM tag storing the CIGAR string of the mate.
+	 */
+	public static final String MATE_CIGAR_TAG = "MC";
+
+	/**
+	 * SAM tag storing the mapping quality of the mate.
+	 */
+	public static final String MATE_MAPPING_QUALITY_TAG = "MQ";
+
 	/**
 	 * The first read from a read pair.
 	 */
@@ -85,6 +92,62 @@ public class AlignedReadPair
 		type = Type.determineType(first.getType(), second.getType());
 	}
 
+	/**
+	 * Returns whether the read pair is discordant, so whether the primary records of both reads are mapped but not as
+	 * a proper pair (for example on different contigs, or with an orientation or insert size the aligner did not
+	 * expect). If the {@link AlignedReadPair.Type} is {@link Type#INVALID}, returns {@code false}.
+	 * 
+	 * @return {@code boolean}
+	 */
+	public boolean isDiscordant()
+	{
+		if (type == Type.INVALID) return false;
+		SAMRecord firstPrimary = first.getPrimaryRecord();
+		SAMRecord secondPrimary = second.getPrimaryRecord();
+		return !firstPrimary.getReadUnmappedFlag() && !secondPrimary.getReadUnmappedFlag()
+				&& !firstPrimary.getProperPairFlag();
+	}
+
+	/**
+	 * Sets the mate information of all records (including the secondary/supplementary records) based on the primary
+	 * record of the other read, similar to what Picard's {@code FixMateInformation} does after name-sorting: the mate
+	 * reference and position, the mate unmapped and mate reverse strand flags, and the {@code MC} (mate CIGAR) and
+	 * {@code MQ} (mate mapping quality) tags (which are removed if the mate is unmapped). The insert sizes are kept as
+	 * set by the aligner. Does nothing if the {@link AlignedReadPair.Type} is {@link Type#INVALID} (as there is no
+	 * single primary record per read).
+	 */
+	public void setMateInformation()
+	{
+		if (type == Type.INVALID) return;
+		setMateInformation(first.getRecords(), second.getPrimaryRecord());
+		setMateInformation(second.getRecords(), first.getPrimaryRecord());
+	}
+
+	/**
+	 * Sets the mate information of {@link SAMRecord}{@code s} belonging to a single read.
+	 * 
+	 * @param records
+	 *            {@link List}{@code <}{@link SAMRecord}{@code >} The records of a read.
+	 * @param mate
+	 *            {@link SAMRecord} The primary record of the other read.
+	 */
+	private static void setMateInformation(List<SAMRecord> records, SAMRecord mate)
+	{
+		boolean mateUnmapped = mate.getReadUnmappedFlag();
+		String mateCigar = mateUnmapped ? null : mate.getCigarString();
+		Integer mateMappingQuality = mateUnmapped ? null : mate.getMappingQuality();
+		for (SAMRecord record : records)
+		{
+			record.setMateReferenceIndex(mate.getReferenceIndex());
+			record.setMateAlignmentStart(mate.getAlignmentStart());
+			record.setMateUnmappedFlag(mateUnmapped);
+			record.setMateNegativeStrandFlag(mate.getReadNegativeStrandFlag());
+			// Setting a null value removes the tag.
+			record.setAttribute(MATE_CIGAR_TAG, mateCigar);
+			record.setAttribute(MATE_MAPPING_QUALITY_TAG, mateMappingQuality);
+		}
+	}
+
 	/**
 	 * Splits a single {@link List} with {@link SAMRecord}{@code s} into two {@link AlignedRead}{@code s}. Uses
 	 * {@link SAMRecord#getFirstOfPairFlag()} to determine to which {@link AlignedRead} each {@link SAMRecord} belongs
@@ -191,22 +254,27 @@ public class AlignedReadPair
 		private AlignedRead.Type secondAlignedReadType;
 
 		/**
-		 * {@link Map} containing the available {@link AlignedReadPair.Type}{@code s} as values with as key their two
-		 * {@link AlignedRead.Type} as a {@link Set}.
+		 * Table containing the {@link AlignedReadPair.Type} for each combination of two {@link AlignedRead.Type}
+		 * ordinals (in either order). Combinations without an {@link AlignedReadPair.Type} are {@link #INVALID}.
 		 */
-		private static Map<Set<AlignedRead.Type>, AlignedReadPair.Type> typeMap = new HashMap<>();
+		private static final Type[][] typeTable = new Type[AlignedRead.Type.values().length][];
 
 		/**
-		 * Fills the {@code typeMap} with all available {@link AlignedReadPair.Type}{@code s}.
+		 * Fills the {@code typeTable} with all available {@link AlignedReadPair.Type}{@code s}.
 		 */
 		static
 		{
+			for (int i = 0; i < typeTable.length; i++)
+			{
+				typeTable[i] = new Type[typeTable.length];
+				Arrays.fill(typeTable[i], INVALID);
+			}
 			for (Type alignedReadPairType : Type.values())
 			{
-				Set<AlignedRead.Type> key = new HashSet<>();
-				key.add(alignedReadPairType.firstAlignedReadType);
-				key.add(alignedReadPairType.secondAlignedReadType);
-				typeMap.put(key, alignedReadPairType);
+				int first = alignedReadPairType.firstAlignedReadType.ordinal();
+				int second = alignedReadPairType.secondAlignedReadType.ordinal();
+				typeTable[first][second] = alignedReadPairType;
+				typeTable[second][first] = alignedReadPairType;
 			}
 		}
 
@@ -239,18 +307,9 @@ public class AlignedReadPair
 		 */
 		private static Type determineType(AlignedRead.Type first, AlignedRead.Type second)
 		{
-			// Generates a Set from the two AlignedRead.Types.
-			Set<AlignedRead.Type> readTypes = new HashSet<>();
-			readTypes.add(first);
-			readTypes.add(second);
-
-			// Tries to retrieve the AlignedReadPair.Type belonging to the two AlignedRead.Types.
-			Type match = typeMap.get(readTypes);
-			// If a match was found, returns match.
-			if (match != null) return match;
-			// If no matching type was found (including of only 1 AlignedRead.Type was INVALID and not both), returns
-			// INVALID.
-			else return INVALID;
+			// If no matching type is present (including if only 1 AlignedRead.Type was INVALID and not both), the table
+			// contains INVALID.
+			return typeTable[first.ordinal()][second.ordinal()];
 		}
 
 		/**
@@ -0,0 +1,183 @@
+package org.molgenis.hadoop.pipeline.application.sequences;
+
+import org.apache.hadoop.conf.Configuration;
+import org.molgenis.hadoop.pipeline.application.PipelineProperties;
+
+import htsjdk.samtools.SAMProgramRecord;
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Lossy binning of phred-scaled base qualities, where all qualities within a bin are replaced by a single value. This
+ * reduces the number of distinct quality values (and therefore the compressed size of the records) at the cost of
+ * quality resolution. The bins are defined as a comma-separated list of {@code <low>-<high>:<value>} entries (for
+ * example {@code 2-9:6,10-19:15}), or {@value #ILLUMINA_8_LEVEL} for the Illumina 8-level binning. Qualities outside
+ * of the bins (and missing qualities) are left unchanged. The binning itself is a single table lookup per quality.
+ */
+public class QualityBinner
+{
+	/**
+	 * The name of the Illumina 8-level binning (where the qualities {@code 0} and {@code 1} are not binned).
+	 */
+	public static final String ILLUMINA_8_LEVEL = "illumina8";
+
+	/**
+	 * The bins of {@link #ILLUMINA_8_LEVEL}.
+	 */
+	private static final String ILLUMINA_8_LEVEL_BINS = "2-9:6,10-19:15,20-24:22,25-29:27,30-34:33,35-39:37,40-93:40";
+
+	/**
+	 * The highest quality that can be stored in a SAM record ({@code ~} minus the offset of 33).
+	 */
+	public static final int MAX_QUALITY = 93;
+
+	/**
+	 * The id of the {@code @PG} header line describing the binning.
+	 */
+	public static final String PROGRAM_ID = "qualitybinning";
+
+	/**
+	 * The binned value of each quality (indexed by the unsigned quality byte).
+	 */
+	private byte[] table = new byte[256];
+
+	/**
+	 * The bins as given to the constructor.
+	 */
+	private String bins;
+
+	/**
+	 * Creates a new {@link QualityBinner}.
+	 *
+	 * @param bins
+	 *            {@link String} The bins (see {@link QualityBinner}).
+	 * @throws IllegalArgumentException
+	 *             If the bins are invalid or overlap.
+	 */
+	public QualityBinner(String bins) throws IllegalArgumentException
+	{
+		this.bins = bins.trim();
+		String definition = ILLUMINA_8_LEVEL.equals(this.bins) ? ILLUMINA_8_LEVEL_BINS : this.bins;
+
+		boolean[] binned = new boolean[table.length];
+		for (int i = 0; i < table.length; i++)
+		{
+			table[i] = (byte) i;
+		}
+		for (String bin : definition.split(","))
+		{
+			int low;
+			int high;
+			int value;
+			try
+			{
+				int dash = bin.indexOf('-');
+				int colon = bin.indexOf(':');
+				low = Integer.parseInt(bin.substring(0, dash).trim());
+				high = Integer.parseInt(bin.substring(dash + 1, colon).trim());
+				value = Integer.parseInt(bin.substring(colon + 1).trim());
+			}
+			catch (IndexOutOfBoundsException | NumberFormatException e)
+			{
+				throw new IllegalArgumentException(
+						"Invalid quality bin \"" + bin + "\", expected <low>-<high>:<value>.");
+			}
+			if (low < 0 || high > MAX_QUALITY || low > high || value < 0 || value > MAX_QUALITY)
+			{
+				throw new IllegalArgumentException(
+						"Invalid quality bin \"" + bin + "\", qualities must be between 0 and " + MAX_QUALITY + ".");
+			}
+			for (int quality = low; quality <= high; quality++)
+			{
+				if (binned[quality])
+				{
+					throw new IllegalArgumentException("Quality bin \"" + bin + "\" overlaps with another bin.");
+				}
+				binned[quality] = true;
+				table[quality] = (byte) value;
+			}
+		}
+	}
+
+	/**
+	 * Creates a {@link QualityBinner} using the bins set as {@link PipelineProperties#QUALITY_BINNING}.
+	 *
+	 * @param conf
+	 *            {@link Configuration}
+	 * @return {@link QualityBinner}, or {@code null} if no bins are set.
+	 * @throws IllegalArgumentException
+	 *             If the bins are invalid.
+	 */
+	public static QualityBinner create(Configuration conf) throws IllegalArgumentException
+	{
+		String bins = conf.get(PipelineProperties.QUALITY_BINNING);
+		if (bins == null || bins.trim().isEmpty()) return null;
+		return new QualityBinner(bins);
+	}
+
+	public String getBins()
+	{
+		return bins;
+	}
+
+	/**
+	 * Returns the binned value of a single quality.
+	 *
+	 * @param quality
+	 *            {@code int}
+	 * @return {@code int}
+	 */
+	public int bin(int quality)
+	{
+		return table[quality & 0xFF] & 0xFF;
+	}
+
+	/**
+	 * Bins the qualities of a {@code byte[]} in place.
+	 *
+	 * @param qualities
+	 *            {@code byte[]} Phred-scaled qualities (without the offset of 33).
+	 * @param offset
+	 *            {@code int}
+	 * @param length
+	 *            {@code int}
+	 */
+	public void bin(byte[] qualities, int offset, int length)
+	{
+		for (int i = offset; i < offset + length; i++)
+		{
+			qualities[i] = table[qualities[i] & 0xFF];
+		}
+	}
+
+	/**
+	 * Bins the base qualities of a {@link SAMRecord} in place.
+	 *
+	 * @param record
+	 *            {@link SAMRecord}
+	 */
+	public void bin(SAMRecord record)
+	{
+		byte[] qualities = record.getBaseQualities();
+		bin(qualities, 0, qualities.length);
+		record.setBaseQualities(qualities);
+	}
+
+	/**
+	 * Creates the {@code @PG} header line describing the binning.
+	 *
+	 * @param previousProgram
+	 *            {@link SAMProgramRecord} The program that generated the binned qualities (or {@code null}).
+	 * @return {@link SAMProgramRecord}
+	 */
+	public SAMProgramRecord createProgramRecord(SAMProgramRecord previousProgram)
+	{
+		SAMProgramRecord program = new SAMProgramRecord(PROGRAM_ID);
+		program.setProgramName("hadoop-pipeline");
+		program.setCommandLine(PipelineProperties.QUALITY_BINNING + "=" + bins);
+		if (previousProgram != null)
+		{
+			program.setPreviousProgramGroupId(previousProgram.getId());
+		}
+		return program;
+	}
+}
@@ -0,0 +1,358 @@
+package org.molgenis.hadoop.pipeline.application.writables;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import org.seqdoop.hadoop_bam.LazyBAMRecordFactory;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * {@link Writable} storing one or more {@link SAMRecord}{@code s} as their raw BAM-encoded bytes (each including the
+ * leading {@code block_size} field, so the records are simply concatenated). Serialization simply copies these bytes,
+ * so no {@link SAMRecord} is generated during sorting/merging. The fields needed for sorting and pairing can be
+ * retrieved directly from the bytes, while the full {@link SAMRecord} is only decoded when {@link #get()} is called. As
+ * the bytes adhere to the BAM specification, they can be written directly to a BGZF-compressed BAM file.
+ */
+public class BamRecordWritable implements Writable
+{
+	// Byte offsets of the fixed-length fields within a BAM-encoded record (including block_size).
+	private static final int REFERENCE_INDEX_OFFSET = 4;
+	private static final int POSITION_OFFSET = 8;
+	private static final int READ_NAME_LENGTH_OFFSET = 12;
+	private static final int FLAGS_OFFSET = 18;
+	private static final int READ_NAME_OFFSET = 36;
+
+	/**
+	 * The BAM-encoded record(s). Only the first {@link #length} bytes are in use.
+	 */
+	private byte[] bytes = new byte[0];
+
+	/**
+	 * The number of bytes in use within {@link #bytes}.
+	 */
+	private int length = 0;
+
+	/**
+	 * The decoded first {@link SAMRecord} (only available after {@link #get()} was called).
+	 */
+	private SAMRecord record;
+
+	/**
+	 * Stream used for BAM-encoding a {@link SAMRecord} (reused between calls to {@link #set(SAMRecord)}).
+	 */
+	private ExposedByteArrayOutputStream encodingStream;
+
+	/**
+	 * Codec used for BAM-encoding a {@link SAMRecord} into {@link #encodingStream}.
+	 */
+	private BAMRecordCodec encodingCodec;
+
+	/**
+	 * Create an empty {@link BamRecordWritable} instance. Otherwise a Hadoop job will throw the following
+	 * {@link Exception}:
+	 *
+	 * <pre>
+	 * java.lang.NoSuchMethodException: org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable.&lt;init&gt;()
+	 * </pre>
+	 */
+	public BamRecordWritable()
+	{
+	}
+
+	/**
+	 * Returns the BAM-encoded record(s). Only the first {@link #getLength()} bytes are valid.
+	 *
+	 * @return {@code byte[]}
+	 */
+	public byte[] getBytes()
+	{
+		return bytes;
+	}
+
+	/**
+	 * Returns the number of valid bytes in {@link #getBytes()}.
+	 *
+	 * @return {@code int}
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+
+	/**
+	 * BAM-encodes the given {@link SAMRecord} and stores it (replacing any stored records).
+	 *
+	 * @param record
+	 *            {@link SAMRecord}
+	 */
+	public void set(SAMRecord record)
+	{
+		clear();
+		append(record);
+		this.record = record;
+	}
+
+	/**
+	 * Stores a copy of already BAM-encoded record(s) (including the {@code block_size} field), replacing any stored
+	 * records.
+	 *
+	 * @param source
+	 *            {@code byte[]}
+	 * @param offset
+	 *            {@code int}
+	 * @param length
+	 *            {@code int}
+	 */
+	public void set(byte[] source, int offset, int length)
+	{
+		clear();
+		append(source, offset, length);
+	}
+
+	/**
+	 * BAM-encodes the given {@link SAMRecord} and adds it behind the already stored records.
+	 *
+	 * @param record
+	 *            {@link SAMRecord}
+	 */
+	public void append(SAMRecord record)
+	{
+		if (encodingCodec == null)
+		{
+			encodingStream = new ExposedByteArrayOutputStream();
+			encodingCodec = new BAMRecordCodec(null);
+			encodingCodec.setOutputStream(encodingStream);
+		}
+		encodingStream.reset();
+		encodingCodec.encode(record);
+		append(encodingStream.getBuffer(), 0, encodingStream.size());
+	}
+
+	/**
+	 * Adds a copy of already BAM-encoded record(s) (including the {@code block_size} field) behind the already stored
+	 * records.
+	 *
+	 * @param source
+	 *            {@code byte[]}
+	 * @param offset
+	 *            {@code int}
+	 * @param length
+	 *            {@code int}
+	 */
+	public void append(byte[] source, int offset, int length)
+	{
+		ensureCapacity(this.length + length);
+		System.arraycopy(source, offset, bytes, this.length, length);
+		this.length += length;
+	}
+
+	/**
+	 * Removes all stored records (while keeping the allocated buffer for reuse).
+	 */
+	public void clear()
+	{
+		length = 0;
+		record = null;
+	}
+
+	/**
+	 * Returns the (first) stored record as {@link SAMRecord}. Note that the {@link SAMRecord} does not have a
+	 * {@link htsjdk.samtools.SAMFileHeader}, so any header-dependent information (such as
+	 * {@link SAMRecord#getReferenceName()}) is only available after setting one.
+	 *
+	 * @return {@link SAMRecord}
+	 */
+	public SAMRecord get()
+	{
+		if (record == null && length > 0)
+		{
+			// The lazy factory does not resolve the reference names, which would fail without a header.
+			BAMRecordCodec codec = new BAMRecordCodec(null, new LazyBAMRecordFactory());
+			codec.setInputStream(new ByteArrayInputStream(bytes, 0, length));
+			record = codec.decode();
+		}
+		return record;
+	}
+
+	/**
+	 * Retrieves the reference sequence index of the first record directly from the BAM-encoded bytes.
+	 *
+	 * @return {@code int}
+	 */
+	public int getReferenceIndex()
+	{
+		return getReferenceIndex(0);
+	}
+
+	/**
+	 * Retrieves the reference sequence index of the record starting at {@code offset} directly from the BAM-encoded
+	 * bytes.
+	 *
+	 * @param offset
+	 *            {@code int}
+	 * @return {@code int}
+	 */
+	public int getReferenceIndex(int offset)
+	{
+		return readInt(offset + REFERENCE_INDEX_OFFSET);
+	}
+
+	/**
+	 * Retrieves the 1-based alignment start of the first record directly from the BAM-encoded bytes.
+	 *
+	 * @return {@code int}
+	 */
+	public int getAlignmentStart()
+	{
+		return getAlignmentStart(0);
+	}
+
+	/**
+	 * Retrieves the 1-based alignment start of the record starting at {@code offset} directly from the BAM-encoded
+	 * bytes.
+	 *
+	 * @param offset
+	 *            {@code int}
+	 * @return {@code int}
+	 */
+	public int getAlignmentStart(int offset)
+	{
+		return readInt(offset + POSITION_OFFSET) + 1;
+	}
+
+	/**
+	 * Retrieves the number of bytes (including the {@code block_size} field) of the record starting at
+	 * {@code offset}. The next record (if present) starts directly behind it.
+	 *
+	 * @param offset
+	 *            {@code int}
+	 * @return {@code int}
+	 */
+	public int getRecordLength(int offset)
+	{
+		return readInt(offset) + 4;
+	}
+
+	/**
+	 * Retrieves the flags of the first record directly from the BAM-encoded bytes.
+	 *
+	 * @return {@code int}
+	 */
+	public int getFlags()
+	{
+		return (bytes[FLAGS_OFFSET] & 0xFF) | (bytes[FLAGS_OFFSET + 1] & 0xFF) << 8;
+	}
+
+	/**
+	 * Retrieves the read name of the first record directly from the BAM-encoded bytes.
+	 *
+	 * @return {@link String}
+	 */
+	public String getReadName()
+	{
+		// Excludes the trailing null character.
+		int readNameLength = (bytes[READ_NAME_LENGTH_OFFSET] & 0xFF) - 1;
+		return new String(bytes, READ_NAME_OFFSET, readNameLength, StandardCharsets.US_ASCII);
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException
+	{
+		// The total length is needed as multiple records can be stored.
+		WritableUtils.writeVInt(out, length);
+		out.write(bytes, 0, length);
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException
+	{
+		int newLength = WritableUtils.readVInt(in);
+		if (newLength < 0)
+		{
+			throw new IOException("Invalid BAM records length: " + newLength);
+		}
+		clear();
+		ensureCapacity(newLength);
+		in.readFully(bytes, 0, newLength);
+		length = newLength;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "BamRecordWritable [length=" + length + (length > 0 ? ", readName=" + getReadName() : "") + "]";
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int result = 1;
+		for (int i = 0; i < length; i++)
+		{
+			result = 31 * result + bytes[i];
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj) return true;
+		if (obj == null) return false;
+		if (getClass() != obj.getClass()) return false;
+		BamRecordWritable other = (BamRecordWritable) obj;
+		if (length != other.length) return false;
+		for (int i = 0; i < length; i++)
+		{
+			if (bytes[i] != other.bytes[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads a little-endian {@code int} from {@link #bytes}.
+	 *
+	 * @param offset
+	 *            {@code int}
+	 * @return {@code int}
+	 */
+	private int readInt(int offset)
+	{
+		return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF) << 16
+				| (bytes[offset + 3] & 0xFF) << 24;
+	}
+
+	/**
+	 * Makes sure {@link #bytes} can store at least {@code capacity} bytes (keeping the current content).
+	 *
+	 * @param capacity
+	 *            {@code int}
+	 */
+	private void ensureCapacity(int capacity)
+	{
+		if (bytes.length < capacity)
+		{
+			bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+		}
+	}
+
+	/**
+	 * {@link ByteArrayOutputStream} that allows direct access to its buffer.
+	 */
+	private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream
+	{
+		byte[] getBuffer()
+		{
+			return buf;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package org.molgenis.hadoop.pipeline.application.writables;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.BitSet;
+
+import org.apache.hadoop.io.WritableUtils;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.RegionClusters;
+
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * {@link BamRecordWritable} that additionally stores a bitmap defining to which {@link Region}{@code s} of a cluster
+ * (see {@link RegionClusters}) the record belongs. This allows a record to be shuffled only once per cluster instead
+ * of once per {@link Region}. An empty bitmap means the record belongs to the key {@link Region} itself.
+ */
+public class RegionBitmapBamRecordWritable extends BamRecordWritable
+{
+	/**
+	 * The indices (within the cluster) of the {@link Region}{@code s} the record belongs to.
+	 */
+	private BitSet regions = new BitSet();
+
+	/**
+	 * Create an empty {@link RegionBitmapBamRecordWritable} instance. Otherwise a Hadoop job will throw the following
+	 * {@link Exception}:
+	 *
+	 * <pre>
+	 * java.lang.NoSuchMethodException: org.molgenis.hadoop.pipeline.application.writables.RegionBitmapBamRecordWritable.&lt;init&gt;()
+	 * </pre>
+	 */
+	public RegionBitmapBamRecordWritable()
+	{
+	}
+
+	public BitSet getRegions()
+	{
+		return regions;
+	}
+
+	/**
+	 * BAM-encodes the given {@link SAMRecord} and stores it together with a copy of the {@code regions} bitmap.
+	 *
+	 * @param record
+	 *            {@link SAMRecord}
+	 * @param regions
+	 *            {@link BitSet}
+	 */
+	public void set(SAMRecord record, BitSet regions)
+	{
+		set(record);
+		this.regions.clear();
+		this.regions.or(regions);
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException
+	{
+		long[] words = regions.toLongArray();
+		WritableUtils.writeVInt(out, words.length);
+		for (long word : words)
+		{
+			out.writeLong(word);
+		}
+		super.write(out);
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException
+	{
+		int nWords = WritableUtils.readVInt(in);
+		if (nWords < 0)
+		{
+			throw new IOException("Invalid region bitmap length: " + nWords);
+		}
+		long[] words = new long[nWords];
+		for (int i = 0; i < nWords; i++)
+		{
+			words[i] = in.readLong();
+		}
+		regions = BitSet.valueOf(words);
+		super.readFields(in);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "RegionBitmapBamRecordWritable [regions=" + regions + ", " + super.toString() + "]";
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return 31 * super.hashCode() + regions.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (!super.equals(obj)) return false;
+		return regions.equals(((RegionBitmapBamRecordWritable) obj).regions);
+	}
+}
@@ -13,8 +13,9 @@ import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
 import htsjdk.samtools.SAMRecord;
 
 /**
- * {@link WritableComparable} storing a {@link Region} (natural key) together with the {@code int} from
- * {@link SAMRecord#getStart()} that together can be used as composite key for a secondary sort.
+ * {@link WritableComparable} storing a {@link Region} (natural key, optionally together with a sample id, see
+ * {@link RegionWritable}) together with the {@code int} from {@link SAMRecord#getStart()} that together can be used as
+ * composite key for a secondary sort.
  */
 public class RegionWithSortableSamRecordWritable implements WritableComparable<RegionWithSortableSamRecordWritable>
 {
@@ -83,15 +84,70 @@ public class RegionWithSortableSamRecordWritable implements WritableComparable<R
 	 * @throws IllegalArgumentException
 	 */
 	public RegionWithSortableSamRecordWritable(Region region, SAMRecord record) throws IllegalArgumentException
+	{
+		this(region, "", record);
+	}
+
+	/**
+	 * Same as {@link #RegionWithSortableSamRecordWritable(Region, SAMRecord)}, but with the sample id as part of the
+	 * natural key.
+	 * 
+	 * @param region
+	 *            {@link Region}
+	 * @param sample
+	 *            {@link String} The sample id (an empty {@link String} if the {@link Region} is shared by all
+	 *            samples).
+	 * @param record
+	 *            {@link SAMRecord}
+	 * @throws IllegalArgumentException
+	 */
+	public RegionWithSortableSamRecordWritable(Region region, String sample, SAMRecord record)
+			throws IllegalArgumentException
 	{
 		requireNonNull(region);
 		requireNonNull(record.getReferenceIndex());
 		requireNonNull(record.getStart());
-		this.regionWritable = new RegionWritable(region);
+		this.regionWritable = new RegionWritable(region, sample);
 		this.samRecordReferenceIndex = record.getReferenceIndex();
 		this.samRecordStart = record.getStart();
 	}
 
+	/**
+	 * Store a {@link Region} as {@link Writable} together with the reference index and start position of a
+	 * (BAM-encoded) record. The {@link Region} will function as the natural key, while a combination of the
+	 * {@link Region} with the reference index and start position will function as composite key.
+	 * 
+	 * @param region
+	 *            {@link Region}
+	 * @param samRecordReferenceIndex
+	 *            {@code int}
+	 * @param samRecordStart
+	 *            {@code int}
+	 */
+	public RegionWithSortableSamRecordWritable(Region region, int samRecordReferenceIndex, int samRecordStart)
+	{
+		this(new RegionWritable(region), samRecordReferenceIndex, samRecordStart);
+	}
+
+	/**
+	 * Store a {@link RegionWritable} (which can include a sample id) together with the reference index and start
+	 * position of a (BAM-encoded) record.
+	 * 
+	 * @param regionWritable
+	 *            {@link RegionWritable}
+	 * @param samRecordReferenceIndex
+	 *            {@code int}
+	 * @param samRecordStart
+	 *            {@code int}
+	 */
+	public RegionWithSortableSamRecordWritable(RegionWritable regionWritable, int samRecordReferenceIndex,
+			int samRecordStart)
+	{
+		this.regionWritable = requireNonNull(regionWritable);
+		this.samRecordReferenceIndex = samRecordReferenceIndex;
+		this.samRecordStart = samRecordStart;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -11,7 +11,8 @@ import org.apache.hadoop.io.WritableComparable;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
 
 /**
- * {@link Writable} for storing a {@link Region}.
+ * {@link Writable} for storing a {@link Region}, optionally together with the id of the sample it belongs to (when
+ * multiple samples are processed as a batch, so each sample gets its own output files).
  */
 public class RegionWritable implements WritableComparable<RegionWritable>
 {
@@ -20,11 +21,21 @@ public class RegionWritable implements WritableComparable<RegionWritable>
 	 */
 	private Region region;
 
+	/**
+	 * Stores the sample id (an empty {@link String} if the {@link Region} is shared by all samples).
+	 */
+	private String sample = "";
+
 	public Region get()
 	{
 		return region;
 	}
 
+	public String getSample()
+	{
+		return sample;
+	}
+
 	/**
 	 * Create an empty {@link RegionWritable} instance. Otherwise a Hadoop job will throw the following
 	 * {@link Exception}:
@@ -49,10 +60,25 @@ public class RegionWritable implements WritableComparable<RegionWritable>
 		this.region = requireNonNull(region);
 	}
 
+	/**
+	 * Store a {@link Region} of a single sample as {@link Writable}.
+	 * 
+	 * @param region
+	 *            {@link Region}
+	 * @param sample
+	 *            {@link String} The sample id (an empty {@link String} if the {@link Region} is shared by all
+	 *            samples).
+	 */
+	public RegionWritable(Region region, String sample)
+	{
+		this(region);
+		this.sample = requireNonNull(sample);
+	}
+
 	@Override
 	public String toString()
 	{
-		return "RegionWritable [region=" + region + "]";
+		return "RegionWritable [region=" + region + ", sample=" + sample + "]";
 	}
 
 	@Override
@@ -61,6 +87,7 @@ public class RegionWritable implements WritableComparable<RegionWritable>
 		out.writeUTF(region.getContig());
 		out.writeInt(region.getStart());
 		out.writeInt(region.getEnd());
+		out.writeUTF(sample);
 	}
 
 	@Override
@@ -70,12 +97,15 @@ public class RegionWritable implements WritableComparable<RegionWritable>
 		int start = in.readInt();
 		int end = in.readInt();
 		region = new Region(name, start, end);
+		sample = in.readUTF();
 	}
 
 	@Override
 	public int compareTo(RegionWritable o)
 	{
-		return region.compareTo(o.region);
+		int c = sample.compareTo(o.sample);
+		if (c == 0) c = region.compareTo(o.region);
+		return c;
 	}
 
 	@Override
@@ -84,6 +114,8 @@ public class RegionWritable implements WritableComparable<RegionWritable>
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + ((region == null) ? 0 : region.hashCode());
+		// Keeps the hash code (and therefore the partitioning) the same as before samples were added.
+		if (!sample.isEmpty()) result = prime * result + sample.hashCode();
 		return result;
 	}
 
@@ -99,6 +131,7 @@ public class RegionWritable implements WritableComparable<RegionWritable>
 			if (other.region != null) return false;
 		}
 		else if (!region.equals(other.region)) return false;
+		if (!sample.equals(other.sample)) return false;
 		return true;
 	}
 }
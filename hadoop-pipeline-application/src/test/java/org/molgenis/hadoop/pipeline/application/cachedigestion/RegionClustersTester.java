@@ -0,0 +1,65 @@
+package org.molgenis.hadoop.pipeline.application.cachedigestion;
+
+import java.util.Arrays;
+
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link RegionClusters}.
+ */
+public class RegionClustersTester extends Tester
+{
+	/**
+	 * The clusters to be tested.
+	 */
+	private RegionClusters clusters;
+
+	@BeforeClass
+	public void beforeClass()
+	{
+		ContigRegionsMap contigRegionsMap = new ContigRegionsMapBuilder()
+				.addAll(Arrays.asList(new Region("1", 100, 200), new Region("1", 150, 300), new Region("1", 160, 170),
+						new Region("1", 300, 400), new Region("1", 401, 500), new Region("2", 100, 200)))
+				.build();
+		clusters = new RegionClusters(contigRegionsMap);
+	}
+
+	/**
+	 * Tests whether (indirectly) overlapping regions are part of the same cluster.
+	 */
+	@Test
+	public void testOverlappingRegionsClustered()
+	{
+		Region cluster = new Region("1", 100, 400);
+		Assert.assertEquals(clusters.size(), 3);
+		Assert.assertEquals(clusters.getCluster(new Region("1", 100, 200)), cluster);
+		Assert.assertEquals(clusters.getCluster(new Region("1", 300, 400)), cluster);
+		Assert.assertEquals(clusters.getClusterRegions(cluster), Arrays.asList(new Region("1", 100, 200),
+				new Region("1", 150, 300), new Region("1", 160, 170), new Region("1", 300, 400)));
+		Assert.assertEquals(clusters.getIndexInCluster(new Region("1", 160, 170)), 2);
+	}
+
+	/**
+	 * Tests whether adjacent (but non-overlapping) regions and regions on different contigs are separate clusters.
+	 */
+	@Test
+	public void testNonOverlappingRegionsSeparate()
+	{
+		Assert.assertEquals(clusters.getCluster(new Region("1", 401, 500)), new Region("1", 401, 500));
+		Assert.assertEquals(clusters.getIndexInCluster(new Region("1", 401, 500)), 0);
+		Assert.assertEquals(clusters.getCluster(new Region("2", 100, 200)), new Region("2", 100, 200));
+	}
+
+	/**
+	 * Tests whether an unknown region is not part of any cluster.
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testUnknownRegion()
+	{
+		Assert.assertNull(clusters.getCluster(Region.unmapped()));
+		clusters.getIndexInCluster(Region.unmapped());
+	}
+}
@@ -0,0 +1,100 @@
+package org.molgenis.hadoop.pipeline.application.cachedigestion;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link RegionCoalescer}.
+ */
+public class RegionCoalescerTester extends Tester
+{
+	/**
+	 * The {@link Region}{@code s} to be merged.
+	 */
+	private ContigRegionsMap targets;
+
+	@BeforeClass
+	public void beforeClass()
+	{
+		targets = new ContigRegionsMapBuilder().add(new Region("1", 100, 200)).add(new Region("1", 251, 300))
+				.add(new Region("1", 400, 450)).add(new Region("1", 2000, 2100)).add(new Region("2", 1, 5000))
+				.add(new Region("2", 5001, 5010)).build();
+	}
+
+	/**
+	 * Tests whether {@link Region}{@code s} are only merged when the gap between them is small enough.
+	 */
+	@Test
+	public void testMaxGap()
+	{
+		Map<Region, Region> plan = new RegionCoalescer(10000, 99).plan(targets);
+
+		Assert.assertEquals(plan.get(new Region("1", 100, 200)), new Region("1", 100, 450));
+		Assert.assertEquals(plan.get(new Region("1", 251, 300)), new Region("1", 100, 450));
+		Assert.assertEquals(plan.get(new Region("1", 400, 450)), new Region("1", 100, 450));
+		Assert.assertEquals(plan.get(new Region("1", 2000, 2100)), new Region("1", 2000, 2100));
+		Assert.assertEquals(plan.get(new Region("2", 5001, 5010)), new Region("2", 1, 5010));
+
+		ContigRegionsMap superRegions = RegionCoalescer.getSuperRegions(plan);
+		Assert.assertEquals(superRegions.get("1"),
+				Arrays.asList(new Region("1", 100, 450), new Region("1", 2000, 2100)));
+		Assert.assertEquals(superRegions.get("2"), Arrays.asList(new Region("2", 1, 5010)));
+	}
+
+	/**
+	 * Tests whether super-regions do not exceed the maximum size, except for a single {@link Region} that is already
+	 * larger.
+	 */
+	@Test
+	public void testMaxSize()
+	{
+		Map<Region, Region> plan = new RegionCoalescer(250, 10000).plan(targets);
+
+		Assert.assertEquals(plan.get(new Region("1", 100, 200)), new Region("1", 100, 300));
+		Assert.assertEquals(plan.get(new Region("1", 251, 300)), new Region("1", 100, 300));
+		Assert.assertEquals(plan.get(new Region("1", 400, 450)), new Region("1", 400, 450));
+		Assert.assertEquals(plan.get(new Region("2", 1, 5000)), new Region("2", 1, 5000));
+		Assert.assertEquals(plan.get(new Region("2", 5001, 5010)), new Region("2", 5001, 5010));
+	}
+
+	/**
+	 * Tests whether the manifest contains each target in BED-format with the name of its super-region.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testWriteManifest() throws IOException
+	{
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		RegionCoalescer.writeManifest(new RegionCoalescer(10000, 0).plan(targets), outputStream);
+
+		Assert.assertEquals(outputStream.toString("UTF-8"),
+				"1\t99\t200\t1-100-200\n" + "1\t250\t300\t1-251-300\n" + "1\t399\t450\t1-400-450\n"
+						+ "1\t1999\t2100\t1-2000-2100\n" + "2\t0\t5000\t2-1-5010\n" + "2\t5000\t5010\t2-1-5010\n");
+	}
+
+	/**
+	 * Tests whether a maximum size of 0 is refused.
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidMaxSize()
+	{
+		new RegionCoalescer(0, 0);
+	}
+
+	/**
+	 * Tests whether a negative maximum gap is refused.
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidMaxGap()
+	{
+		new RegionCoalescer(1000, -1);
+	}
+}
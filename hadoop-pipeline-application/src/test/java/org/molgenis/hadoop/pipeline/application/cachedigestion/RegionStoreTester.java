@@ -0,0 +1,123 @@
+package org.molgenis.hadoop.pipeline.application.cachedigestion;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.RegionStore.ContigRegions;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link RegionStore}.
+ */
+public class RegionStoreTester extends Tester
+{
+	/**
+	 * The {@link Region}{@code s} to be stored.
+	 */
+	private ContigRegionsMap contigRegionsMap;
+
+	/**
+	 * The region store file.
+	 */
+	private File file;
+
+	@BeforeClass
+	public void beforeClass()
+	{
+		contigRegionsMap = new ContigRegionsMapBuilder().add(new Region("1", 300, 400)).add(new Region("1", 100, 200))
+				.add(new Region("1", 150, 250)).add(new Region("X", 1, 5000)).build();
+	}
+
+	@BeforeMethod
+	public void beforeMethod() throws IOException
+	{
+		file = File.createTempFile("regions", ".bin");
+	}
+
+	@AfterMethod
+	public void afterMethod()
+	{
+		file.delete();
+	}
+
+	/**
+	 * Tests whether a memory-mapped region store contains the sorted {@link Region}{@code s} of each contig.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testWriteAndMap() throws IOException
+	{
+		try (OutputStream outputStream = new FileOutputStream(file))
+		{
+			RegionStore.write(contigRegionsMap, outputStream);
+		}
+		RegionStore regionStore = RegionStore.map(file);
+
+		Assert.assertEquals(regionStore.numberOfRegions(), 4);
+		ContigRegions regions = regionStore.get("1");
+		Assert.assertEquals(regions.size(), 3);
+		Assert.assertEquals(regions.getStart(1), 150);
+		Assert.assertEquals(regions.getEnd(1), 250);
+		Assert.assertEquals(Arrays.asList(regions.getRegion(0), regions.getRegion(1), regions.getRegion(2)),
+				contigRegionsMap.get("1"));
+		Assert.assertEquals(regionStore.get("X").getRegion(0), new Region("X", 1, 5000));
+		Assert.assertNull(regionStore.get("2"));
+	}
+
+	/**
+	 * Tests whether a region store can be converted back to a {@link ContigRegionsMap}.
+	 */
+	@Test
+	public void testToContigRegionsMap()
+	{
+		ContigRegionsMap actual = RegionStore.create(contigRegionsMap).toContigRegionsMap();
+
+		Assert.assertEquals(actual.keySet(), contigRegionsMap.keySet());
+		for (String contig : contigRegionsMap.keySet())
+		{
+			Assert.assertEquals(actual.get(contig), contigRegionsMap.get(contig));
+		}
+	}
+
+	/**
+	 * Tests whether a truncated region store file is refused.
+	 *
+	 * @throws IOException
+	 */
+	@Test(expectedExceptions = IOException.class)
+	public void testTruncatedFile() throws IOException
+	{
+		try (OutputStream outputStream = new FileOutputStream(file))
+		{
+			RegionStore.write(contigRegionsMap, outputStream);
+		}
+		new FileOutputStream(file, true).getChannel().truncate(file.length() - 4).close();
+
+		RegionStore.map(file);
+	}
+
+	/**
+	 * Tests whether a file that is not a region store is refused.
+	 *
+	 * @throws IOException
+	 */
+	@Test(expectedExceptions = IOException.class)
+	public void testInvalidFile() throws IOException
+	{
+		try (OutputStream outputStream = new FileOutputStream(file))
+		{
+			outputStream.write("1\t99\t200\n".getBytes("UTF-8"));
+		}
+
+		RegionStore.map(file);
+	}
+}
@@ -0,0 +1,76 @@
+package org.molgenis.hadoop.pipeline.application.cachedigestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link SampleLookup}.
+ */
+public class SampleLookupTester extends Tester
+{
+	/**
+	 * The samples used for creating a {@link SampleLookup}.
+	 */
+	private List<Sample> samples;
+
+	@BeforeClass
+	public void beforeClass()
+	{
+		samples = new ArrayList<Sample>();
+		samples.add(new Sample("sample1", "SN163", 150616, 648, "AHKYLMADXX", 1));
+		samples.add(new Sample("sample2", "SN163", 150616, 648, "AHKYLMADXX", 2));
+		samples.add(new Sample("sample3", "SN163", 150702, 49, "BHJYNKADXX", 5));
+	}
+
+	/**
+	 * Tests whether input splits are matched to the sample of their parent directory.
+	 */
+	@Test
+	public void testGet()
+	{
+		SampleLookup lookup = new SampleLookup(samples);
+
+		Assert.assertEquals(lookup.get("hdfs://host:8020/input/150616_SN163_0648_AHKYLMADXX_L1/halvade_0_0.fq.gz"),
+				samples.get(0));
+		Assert.assertEquals(lookup.get("/input/150616_SN163_0648_AHKYLMADXX_L2/halvade_1_0.fq.gz"), samples.get(1));
+		Assert.assertEquals(lookup.get("/input/150702_SN163_0049_BHJYNKADXX_L5/halvade_0_0.fq.gz"), samples.get(2));
+	}
+
+	/**
+	 * Tests whether an input split in an unknown directory (or directly in the root directory) has no sample.
+	 */
+	@Test
+	public void testGetUnknown()
+	{
+		SampleLookup lookup = new SampleLookup(samples);
+
+		Assert.assertNull(lookup.get("/input/150616_SN163_0648_AHKYLMADXX_L3/halvade_0_0.fq.gz"));
+		Assert.assertNull(lookup.get("/input/150616_SN163_0648_AHKYLMADXX_L1/other/halvade_0_0.fq.gz"));
+		Assert.assertNull(lookup.get("/halvade_0_0.fq.gz"));
+	}
+
+	/**
+	 * Tests whether the samples are returned in samplesheet order.
+	 */
+	@Test
+	public void testGetSamples()
+	{
+		Assert.assertEquals(new ArrayList<Sample>(new SampleLookup(samples).getSamples()), samples);
+	}
+
+	/**
+	 * Tests whether samples with the same comparison name are refused.
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testDuplicateComparisonName()
+	{
+		new SampleLookup(Arrays.asList(samples.get(0), samples.get(1),
+				new Sample("sample4", "SN163", 150616, 648, "AHKYLMADXX", 1)));
+	}
+}
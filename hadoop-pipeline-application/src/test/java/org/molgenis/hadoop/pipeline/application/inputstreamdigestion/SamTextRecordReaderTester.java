@@ -0,0 +1,324 @@
+package org.molgenis.hadoop.pipeline.application.inputstreamdigestion;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.molgenis.hadoop.pipeline.application.sequences.QualityBinner;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import htsjdk.samtools.BAMRecord;
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SamInputResource;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+
+/**
+ * Tester for {@link SamTextRecordReader} (and therefore {@link SamTextRecordParser}).
+ */
+public class SamTextRecordReaderTester extends Tester
+{
+	/**
+	 * Header used for the synthetic SAM data.
+	 */
+	private static final String HEADER = "@HD\tVN:1.4\tSO:unsorted\n" + "@SQ\tSN:1\tLN:249250621\n"
+			+ "@SQ\tSN:2\tLN:243199373\n" + "@RG\tID:1\tPL:illumina\tLB:lib1\tSM:sample1\n"
+			+ "@PG\tID:bwa\tPN:bwa\tVN:0.7.12-r1039\tCL:bwa mem -p -M -R @RG\\tID:1 ref.fa -\n";
+
+	/**
+	 * Tests whether the records generated by the {@link SamTextRecordReader} are equal (after BAM-encoding) to those
+	 * generated by htsjdk's {@link SamReader}.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testRecordsEqualToHtsjdkParsedRecords() throws IOException
+	{
+		String sam = HEADER
+				// Read pair with both reads mapped.
+				+ "read1\t99\t1\t20000100\t60\t10M\t=\t20000200\t110\tACGTACGTAC\tABCDEFGHIJ\tNM:i:0\tMD:Z:10\tAS:i:10\tXS:i:-300\tRG:Z:1\n"
+				+ "read1\t147\t1\t20000200\t60\t3S5M2I\t=\t20000100\t-110\tACGTNNACGN\t##########\tNM:i:70000\tXA:Z:2,+100,10M,0;\tRG:Z:1\n"
+				// Read pair with one unmapped read and a supplementary alignment on a different contig.
+				+ "read2\t73\t1\t20000500\t25\t4M1D2N4M\t=\t20000500\t0\tACGTACGT\t*\tXF:f:1.5\tXC:A:x\tRG:Z:1\n"
+				+ "read2\t2121\t2\t5000\t10\t4H4M\t1\t20000500\t0\tACGT\tIIII\tSA:Z:1,20000500,+,4M4S,25,0;\tRG:Z:1\n"
+				+ "read2\t133\t1\t20000500\t0\t*\t=\t20000500\t0\tACGTACGTA\tIIIIIIIII\tRG:Z:1\tXB:B:c,-1,2,-3\tXI:B:f,1.5,2.5\n"
+				// Read pair with both reads unmapped.
+				+ "read3\t77\t*\t0\t0\t*\t*\t0\t0\tACGT\tIIII\tAS:i:0\tRG:Z:1\r\n"
+				+ "read3\t141\t*\t0\t0\t*\t*\t0\t0\t*\t*\tRG:Z:1";
+
+		List<SAMRecord> expectedRecords = readWithHtsjdk(sam);
+		List<SAMRecord> actualRecords = readWithSamTextRecordReader(sam);
+
+		Assert.assertEquals(actualRecords.size(), expectedRecords.size());
+		for (int i = 0; i < expectedRecords.size(); i++)
+		{
+			SAMRecord expected = expectedRecords.get(i);
+			SAMRecord actual = actualRecords.get(i);
+
+			// Compares the fields used by the mapper.
+			Assert.assertEquals(actual.getReadName(), expected.getReadName());
+			Assert.assertEquals(actual.getFlags(), expected.getFlags());
+			Assert.assertEquals(actual.getContig(), expected.getContig());
+			Assert.assertEquals(actual.getReferenceIndex(), expected.getReferenceIndex());
+			Assert.assertEquals(actual.getStart(), expected.getStart());
+			Assert.assertEquals(actual.getEnd(), expected.getEnd());
+			Assert.assertEquals(actual.getCigarString(), expected.getCigarString());
+			Assert.assertEquals(actual.getMateReferenceIndex(), expected.getMateReferenceIndex());
+			Assert.assertEquals(actual.getMateAlignmentStart(), expected.getMateAlignmentStart());
+			Assert.assertEquals(actual.getInferredInsertSize(), expected.getInferredInsertSize());
+			Assert.assertEquals(actual.getReadString(), expected.getReadString());
+			Assert.assertEquals(actual.getBaseQualityString(), expected.getBaseQualityString());
+			Assert.assertEquals(actual.getAttribute("RG"), expected.getAttribute("RG"));
+
+			// Compares the BAM-encoded records (as done by the BamRecordWritable). htsjdk orders the tags on their
+			// binary value instead of keeping the order of the line, so the tags are compared individually.
+			byte[] actualBytes = encode(actual);
+			byte[] expectedBytes = encode(expected);
+			int tagsOffset = getTagsOffset(expectedBytes);
+			Assert.assertEquals(Arrays.copyOf(actualBytes, tagsOffset), Arrays.copyOf(expectedBytes, tagsOffset));
+			Assert.assertEquals(getTags(actualBytes, tagsOffset), getTags(expectedBytes, tagsOffset));
+		}
+	}
+
+	/**
+	 * Tests the integer types of tags (which htsjdk cannot compare, as it drops unsigned 32-bit values from SAM text).
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testIntegerTagTypes() throws IOException
+	{
+		SAMRecord record = readWithSamTextRecordReader(HEADER + "read1\t4\t*\t0\t0\t*\t*\t0\t0\tACGT\tIIII\t"
+				+ "XA:i:127\tXB:i:255\tXC:i:-32768\tXD:i:65535\tXE:i:-2147483648\tXU:i:4294967295\n").get(0);
+
+		// Uses the bytes as created by the parser, as re-encoding would let htsjdk choose the types.
+		BAMRecord bamRecord = (BAMRecord) record;
+		byte[] encoded = bamRecord.getVariableBinaryRepresentation();
+		Map<String, String> tags = getTags(encoded, encoded.length - bamRecord.getAttributesBinarySize());
+		Assert.assertEquals(tags.get("XA"), Arrays.toString(new byte[] { 'c', 127 }));
+		Assert.assertEquals(tags.get("XB"), Arrays.toString(new byte[] { 'C', -1 }));
+		Assert.assertEquals(tags.get("XC"), Arrays.toString(new byte[] { 's', 0, -128 }));
+		Assert.assertEquals(tags.get("XD"), Arrays.toString(new byte[] { 'S', -1, -1 }));
+		Assert.assertEquals(tags.get("XE"), Arrays.toString(new byte[] { 'i', 0, 0, 0, -128 }));
+		Assert.assertEquals(tags.get("XU"), Arrays.toString(new byte[] { 'I', -1, -1, -1, -1 }));
+	}
+
+	/**
+	 * Tests a record line referring to a reference sequence not present in the header.
+	 *
+	 * @throws IOException
+	 */
+	@Test(expectedExceptions = IOException.class)
+	public void testUnknownReferenceSequence() throws IOException
+	{
+		readWithSamTextRecordReader(HEADER + "read1\t0\tX\t100\t60\t4M\t*\t0\t0\tACGT\tIIII\n");
+	}
+
+	/**
+	 * Tests a record line with less than 11 fields.
+	 *
+	 * @throws IOException
+	 */
+	@Test(expectedExceptions = IOException.class)
+	public void testMissingMandatoryFields() throws IOException
+	{
+		readWithSamTextRecordReader(HEADER + "read1\t0\t1\t100\t60\t4M\t*\t0\t0\tACGT\n");
+	}
+
+	/**
+	 * Tests a record line with an invalid CIGAR.
+	 *
+	 * @throws IOException
+	 */
+	@Test(expectedExceptions = IOException.class)
+	public void testInvalidCigar() throws IOException
+	{
+		readWithSamTextRecordReader(HEADER + "read1\t0\t1\t100\t60\t4Q\t*\t0\t0\tACGT\tIIII\n");
+	}
+
+	/**
+	 * Tests a record line where the sequence and base qualities have a different length.
+	 *
+	 * @throws IOException
+	 */
+	@Test(expectedExceptions = IOException.class)
+	public void testSequenceQualityLengthDifference() throws IOException
+	{
+		readWithSamTextRecordReader(HEADER + "read1\t0\t1\t100\t60\t4M\t*\t0\t0\tACGT\tIII\n");
+	}
+
+	/**
+	 * Tests whether the base qualities are binned while parsing (where missing qualities stay missing).
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testQualityBinning() throws IOException
+	{
+		SamTextRecordReader reader = new SamTextRecordReader(
+				toInputStream(HEADER + "read1\t0\t1\t100\t60\t4M\t*\t0\t0\tACGT\t#+5I\n"
+						+ "read2\t0\t1\t100\t60\t4M\t*\t0\t0\tACGT\t*\n"),
+				new QualityBinner(QualityBinner.ILLUMINA_8_LEVEL));
+
+		Assert.assertEquals(reader.next().getBaseQualityString(), "'07I");
+		Assert.assertEquals(reader.next().getBaseQualityString(), "*");
+	}
+
+	/**
+	 * Tests SAM data containing only a header.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testHeaderOnly() throws IOException
+	{
+		SamTextRecordReader reader = new SamTextRecordReader(toInputStream(HEADER));
+		Assert.assertNull(reader.next());
+		Assert.assertEquals(reader.getFileHeader().getSequenceDictionary().size(), 2);
+		Assert.assertEquals(reader.getFileHeader().getReadGroups().size(), 1);
+	}
+
+	/**
+	 * Reads all {@link SAMRecord}{@code s} using htsjdk's {@link SamReader}.
+	 *
+	 * @param sam
+	 *            {@link String}
+	 * @return {@link List}{@code <}{@link SAMRecord}{@code >}
+	 * @throws IOException
+	 */
+	private List<SAMRecord> readWithHtsjdk(String sam) throws IOException
+	{
+		List<SAMRecord> records = new ArrayList<>();
+		SamReader samReader = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.LENIENT)
+				.open(SamInputResource.of(toInputStream(sam)));
+		SAMRecordIterator iterator = samReader.iterator();
+		while (iterator.hasNext())
+		{
+			records.add(iterator.next());
+		}
+		samReader.close();
+		return records;
+	}
+
+	/**
+	 * Reads all {@link SAMRecord}{@code s} using a {@link SamTextRecordReader}.
+	 *
+	 * @param sam
+	 *            {@link String}
+	 * @return {@link List}{@code <}{@link SAMRecord}{@code >}
+	 * @throws IOException
+	 */
+	private List<SAMRecord> readWithSamTextRecordReader(String sam) throws IOException
+	{
+		List<SAMRecord> records = new ArrayList<>();
+		SamTextRecordReader reader = new SamTextRecordReader(toInputStream(sam));
+		SAMRecord record;
+		while ((record = reader.next()) != null)
+		{
+			records.add(record);
+		}
+		return records;
+	}
+
+	/**
+	 * BAM-encodes a {@link SAMRecord}.
+	 *
+	 * @param record
+	 *            {@link SAMRecord}
+	 * @return {@code byte[]}
+	 */
+	private byte[] encode(SAMRecord record)
+	{
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		BAMRecordCodec codec = new BAMRecordCodec(record.getHeader());
+		codec.setOutputStream(outputStream);
+		codec.encode(record);
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * Retrieves the offset of the tags within a BAM-encoded record.
+	 *
+	 * @param encoded
+	 *            {@code byte[]}
+	 * @return {@code int}
+	 */
+	private int getTagsOffset(byte[] encoded)
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(encoded).order(ByteOrder.LITTLE_ENDIAN);
+		int readNameLength = encoded[12] & 0xFF;
+		int cigarOperations = buffer.getShort(16) & 0xFFFF;
+		int sequenceLength = buffer.getInt(20);
+		return 36 + readNameLength + cigarOperations * 4 + (sequenceLength + 1) / 2 + sequenceLength;
+	}
+
+	/**
+	 * Retrieves the tags of a BAM-encoded record.
+	 *
+	 * @param encoded
+	 *            {@code byte[]}
+	 * @param offset
+	 *            {@code int} See {@link #getTagsOffset(byte[])}.
+	 * @return {@link Map}{@code <}{@link String}{@code , }{@link String}{@code >} The encoded type and value per tag.
+	 */
+	private Map<String, String> getTags(byte[] encoded, int offset)
+	{
+		Map<String, String> tags = new TreeMap<>();
+		ByteBuffer buffer = ByteBuffer.wrap(encoded).order(ByteOrder.LITTLE_ENDIAN);
+		while (offset < encoded.length)
+		{
+			String tag = new String(encoded, offset, 2, StandardCharsets.US_ASCII);
+			int valueOffset = offset + 2;
+			offset = valueOffset + 1;
+			switch ((char) encoded[valueOffset])
+			{
+				case 'Z':
+				case 'H':
+					while (encoded[offset++] != 0);
+					break;
+				case 'B':
+					offset += 5 + buffer.getInt(offset + 1) * getValueSize((char) encoded[offset]);
+					break;
+				default:
+					offset += getValueSize((char) encoded[valueOffset]);
+			}
+			tags.put(tag, Arrays.toString(Arrays.copyOfRange(encoded, valueOffset, offset)));
+		}
+		return tags;
+	}
+
+	private int getValueSize(char type)
+	{
+		switch (type)
+		{
+			case 'A':
+			case 'c':
+			case 'C':
+				return 1;
+			case 's':
+			case 'S':
+				return 2;
+			default: // i, I, f
+				return 4;
+		}
+	}
+
+	private InputStream toInputStream(String sam)
+	{
+		return new ByteArrayInputStream(sam.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,160 @@
+package org.molgenis.hadoop.pipeline.application.mapreduce;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.molgenis.hadoop.pipeline.application.inputstreamdigestion.StringSink;
+import org.molgenis.hadoop.pipeline.application.inputstreamdigestion.TeeSink;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link AlignmentCache} and {@link TeeSink}.
+ */
+public class AlignmentCacheTester extends Tester
+{
+	private static final byte[] INPUT = "@read1\nACGT\n+\nIIII\n".getBytes(StandardCharsets.UTF_8);
+	private static final String READ_GROUP_LINE = "@RG\\tID:1\\tSM:sample1";
+	private static final String SAM_OUTPUT = "@SQ\tSN:1\tLN:100\nread1\t4\t*\t0\t0\t*\t*\t0\t0\tACGT\tIIII\n";
+
+	private File cacheDir;
+	private FileSystem fileSys;
+
+	@BeforeMethod
+	public void beforeMethod() throws IOException
+	{
+		cacheDir = Files.createTempDirectory("alignment-cache").toFile();
+		fileSys = FileSystem.getLocal(new Configuration());
+	}
+
+	@AfterMethod
+	public void afterMethod() throws IOException
+	{
+		FileUtils.deleteDirectory(cacheDir);
+	}
+
+	private AlignmentCache createCache(String bwaVersion, String dict, String attemptId) throws IOException
+	{
+		return new AlignmentCache(fileSys, new Path(cacheDir.toURI()), bwaVersion, "reference.fa",
+				new ByteArrayInputStream(dict.getBytes(StandardCharsets.UTF_8)), attemptId);
+	}
+
+	/**
+	 * Tests whether the key only changes if any of the inputs change.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testCreateKey() throws IOException
+	{
+		String key = createCache("0.7.10", "@SQ\tSN:1", "a").createKey(INPUT, INPUT.length, READ_GROUP_LINE);
+
+		Assert.assertEquals(createCache("0.7.10", "@SQ\tSN:1", "b").createKey(INPUT, INPUT.length, READ_GROUP_LINE),
+				key);
+		Assert.assertNotEquals(createCache("0.7.12", "@SQ\tSN:1", "a").createKey(INPUT, INPUT.length, READ_GROUP_LINE),
+				key);
+		Assert.assertNotEquals(createCache("0.7.10", "@SQ\tSN:2", "a").createKey(INPUT, INPUT.length, READ_GROUP_LINE),
+				key);
+		Assert.assertNotEquals(createCache("0.7.10", "@SQ\tSN:1", "a").createKey(INPUT, INPUT.length,
+				"@RG\\tID:2\\tSM:sample1"), key);
+		Assert.assertNotEquals(createCache("0.7.10", "@SQ\tSN:1", "a").createKey(INPUT, INPUT.length - 1,
+				READ_GROUP_LINE), key);
+		Assert.assertTrue(key.matches("[0-9a-f]{64}"));
+	}
+
+	/**
+	 * Tests whether a committed entry (written using a {@link TeeSink}) can be opened again.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testCommit() throws IOException
+	{
+		AlignmentCache cache = createCache("0.7.10", "@SQ\tSN:1", "attempt_1");
+		String key = cache.createKey(INPUT, INPUT.length, READ_GROUP_LINE);
+		Assert.assertNull(cache.open(key));
+
+		final List<String> lines = new ArrayList<>();
+		StringSink sink = new StringSink()
+		{
+			@Override
+			protected void digestStreamItem(String item)
+			{
+				lines.add(item);
+			}
+		};
+		try (AlignmentCache.Entry entry = cache.create(key))
+		{
+			new TeeSink<>(sink, entry.getOutputStream())
+					.handleInputStream(new ByteArrayInputStream(SAM_OUTPUT.getBytes(StandardCharsets.UTF_8)));
+			Assert.assertNull(cache.open(key));
+			Assert.assertTrue(entry.commit());
+		}
+		Assert.assertEquals(lines, Arrays.asList(SAM_OUTPUT.split("\n")));
+
+		try (InputStream cachedOutput = cache.open(key))
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			IOUtils.copy(cachedOutput, bytes);
+			Assert.assertEquals(bytes.toString("UTF-8"), SAM_OUTPUT);
+		}
+		Assert.assertEquals(FileUtils.listFiles(new File(cacheDir, "_temporary"), null, false).size(), 0);
+	}
+
+	/**
+	 * Tests whether an entry that is closed without being committed is discarded.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testDiscard() throws IOException
+	{
+		AlignmentCache cache = createCache("0.7.10", "@SQ\tSN:1", "attempt_1");
+		String key = cache.createKey(INPUT, INPUT.length, READ_GROUP_LINE);
+		try (AlignmentCache.Entry entry = cache.create(key))
+		{
+			entry.getOutputStream().write(SAM_OUTPUT.getBytes(StandardCharsets.UTF_8));
+		}
+
+		Assert.assertNull(cache.open(key));
+		Assert.assertEquals(FileUtils.listFiles(new File(cacheDir, "_temporary"), null, false).size(), 0);
+	}
+
+	/**
+	 * Tests whether the entry of a second (speculative) attempt is discarded when the first attempt already stored it.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testConcurrentCommit() throws IOException
+	{
+		AlignmentCache first = createCache("0.7.10", "@SQ\tSN:1", "attempt_1");
+		AlignmentCache second = createCache("0.7.10", "@SQ\tSN:1", "attempt_2");
+		String key = first.createKey(INPUT, INPUT.length, READ_GROUP_LINE);
+
+		try (AlignmentCache.Entry firstEntry = first.create(key); AlignmentCache.Entry secondEntry = second.create(key))
+		{
+			firstEntry.getOutputStream().write(SAM_OUTPUT.getBytes(StandardCharsets.UTF_8));
+			secondEntry.getOutputStream().write(SAM_OUTPUT.getBytes(StandardCharsets.UTF_8));
+			Assert.assertTrue(firstEntry.commit());
+			Assert.assertFalse(secondEntry.commit());
+		}
+		Assert.assertNotNull(second.open(key));
+	}
+}
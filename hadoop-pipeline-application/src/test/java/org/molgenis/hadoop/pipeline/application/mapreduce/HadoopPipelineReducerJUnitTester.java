@@ -20,6 +20,7 @@ import org.molgenis.hadoop.pipeline.application.TestFile;
 import org.molgenis.hadoop.pipeline.application.TestFileReader;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
 import org.molgenis.hadoop.pipeline.application.mapreduce.drivers.FileCacheSymlinkReduceDriver;
+import org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable;
 import org.molgenis.hadoop.pipeline.application.writables.RegionWithSortableSamRecordWritable;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -46,7 +47,7 @@ public class HadoopPipelineReducerJUnitTester extends HadoopPipelineTester
 	/**
 	 * A mrunit MapReduceDriver allowing the mapper to be tested.
 	 */
-	private ReduceDriver<RegionWithSortableSamRecordWritable, SAMRecordWritable, NullWritable, SAMRecordWritable> rDriver;
+	private ReduceDriver<RegionWithSortableSamRecordWritable, BamRecordWritable, NullWritable, BamRecordWritable> rDriver;
 
 	/**
 	 * Aligned reads results belonging to the custom test input dataset.
@@ -87,8 +88,8 @@ public class HadoopPipelineReducerJUnitTester extends HadoopPipelineTester
 	 */
 	public void beforeMethod() throws URISyntaxException
 	{
-		Reducer<RegionWithSortableSamRecordWritable, SAMRecordWritable, NullWritable, SAMRecordWritable> reducer = new HadoopPipelineReducer();
-		rDriver = new ReduceDriver<RegionWithSortableSamRecordWritable, SAMRecordWritable, NullWritable, SAMRecordWritable>(
+		Reducer<RegionWithSortableSamRecordWritable, BamRecordWritable, NullWritable, BamRecordWritable> reducer = new HadoopPipelineReducer();
+		rDriver = new ReduceDriver<RegionWithSortableSamRecordWritable, BamRecordWritable, NullWritable, BamRecordWritable>(
 				reducer);
 		setDriver(rDriver);
 	}
@@ -119,7 +120,7 @@ public class HadoopPipelineReducerJUnitTester extends HadoopPipelineTester
 		beforeMethod();
 
 		// Generate input.
-		List<Pair<RegionWithSortableSamRecordWritable, SAMRecordWritable>> mapperOutput = generateExpectedMapperOutput(
+		List<Pair<RegionWithSortableSamRecordWritable, BamRecordWritable>> mapperOutput = generateExpectedMapperOutput(
 				alignedReadsCustom, regions);
 
 		// TODO: Convert mapper output to reducer input format.
@@ -1,18 +1,21 @@
 package org.molgenis.hadoop.pipeline.application.mapreduce;
 
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mrunit.TestDriver;
 import org.apache.hadoop.mrunit.types.Pair;
 import org.molgenis.hadoop.pipeline.application.DistributedCacheHandler;
+import org.molgenis.hadoop.pipeline.application.DistributedCacheHandler.CacheFile;
 import org.molgenis.hadoop.pipeline.application.Tester;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.SamFileHeaderGenerator;
+import org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable;
 import org.molgenis.hadoop.pipeline.application.writables.RegionWithSortableSamRecordWritable;
-import org.seqdoop.hadoop_bam.SAMRecordWritable;
 
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMRecord;
@@ -59,7 +62,7 @@ public class HadoopPipelineTester extends Tester
 
 	/**
 	 * Sets the header created in {@link #generateSamFileHeader()} for the {@link SAMRecord}. As
-	 * {@link SAMRecordWritable} removes the {@link SAMFileHeader} from each {@link SAMRecord} during serialization,
+	 * {@link BamRecordWritable} removes the {@link SAMFileHeader} from each {@link SAMRecord} during serialization,
 	 * some vital information needs to be added again before {@link SAMRecord#getSAMString()} can be used again. In the
 	 * actual application this header information is generated using
 	 * {@link SamFileHeaderGenerator#retrieveSamFileHeader(org.apache.hadoop.mapreduce.TaskAttemptContext)}. The
@@ -75,8 +78,9 @@ public class HadoopPipelineTester extends Tester
 	}
 
 	/**
-	 * Adds needed files to the {@link MapDriver} cache. Be sure the order is exactly the same as in
-	 * {@link DistributedCacheHandler}!
+	 * Adds needed files to the {@link MapDriver} cache. The archive order must be the same as in
+	 * {@link DistributedCacheHandler}, the files that are looked up are stored using
+	 * {@link DistributedCacheHandler#setCacheFile(Configuration, CacheFile, URI)}.
 	 * 
 	 * @throws URISyntaxException
 	 */
@@ -85,17 +89,32 @@ public class HadoopPipelineTester extends Tester
 		// IMPORTANT: input order defines position in array for retrieval in mapper/reducer!!!
 		driver.addCacheArchive(getClassLoader().getResource("tools.tar.gz").toURI());
 
-		// IMPORTANT: input order defines position in array for retrieval in mapper/reducer!!!
-		driver.addCacheFile(getClassLoader().getResource("reference_data/chr1_20000000-21000000.fa").toURI());
-		driver.addCacheFile(getClassLoader().getResource("reference_data/chr1_20000000-21000000.fa.amb").toURI());
-		driver.addCacheFile(getClassLoader().getResource("reference_data/chr1_20000000-21000000.fa.ann").toURI());
-		driver.addCacheFile(getClassLoader().getResource("reference_data/chr1_20000000-21000000.fa.bwt").toURI());
-		driver.addCacheFile(getClassLoader().getResource("reference_data/chr1_20000000-21000000.fa.fai").toURI());
-		driver.addCacheFile(getClassLoader().getResource("reference_data/chr1_20000000-21000000.fa.pac").toURI());
-		driver.addCacheFile(getClassLoader().getResource("reference_data/chr1_20000000-21000000.fa.sa").toURI());
-		driver.addCacheFile(getClassLoader().getResource("reference_data/chr1_20000000-21000000.dict").toURI());
-		driver.addCacheFile(getClassLoader().getResource("bed_files/chr1_20000000-21000000.bed").toURI());
-		driver.addCacheFile(getClassLoader().getResource("samplesheets/samplesheet.csv").toURI());
+		addCacheFile(CacheFile.REFERENCE_FASTA, "reference_data/chr1_20000000-21000000.fa");
+		addCacheFile(null, "reference_data/chr1_20000000-21000000.fa.amb");
+		addCacheFile(null, "reference_data/chr1_20000000-21000000.fa.ann");
+		addCacheFile(null, "reference_data/chr1_20000000-21000000.fa.bwt");
+		addCacheFile(null, "reference_data/chr1_20000000-21000000.fa.fai");
+		addCacheFile(null, "reference_data/chr1_20000000-21000000.fa.pac");
+		addCacheFile(null, "reference_data/chr1_20000000-21000000.fa.sa");
+		addCacheFile(CacheFile.REFERENCE_DICT, "reference_data/chr1_20000000-21000000.dict");
+		addCacheFile(CacheFile.BED, "bed_files/chr1_20000000-21000000.bed");
+		addCacheFile(CacheFile.SAMPLES_INFO, "samplesheets/samplesheet.csv");
+	}
+
+	/**
+	 * Adds a resource to the {@link MapDriver} cache.
+	 * 
+	 * @param cacheFile
+	 *            {@link CacheFile} The name under which the file is looked up (or {@code null} if it is not).
+	 * @param resource
+	 *            {@link String}
+	 * @throws URISyntaxException
+	 */
+	private void addCacheFile(CacheFile cacheFile, String resource) throws URISyntaxException
+	{
+		URI uri = getClassLoader().getResource(resource).toURI();
+		driver.addCacheFile(uri);
+		if (cacheFile != null) DistributedCacheHandler.setCacheFile(driver.getConfiguration(), cacheFile, uri);
 	}
 
 	/**
@@ -103,9 +122,9 @@ public class HadoopPipelineTester extends Tester
 	 * 
 	 * @param pairsList
 	 *            {@link List}{@code <}{@link Pair}{@code <}{@link RegionWithSortableSamRecordWritable}{@code , }
-	 *            {@link SAMRecordWritable}{@code >>}
+	 *            {@link BamRecordWritable}{@code >>}
 	 */
-	void printOutput(List<Pair<RegionWithSortableSamRecordWritable, SAMRecordWritable>> pairsList)
+	void printOutput(List<Pair<RegionWithSortableSamRecordWritable, BamRecordWritable>> pairsList)
 	{
 		printOutput(pairsList, pairsList.size());
 	}
@@ -115,11 +134,11 @@ public class HadoopPipelineTester extends Tester
 	 * 
 	 * @param pairsList
 	 *            {@link List}{@code <}{@link Pair}{@code <}{@link RegionWithSortableSamRecordWritable}{@code , }
-	 *            {@link SAMRecordWritable}{@code >>}
+	 *            {@link BamRecordWritable}{@code >>}
 	 * @param limit
 	 *            {@code int} The number of pairs to write to stdout.
 	 */
-	void printOutput(List<Pair<RegionWithSortableSamRecordWritable, SAMRecordWritable>> pairsList, int limit)
+	void printOutput(List<Pair<RegionWithSortableSamRecordWritable, BamRecordWritable>> pairsList, int limit)
 	{
 		// If the limit is higher than the actual list size, resets the limit.
 		if (limit > pairsList.size()) limit = pairsList.size();
@@ -147,13 +166,13 @@ public class HadoopPipelineTester extends Tester
 	 * @param regions
 	 *            {@link List}{@code <}{@link Region}{@code >} The groups used for defining keys.
 	 * @return {@link List}{@code <}{@link Pair}{@code <}{@link RegionWithSortableSamRecordWritable}{@code , }
-	 *         {@link SAMRecordWritable} {@code >>}
+	 *         {@link BamRecordWritable} {@code >>}
 	 */
-	List<Pair<RegionWithSortableSamRecordWritable, SAMRecordWritable>> generateExpectedMapperOutput(
+	List<Pair<RegionWithSortableSamRecordWritable, BamRecordWritable>> generateExpectedMapperOutput(
 			List<SAMRecord> bwaOutput, List<Region> regions)
 	{
 		// Stores the created expected output.
-		List<Pair<RegionWithSortableSamRecordWritable, SAMRecordWritable>> expectedMapperOutput = new ArrayList<>();
+		List<Pair<RegionWithSortableSamRecordWritable, BamRecordWritable>> expectedMapperOutput = new ArrayList<>();
 
 		// Stores records of a single read and starts with the first record.
 		ArrayList<SAMRecord> regionRecords = new ArrayList<>();
@@ -195,7 +214,7 @@ public class HadoopPipelineTester extends Tester
 	 * 
 	 * @param expectedMapperOutput
 	 *            {@link List}{@code <}{@link Pair}{@code <}{@link RegionWithSortableSamRecordWritable}{@code , }
-	 *            {@link SAMRecordWritable} {@code >>} To which the expected output should be added to.
+	 *            {@link BamRecordWritable} {@code >>} To which the expected output should be added to.
 	 * @param regions
 	 *            {@link List}{@code <}{@link Region}{@code >} Used for generating the expected output. Defines part of
 	 *            the key for each output key-value pair.
@@ -205,7 +224,7 @@ public class HadoopPipelineTester extends Tester
 	 *            the value value of a key-value pair and also a part of the key.
 	 */
 	private void addRecordRegionsToExpectedMapperOutput(
-			List<Pair<RegionWithSortableSamRecordWritable, SAMRecordWritable>> expectedMapperOutput,
+			List<Pair<RegionWithSortableSamRecordWritable, BamRecordWritable>> expectedMapperOutput,
 			List<Region> regions, ArrayList<SAMRecord> regionRecords)
 	{
 		// Stores the two primary records from the algined reads from a read pair.
@@ -292,14 +311,14 @@ public class HadoopPipelineTester extends Tester
 	 * 
 	 * @param expectedMapperOutput
 	 *            {@link List}{@code <}{@link Pair}{@code <}{@link RegionWithSortableSamRecordWritable}{@code , }
-	 *            {@link SAMRecordWritable} {@code >>}
+	 *            {@link BamRecordWritable} {@code >>}
 	 * @param records
 	 *            {@link List}{@code <}{@link SAMRecord}{@code >}
 	 * @param region
 	 *            {@link Region}
 	 */
 	private void addRecordsListToExpectedMapperOutput(
-			List<Pair<RegionWithSortableSamRecordWritable, SAMRecordWritable>> expectedMapperOutput,
+			List<Pair<RegionWithSortableSamRecordWritable, BamRecordWritable>> expectedMapperOutput,
 			List<SAMRecord> records, Region region)
 	{
 		for (SAMRecord record : records)
@@ -313,19 +332,19 @@ public class HadoopPipelineTester extends Tester
 	 * 
 	 * @param expectedMapperOutput
 	 *            {@link List}{@code <}{@link Pair}{@code <}{@link RegionWithSortableSamRecordWritable}{@code , }
-	 *            {@link SAMRecordWritable} {@code >>}
+	 *            {@link BamRecordWritable} {@code >>}
 	 * @param record
 	 *            {@link SAMRecord}
 	 * @param region
 	 *            {@link Region}
 	 */
 	private void addRecordToExpectedMapperOutput(
-			List<Pair<RegionWithSortableSamRecordWritable, SAMRecordWritable>> expectedMapperOutput, SAMRecord record,
+			List<Pair<RegionWithSortableSamRecordWritable, BamRecordWritable>> expectedMapperOutput, SAMRecord record,
 			Region region)
 	{
-		SAMRecordWritable writable = new SAMRecordWritable();
+		BamRecordWritable writable = new BamRecordWritable();
 		writable.set(record);
-		expectedMapperOutput.add(new Pair<RegionWithSortableSamRecordWritable, SAMRecordWritable>(
+		expectedMapperOutput.add(new Pair<RegionWithSortableSamRecordWritable, BamRecordWritable>(
 				new RegionWithSortableSamRecordWritable(region, record), writable));
 	}
 }
@@ -0,0 +1,217 @@
+package org.molgenis.hadoop.pipeline.application.mapreduce;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link RegionBatchMerger}.
+ */
+public class RegionBatchMergerTester extends Tester
+{
+	/**
+	 * The merger being tested.
+	 */
+	private CollectingMerger merger;
+
+	@BeforeMethod
+	public void beforeMethod()
+	{
+		merger = new CollectingMerger();
+	}
+
+	/**
+	 * Tests whether the interleaved and overlapping batches of two mappers for a single region are written sorted on
+	 * position (where records with an equal position keep the order in which their batches were added).
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMergeInterleavedBatches() throws Exception
+	{
+		// Mapper 1 batches: [a1@100, a2@150, a3@300] and [a4@500, a5@520].
+		// Mapper 2 batches: [b1@120, b2@150, b3@310] and [b4@400, b5@600].
+		// Batches are received in the order of the position of their first record (as done by the shuffle).
+		merger.add(createBatch(record("a1", 0, 100), record("a2", 0, 150), record("a3", 0, 300)), 0, 100);
+		merger.add(createBatch(record("b1", 0, 120), record("b2", 0, 150), record("b3", 0, 310)), 0, 120);
+		merger.add(createBatch(record("b4", 0, 400), record("b5", 0, 600)), 0, 400);
+		merger.add(createBatch(record("a4", 0, 500), record("a5", 0, 520)), 0, 500);
+		merger.finish();
+
+		Assert.assertEquals(merger.getReadNames(),
+				Arrays.asList("a1", "b1", "a2", "b2", "a3", "b3", "b4", "a4", "a5", "b5"));
+	}
+
+	/**
+	 * Tests whether records on a following contig (and unmapped records with reference index {@code -1}) are written
+	 * after all records of a previous contig.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMergeMultipleReferences() throws Exception
+	{
+		merger.add(createBatch(record("a1", 0, 900), record("a2", 1, 10), record("a3", -1, 0)), 0, 900);
+		merger.add(createBatch(record("b1", 0, 950), record("b2", 1, 5)), 0, 950);
+		merger.finish();
+
+		Assert.assertEquals(merger.getReadNames(), Arrays.asList("a1", "b1", "b2", "a2", "a3"));
+	}
+
+	/**
+	 * Tests whether adding a batch only writes the pending records up to (and including) the position of the first
+	 * record of that batch, and whether {@link RegionBatchMerger#finish()} writes the remaining records.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testWritesUpToKeyPosition() throws Exception
+	{
+		merger.add(createBatch(record("a1", 0, 100), record("a2", 0, 200), record("a3", 0, 300)), 0, 100);
+		Assert.assertEquals(merger.getReadNames(), Arrays.asList("a1"));
+
+		merger.add(createBatch(record("b1", 0, 200), record("b2", 0, 250)), 0, 200);
+		Assert.assertEquals(merger.getReadNames(), Arrays.asList("a1", "a2", "b1"));
+
+		merger.add(createBatch(record("c1", 0, 260)), 0, 260);
+		Assert.assertEquals(merger.getReadNames(), Arrays.asList("a1", "a2", "b1", "b2", "c1"));
+
+		merger.finish();
+		Assert.assertEquals(merger.getReadNames(), Arrays.asList("a1", "a2", "b1", "b2", "c1", "a3"));
+	}
+
+	/**
+	 * Tests whether consecutive records of a batch preceding all other pending records are written at once, and
+	 * whether a batch preceding all other pending records is written as a whole.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testWritesConsecutiveRecordsAtOnce() throws Exception
+	{
+		merger.add(createBatch(record("a1", 0, 100), record("a2", 0, 110)), 0, 100);
+		merger.add(createBatch(record("b1", 0, 200), record("b2", 0, 210), record("b3", 0, 400)), 0, 200);
+		merger.add(createBatch(record("c1", 0, 500)), 0, 500);
+		merger.finish();
+
+		Assert.assertEquals(merger.getReadNames(), Arrays.asList("a1", "a2", "b1", "b2", "b3", "c1"));
+		Assert.assertEquals(merger.writes, Arrays.asList(1, 1, 1, 2, 1));
+	}
+
+	/**
+	 * Tests whether the merger can be reused for a following region after {@link RegionBatchMerger#finish()}.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testReuseAfterFinish() throws Exception
+	{
+		merger.add(createBatch(record("a1", 0, 100), record("a2", 0, 300)), 0, 100);
+		merger.add(createBatch(record("b1", 0, 200)), 0, 200);
+		merger.finish();
+		merger.add(createBatch(record("c1", 0, 50), record("c2", 0, 60)), 0, 50);
+		merger.finish();
+
+		Assert.assertEquals(merger.getReadNames(), Arrays.asList("a1", "b1", "a2", "c1", "c2"));
+	}
+
+	/**
+	 * Creates a minimal BAM-encoded record (without cigar, sequence, qualities and tags).
+	 *
+	 * @param readName
+	 *            {@link String}
+	 * @param referenceIndex
+	 *            {@code int}
+	 * @param alignmentStart
+	 *            {@code int} 1-based.
+	 * @return {@code byte[]}
+	 */
+	static byte[] record(String readName, int referenceIndex, int alignmentStart)
+	{
+		byte[] name = (readName + '\0').getBytes(StandardCharsets.US_ASCII);
+		ByteBuffer buffer = ByteBuffer.allocate(36 + name.length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(32 + name.length); // block_size
+		buffer.putInt(referenceIndex);
+		buffer.putInt(alignmentStart - 1);
+		buffer.put((byte) name.length);
+		buffer.put((byte) 60); // mapping quality
+		buffer.putShort((short) 0); // bin
+		buffer.putShort((short) 0); // number of cigar operations
+		buffer.putShort((short) 0); // flags
+		buffer.putInt(0); // sequence length
+		buffer.putInt(-1); // mate reference index
+		buffer.putInt(-1); // mate position
+		buffer.putInt(0); // template length
+		buffer.put(name);
+		return buffer.array();
+	}
+
+	/**
+	 * Creates a batch (as written by a {@link RegionRecordBuffer}) from already sorted records.
+	 *
+	 * @param records
+	 *            {@code byte[]...}
+	 * @return {@link BamRecordWritable}
+	 */
+	static BamRecordWritable createBatch(byte[]... records)
+	{
+		BamRecordWritable batch = new BamRecordWritable();
+		for (byte[] record : records)
+		{
+			batch.append(record, 0, record.length);
+		}
+		return batch;
+	}
+
+	/**
+	 * Returns the read names of the records stored in a {@link BamRecordWritable}.
+	 *
+	 * @param records
+	 *            {@link BamRecordWritable}
+	 * @return {@link List}{@code <}{@link String}{@code >}
+	 */
+	static List<String> getReadNames(BamRecordWritable records)
+	{
+		List<String> readNames = new ArrayList<>();
+		BamRecordWritable record = new BamRecordWritable();
+		for (int offset = 0; offset < records.getLength(); offset += records.getRecordLength(offset))
+		{
+			record.set(records.getBytes(), offset, records.getRecordLength(offset));
+			readNames.add(record.getReadName());
+		}
+		return readNames;
+	}
+
+	/**
+	 * {@link RegionBatchMerger} that collects the read names of the written records and the number of records per
+	 * write.
+	 */
+	private static class CollectingMerger extends RegionBatchMerger
+	{
+		private List<String> readNames = new ArrayList<>();
+		private List<Integer> writes = new ArrayList<>();
+
+		List<String> getReadNames()
+		{
+			return readNames;
+		}
+
+		@Override
+		protected void write(BamRecordWritable records) throws IOException, InterruptedException
+		{
+			List<String> written = RegionBatchMergerTester.getReadNames(records);
+			readNames.addAll(written);
+			writes.add(written.size());
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package org.molgenis.hadoop.pipeline.application.mapreduce;
+
+import static org.molgenis.hadoop.pipeline.application.mapreduce.RegionBatchMergerTester.getReadNames;
+import static org.molgenis.hadoop.pipeline.application.mapreduce.RegionBatchMergerTester.record;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.MapContextImpl;
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.localexecution.CountersStatusReporter;
+import org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable;
+import org.molgenis.hadoop.pipeline.application.writables.RegionWithSortableSamRecordWritable;
+import org.molgenis.hadoop.pipeline.application.writables.RegionWritable;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link RegionRecordBuffer}.
+ */
+public class RegionRecordBufferTester extends Tester
+{
+	/**
+	 * The length of a single record created by {@link #add(RegionRecordBuffer, RegionWritable, String, int)} (with a
+	 * read name of 2 characters).
+	 */
+	private static final int RECORD_LENGTH = record("r1", 0, 1).length;
+
+	private RegionWritable regionA = new RegionWritable(new Region("1", 1, 1000));
+	private RegionWritable regionB = new RegionWritable(new Region("1", 1001, 2000));
+
+	/**
+	 * The keys written to the context.
+	 */
+	private List<RegionWithSortableSamRecordWritable> keys;
+
+	/**
+	 * The read names of the values written to the context (a list per value).
+	 */
+	private List<List<String>> values;
+
+	/**
+	 * Context collecting the written batches.
+	 */
+	private MapContextImpl<Object, Object, RegionWithSortableSamRecordWritable, BamRecordWritable> context;
+
+	@BeforeMethod
+	public void beforeMethod()
+	{
+		keys = new ArrayList<>();
+		values = new ArrayList<>();
+		RecordWriter<RegionWithSortableSamRecordWritable, BamRecordWritable> writer;
+		writer = new RecordWriter<RegionWithSortableSamRecordWritable, BamRecordWritable>()
+		{
+			@Override
+			public void write(RegionWithSortableSamRecordWritable key, BamRecordWritable value)
+			{
+				keys.add(key);
+				values.add(getReadNames(value));
+			}
+
+			@Override
+			public void close(TaskAttemptContext context)
+			{
+			}
+		};
+		context = new MapContextImpl<>(new Configuration(), new TaskAttemptID(), null, writer, null,
+				new CountersStatusReporter(), null);
+	}
+
+	/**
+	 * Tests whether a flush writes a single sorted batch per region with a key based on the first record of the sorted
+	 * batch.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFlushWritesSortedBatches() throws Exception
+	{
+		RegionRecordBuffer buffer = new RegionRecordBuffer(Integer.MAX_VALUE, Long.MAX_VALUE);
+		add(buffer, regionA, "a3", 300);
+		add(buffer, regionB, "b1", 1500);
+		add(buffer, regionA, "a1", 100);
+		add(buffer, regionA, "a2", 200);
+		Assert.assertTrue(keys.isEmpty());
+
+		buffer.flush(context);
+		Assert.assertEquals(keys.size(), 2);
+		int a = keys.get(0).getRegionWritable().equals(regionA) ? 0 : 1;
+		int b = 1 - a;
+
+		Assert.assertEquals(keys.get(a), new RegionWithSortableSamRecordWritable(regionA, 0, 100));
+		Assert.assertEquals(values.get(a), Arrays.asList("a1", "a2", "a3"));
+		Assert.assertEquals(keys.get(b), new RegionWithSortableSamRecordWritable(regionB, 0, 1500));
+		Assert.assertEquals(values.get(b), Arrays.asList("b1"));
+
+		// A following flush should not write anything.
+		buffer.flush(context);
+		Assert.assertEquals(keys.size(), 2);
+	}
+
+	/**
+	 * Tests whether a region is written (and only that region) once it buffers {@code maxRegionBytes}.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMaxRegionBytes() throws Exception
+	{
+		RegionRecordBuffer buffer = new RegionRecordBuffer(RECORD_LENGTH * 2, Long.MAX_VALUE);
+		add(buffer, regionA, "a2", 200);
+		add(buffer, regionB, "b1", 1500);
+		Assert.assertTrue(keys.isEmpty());
+
+		add(buffer, regionA, "a1", 100);
+		Assert.assertEquals(keys, Arrays.asList(new RegionWithSortableSamRecordWritable(regionA, 0, 100)));
+		Assert.assertEquals(values, Arrays.asList(Arrays.asList("a1", "a2")));
+
+		// Region A starts a new batch.
+		add(buffer, regionA, "a3", 150);
+		Assert.assertEquals(keys.size(), 1);
+
+		buffer.flush(context);
+		Assert.assertEquals(keys.size(), 3);
+		Assert.assertTrue(keys.contains(new RegionWithSortableSamRecordWritable(regionA, 0, 150)));
+		Assert.assertTrue(keys.contains(new RegionWithSortableSamRecordWritable(regionB, 0, 1500)));
+	}
+
+	/**
+	 * Tests whether all regions are written once the buffer as a whole stores {@code maxBufferBytes}.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMaxBufferBytes() throws Exception
+	{
+		RegionRecordBuffer buffer = new RegionRecordBuffer(Integer.MAX_VALUE, RECORD_LENGTH * 3);
+		add(buffer, regionA, "a2", 200);
+		add(buffer, regionB, "b1", 1500);
+		Assert.assertTrue(keys.isEmpty());
+
+		add(buffer, regionA, "a1", 100);
+		Assert.assertEquals(keys.size(), 2);
+		Assert.assertTrue(values.contains(Arrays.asList("a1", "a2")));
+		Assert.assertTrue(values.contains(Arrays.asList("b1")));
+
+		// The buffer is empty again after the spill.
+		add(buffer, regionA, "a3", 300);
+		add(buffer, regionA, "a4", 400);
+		Assert.assertEquals(keys.size(), 2);
+		add(buffer, regionB, "b2", 1600);
+		Assert.assertEquals(keys.size(), 4);
+	}
+
+	/**
+	 * Tests whether non-positive buffer sizes are rejected.
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidBufferSize()
+	{
+		new RegionRecordBuffer(0, 100);
+	}
+
+	/**
+	 * Adds a single BAM-encoded record on the first reference to the buffer.
+	 *
+	 * @param buffer
+	 *            {@link RegionRecordBuffer}
+	 * @param region
+	 *            {@link RegionWritable}
+	 * @param readName
+	 *            {@link String} Read name of 2 characters.
+	 * @param alignmentStart
+	 *            {@code int}
+	 * @throws Exception
+	 */
+	private void add(RegionRecordBuffer buffer, RegionWritable region, String readName, int alignmentStart)
+			throws Exception
+	{
+		byte[] bytes = record(readName, 0, alignmentStart);
+		BamRecordWritable record = new BamRecordWritable();
+		record.set(bytes, 0, bytes.length);
+		buffer.add(context, region, record);
+	}
+}
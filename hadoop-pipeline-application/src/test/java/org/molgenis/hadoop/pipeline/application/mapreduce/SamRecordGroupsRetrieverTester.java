@@ -13,6 +13,7 @@ import org.molgenis.hadoop.pipeline.application.Tester;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.ContigRegionsMap;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.ContigRegionsMapBuilder;
 import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.RegionStore;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeClass;
@@ -812,6 +813,67 @@ public class SamRecordGroupsRetrieverTester extends Tester
 		Assert.assertEquals(actualOutputGroups, expectedOutputGroups);
 	}
 
+	/**
+	 * Test with {@link Region}{@code s} looked up by reference index, where the contigs in the
+	 * {@link SAMSequenceDictionary} are in a different order than in the {@link RegionStore}.
+	 */
+	@Test
+	public void testLookupByReferenceIndex()
+	{
+		inputRegions.add(new Region("1", 50, 150));
+		inputRegions.add(new Region("1", 300, 400));
+		inputRegions.add(new Region("2", 100, 200));
+		grouper = new SamRecordGroupsRetriever(RegionStore.create(builder.addAll(inputRegions).build()),
+				generateDictionary("2", "1", "3"));
+
+		Assert.assertEquals(grouper.retrieveGroupsWithinRange(1, 100, 350), inputRegions.subList(0, 2));
+		Assert.assertEquals(grouper.retrieveGroupsWithinRange(0, 100, 350), inputRegions.subList(2, 3));
+		Assert.assertEquals(grouper.retrieveGroupsWithinRange(2, 100, 350), expectedOutputGroups);
+		Assert.assertEquals(grouper.retrieveGroupsWithinRange(-1, 100, 350), expectedOutputGroups);
+		Assert.assertEquals(grouper.retrieveGroupsWithinRange(3, 100, 350), expectedOutputGroups);
+	}
+
+	/**
+	 * Test with a {@link Region} on a contig that is not present in the {@link SAMSequenceDictionary}.
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testLookupByReferenceIndexWithUnknownContig()
+	{
+		inputRegions.add(new Region("1", 50, 150));
+		inputRegions.add(new Region("MT", 1, 100));
+		grouper = new SamRecordGroupsRetriever(RegionStore.create(builder.addAll(inputRegions).build()),
+				generateDictionary("1", "2"));
+	}
+
+	/**
+	 * Test looking up by reference index when no {@link SAMSequenceDictionary} was given.
+	 */
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void testLookupByReferenceIndexWithoutDictionary()
+	{
+		inputRegions.add(new Region("1", 50, 150));
+		grouper = new SamRecordGroupsRetriever(builder.addAll(inputRegions).build());
+
+		grouper.retrieveGroupsWithinRange(0, 100, 200);
+	}
+
+	/**
+	 * Generates a {@link SAMSequenceDictionary} containing the given contigs (each with a length of 1000).
+	 * 
+	 * @param contigs
+	 *            {@link String}{@code ...}
+	 * @return {@link SAMSequenceDictionary}
+	 */
+	private SAMSequenceDictionary generateDictionary(String... contigs)
+	{
+		SAMSequenceDictionary dictionary = new SAMSequenceDictionary();
+		for (String contig : contigs)
+		{
+			dictionary.addSequence(new SAMSequenceRecord(contig, 1000));
+		}
+		return dictionary;
+	}
+
 	/**
 	 * Generates a new {@link SAMRecord} that can be used for testing.
 	 * 
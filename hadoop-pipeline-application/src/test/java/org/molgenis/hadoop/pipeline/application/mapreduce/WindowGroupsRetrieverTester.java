@@ -0,0 +1,132 @@
+package org.molgenis.hadoop.pipeline.application.mapreduce;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+
+/**
+ * Tester for {@link WindowGroupsRetriever}.
+ */
+public class WindowGroupsRetrieverTester extends Tester
+{
+	/**
+	 * Contig 1 (index 0) has a length of 1000, contig 2 (index 1) of 250.
+	 */
+	private SAMSequenceDictionary dictionary;
+
+	@BeforeClass
+	public void beforeClass()
+	{
+		dictionary = new SAMSequenceDictionary(
+				Arrays.asList(new SAMSequenceRecord("1", 1000), new SAMSequenceRecord("2", 250)));
+	}
+
+	/**
+	 * Tests non-overlapping windows, where the last window ends at the contig length.
+	 */
+	@Test
+	public void testWithoutOverlap()
+	{
+		WindowGroupsRetriever retriever = new WindowGroupsRetriever(dictionary, 300, 0);
+
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(0, 1, 100), Arrays.asList(new Region("1", 1, 300)));
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(0, 250, 350),
+				Arrays.asList(new Region("1", 1, 300), new Region("1", 301, 600)));
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(0, 300, 301),
+				Arrays.asList(new Region("1", 1, 300), new Region("1", 301, 600)));
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(0, 301, 400), Arrays.asList(new Region("1", 301, 600)));
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(0, 950, 1050),
+				Arrays.asList(new Region("1", 901, 1000)));
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(1, 200, 300), Arrays.asList(new Region("2", 1, 250)));
+	}
+
+	/**
+	 * Tests overlapping windows, where a range can belong to multiple windows.
+	 */
+	@Test
+	public void testWithOverlap()
+	{
+		// Windows of contig 1: 1-300, 201-500, 401-700, 601-900 & 801-1000.
+		WindowGroupsRetriever retriever = new WindowGroupsRetriever(dictionary, 300, 100);
+
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(0, 1, 100), Arrays.asList(new Region("1", 1, 300)));
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(0, 250, 260),
+				Arrays.asList(new Region("1", 1, 300), new Region("1", 201, 500)));
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(0, 301, 400), Arrays.asList(new Region("1", 201, 500)));
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(0, 450, 650),
+				Arrays.asList(new Region("1", 201, 500), new Region("1", 401, 700), new Region("1", 601, 900)));
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(0, 950, 1000),
+				Arrays.asList(new Region("1", 801, 1000)));
+	}
+
+	/**
+	 * Tests whether the calculated windows equal those found by searching all windows.
+	 */
+	@Test
+	public void testAgainstAllWindows()
+	{
+		for (int overlap : new int[] { 0, 1, 49, 99 })
+		{
+			WindowGroupsRetriever retriever = new WindowGroupsRetriever(dictionary, 100, overlap);
+			List<Region> windows = new ArrayList<>();
+			for (int i = 0; i * (100 - overlap) < 1000; i++)
+			{
+				Region window = retriever.getRegion(0, i);
+				windows.add(window);
+				if (window.getEnd() == 1000) break;
+			}
+
+			for (int start = 1; start <= 1000; start += 7)
+			{
+				int end = start + 150;
+				List<Region> expected = new ArrayList<>();
+				for (Region window : windows)
+				{
+					if (window.getStart() <= end && window.getEnd() >= start) expected.add(window);
+				}
+				Assert.assertEquals(retriever.retrieveGroupsWithinRange(0, start, end), expected,
+						"overlap=" + overlap + ", start=" + start);
+			}
+		}
+	}
+
+	/**
+	 * Tests whether ranges outside of the contig (or without length) have no windows.
+	 */
+	@Test
+	public void testOutsideContig()
+	{
+		WindowGroupsRetriever retriever = new WindowGroupsRetriever(dictionary, 300, 0);
+
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(1, 251, 300), new ArrayList<Region>());
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(0, 0, 0), new ArrayList<Region>());
+		Assert.assertEquals(retriever.retrieveGroupsWithinRange(0, 100, 99), new ArrayList<Region>());
+	}
+
+	/**
+	 * Tests whether an overlap equal to the window size is refused.
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidOverlap()
+	{
+		new WindowGroupsRetriever(dictionary, 300, 300);
+	}
+
+	/**
+	 * Tests whether a window size of 0 is refused.
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidWindow()
+	{
+		new WindowGroupsRetriever(dictionary, 0, 0);
+	}
+}
@@ -3,16 +3,17 @@ package org.molgenis.hadoop.pipeline.application.mapreduce.drivers;
 import java.io.IOException;
 
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.filecache.DistributedCache;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mrunit.mapreduce.MapReduceDriver;
+import org.apache.hadoop.util.StringUtils;
 
 /**
  * {@link MapReduceDriver} that also creates symlinks in the current working directory to the tmp folder storing the
  * MRUnit testing distributed cache.
  */
-@SuppressWarnings("deprecation")
 public class FileCacheSymlinkMapReduceDriver<K1, V1, K2, V2, K3, V3> extends MapReduceDriver<K1, V1, K2, V2, K3, V3>
 {
 	public FileCacheSymlinkMapReduceDriver(Mapper<K1, V1, K2, V2> mapper, Reducer<K2, V2, K3, V3> reducer)
@@ -26,8 +27,12 @@ public class FileCacheSymlinkMapReduceDriver<K1, V1, K2, V2, K3, V3> extends Map
 		super.initDistributedCache();
 		Configuration conf = getConfiguration();
 
-		WorkDirSymlinkManager.createSymlinkInCurrentWorkDirForEachPath(DistributedCache.getLocalCacheArchives(conf));
-		WorkDirSymlinkManager.createSymlinkInCurrentWorkDirForEachPath(DistributedCache.getLocalCacheFiles(conf));
+		// Reads the local paths as set by MRUnit (similar to the deprecated DistributedCache methods).
+		Path[] archives = StringUtils.stringToPath(conf.getStrings(MRJobConfig.CACHE_LOCALARCHIVES));
+		Path[] files = StringUtils.stringToPath(conf.getStrings(MRJobConfig.CACHE_LOCALFILES));
+
+		WorkDirSymlinkManager.createSymlinkInCurrentWorkDirForEachPath(archives);
+		WorkDirSymlinkManager.createSymlinkInCurrentWorkDirForEachPath(files);
 	}
 
 	@Override
@@ -3,15 +3,16 @@ package org.molgenis.hadoop.pipeline.application.mapreduce.drivers;
 import java.io.IOException;
 
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.filecache.DistributedCache;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mrunit.mapreduce.ReduceDriver;
+import org.apache.hadoop.util.StringUtils;
 
 /**
  * {@link ReduceDriver} that also creates symlinks in the current working directory to the tmp folder storing the MRUnit
  * testing distributed cache.
  */
-@SuppressWarnings("deprecation")
 public class FileCacheSymlinkReduceDriver<K1, V1, K2, V2> extends ReduceDriver<K1, V1, K2, V2>
 {
 	public FileCacheSymlinkReduceDriver(Reducer<K1, V1, K2, V2> reducer)
@@ -25,8 +26,12 @@ public class FileCacheSymlinkReduceDriver<K1, V1, K2, V2> extends ReduceDriver<K
 		super.initDistributedCache();
 		Configuration conf = getConfiguration();
 
-		WorkDirSymlinkManager.createSymlinkInCurrentWorkDirForEachPath(DistributedCache.getLocalCacheArchives(conf));
-		WorkDirSymlinkManager.createSymlinkInCurrentWorkDirForEachPath(DistributedCache.getLocalCacheFiles(conf));
+		// Reads the local paths as set by MRUnit (similar to the deprecated DistributedCache methods).
+		Path[] archives = StringUtils.stringToPath(conf.getStrings(MRJobConfig.CACHE_LOCALARCHIVES));
+		Path[] files = StringUtils.stringToPath(conf.getStrings(MRJobConfig.CACHE_LOCALFILES));
+
+		WorkDirSymlinkManager.createSymlinkInCurrentWorkDirForEachPath(archives);
+		WorkDirSymlinkManager.createSymlinkInCurrentWorkDirForEachPath(files);
 	}
 
 	@Override
@@ -0,0 +1,157 @@
+package org.molgenis.hadoop.pipeline.application.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.molgenis.hadoop.pipeline.application.metrics.AlignmentQcMetrics.Flagstat;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link AlignmentQcMetrics} and {@link AlignmentQcMetricsCollector}.
+ */
+public class AlignmentQcMetricsTester extends Tester
+{
+	/**
+	 * Tests whether the flagstat counts equal those of {@code samtools flagstat} for a properly paired read pair with a
+	 * supplementary alignment, a singleton and a read that failed quality control.
+	 */
+	@Test
+	public void testFlagstat()
+	{
+		AlignmentQcMetrics metrics = createMetrics();
+
+		Assert.assertEquals(metrics.get(Flagstat.TOTAL, false), 5);
+		Assert.assertEquals(metrics.get(Flagstat.SUPPLEMENTARY, false), 1);
+		Assert.assertEquals(metrics.get(Flagstat.MAPPED, false), 4);
+		Assert.assertEquals(metrics.get(Flagstat.PAIRED, false), 4);
+		Assert.assertEquals(metrics.get(Flagstat.READ1, false), 2);
+		Assert.assertEquals(metrics.get(Flagstat.READ2, false), 2);
+		Assert.assertEquals(metrics.get(Flagstat.PROPERLY_PAIRED, false), 2);
+		Assert.assertEquals(metrics.get(Flagstat.WITH_MATE_MAPPED, false), 2);
+		Assert.assertEquals(metrics.get(Flagstat.SINGLETONS, false), 1);
+		Assert.assertEquals(metrics.get(Flagstat.MATE_ON_DIFFERENT_CONTIG, false), 0);
+		Assert.assertEquals(metrics.get(Flagstat.DUPLICATES, false), 0);
+		Assert.assertEquals(metrics.get(Flagstat.TOTAL, true), 1);
+		Assert.assertEquals(metrics.get(Flagstat.DUPLICATES, true), 1);
+	}
+
+	/**
+	 * Tests whether each read pair is counted once in the insert size histogram and only primary mapped records in
+	 * the mapping quality histogram.
+	 */
+	@Test
+	public void testHistograms()
+	{
+		AlignmentQcMetrics metrics = createMetrics();
+		metrics.add(0x1 | 0x2 | 0x80, 0, 0, 60, -20000);
+
+		Assert.assertEquals(metrics.getInsertSizeCount(300), 1);
+		Assert.assertEquals(metrics.getInsertSizeCount(AlignmentQcMetrics.MAX_INSERT_SIZE), 1);
+		Assert.assertEquals(metrics.getMappingQualityCount(60), 4);
+		Assert.assertEquals(metrics.getMappingQualityCount(20), 1);
+		Assert.assertEquals(metrics.getMappingQualityCount(10), 0);
+	}
+
+	/**
+	 * Tests whether written rows can be read again.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testWriteAndAddRow() throws IOException
+	{
+		AlignmentQcMetrics metrics = createMetrics();
+		StringWriter written = new StringWriter();
+		metrics.write("s1\t1\tlib", written);
+
+		AlignmentQcMetrics read = new AlignmentQcMetrics();
+		for (String line : written.toString().split("\n"))
+		{
+			String[] columns = line.split("\t");
+			Assert.assertEquals(Arrays.copyOf(columns, 3), new String[] { "s1", "1", "lib" });
+			read.addRow(columns[3], columns[4], Long.parseLong(columns[5]));
+		}
+		StringWriter rewritten = new StringWriter();
+		read.write("s1\t1\tlib", rewritten);
+
+		Assert.assertEquals(rewritten.toString(), written.toString());
+	}
+
+	/**
+	 * Tests whether an unknown metric is refused.
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testAddRowUnknownMetric()
+	{
+		new AlignmentQcMetrics().addRow("coverage", "1", 1);
+	}
+
+	/**
+	 * Tests whether the part files are merged into a file per sample (adding up the counts of the same read group).
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testMerge() throws IOException
+	{
+		File outputDir = Files.createTempDirectory("qc-metrics").toFile();
+		try
+		{
+			File partsDir = new File(outputDir, AlignmentQcMetricsCollector.PARTS_DIR);
+			partsDir.mkdir();
+			for (String part : new String[] { "task_m_000000.tsv", "task_m_000001.tsv" })
+			{
+				StringWriter writer = new StringWriter();
+				writer.write(AlignmentQcMetrics.HEADER + "\n");
+				createMetrics().write("s1\t1\tlib1", writer);
+				createMetrics().write("s2\t2\tlib2", writer);
+				FileUtils.write(new File(partsDir, part), writer.toString(), StandardCharsets.UTF_8);
+			}
+
+			int samples = AlignmentQcMetricsCollector.merge(new Configuration(), new Path(outputDir.toURI()));
+
+			AlignmentQcMetrics expected = createMetrics();
+			expected.add(createMetrics());
+			StringWriter expectedWriter = new StringWriter();
+			expectedWriter.write(AlignmentQcMetrics.HEADER + "\n");
+			expected.write("s1\t1\tlib1", expectedWriter);
+
+			Assert.assertEquals(samples, 2);
+			Assert.assertFalse(partsDir.exists());
+			File merged = new File(outputDir, "s1" + AlignmentQcMetricsCollector.EXTENSION);
+			Assert.assertEquals(FileUtils.readFileToString(merged, StandardCharsets.UTF_8), expectedWriter.toString());
+			Assert.assertTrue(new File(outputDir, "s2" + AlignmentQcMetricsCollector.EXTENSION).exists());
+		}
+		finally
+		{
+			FileUtils.deleteDirectory(outputDir);
+		}
+	}
+
+	/**
+	 * Creates metrics for: a properly paired read pair (insert size 300, where the first read also has a supplementary
+	 * alignment), a mapped read and its unmapped mate, and a duplicate read that failed quality control.
+	 *
+	 * @return {@link AlignmentQcMetrics}
+	 */
+	private AlignmentQcMetrics createMetrics()
+	{
+		AlignmentQcMetrics metrics = new AlignmentQcMetrics();
+		metrics.add(0x1 | 0x2 | 0x40, 0, 0, 60, 300);
+		metrics.add(0x1 | 0x2 | 0x80, 0, 0, 60, -300);
+		metrics.add(0x1 | 0x40 | 0x800, 1, 0, 10, 0);
+		metrics.add(0x1 | 0x8 | 0x40, 0, 0, 20, 0);
+		metrics.add(0x1 | 0x4 | 0x80, 0, 0, 0, 0);
+		metrics.add(0x1 | 0x40 | 0x200 | 0x400, 0, 0, 60, 0);
+		return metrics;
+	}
+}
@@ -0,0 +1,42 @@
+package org.molgenis.hadoop.pipeline.application.metrics;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.molgenis.hadoop.pipeline.application.localexecution.CountersStatusReporter;
+import org.molgenis.hadoop.pipeline.application.sequences.AlignedReadPair;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link EnumCounters}.
+ */
+public class EnumCountersTester extends Tester
+{
+	/**
+	 * Tests whether the accumulated counts are added to the Hadoop counters and reset when published.
+	 */
+	@Test
+	public void testPublish()
+	{
+		CountersStatusReporter reporter = new CountersStatusReporter();
+		TaskAttemptContextImpl context = new TaskAttemptContextImpl(new Configuration(), new TaskAttemptID(),
+				reporter);
+		EnumCounters<AlignedReadPair.Type> counters = new EnumCounters<>(AlignedReadPair.Type.class);
+
+		counters.increment(AlignedReadPair.Type.BOTH_MAPPED);
+		counters.increment(AlignedReadPair.Type.BOTH_MAPPED);
+		counters.increment(AlignedReadPair.Type.INVALID);
+		Assert.assertEquals(counters.get(AlignedReadPair.Type.BOTH_MAPPED), 2);
+		counters.publish(context);
+		Assert.assertEquals(counters.get(AlignedReadPair.Type.BOTH_MAPPED), 0);
+
+		counters.increment(AlignedReadPair.Type.BOTH_MAPPED);
+		counters.publish(context);
+
+		Assert.assertEquals(reporter.getCounter(AlignedReadPair.Type.BOTH_MAPPED).getValue(), 3);
+		Assert.assertEquals(reporter.getCounter(AlignedReadPair.Type.INVALID).getValue(), 1);
+		Assert.assertEquals(reporter.getCounter(AlignedReadPair.Type.BOTH_UNMAPPED).getValue(), 0);
+	}
+}
@@ -0,0 +1,103 @@
+package org.molgenis.hadoop.pipeline.application.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.molgenis.hadoop.pipeline.application.PipelineProperties;
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link FileMetricsSink}.
+ */
+public class FileMetricsSinkTester extends Tester
+{
+	/**
+	 * The job output directory.
+	 */
+	private File outputDir;
+
+	/**
+	 * Context of the first attempt of the first map task.
+	 */
+	private TaskAttemptContext context;
+
+	/**
+	 * Timer with a single recorded stage.
+	 */
+	private StageTimer timer;
+
+	@BeforeMethod
+	public void beforeMethod() throws IOException
+	{
+		outputDir = Files.createTempDirectory("metrics").toFile();
+		Configuration conf = new Configuration();
+		conf.set(FileOutputFormat.OUTDIR, new Path(outputDir.toURI()).toString());
+		context = new TaskAttemptContextImpl(conf, new TaskAttemptID("job", 1, TaskType.MAP, 0, 0));
+
+		timer = new StageTimer(true);
+		timer.record(Stage.CONTEXT_WRITE, 1000, 10);
+	}
+
+	@AfterMethod
+	public void afterMethod() throws IOException
+	{
+		FileUtils.deleteDirectory(outputDir);
+	}
+
+	/**
+	 * Tests whether the metrics file of a task only ends up in the output directory once it is committed.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testWritesThroughOutputCommitter() throws IOException
+	{
+		FileOutputCommitter committer = new FileOutputCommitter(FileOutputFormat.getOutputPath(context), context);
+		JobContext jobContext = new JobContextImpl(context.getConfiguration(), new JobID("job", 1));
+		committer.setupJob(jobContext);
+		committer.setupTask(context);
+
+		new FileMetricsSink().report(context, timer);
+		File metricsFile = new File(new File(outputDir, FileMetricsSink.METRICS_DIR_NAME),
+				context.getTaskAttemptID().getTaskID() + ".tsv");
+		Assert.assertFalse(metricsFile.exists());
+
+		committer.commitTask(context);
+		committer.commitJob(jobContext);
+		Assert.assertTrue(metricsFile.exists());
+		Assert.assertTrue(FileUtils.readFileToString(metricsFile, StandardCharsets.UTF_8).startsWith("stage\tcount\t"));
+	}
+
+	/**
+	 * Tests whether a set {@link PipelineProperties#METRICS_DIR} is written to directly, with a file per attempt.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testWritesToMetricsDir() throws IOException
+	{
+		File metricsDir = new File(outputDir, "custom");
+		context.getConfiguration().set(PipelineProperties.METRICS_DIR, new Path(metricsDir.toURI()).toString());
+
+		new FileMetricsSink().report(context, timer);
+		Assert.assertTrue(new File(metricsDir, context.getTaskAttemptID() + ".tsv").exists());
+	}
+}
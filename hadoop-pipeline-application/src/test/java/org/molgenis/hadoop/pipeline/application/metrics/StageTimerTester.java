@@ -0,0 +1,95 @@
+package org.molgenis.hadoop.pipeline.application.metrics;
+
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link StageTimer} and {@link LatencyHistogram}.
+ */
+public class StageTimerTester extends Tester
+{
+	/**
+	 * Tests whether the totals and histogram of a stage are recorded.
+	 */
+	@Test
+	public void testRecord()
+	{
+		StageTimer timer = new StageTimer(true);
+		timer.record(Stage.CONTEXT_WRITE, 1000, 10);
+		timer.record(Stage.CONTEXT_WRITE, 3000, 20);
+		timer.addBytes(Stage.CONTEXT_WRITE, 5);
+
+		Assert.assertEquals(timer.getNanos(Stage.CONTEXT_WRITE), 4000);
+		Assert.assertEquals(timer.getBytes(Stage.CONTEXT_WRITE), 35);
+		Assert.assertEquals(timer.getHistogram(Stage.CONTEXT_WRITE).getCount(), 2);
+		Assert.assertEquals(timer.getHistogram(Stage.CONTEXT_WRITE).getMax(), 3000);
+		Assert.assertEquals(timer.getHistogram(Stage.BAM_WRITE).getCount(), 0);
+	}
+
+	/**
+	 * Tests whether a disabled {@link StageTimer} ignores everything.
+	 */
+	@Test
+	public void testDisabled()
+	{
+		StageTimer timer = new StageTimer(false);
+		timer.stop(Stage.HDFS_READ, timer.start(), 100);
+		timer.record(Stage.HDFS_READ, 1000, 10);
+		timer.addBytes(Stage.HDFS_READ, 5);
+
+		Assert.assertEquals(timer.start(), 0);
+		Assert.assertEquals(timer.getNanos(Stage.HDFS_READ), 0);
+		Assert.assertEquals(timer.getBytes(Stage.HDFS_READ), 0);
+		Assert.assertEquals(timer.getHistogram(Stage.HDFS_READ).getCount(), 0);
+	}
+
+	/**
+	 * Tests whether the histogram percentiles return the upper bound of the power-of-two bucket (limited by the
+	 * maximum).
+	 */
+	@Test
+	public void testHistogramPercentiles()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 90; i++)
+		{
+			histogram.record(100);
+		}
+		for (int i = 0; i < 10; i++)
+		{
+			histogram.record(5000);
+		}
+
+		Assert.assertEquals(histogram.getPercentile(50), 127);
+		Assert.assertEquals(histogram.getPercentile(90), 127);
+		Assert.assertEquals(histogram.getPercentile(99), 5000);
+		Assert.assertEquals(histogram.getMean(), 590);
+	}
+
+	/**
+	 * Tests whether merging adds all values of the other histogram.
+	 */
+	@Test
+	public void testHistogramMerge()
+	{
+		LatencyHistogram first = new LatencyHistogram();
+		first.record(0);
+		LatencyHistogram second = new LatencyHistogram();
+		second.record(Long.MAX_VALUE);
+		first.merge(second);
+
+		Assert.assertEquals(first.getCount(), 2);
+		Assert.assertEquals(first.getPercentile(50), 0);
+		Assert.assertEquals(first.getPercentile(100), Long.MAX_VALUE);
+	}
+
+	/**
+	 * Tests whether an invalid percentile is rejected.
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidPercentile()
+	{
+		new LatencyHistogram().getPercentile(101);
+	}
+}
@@ -0,0 +1,156 @@
+package org.molgenis.hadoop.pipeline.application.sequences;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+
+/**
+ * Tester for {@link AlignedReadPair}.
+ */
+public class AlignedReadPairTester
+{
+	/**
+	 * Header containing the reference sequences the records are aligned to.
+	 */
+	private static final SAMFileHeader HEADER = new SAMFileHeader();
+
+	static
+	{
+		HEADER.setSequenceDictionary(new SAMSequenceDictionary(
+				Arrays.asList(new SAMSequenceRecord("1", 249250621), new SAMSequenceRecord("2", 243199373))));
+	}
+
+	/**
+	 * Tests whether the mate information of all records (including the supplementary record) is set using the primary
+	 * record of the other read.
+	 */
+	@Test
+	public void testSetMateInformation()
+	{
+		SAMRecord first = generateSamRecord(true, false, 0, 100, "10M", 60, false);
+		SAMRecord firstSupplementary = generateSamRecord(true, true, 1, 5000, "5M5H", 20, false);
+		SAMRecord second = generateSamRecord(false, false, 0, 300, "8M2S", 30, true);
+		List<SAMRecord> records = new ArrayList<>(Arrays.asList(first, firstSupplementary, second));
+
+		AlignedReadPair readPair = new AlignedReadPair(records);
+		readPair.setMateInformation();
+
+		for (SAMRecord record : new SAMRecord[] { first, firstSupplementary })
+		{
+			Assert.assertEquals(record.getMateReferenceIndex().intValue(), 0);
+			Assert.assertEquals(record.getMateAlignmentStart(), 300);
+			Assert.assertTrue(record.getMateNegativeStrandFlag());
+			Assert.assertFalse(record.getMateUnmappedFlag());
+			Assert.assertEquals(record.getAttribute(AlignedReadPair.MATE_CIGAR_TAG), "8M2S");
+			Assert.assertEquals(record.getAttribute(AlignedReadPair.MATE_MAPPING_QUALITY_TAG), 30);
+		}
+		Assert.assertEquals(second.getMateReferenceIndex().intValue(), 0);
+		Assert.assertEquals(second.getMateAlignmentStart(), 100);
+		Assert.assertFalse(second.getMateNegativeStrandFlag());
+		Assert.assertEquals(second.getAttribute(AlignedReadPair.MATE_CIGAR_TAG), "10M");
+		Assert.assertEquals(second.getAttribute(AlignedReadPair.MATE_MAPPING_QUALITY_TAG), 60);
+	}
+
+	/**
+	 * Tests whether the {@code MC} and {@code MQ} tags are removed from the records of which the mate is unmapped.
+	 */
+	@Test
+	public void testSetMateInformationWithUnmappedMate()
+	{
+		SAMRecord first = generateSamRecord(true, false, 0, 100, "10M", 60, false);
+		first.setAttribute(AlignedReadPair.MATE_CIGAR_TAG, "10M");
+		SAMRecord second = generateSamRecord(false, false, 0, 100, "*", 0, false);
+		second.setReadUnmappedFlag(true);
+
+		AlignedReadPair readPair = new AlignedReadPair(new ArrayList<>(Arrays.asList(first, second)));
+		readPair.setMateInformation();
+
+		Assert.assertTrue(first.getMateUnmappedFlag());
+		Assert.assertNull(first.getAttribute(AlignedReadPair.MATE_CIGAR_TAG));
+		Assert.assertNull(first.getAttribute(AlignedReadPair.MATE_MAPPING_QUALITY_TAG));
+		Assert.assertEquals(second.getAttribute(AlignedReadPair.MATE_CIGAR_TAG), "10M");
+		Assert.assertEquals(second.getAttribute(AlignedReadPair.MATE_MAPPING_QUALITY_TAG), 60);
+	}
+
+	/**
+	 * Tests whether a read pair of which both reads are mapped but not as proper pair is discordant, while a properly
+	 * paired read pair and a read pair with an unmapped read are not.
+	 */
+	@Test
+	public void testIsDiscordant()
+	{
+		SAMRecord first = generateSamRecord(true, false, 0, 100, "10M", 60, false);
+		SAMRecord second = generateSamRecord(false, false, 1, 300, "10M", 60, true);
+		AlignedReadPair readPair = new AlignedReadPair(new ArrayList<>(Arrays.asList(first, second)));
+		Assert.assertTrue(readPair.isDiscordant());
+
+		first.setProperPairFlag(true);
+		second.setProperPairFlag(true);
+		Assert.assertFalse(readPair.isDiscordant());
+
+		first.setProperPairFlag(false);
+		second.setReadUnmappedFlag(true);
+		readPair.update();
+		Assert.assertFalse(readPair.isDiscordant());
+	}
+
+	/**
+	 * Tests whether only the read with a supplementary record is a split read.
+	 */
+	@Test
+	public void testIsSplit()
+	{
+		SAMRecord first = generateSamRecord(true, false, 0, 100, "5M5S", 60, false);
+		SAMRecord firstSupplementary = generateSamRecord(true, true, 1, 5000, "5H5M", 60, false);
+		SAMRecord second = generateSamRecord(false, false, 0, 300, "10M", 60, true);
+		AlignedReadPair readPair = new AlignedReadPair(
+				new ArrayList<>(Arrays.asList(first, firstSupplementary, second)));
+
+		Assert.assertTrue(readPair.getFirst().isSplit());
+		Assert.assertFalse(readPair.getSecond().isSplit());
+	}
+
+	/**
+	 * Generates a paired {@link SAMRecord} using the parameter data.
+	 * 
+	 * @param isFirst
+	 *            {@code boolean}
+	 * @param isSupplementary
+	 *            {@code boolean}
+	 * @param referenceIndex
+	 *            {@code int}
+	 * @param start
+	 *            {@code int}
+	 * @param cigar
+	 *            {@link String}
+	 * @param mappingQuality
+	 *            {@code int}
+	 * @param isReverseStrand
+	 *            {@code boolean}
+	 * @return {@link SAMRecord}
+	 */
+	private SAMRecord generateSamRecord(boolean isFirst, boolean isSupplementary, int referenceIndex, int start,
+			String cigar, int mappingQuality, boolean isReverseStrand)
+	{
+		SAMRecord record = new SAMRecord(HEADER);
+		record.setReadName("read1");
+		record.setReadPairedFlag(true);
+		record.setFirstOfPairFlag(isFirst);
+		record.setSecondOfPairFlag(!isFirst);
+		record.setSupplementaryAlignmentFlag(isSupplementary);
+		record.setReadNegativeStrandFlag(isReverseStrand);
+		record.setReferenceIndex(referenceIndex);
+		record.setAlignmentStart(start);
+		record.setCigarString(cigar);
+		record.setMappingQuality(mappingQuality);
+		return record;
+	}
+}
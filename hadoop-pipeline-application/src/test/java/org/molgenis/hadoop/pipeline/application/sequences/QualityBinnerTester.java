@@ -0,0 +1,83 @@
+package org.molgenis.hadoop.pipeline.application.sequences;
+
+import org.apache.hadoop.conf.Configuration;
+import org.molgenis.hadoop.pipeline.application.PipelineProperties;
+import org.molgenis.hadoop.pipeline.application.Tester;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link QualityBinner}.
+ */
+public class QualityBinnerTester extends Tester
+{
+	/**
+	 * Tests the bin boundaries of the Illumina 8-level binning.
+	 */
+	@Test
+	public void testIllumina8Level()
+	{
+		QualityBinner binner = new QualityBinner(QualityBinner.ILLUMINA_8_LEVEL);
+
+		int[] qualities = new int[] { 0, 1, 2, 9, 10, 19, 20, 24, 25, 29, 30, 34, 35, 39, 40, 93 };
+		int[] expected = new int[] { 0, 1, 6, 6, 15, 15, 22, 22, 27, 27, 33, 33, 37, 37, 40, 40 };
+		for (int i = 0; i < qualities.length; i++)
+		{
+			Assert.assertEquals(binner.bin(qualities[i]), expected[i], "quality " + qualities[i]);
+		}
+	}
+
+	/**
+	 * Tests whether only the given part of a {@code byte[]} is binned and qualities outside of the bins (including
+	 * missing qualities) are kept.
+	 */
+	@Test
+	public void testBinUserDefinedBins()
+	{
+		QualityBinner binner = new QualityBinner("2-19:10, 20-39:30");
+		byte[] qualities = new byte[] { 5, 5, 25, 40, (byte) 0xFF, 5 };
+		binner.bin(qualities, 1, 4);
+
+		Assert.assertEquals(qualities, new byte[] { 5, 10, 30, 40, (byte) 0xFF, 5 });
+	}
+
+	/**
+	 * Tests whether overlapping bins are refused.
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testOverlappingBins()
+	{
+		new QualityBinner("2-19:10,19-39:30");
+	}
+
+	/**
+	 * Tests whether a bin without value is refused.
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidBin()
+	{
+		new QualityBinner("2-19");
+	}
+
+	/**
+	 * Tests whether a bin above the highest quality is refused.
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testBinOutOfRange()
+	{
+		new QualityBinner("2-100:10");
+	}
+
+	/**
+	 * Tests whether no {@link QualityBinner} is created if no bins are set.
+	 */
+	@Test
+	public void testCreateWithoutBins()
+	{
+		Configuration conf = new Configuration(false);
+		Assert.assertNull(QualityBinner.create(conf));
+
+		conf.set(PipelineProperties.QUALITY_BINNING, QualityBinner.ILLUMINA_8_LEVEL);
+		Assert.assertEquals(QualityBinner.create(conf).getBins(), QualityBinner.ILLUMINA_8_LEVEL);
+	}
+}
@@ -0,0 +1,160 @@
+package org.molgenis.hadoop.pipeline.application.writables;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.hadoop.io.WritableUtils;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+
+/**
+ * Tester for {@link BamRecordWritable}.
+ */
+public class BamRecordWritableTester
+{
+	/**
+	 * Header used for the created {@link SAMRecord}{@code s}.
+	 */
+	private SAMFileHeader header;
+
+	/**
+	 * Record used for testing.
+	 */
+	private SAMRecord record;
+
+	@BeforeClass
+	public void beforeClass()
+	{
+		header = new SAMFileHeader();
+		header.setSequenceDictionary(new SAMSequenceDictionary(
+				Arrays.asList(new SAMSequenceRecord("1", 249250621), new SAMSequenceRecord("2", 243199373))));
+
+		record = new SAMRecord(header);
+		record.setReadName("HWI-ST1234:123:ABCDEFGXX:1:1101:1234:5678");
+		record.setFlags(99);
+		record.setReferenceIndex(1);
+		record.setAlignmentStart(20000100);
+		record.setMappingQuality(60);
+		record.setCigarString("5M");
+		record.setMateReferenceIndex(1);
+		record.setMateAlignmentStart(20000200);
+		record.setInferredInsertSize(105);
+		record.setReadString("ACGTN");
+		record.setBaseQualityString("ABCDE");
+		record.setAttribute("RG", "1");
+	}
+
+	/**
+	 * Tests whether the fields retrieved directly from the BAM-encoded bytes are correct.
+	 */
+	@Test
+	public void testLazyFieldRetrieval()
+	{
+		BamRecordWritable writable = new BamRecordWritable();
+		writable.set(record);
+
+		Assert.assertEquals(writable.getReadName(), record.getReadName());
+		Assert.assertEquals(writable.getFlags(), record.getFlags());
+		Assert.assertEquals(writable.getReferenceIndex(), record.getReferenceIndex().intValue());
+		Assert.assertEquals(writable.getAlignmentStart(), record.getAlignmentStart());
+	}
+
+	/**
+	 * Tests whether a serialized and deserialized {@link BamRecordWritable} results in the same record.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testSerializationRoundTrip() throws IOException
+	{
+		BamRecordWritable expected = new BamRecordWritable();
+		expected.set(record);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		expected.write(new DataOutputStream(bytes));
+		Assert.assertEquals(bytes.size(), expected.getLength() + WritableUtils.getVIntSize(expected.getLength()));
+
+		// Reads the data twice into a single instance to validate the reuse of a BamRecordWritable.
+		BamRecordWritable actual = new BamRecordWritable();
+		actual.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		actual.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		Assert.assertEquals(actual, expected);
+		Assert.assertEquals(actual.hashCode(), expected.hashCode());
+
+		// Validates the decoded record (after adding the header which is not stored in the writable).
+		SAMRecord actualRecord = actual.get();
+		actualRecord.setHeader(header);
+		Assert.assertEquals(actualRecord.getSAMString(), record.getSAMString());
+	}
+
+	/**
+	 * Tests whether multiple appended records can be retrieved individually.
+	 */
+	@Test
+	public void testMultipleRecords()
+	{
+		SAMRecord secondRecord = new SAMRecord(header);
+		secondRecord.setReadName("read2");
+		secondRecord.setFlags(4);
+		secondRecord.setReferenceIndex(-1);
+		secondRecord.setAlignmentStart(0);
+		secondRecord.setReadString("ACGT");
+		secondRecord.setBaseQualityString("IIII");
+
+		BamRecordWritable single = new BamRecordWritable();
+		single.set(record);
+
+		BamRecordWritable writable = new BamRecordWritable();
+		writable.append(record);
+		writable.append(secondRecord);
+
+		// The first record is unchanged.
+		int firstLength = writable.getRecordLength(0);
+		Assert.assertEquals(firstLength, single.getLength());
+		Assert.assertEquals(writable.getReadName(), record.getReadName());
+
+		// The second record starts directly behind the first one.
+		Assert.assertEquals(writable.getReferenceIndex(firstLength), -1);
+		Assert.assertEquals(writable.getAlignmentStart(firstLength), 0);
+		Assert.assertEquals(firstLength + writable.getRecordLength(firstLength), writable.getLength());
+	}
+
+	/**
+	 * Tests whether a serialized and deserialized {@link RegionBitmapBamRecordWritable} results in the same record and
+	 * region bitmap.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testRegionBitmapSerializationRoundTrip() throws IOException
+	{
+		BitSet regions = new BitSet();
+		regions.set(0);
+		regions.set(70);
+
+		RegionBitmapBamRecordWritable expected = new RegionBitmapBamRecordWritable();
+		expected.set(record, regions);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		expected.write(new DataOutputStream(bytes));
+
+		RegionBitmapBamRecordWritable actual = new RegionBitmapBamRecordWritable();
+		actual.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		Assert.assertEquals(actual, expected);
+		Assert.assertEquals(actual.getRegions(), regions);
+		Assert.assertEquals(actual.getReadName(), record.getReadName());
+	}
+}
@@ -0,0 +1,88 @@
+package org.molgenis.hadoop.pipeline.application.writables;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link RegionWritable}.
+ */
+public class RegionWritableTester
+{
+	/**
+	 * Tests whether a {@link RegionWritable} without a sample is the same after serialization.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testWriteAndReadWithoutSample() throws IOException
+	{
+		RegionWritable region = new RegionWritable(new Region("1", 100, 200));
+		RegionWritable copy = writeAndRead(region);
+
+		Assert.assertEquals(copy, region);
+		Assert.assertEquals(copy.getSample(), "");
+	}
+
+	/**
+	 * Tests whether a {@link RegionWritable} with a sample is the same after serialization.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testWriteAndReadWithSample() throws IOException
+	{
+		RegionWritable region = new RegionWritable(new Region("1", 100, 200), "sample1");
+		RegionWritable copy = writeAndRead(region);
+
+		Assert.assertEquals(copy, region);
+		Assert.assertEquals(copy.getSample(), "sample1");
+	}
+
+	/**
+	 * Tests whether {@link RegionWritable}{@code s} are ordered by sample first, so all regions of a sample are reduced
+	 * after each other.
+	 */
+	@Test
+	public void testCompareTo()
+	{
+		RegionWritable sample1Region2 = new RegionWritable(new Region("2", 100, 200), "sample1");
+		RegionWritable sample2Region1 = new RegionWritable(new Region("1", 100, 200), "sample2");
+		RegionWritable sample2Region2 = new RegionWritable(new Region("2", 100, 200), "sample2");
+
+		Assert.assertTrue(sample1Region2.compareTo(sample2Region1) < 0);
+		Assert.assertTrue(sample2Region1.compareTo(sample2Region2) < 0);
+		Assert.assertEquals(sample2Region2.compareTo(new RegionWritable(new Region("2", 100, 200), "sample2")), 0);
+	}
+
+	/**
+	 * Tests whether the sample is part of the equality, while the hash code of a {@link RegionWritable} without a
+	 * sample only depends on the {@link Region} (so the partitioning of jobs without batch mode does not change).
+	 */
+	@Test
+	public void testEqualsAndHashCode()
+	{
+		Region region = new Region("1", 100, 200);
+
+		Assert.assertNotEquals(new RegionWritable(region, "sample1"), new RegionWritable(region));
+		Assert.assertNotEquals(new RegionWritable(region, "sample1"), new RegionWritable(region, "sample2"));
+		Assert.assertEquals(new RegionWritable(region, ""), new RegionWritable(region));
+		Assert.assertEquals(new RegionWritable(region).hashCode(), 31 + region.hashCode());
+	}
+
+	private RegionWritable writeAndRead(RegionWritable region) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		region.write(new DataOutputStream(bytes));
+
+		RegionWritable copy = new RegionWritable();
+		copy.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		return copy;
+	}
+}
@@ -246,6 +246,7 @@ def processMapTaskCounters(tree, dataToStore):
 	# See also the retrieveFromTree(tree, path) method.
 	dataToStore['MAP_INPUT_RECORDS'] = retrieveFromTree(tree,"$.jobTaskCounters.taskCounterGroup[@.counterGroupName is 'org.apache.hadoop.mapreduce.TaskCounter'][0].counter[@.name is 'MAP_INPUT_RECORDS'].value")
 	dataToStore['MAP_OUTPUT_RECORDS'] = retrieveFromTree(tree,"$.jobTaskCounters.taskCounterGroup[@.counterGroupName is 'org.apache.hadoop.mapreduce.TaskCounter'][0].counter[@.name is 'MAP_OUTPUT_RECORDS'].value")
+	processStageCounters(tree, dataToStore, ['HDFS_READ', 'BWA_STDIN_WRITE', 'BWA_WALL', 'SAM_DECODE', 'PAIR_GROUPING', 'REGION_LOOKUP', 'CONTEXT_WRITE'])
 
 def processReduceTaskCounters(tree, dataToStore):
 	"""
@@ -270,6 +271,26 @@ def processReduceTaskCounters(tree, dataToStore):
 	# See also the retrieveFromTree(tree, path) method.
 	dataToStore['REDUCE_INPUT_GROUPS'] = retrieveFromTree(tree,"$.jobTaskCounters.taskCounterGroup[@.counterGroupName is 'org.apache.hadoop.mapreduce.TaskCounter'][0].counter[@.name is 'REDUCE_INPUT_GROUPS'].value")
 	dataToStore['REDUCE_INPUT_RECORDS'] = retrieveFromTree(tree,"$.jobTaskCounters.taskCounterGroup[@.counterGroupName is 'org.apache.hadoop.mapreduce.TaskCounter'][0].counter[@.name is 'REDUCE_INPUT_RECORDS'].value")
+	processStageCounters(tree, dataToStore, ['REDUCE_GROUP_ITERATION', 'BAM_WRITE'])
+
+def processStageCounters(tree, dataToStore, stages):
+	"""
+	Name:
+		processStageCounters
+		
+	Info:
+		Retrieves the per-stage time and bytes counters of a task (only present if the job was run with
+		hadoop.pipeline.stagemetrics=true, otherwise 'NA' is stored) and stores them in dataToStore.
+	
+	Input:
+		tree - Tree: Json structure generated by the Hadoop REST API and processed by objectpath.Tree().
+		dataToStore - dict: In which the counters of interest should be stored.
+		stages - list(String): The names of the stages to retrieve the counters from.
+	"""
+	
+	for stage in stages:
+		for counterName in [stage + '_MILLIS', stage + '_BYTES']:
+			dataToStore[counterName] = retrieveFromTree(tree,"$.jobTaskCounters.taskCounterGroup[@.counterGroupName is 'org.molgenis.hadoop.pipeline.application.metrics.Stage'][0].counter[@.name is '" + counterName + "'].value")
 
 def retrieveFromTree(tree, path):
 	"""
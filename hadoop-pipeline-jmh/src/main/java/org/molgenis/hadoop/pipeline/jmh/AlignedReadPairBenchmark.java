@@ -0,0 +1,57 @@
+package org.molgenis.hadoop.pipeline.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.molgenis.hadoop.pipeline.application.sequences.AlignedReadPair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Benchmarks the construction (and therefore classification) of {@link AlignedReadPair}{@code s}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AlignedReadPairBenchmark
+{
+	private List<List<SAMRecord>> readPairs;
+
+	private int index = 0;
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(42);
+		SAMFileHeader header = SyntheticData.createHeader();
+
+		readPairs = new ArrayList<>();
+		for (int i = 0; i < 50000; i++)
+		{
+			readPairs.add(SyntheticData.createReadPair(header, i, null, random));
+		}
+	}
+
+	@Benchmark
+	public AlignedReadPair.Type createAndClassify()
+	{
+		index = (index + 1) % readPairs.size();
+		return new AlignedReadPair(readPairs.get(index)).getType();
+	}
+}
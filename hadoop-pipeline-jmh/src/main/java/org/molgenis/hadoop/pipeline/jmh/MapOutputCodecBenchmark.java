@@ -0,0 +1,148 @@
+package org.molgenis.hadoop.pipeline.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.molgenis.hadoop.pipeline.application.MapOutputCodec;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.writables.BamRecordWritable;
+import org.molgenis.hadoop.pipeline.application.writables.RegionWithSortableSamRecordWritable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Benchmarks the compression and decompression of the {@link MapOutputCodec}{@code s} on synthetic map output
+ * (serialized {@link RegionWithSortableSamRecordWritable}:{@link BamRecordWritable} pairs framed as in a map output
+ * file), reporting the time needed per 100.000 records. The compression ratio of each codec is printed during the
+ * setup. Codecs requiring unavailable native libraries fail in the setup, after which JMH continues with the next
+ * codec.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapOutputCodecBenchmark
+{
+	@Param({ "default", "gzip", "bzip2", "lz4", "snappy" })
+	private String codecName;
+
+	private CompressionCodec codec;
+
+	private byte[] mapOutput;
+
+	private byte[] compressed;
+
+	private byte[] decompressed;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		Class<? extends CompressionCodec> codecClass = MapOutputCodec.fromName(codecName).getCodecClass();
+		codec = ReflectionUtils.newInstance(codecClass, new Configuration());
+
+		mapOutput = createMapOutput(100000, new Random(42));
+		compressed = compress();
+		decompressed = new byte[mapOutput.length];
+		decompress();
+		if (!Arrays.equals(decompressed, mapOutput))
+		{
+			throw new IOException("Decompressed data differs from the original data.");
+		}
+		System.out.println(String.format("%s: %d bytes compressed to %d bytes (ratio %.2f)", codecName,
+				mapOutput.length, compressed.length, (double) mapOutput.length / compressed.length));
+	}
+
+	@Benchmark
+	public byte[] compress() throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(mapOutput.length / 2);
+		OutputStream out = codec.createOutputStream(bytes);
+		out.write(mapOutput);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	@Benchmark
+	public int decompress() throws IOException
+	{
+		InputStream in = codec.createInputStream(new ByteArrayInputStream(compressed));
+		int offset = 0;
+		int read;
+		while (offset < decompressed.length
+				&& (read = in.read(decompressed, offset, decompressed.length - offset)) != -1)
+		{
+			offset += read;
+		}
+		in.close();
+		return offset;
+	}
+
+	/**
+	 * Creates synthetic map output in the same framing as a map output file (key length, value length, key, value).
+	 *
+	 * @param nRecords
+	 *            {@code int}
+	 * @param random
+	 *            {@link Random}
+	 * @return {@code byte[]}
+	 * @throws IOException
+	 */
+	private static byte[] createMapOutput(int nRecords, Random random) throws IOException
+	{
+		SAMFileHeader header = SyntheticData.createHeader();
+		List<Region> regions = SyntheticData.createExomeRegions(190000, random);
+
+		DataOutputBuffer output = new DataOutputBuffer();
+		DataOutputBuffer key = new DataOutputBuffer();
+		DataOutputBuffer value = new DataOutputBuffer();
+		BamRecordWritable recordWritable = new BamRecordWritable();
+
+		int records = 0;
+		for (int i = 0; records < nRecords; i++)
+		{
+			// Map output is grouped per region, so each pair is written for a single region here.
+			Region region = regions.get(random.nextInt(regions.size()));
+			for (SAMRecord record : SyntheticData.createReadPair(header, i, Arrays.asList(region), random))
+			{
+				key.reset();
+				new RegionWithSortableSamRecordWritable(region, record).write(key);
+				value.reset();
+				recordWritable.set(record);
+				recordWritable.write(value);
+
+				WritableUtils.writeVInt(output, key.getLength());
+				WritableUtils.writeVInt(output, value.getLength());
+				output.write(key.getData(), 0, key.getLength());
+				output.write(value.getData(), 0, value.getLength());
+				records++;
+			}
+		}
+		return Arrays.copyOf(output.getData(), output.getLength());
+	}
+}
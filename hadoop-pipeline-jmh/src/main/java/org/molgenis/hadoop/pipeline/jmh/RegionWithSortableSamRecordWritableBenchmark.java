@@ -0,0 +1,98 @@
+package org.molgenis.hadoop.pipeline.jmh;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.writables.RegionWithSortableSamRecordWritable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Benchmarks the serialization, deserialization and comparison of {@link RegionWithSortableSamRecordWritable}{@code s}
+ * (which happens for every map output record during sorting, spilling and merging).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RegionWithSortableSamRecordWritableBenchmark
+{
+	private RegionWithSortableSamRecordWritable[] keys;
+
+	private DataOutputBuffer outputBuffer = new DataOutputBuffer();
+
+	private DataInputBuffer inputBuffer = new DataInputBuffer();
+
+	private byte[] serializedKey;
+
+	private int index = 0;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		Random random = new Random(42);
+		SAMFileHeader header = SyntheticData.createHeader();
+		List<Region> regions = SyntheticData.createExomeRegions(190000, random);
+
+		keys = new RegionWithSortableSamRecordWritable[100000];
+		for (int i = 0; i < keys.length; i++)
+		{
+			// Keys mostly share a region with their neighbour, as in a sorted map output buffer.
+			Region region = regions.get(random.nextInt(regions.size()));
+			SAMRecord record = SyntheticData.createReadPair(header, i, regions, random).get(0);
+			keys[i] = new RegionWithSortableSamRecordWritable(region, record);
+			if (i % 2 == 1)
+			{
+				keys[i] = new RegionWithSortableSamRecordWritable(keys[i - 1].get(), record);
+			}
+		}
+
+		outputBuffer.reset();
+		keys[0].write(outputBuffer);
+		serializedKey = Arrays.copyOf(outputBuffer.getData(), outputBuffer.getLength());
+	}
+
+	@Benchmark
+	public int write() throws IOException
+	{
+		index = (index + 1) % keys.length;
+		outputBuffer.reset();
+		keys[index].write(outputBuffer);
+		return outputBuffer.getLength();
+	}
+
+	@Benchmark
+	public RegionWithSortableSamRecordWritable readFields() throws IOException
+	{
+		RegionWithSortableSamRecordWritable key = new RegionWithSortableSamRecordWritable();
+		inputBuffer.reset(serializedKey, serializedKey.length);
+		key.readFields(inputBuffer);
+		return key;
+	}
+
+	@Benchmark
+	public int compareTo()
+	{
+		index = (index + 1) % (keys.length - 1);
+		return keys[index].compareTo(keys[index + 1]);
+	}
+}
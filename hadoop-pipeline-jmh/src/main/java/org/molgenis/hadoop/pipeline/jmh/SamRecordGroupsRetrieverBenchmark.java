@@ -0,0 +1,83 @@
+package org.molgenis.hadoop.pipeline.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.mapreduce.SamRecordGroupsRetriever;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Benchmarks {@link SamRecordGroupsRetriever#retrieveGroupsWithinRange(SAMRecord)} using an exome-like BED (many short
+ * targets, records mostly near a target) and a genome-like BED (consecutive windows, records placed randomly).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SamRecordGroupsRetrieverBenchmark
+{
+	/**
+	 * The type of BED file: {@code exome} (about 190.000 targets) or {@code genome} (100kb windows).
+	 */
+	@Param({ "exome", "genome" })
+	private String bed;
+
+	private SamRecordGroupsRetriever retriever;
+
+	private SAMRecord[] records;
+
+	private int index = 0;
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(42);
+		SAMFileHeader header = SyntheticData.createHeader();
+
+		List<Region> regions;
+		List<Region> targets;
+		if (bed.equals("exome"))
+		{
+			regions = SyntheticData.createExomeRegions(190000, random);
+			targets = regions;
+		}
+		else
+		{
+			regions = SyntheticData.createGenomeRegions(100000);
+			targets = null;
+		}
+		retriever = new SamRecordGroupsRetriever(SyntheticData.toContigRegionsMap(regions));
+
+		List<SAMRecord> recordList = new ArrayList<>();
+		for (int i = 0; recordList.size() < 100000; i++)
+		{
+			recordList.addAll(SyntheticData.createReadPair(header, i, targets, random));
+		}
+		records = recordList.toArray(new SAMRecord[recordList.size()]);
+	}
+
+	@Benchmark
+	public List<Region> retrieveGroupsWithinRange()
+	{
+		index = (index + 1) % records.length;
+		return retriever.retrieveGroupsWithinRange(records[index]);
+	}
+}
@@ -0,0 +1,62 @@
+package org.molgenis.hadoop.pipeline.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.molgenis.hadoop.pipeline.application.inputstreamdigestion.SamRecordSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Benchmarks the parsing throughput of a {@link SamRecordSink} on SAM-formatted data as output by BWA (reporting the
+ * time needed per 10.000 read pairs), using either htsjdk's parser or the byte-level parser.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SamRecordSinkBenchmark
+{
+	@Param({ "false", "true" })
+	private boolean byteLevelParsing;
+
+	private byte[] sam;
+
+	@Setup
+	public void setup()
+	{
+		sam = SyntheticData.createSamText(SyntheticData.createHeader(), 10000, null, new Random(42));
+	}
+
+	@Benchmark
+	public int parse() throws IOException
+	{
+		final int[] count = new int[1];
+		SamRecordSink sink = new SamRecordSink(byteLevelParsing)
+		{
+			@Override
+			protected void digestStreamItem(SAMRecord item) throws IOException
+			{
+				// Retrieves the fields used by the mapper for each record.
+				count[0] += item.getReadName().length() + item.getFlags() + item.getAlignmentStart();
+			}
+		};
+		sink.handleInputStream(new ByteArrayInputStream(sam));
+		return count[0];
+	}
+}
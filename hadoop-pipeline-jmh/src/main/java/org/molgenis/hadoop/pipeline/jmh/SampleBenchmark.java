@@ -0,0 +1,55 @@
+package org.molgenis.hadoop.pipeline.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Sample;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import htsjdk.samtools.SAMReadGroupRecord;
+
+/**
+ * Benchmarks the formatting methods of {@link Sample} (used for matching input splits and creating read groups).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SampleBenchmark
+{
+	private Sample sample;
+
+	@Setup
+	public void setup()
+	{
+		sample = SyntheticData.createSample(1);
+	}
+
+	@Benchmark
+	public String getComparisonName()
+	{
+		return sample.getComparisonName();
+	}
+
+	@Benchmark
+	public String getSafeReadGroupLine()
+	{
+		return sample.getSafeReadGroupLine();
+	}
+
+	@Benchmark
+	public SAMReadGroupRecord getAsReadGroupRecord()
+	{
+		return sample.getAsReadGroupRecord();
+	}
+}
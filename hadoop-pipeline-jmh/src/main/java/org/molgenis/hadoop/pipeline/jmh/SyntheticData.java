@@ -0,0 +1,369 @@
+package org.molgenis.hadoop.pipeline.jmh;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.molgenis.hadoop.pipeline.application.cachedigestion.ContigRegionsMap;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.ContigRegionsMapBuilder;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Sample;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMTextHeaderCodec;
+
+/**
+ * Generates deterministic synthetic data (based on the GRCh37 contigs) so the benchmarks can run offline.
+ */
+public abstract class SyntheticData
+{
+	/**
+	 * The GRCh37 contig names.
+	 */
+	private static final String[] CONTIGS = { "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13",
+			"14", "15", "16", "17", "18", "19", "20", "21", "22", "X", "Y" };
+
+	/**
+	 * The GRCh37 contig lengths.
+	 */
+	private static final int[] CONTIG_LENGTHS = { 249250621, 243199373, 198022430, 191154276, 180915260, 171115067,
+			159138663, 146364022, 141213431, 135534747, 135006516, 133851895, 115169878, 107349540, 102531392,
+			90354753, 81195210, 78077248, 59128983, 63025520, 48129895, 51304566, 155270560, 59373566 };
+
+	private static final char[] BASES = { 'A', 'C', 'G', 'T' };
+
+	/**
+	 * Binned Illumina-like base qualities (most bases having a high quality).
+	 */
+	private static final char[] QUALITIES = { 'F', 'F', 'F', 'F', 'F', 'F', ':', ':', ',', '#' };
+
+	/**
+	 * The read length used for the generated reads.
+	 */
+	public static final int READ_LENGTH = 150;
+
+	/**
+	 * Creates a header containing the GRCh37 contigs and a single read group.
+	 * 
+	 * @return {@link SAMFileHeader}
+	 */
+	public static SAMFileHeader createHeader()
+	{
+		SAMFileHeader header = new SAMFileHeader();
+		for (int i = 0; i < CONTIGS.length; i++)
+		{
+			header.addSequence(new SAMSequenceRecord(CONTIGS[i], CONTIG_LENGTHS[i]));
+		}
+		header.addReadGroup(createSample(1).getAsReadGroupRecord());
+		return header;
+	}
+
+	/**
+	 * Creates a header with {@code nContigs} contigs: the GRCh37 contigs first, followed by additional contigs of
+	 * {@code contigLength} (similar to unplaced/decoy contigs) if more than 24 contigs are requested.
+	 * 
+	 * @param nContigs
+	 *            {@code int}
+	 * @param contigLength
+	 *            {@code int} The length of the contigs after the GRCh37 contigs.
+	 * @return {@link SAMFileHeader}
+	 */
+	public static SAMFileHeader createHeader(int nContigs, int contigLength)
+	{
+		if (nContigs < 1 || contigLength < 10000)
+		{
+			throw new IllegalArgumentException("At least 1 contig with a length of at least 10000 is required.");
+		}
+
+		SAMFileHeader header = new SAMFileHeader();
+		for (int i = 0; i < nContigs; i++)
+		{
+			if (i < CONTIGS.length) header.addSequence(new SAMSequenceRecord(CONTIGS[i], CONTIG_LENGTHS[i]));
+			else header.addSequence(new SAMSequenceRecord("contig" + (i + 1), contigLength));
+		}
+		return header;
+	}
+
+	/**
+	 * Creates {@link Region}{@code s} spread over the contigs of a header (proportional to their length). Each region
+	 * overlaps the previous region with the chance defined by {@code overlap}, otherwise it is placed behind it with a
+	 * random gap.
+	 * 
+	 * @param header
+	 *            {@link SAMFileHeader}
+	 * @param nRegions
+	 *            {@code int} The (approximate) number of regions.
+	 * @param minLength
+	 *            {@code int} The minimum region length.
+	 * @param maxLength
+	 *            {@code int} The maximum region length.
+	 * @param overlap
+	 *            {@code double} The fraction (0-1) of regions overlapping the previous region.
+	 * @param random
+	 *            {@link Random}
+	 * @return {@link List}{@code <}{@link Region}{@code >}
+	 */
+	public static List<Region> createRegions(SAMFileHeader header, int nRegions, int minLength, int maxLength,
+			double overlap, Random random)
+	{
+		if (minLength < 1 || maxLength < minLength || overlap < 0 || overlap > 1)
+		{
+			throw new IllegalArgumentException("Invalid region length range or overlap fraction.");
+		}
+
+		long genomeLength = 0;
+		for (SAMSequenceRecord sequence : header.getSequenceDictionary().getSequences())
+		{
+			genomeLength += sequence.getSequenceLength();
+		}
+
+		List<Region> regions = new ArrayList<>();
+		for (SAMSequenceRecord sequence : header.getSequenceDictionary().getSequences())
+		{
+			int contigLength = sequence.getSequenceLength();
+			int contigRegions = (int) Math.round(nRegions * (contigLength / (double) genomeLength));
+			long meanGap = Math.max(1, contigLength / (contigRegions + 1) - (minLength + maxLength) / 2);
+
+			int start = 0;
+			int end = 0;
+			for (int j = 0; j < contigRegions; j++)
+			{
+				if (j > 0 && random.nextDouble() < overlap)
+				{
+					start = start + random.nextInt(end - start + 1);
+				}
+				else
+				{
+					start = end + 1 + (int) (random.nextDouble() * 2 * meanGap);
+				}
+				end = start + minLength - 1 + random.nextInt(maxLength - minLength + 1);
+				if (end > contigLength) break;
+				regions.add(new Region(sequence.getSequenceName(), start, end));
+			}
+		}
+		return regions;
+	}
+
+	/**
+	 * Creates exome-like target {@link Region}{@code s}: short targets (100-300bp) spread over all contigs
+	 * proportional to their length, occasionally overlapping each other.
+	 * 
+	 * @param nRegions
+	 *            {@code int} The (approximate) number of regions.
+	 * @param random
+	 *            {@link Random}
+	 * @return {@link List}{@code <}{@link Region}{@code >}
+	 */
+	public static List<Region> createExomeRegions(int nRegions, Random random)
+	{
+		long genomeLength = 0;
+		for (int length : CONTIG_LENGTHS)
+		{
+			genomeLength += length;
+		}
+
+		List<Region> regions = new ArrayList<>();
+		for (int i = 0; i < CONTIGS.length; i++)
+		{
+			int contigRegions = (int) (nRegions * (CONTIG_LENGTHS[i] / (double) genomeLength));
+			int meanGap = CONTIG_LENGTHS[i] / (contigRegions + 1);
+			int start = 1;
+			for (int j = 0; j < contigRegions; j++)
+			{
+				// About 5% of the targets overlap with the previous one.
+				start += random.nextInt(20) == 0 ? -50 : random.nextInt(2 * meanGap);
+				start = Math.max(1, Math.min(start, CONTIG_LENGTHS[i] - 300));
+				regions.add(new Region(CONTIGS[i], start, start + 100 + random.nextInt(200)));
+			}
+		}
+		return regions;
+	}
+
+	/**
+	 * Creates genome-wide {@link Region}{@code s}: consecutive windows of {@code windowSize} covering all contigs.
+	 * 
+	 * @param windowSize
+	 *            {@code int}
+	 * @return {@link List}{@code <}{@link Region}{@code >}
+	 */
+	public static List<Region> createGenomeRegions(int windowSize)
+	{
+		List<Region> regions = new ArrayList<>();
+		for (int i = 0; i < CONTIGS.length; i++)
+		{
+			for (int start = 1; start <= CONTIG_LENGTHS[i]; start += windowSize)
+			{
+				regions.add(new Region(CONTIGS[i], start, Math.min(start + windowSize - 1, CONTIG_LENGTHS[i])));
+			}
+		}
+		return regions;
+	}
+
+	/**
+	 * Converts {@link Region}{@code s} to a {@link ContigRegionsMap}.
+	 * 
+	 * @param regions
+	 *            {@link List}{@code <}{@link Region}{@code >}
+	 * @return {@link ContigRegionsMap}
+	 */
+	public static ContigRegionsMap toContigRegionsMap(List<Region> regions)
+	{
+		return new ContigRegionsMapBuilder().addAll(regions).build();
+	}
+
+	/**
+	 * Creates the records of a single read pair as BWA would output them. Most pairs have both reads mapped near each
+	 * other, while some have a supplementary alignment or an unmapped read. If {@code targets} is given, the pair is
+	 * placed near a random target (as in a capture kit), otherwise it is placed randomly.
+	 * 
+	 * @param header
+	 *            {@link SAMFileHeader}
+	 * @param pairNumber
+	 *            {@code int} Used for the read name.
+	 * @param targets
+	 *            {@link List}{@code <}{@link Region}{@code >} (can be {@code null})
+	 * @param random
+	 *            {@link Random}
+	 * @return {@link List}{@code <}{@link SAMRecord}{@code >}
+	 */
+	public static List<SAMRecord> createReadPair(SAMFileHeader header, int pairNumber, List<Region> targets,
+			Random random)
+	{
+		int referenceIndex;
+		int start;
+		if (targets != null)
+		{
+			Region target = targets.get(random.nextInt(targets.size()));
+			referenceIndex = header.getSequenceIndex(target.getContig());
+			start = Math.max(1, target.getStart() - 200 + random.nextInt(target.getEnd() - target.getStart() + 200));
+		}
+		else
+		{
+			referenceIndex = random.nextInt(CONTIGS.length);
+			start = 1 + random.nextInt(CONTIG_LENGTHS[referenceIndex] - 1000);
+		}
+		int mateStart = start + random.nextInt(300);
+		String readName = "HWI-ST1234:123:ABCDEFGXX:1:" + (1101 + pairNumber / 500000) + ":" + (pairNumber % 20000)
+				+ ":" + (pairNumber / 20000);
+
+		List<SAMRecord> records = new ArrayList<>();
+		int type = random.nextInt(100);
+		if (type < 2) // One read unmapped.
+		{
+			records.add(createRecord(header, readName, 73, referenceIndex, start, "150M", referenceIndex, start, random));
+			records.add(createRecord(header, readName, 133, referenceIndex, start, null, referenceIndex, start, random));
+		}
+		else
+		{
+			records.add(createRecord(header, readName, 99, referenceIndex, start, "150M", referenceIndex, mateStart,
+					random));
+			records.add(createRecord(header, readName, 147, referenceIndex, mateStart, "150M", referenceIndex, start,
+					random));
+			if (type < 7) // Supplementary alignment on a different contig.
+			{
+				int supplementaryIndex = (referenceIndex + 1) % CONTIGS.length;
+				records.add(createRecord(header, readName, 2145, supplementaryIndex, 1000000, "100H50M",
+						referenceIndex, mateStart, random));
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Creates SAM-formatted text (as output by BWA) containing {@code nPairs} read pairs.
+	 * 
+	 * @param header
+	 *            {@link SAMFileHeader}
+	 * @param nPairs
+	 *            {@code int}
+	 * @param targets
+	 *            {@link List}{@code <}{@link Region}{@code >} (can be {@code null})
+	 * @param random
+	 *            {@link Random}
+	 * @return {@code byte[]}
+	 */
+	public static byte[] createSamText(SAMFileHeader header, int nPairs, List<Region> targets, Random random)
+	{
+		StringBuilder sam = new StringBuilder();
+		StringWriter headerWriter = new StringWriter();
+		new SAMTextHeaderCodec().encode(headerWriter, header);
+		sam.append(headerWriter.toString());
+		for (int i = 0; i < nPairs; i++)
+		{
+			for (SAMRecord record : createReadPair(header, i, targets, random))
+			{
+				sam.append(record.getSAMString());
+			}
+		}
+		return sam.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Creates a {@link Sample} for a given lane.
+	 * 
+	 * @param lane
+	 *            {@code int}
+	 * @return {@link Sample}
+	 */
+	public static Sample createSample(int lane)
+	{
+		return new Sample("sample" + lane, "SN163", 150616, 648, "AHKYLMADXX", lane);
+	}
+
+	/**
+	 * Creates {@code nSamples} samples that each have {@code nLanes} lanes (a {@link Sample} for each lane). Each lane
+	 * has a unique lane number, as it is used as read group ID.
+	 * 
+	 * @param nSamples
+	 *            {@code int}
+	 * @param nLanes
+	 *            {@code int}
+	 * @return {@link List}{@code <}{@link Sample}{@code >}
+	 */
+	public static List<Sample> createSamples(int nSamples, int nLanes)
+	{
+		List<Sample> samples = new ArrayList<>();
+		for (int i = 0; i < nSamples; i++)
+		{
+			for (int j = 0; j < nLanes; j++)
+			{
+				samples.add(new Sample("sample" + (i + 1), "SN163", 150616, 648 + i / 1000,
+						String.format("AHKY%05dXX", i), i * nLanes + j + 1));
+			}
+		}
+		return samples;
+	}
+
+	private static SAMRecord createRecord(SAMFileHeader header, String readName, int flags, int referenceIndex,
+			int start, String cigar, int mateReferenceIndex, int mateStart, Random random)
+	{
+		SAMRecord record = new SAMRecord(header);
+		record.setReadName(readName);
+		record.setFlags(flags);
+		record.setReferenceIndex(referenceIndex);
+		record.setAlignmentStart(start);
+		record.setMappingQuality(cigar == null ? 0 : 60);
+		record.setCigarString(cigar == null ? "*" : cigar);
+		record.setMateReferenceIndex(mateReferenceIndex);
+		record.setMateAlignmentStart(mateStart);
+
+		int length = cigar != null && cigar.startsWith("100H") ? 50 : READ_LENGTH;
+		char[] bases = new char[length];
+		char[] qualities = new char[length];
+		for (int i = 0; i < length; i++)
+		{
+			bases[i] = BASES[random.nextInt(BASES.length)];
+			qualities[i] = QUALITIES[random.nextInt(QUALITIES.length)];
+		}
+		record.setReadString(new String(bases));
+		record.setBaseQualityString(new String(qualities));
+		record.setAttribute("NM", random.nextInt(3));
+		record.setAttribute("AS", length - random.nextInt(10));
+		record.setAttribute("RG", "1");
+		return record;
+	}
+}
@@ -0,0 +1,213 @@
+package org.molgenis.hadoop.pipeline.jmh.e2e;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.util.GenericOptionsParser;
+import org.molgenis.hadoop.pipeline.application.HadoopPipelineApplication;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.jmh.SyntheticData;
+
+/**
+ * Runs the {@link HadoopPipelineApplication} end-to-end in Hadoop local mode on generated data, using the
+ * {@link StubAligner} instead of bwa. Reports the throughput of the map phase and the shuffle/reduce phase, the number
+ * of bytes shuffled and the peak heap usage. As the alignment itself is skipped, this measures the Java side of the
+ * pipeline.
+ * 
+ * <pre>
+ * java -cp target/benchmarks.jar org.molgenis.hadoop.pipeline.jmh.e2e.LocalPipelineBenchmark [-D key=value ...] &lt;work dir&gt;
+ * 		[--pairs &lt;n&gt;] [--chunks &lt;n&gt;] [--regions &lt;n&gt;] [--pairs-per-second &lt;n&gt;] [--seed &lt;n&gt;]
+ * </pre>
+ * 
+ * Hadoop options (such as {@code hadoop.pipeline.*} settings or {@code mapreduce.job.reduces}) can be given using
+ * {@code -D}. Note that Hadoop local mode creates symlinks to the distributed cache files in the current working
+ * directory.
+ */
+public class LocalPipelineBenchmark
+{
+	private int nPairs = 1000000;
+	private int nChunks = 4;
+	private int nRegions = 190000;
+	private long pairsPerSecond = 0;
+	private long seed = 42;
+	private File workDir;
+
+	public static void main(String[] args) throws Exception
+	{
+		GenericOptionsParser genericOptionsParser = new GenericOptionsParser(args);
+		LocalPipelineBenchmark benchmark = new LocalPipelineBenchmark(genericOptionsParser.getRemainingArgs());
+		System.exit(benchmark.run(genericOptionsParser.getConfiguration()) ? 0 : 1);
+	}
+
+	/**
+	 * Digests the benchmark-specific arguments.
+	 * 
+	 * @param args
+	 *            {@link String}{@code []}
+	 */
+	LocalPipelineBenchmark(String[] args)
+	{
+		for (int i = 0; i < args.length; i++)
+		{
+			switch (args[i])
+			{
+				case "--pairs":
+					nPairs = Integer.parseInt(args[++i]);
+					break;
+				case "--chunks":
+					nChunks = Integer.parseInt(args[++i]);
+					break;
+				case "--regions":
+					nRegions = Integer.parseInt(args[++i]);
+					break;
+				case "--pairs-per-second":
+					pairsPerSecond = Long.parseLong(args[++i]);
+					break;
+				case "--seed":
+					seed = Long.parseLong(args[++i]);
+					break;
+				default:
+					if (workDir != null) throw new IllegalArgumentException("Unknown argument: " + args[i]);
+					workDir = new File(args[i]).getAbsoluteFile();
+			}
+		}
+		if (workDir == null)
+		{
+			throw new IllegalArgumentException("Usage: LocalPipelineBenchmark [-D key=value ...] <work dir> "
+					+ "[--pairs <n>] [--chunks <n>] [--regions <n>] [--pairs-per-second <n>] [--seed <n>]");
+		}
+	}
+
+	/**
+	 * Generates the input data and runs the job.
+	 * 
+	 * @param conf
+	 *            {@link Configuration}
+	 * @return {@code boolean} {@code true} if the job succeeded.
+	 * @throws Exception
+	 */
+	boolean run(Configuration conf) throws Exception
+	{
+		// Generates the input data.
+		long start = System.nanoTime();
+		Random random = new Random(seed);
+		List<Region> regions = SyntheticData.createExomeRegions(nRegions, random);
+		SyntheticInputWriter writer = new SyntheticInputWriter(new File(workDir, "data"));
+		writer.writeReference();
+		writer.writeBed(regions);
+		writer.writeSamplesheet();
+		writer.writeToolsArchive(pairsPerSecond);
+		long inputBytes = writer.writeFastqChunks(nPairs, nChunks, regions, random);
+		report("generation seconds", seconds(System.nanoTime() - start));
+		report("input bytes", inputBytes);
+
+		File outputDir = new File(workDir, "output");
+		FileUtils.deleteDirectory(outputDir);
+
+		// Runs the job in local mode.
+		conf.set("mapreduce.framework.name", "local");
+		conf.set("fs.defaultFS", "file:///");
+		conf.setBoolean("mapreduce.input.fileinputformat.input.dir.recursive", true);
+		if (conf.get("mapreduce.local.map.tasks.maximum") == null)
+		{
+			conf.setInt("mapreduce.local.map.tasks.maximum", Runtime.getRuntime().availableProcessors());
+		}
+
+		HadoopPipelineApplication application = new HadoopPipelineApplication();
+		application.setConf(conf);
+		Job job = application.createJob(new String[] { "-t", writer.getToolsArchive().getPath(), "-i",
+				writer.getInputDir().getPath(), "-o", outputDir.getPath(), "-r",
+				writer.getReferenceFastaFile().getPath(), "-b", writer.getBedFile().getPath(), "-s",
+				writer.getSamplesheetFile().getPath() });
+
+		resetPeakHeapUsage();
+		long jobStart = System.nanoTime();
+		long mapEnd = 0;
+		job.submit();
+		while (!job.isComplete())
+		{
+			if (mapEnd == 0 && job.mapProgress() >= 1.0f)
+			{
+				mapEnd = System.nanoTime();
+			}
+			Thread.sleep(100);
+		}
+		long jobEnd = System.nanoTime();
+		if (mapEnd == 0) mapEnd = jobEnd;
+
+		if (!job.isSuccessful())
+		{
+			System.err.println("Job failed: " + job.getStatus().getFailureInfo());
+			return false;
+		}
+
+		// Reports the results.
+		Counters counters = job.getCounters();
+		double mapSeconds = seconds(mapEnd - jobStart);
+		double reduceSeconds = seconds(jobEnd - mapEnd);
+		long reduceInputRecords = counters.findCounter(TaskCounter.REDUCE_INPUT_RECORDS).getValue();
+		report("job seconds", seconds(jobEnd - jobStart));
+		report("map phase seconds", mapSeconds);
+		report("map phase reads/sec", 2 * nPairs / mapSeconds);
+		report("shuffle+reduce phase seconds", reduceSeconds);
+		report("shuffle+reduce phase records/sec", reduceSeconds > 0 ? reduceInputRecords / reduceSeconds : 0);
+		report("map output records", counters.findCounter(TaskCounter.MAP_OUTPUT_RECORDS).getValue());
+		report("map output bytes", counters.findCounter(TaskCounter.MAP_OUTPUT_BYTES).getValue());
+		report("map output materialized bytes",
+				counters.findCounter(TaskCounter.MAP_OUTPUT_MATERIALIZED_BYTES).getValue());
+		report("reduce shuffle bytes", counters.findCounter(TaskCounter.REDUCE_SHUFFLE_BYTES).getValue());
+		report("reduce input records", reduceInputRecords);
+		report("spilled records", counters.findCounter(TaskCounter.SPILLED_RECORDS).getValue());
+		report("gc seconds", counters.findCounter(TaskCounter.GC_TIME_MILLIS).getValue() / 1000.0);
+		report("peak heap bytes", getPeakHeapUsage());
+		report("output bytes", FileUtils.sizeOfDirectory(outputDir));
+		return true;
+	}
+
+	private static void resetPeakHeapUsage()
+	{
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+		}
+	}
+
+	/**
+	 * Returns the sum of the peak usage of all heap memory pools (as the job runs in the current JVM in local mode).
+	 * 
+	 * @return {@code long}
+	 */
+	private static long getPeakHeapUsage()
+	{
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+		}
+		return peak;
+	}
+
+	private static double seconds(long nanos)
+	{
+		return nanos / 1e9;
+	}
+
+	private static void report(String name, long value)
+	{
+		System.out.println(String.format("%-34s %d", name, value));
+	}
+
+	private static void report(String name, double value)
+	{
+		System.out.println(String.format("%-34s %.2f", name, value));
+	}
+}
@@ -0,0 +1,367 @@
+package org.molgenis.hadoop.pipeline.jmh.e2e;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PushbackInputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Deterministic stand-in for {@code bwa mem -p} that converts interleaved FASTQ (optionally gzipped) from stdin into
+ * synthetic SAM on stdout, without doing any actual alignment. Reads generated by {@link SyntheticInputWriter} encode
+ * their position in the read name ({@code <id>:<contig>:<start>:<mateStart>}) and are placed there. Other reads are
+ * placed based on a hash of their read name. Each 50th pair gets an unmapped second read and each 20th pair a
+ * supplementary alignment, so all main code paths of the mapper are used.
+ * 
+ * <pre>
+ * java StubAligner [--pairs-per-second &lt;n&gt;] mem -p -M -R &lt;read group line&gt; &lt;reference.fasta&gt; -
+ * </pre>
+ * 
+ * The {@code @SQ} lines are retrieved from the {@code .dict} file next to the reference fasta file.
+ */
+public class StubAligner
+{
+	/**
+	 * The maximum number of read pairs output per second ({@code 0} for no limit).
+	 */
+	private long pairsPerSecond = 0;
+
+	/**
+	 * The {@code @RG} line given through {@code -R}.
+	 */
+	private String readGroupLine;
+
+	/**
+	 * The reference fasta file.
+	 */
+	private String referenceFile;
+
+	/**
+	 * The contig names from the {@code .dict} file.
+	 */
+	private List<String> contigs = new ArrayList<>();
+
+	/**
+	 * The contig lengths from the {@code .dict} file.
+	 */
+	private List<Integer> contigLengths = new ArrayList<>();
+
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		StubAligner aligner = new StubAligner(args);
+		aligner.readDict();
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 65536);
+		aligner.align(openInput(System.in), out);
+		out.flush();
+	}
+
+	/**
+	 * Digests the command line arguments.
+	 * 
+	 * @param args
+	 *            {@link String}{@code []}
+	 */
+	StubAligner(String[] args)
+	{
+		List<String> positional = new ArrayList<>();
+		for (int i = 0; i < args.length; i++)
+		{
+			switch (args[i])
+			{
+				case "--pairs-per-second":
+					pairsPerSecond = Long.parseLong(args[++i]);
+					break;
+				case "-R":
+					readGroupLine = args[++i].replace("\\t", "\t");
+					break;
+				case "-p":
+				case "-M":
+					break;
+				default:
+					positional.add(args[i]);
+			}
+		}
+
+		// Expected positional arguments: mem <reference.fasta> -
+		if (positional.size() != 3 || !positional.get(0).equals("mem"))
+		{
+			throw new IllegalArgumentException(
+					"Usage: StubAligner [--pairs-per-second <n>] mem -p -M -R <read group line> <reference.fasta> -");
+		}
+		referenceFile = positional.get(1);
+	}
+
+	/**
+	 * Reads the {@code @SQ} lines from the {@code .dict} file belonging to the reference fasta file.
+	 * 
+	 * @throws IOException
+	 */
+	void readDict() throws IOException
+	{
+		String dictFile = referenceFile.substring(0, referenceFile.lastIndexOf('.')) + ".dict";
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(new File(dictFile)), StandardCharsets.UTF_8)))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				if (!line.startsWith("@SQ")) continue;
+				String name = null;
+				int length = 0;
+				for (String field : line.split("\t"))
+				{
+					if (field.startsWith("SN:")) name = field.substring(3);
+					else if (field.startsWith("LN:")) length = Integer.parseInt(field.substring(3));
+				}
+				contigs.add(name);
+				contigLengths.add(length);
+			}
+		}
+		if (contigs.isEmpty())
+		{
+			throw new IOException("No @SQ lines found in: " + dictFile);
+		}
+	}
+
+	/**
+	 * Converts the interleaved FASTQ into SAM.
+	 * 
+	 * @param fastq
+	 *            {@link BufferedReader}
+	 * @param out
+	 *            {@link Writer}
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	void align(BufferedReader fastq, Writer out) throws IOException, InterruptedException
+	{
+		writeHeader(out);
+
+		long startTime = System.nanoTime();
+		long pairs = 0;
+		String[] first;
+		while ((first = readFastqRecord(fastq)) != null)
+		{
+			String[] second = readFastqRecord(fastq);
+			if (second == null)
+			{
+				throw new IOException("Interleaved FASTQ contains an odd number of reads.");
+			}
+			writePair(first, second, out);
+			pairs++;
+
+			// Throttles the output to the configured rate.
+			if (pairsPerSecond > 0)
+			{
+				long expectedTime = pairs * 1000000000L / pairsPerSecond;
+				long sleepMillis = (expectedTime - (System.nanoTime() - startTime)) / 1000000L;
+				if (sleepMillis > 0)
+				{
+					out.flush();
+					Thread.sleep(sleepMillis);
+				}
+			}
+		}
+	}
+
+	private void writeHeader(Writer out) throws IOException
+	{
+		out.write("@HD\tVN:1.4\tSO:unsorted\n");
+		for (int i = 0; i < contigs.size(); i++)
+		{
+			out.write("@SQ\tSN:" + contigs.get(i) + "\tLN:" + contigLengths.get(i) + "\n");
+		}
+		if (readGroupLine != null)
+		{
+			out.write(readGroupLine + "\n");
+		}
+		out.write("@PG\tID:bwa\tPN:bwa\tVN:stub\tCL:StubAligner\n");
+	}
+
+	/**
+	 * Writes the SAM records of a single read pair.
+	 * 
+	 * @param first
+	 *            {@link String}{@code []} name, sequence and qualities of the first read.
+	 * @param second
+	 *            {@link String}{@code []} name, sequence and qualities of the second read.
+	 * @param out
+	 *            {@link Writer}
+	 * @throws IOException
+	 */
+	private void writePair(String[] first, String[] second, Writer out) throws IOException
+	{
+		String name = first[0];
+		int hash = name.hashCode() & Integer.MAX_VALUE;
+
+		// Retrieves the position from the read name, or derives it from the hash.
+		String contig;
+		int start;
+		int mateStart;
+		String[] fields = name.split(":");
+		int contigIndex = fields.length >= 4 ? contigs.indexOf(joinContig(fields)) : -1;
+		if (contigIndex >= 0)
+		{
+			contig = contigs.get(contigIndex);
+			start = Integer.parseInt(fields[fields.length - 2]);
+			mateStart = Integer.parseInt(fields[fields.length - 1]);
+		}
+		else
+		{
+			contigIndex = hash % contigs.size();
+			contig = contigs.get(contigIndex);
+			start = 1 + (int) ((hash * 31L) % Math.max(1, contigLengths.get(contigIndex) - 1000));
+			mateStart = start + hash % 300;
+		}
+		int tlen = mateStart + second[1].length() - start;
+		String rg = readGroupLine == null ? "" : "\tRG:Z:" + readGroupId();
+
+		if (hash % 50 == 0) // Second read unmapped.
+		{
+			writeRecord(out, name, 73, contig, start, 60, first[1].length() + "M", "=", start, 0, first[1], first[2],
+					rg);
+			writeRecord(out, name, 133, contig, start, 0, "*", "=", start, 0, second[1], second[2], rg);
+			return;
+		}
+
+		writeRecord(out, name, 99, contig, start, 60, first[1].length() + "M", "=", mateStart, tlen, first[1],
+				first[2], rg);
+		writeRecord(out, name, 147, contig, mateStart, 60, second[1].length() + "M", "=", start, -tlen,
+				reverseComplement(second[1]), new StringBuilder(second[2]).reverse().toString(), rg);
+
+		if (hash % 20 == 1) // Supplementary alignment of the first read on the next contig.
+		{
+			int supplementaryIndex = (contigIndex + 1) % contigs.size();
+			int clip = first[1].length() / 2;
+			writeRecord(out, name, 2145, contigs.get(supplementaryIndex),
+					1 + start % Math.max(1, contigLengths.get(supplementaryIndex) - 1000), 30,
+					clip + "H" + (first[1].length() - clip) + "M", contig, mateStart, 0, first[1].substring(clip),
+					first[2].substring(clip), rg);
+		}
+	}
+
+	private void writeRecord(Writer out, String name, int flag, String contig, int pos, int mapq, String cigar,
+			String mateContig, int matePos, int tlen, String seq, String qual, String tags) throws IOException
+	{
+		out.write(name + "\t" + flag + "\t" + contig + "\t" + pos + "\t" + mapq + "\t" + cigar + "\t" + mateContig
+				+ "\t" + matePos + "\t" + tlen + "\t" + seq + "\t" + qual + "\tNM:i:0\tAS:i:" + seq.length() + tags
+				+ "\n");
+	}
+
+	private String readGroupId()
+	{
+		for (String field : readGroupLine.split("\t"))
+		{
+			if (field.startsWith("ID:")) return field.substring(3);
+		}
+		return "1";
+	}
+
+	/**
+	 * Retrieves the contig from a read name split on {@code :} (everything between the id and the two positions).
+	 */
+	private static String joinContig(String[] fields)
+	{
+		StringBuilder contig = new StringBuilder(fields[1]);
+		for (int i = 2; i < fields.length - 2; i++)
+		{
+			contig.append(':').append(fields[i]);
+		}
+		return contig.toString();
+	}
+
+	private static String reverseComplement(String sequence)
+	{
+		char[] complement = new char[sequence.length()];
+		for (int i = 0; i < sequence.length(); i++)
+		{
+			char base = sequence.charAt(sequence.length() - 1 - i);
+			switch (base)
+			{
+				case 'A':
+					complement[i] = 'T';
+					break;
+				case 'C':
+					complement[i] = 'G';
+					break;
+				case 'G':
+					complement[i] = 'C';
+					break;
+				case 'T':
+					complement[i] = 'A';
+					break;
+				default:
+					complement[i] = 'N';
+			}
+		}
+		return new String(complement);
+	}
+
+	/**
+	 * Reads a single FASTQ record.
+	 * 
+	 * @param reader
+	 *            {@link BufferedReader}
+	 * @return {@link String}{@code []} with the read name (without {@code @} and {@code /1} or {@code /2}), sequence
+	 *         and qualities, or {@code null} if no records are left.
+	 * @throws IOException
+	 */
+	private static String[] readFastqRecord(BufferedReader reader) throws IOException
+	{
+		String header = reader.readLine();
+		while (header != null && header.isEmpty())
+		{
+			header = reader.readLine();
+		}
+		if (header == null) return null;
+
+		String sequence = reader.readLine();
+		reader.readLine(); // + line
+		String qualities = reader.readLine();
+		if (qualities == null || !header.startsWith("@"))
+		{
+			throw new IOException("Invalid FASTQ record: " + header);
+		}
+
+		String name = header.substring(1).split("\\s")[0];
+		if (name.endsWith("/1") || name.endsWith("/2"))
+		{
+			name = name.substring(0, name.length() - 2);
+		}
+		return new String[] { name, sequence, qualities };
+	}
+
+	/**
+	 * Opens the input, decompressing it if it is gzipped (as the halvade input chunks are).
+	 * 
+	 * @param inputStream
+	 *            {@link InputStream}
+	 * @return {@link BufferedReader}
+	 * @throws IOException
+	 */
+	private static BufferedReader openInput(InputStream inputStream) throws IOException
+	{
+		PushbackInputStream pushback = new PushbackInputStream(new BufferedInputStream(inputStream, 65536), 2);
+		int b1 = pushback.read();
+		int b2 = pushback.read();
+		if (b2 != -1) pushback.unread(b2);
+		if (b1 != -1) pushback.unread(b1);
+
+		InputStream input = pushback;
+		if (b1 == 0x1f && b2 == 0x8b)
+		{
+			input = new GZIPInputStream(pushback, 65536);
+		}
+		return new BufferedReader(new InputStreamReader(input, StandardCharsets.US_ASCII), 65536);
+	}
+}
@@ -0,0 +1,143 @@
+package org.molgenis.hadoop.pipeline.jmh.e2e;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Sample;
+import org.molgenis.hadoop.pipeline.jmh.SyntheticData;
+
+import htsjdk.samtools.SAMFileHeader;
+
+/**
+ * Generates a complete synthetic input set for scale testing the HadoopPipelineApplication: a reference with a
+ * {@code .dict} file, a BED file, a samplesheet, a tools archive (containing the {@link StubAligner}) and interleaved
+ * {@code .fq.gz} chunks in the halvade layout for each sample lane. All dimensions are configurable and the output is
+ * deterministic for a given seed.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.molgenis.hadoop.pipeline.jmh.e2e.SyntheticDataGenerator &lt;output dir&gt;
+ * 		[--contigs &lt;n&gt;] [--contig-length &lt;n&gt;] [--regions &lt;n&gt;] [--region-length &lt;min&gt;-&lt;max&gt;]
+ * 		[--overlap &lt;fraction&gt;] [--samples &lt;n&gt;] [--lanes &lt;n&gt;] [--pairs &lt;n&gt;] [--chunks &lt;n&gt;]
+ * 		[--pairs-per-second &lt;n&gt;] [--seed &lt;n&gt;]
+ * </pre>
+ */
+public class SyntheticDataGenerator
+{
+	private int nContigs = 24;
+	private int contigLength = 1000000;
+	private int nRegions = 190000;
+	private int minRegionLength = 100;
+	private int maxRegionLength = 300;
+	private double overlap = 0.05;
+	private int nSamples = 1;
+	private int nLanes = 1;
+	private int nPairs = 100000;
+	private int nChunks = 1;
+	private long pairsPerSecond = 0;
+	private long seed = 42;
+	private File outputDir;
+
+	public static void main(String[] args) throws IOException
+	{
+		new SyntheticDataGenerator(args).generate();
+	}
+
+	/**
+	 * Digests the arguments.
+	 *
+	 * @param args
+	 *            {@link String}{@code []}
+	 */
+	SyntheticDataGenerator(String[] args)
+	{
+		for (int i = 0; i < args.length; i++)
+		{
+			switch (args[i])
+			{
+				case "--contigs":
+					nContigs = Integer.parseInt(args[++i]);
+					break;
+				case "--contig-length":
+					contigLength = Integer.parseInt(args[++i]);
+					break;
+				case "--regions":
+					nRegions = Integer.parseInt(args[++i]);
+					break;
+				case "--region-length":
+					String[] range = args[++i].split("-");
+					if (range.length != 2) throw new IllegalArgumentException("Region length should be <min>-<max>.");
+					minRegionLength = Integer.parseInt(range[0]);
+					maxRegionLength = Integer.parseInt(range[1]);
+					break;
+				case "--overlap":
+					overlap = Double.parseDouble(args[++i]);
+					break;
+				case "--samples":
+					nSamples = Integer.parseInt(args[++i]);
+					break;
+				case "--lanes":
+					nLanes = Integer.parseInt(args[++i]);
+					break;
+				case "--pairs":
+					nPairs = Integer.parseInt(args[++i]);
+					break;
+				case "--chunks":
+					nChunks = Integer.parseInt(args[++i]);
+					break;
+				case "--pairs-per-second":
+					pairsPerSecond = Long.parseLong(args[++i]);
+					break;
+				case "--seed":
+					seed = Long.parseLong(args[++i]);
+					break;
+				default:
+					if (outputDir != null) throw new IllegalArgumentException("Unknown argument: " + args[i]);
+					outputDir = new File(args[i]).getAbsoluteFile();
+			}
+		}
+		if (outputDir == null)
+		{
+			throw new IllegalArgumentException("No output directory given.");
+		}
+	}
+
+	/**
+	 * Writes all files.
+	 *
+	 * @throws IOException
+	 */
+	void generate() throws IOException
+	{
+		Random random = new Random(seed);
+		SAMFileHeader header = SyntheticData.createHeader(nContigs, contigLength);
+		List<Region> regions = SyntheticData.createRegions(header, nRegions, minRegionLength, maxRegionLength,
+				overlap, random);
+		if (regions.isEmpty())
+		{
+			throw new IllegalArgumentException("No regions could be placed on the contigs.");
+		}
+		List<Sample> samples = SyntheticData.createSamples(nSamples, nLanes);
+
+		SyntheticInputWriter writer = new SyntheticInputWriter(outputDir, header, samples);
+		writer.writeReference();
+		writer.writeBed(regions);
+		writer.writeSamplesheet();
+		writer.writeToolsArchive(pairsPerSecond);
+		long fastqBytes = writer.writeFastqChunks(nPairs, nChunks, regions, random);
+
+		System.out.println("Output directory:   " + outputDir);
+		System.out.println("Contigs:            " + header.getSequenceDictionary().size());
+		System.out.println("Regions:            " + regions.size());
+		System.out.println("Sample lanes:       " + samples.size());
+		System.out.println("Read pairs:         " + (long) nPairs * samples.size());
+		System.out.println("FASTQ chunks:       " + (long) nChunks * samples.size() + " (" + fastqBytes
+				+ " bytes)");
+		System.out.println();
+		System.out.println("Run the pipeline using: -t " + writer.getToolsArchive() + " -i " + writer.getInputDir()
+				+ " -r " + writer.getReferenceFastaFile() + " -b " + writer.getBedFile() + " -s "
+				+ writer.getSamplesheetFile() + " -o <output dir>");
+	}
+}
@@ -0,0 +1,310 @@
+package org.molgenis.hadoop.pipeline.jmh.e2e;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Region;
+import org.molgenis.hadoop.pipeline.application.cachedigestion.Sample;
+import org.molgenis.hadoop.pipeline.jmh.SyntheticData;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMSequenceRecord;
+
+/**
+ * Writes all input needed for running the HadoopPipelineApplication in local mode using the {@link StubAligner}:
+ * dummy reference files, a {@code .dict} file, a BED file, a samplesheet, a tools archive and interleaved
+ * {@code .fq.gz} chunks in the halvade layout.
+ */
+public class SyntheticInputWriter
+{
+	/**
+	 * The directory to write the files to.
+	 */
+	private File directory;
+
+	/**
+	 * The header defining the contigs.
+	 */
+	private SAMFileHeader header;
+
+	/**
+	 * The samples (one for each lane) the read data belongs to.
+	 */
+	private List<Sample> samples;
+
+	/**
+	 * Creates a new {@link SyntheticInputWriter} using the GRCh37 contigs and a single sample.
+	 * 
+	 * @param directory
+	 *            {@link File} The directory to write the files to (is created if it does not exist).
+	 * @throws IOException
+	 */
+	public SyntheticInputWriter(File directory) throws IOException
+	{
+		this(directory, SyntheticData.createHeader(), Collections.singletonList(SyntheticData.createSample(1)));
+	}
+
+	/**
+	 * Creates a new {@link SyntheticInputWriter}.
+	 * 
+	 * @param directory
+	 *            {@link File} The directory to write the files to (is created if it does not exist).
+	 * @param header
+	 *            {@link SAMFileHeader} The header defining the contigs.
+	 * @param samples
+	 *            {@link List}{@code <}{@link Sample}{@code >} The samples (one for each lane).
+	 * @throws IOException
+	 */
+	public SyntheticInputWriter(File directory, SAMFileHeader header, List<Sample> samples) throws IOException
+	{
+		this.directory = requireNonNull(directory);
+		this.header = requireNonNull(header);
+		this.samples = requireNonNull(samples);
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			throw new IOException("Could not create directory: " + directory);
+		}
+	}
+
+	public File getReferenceFastaFile()
+	{
+		return new File(directory, "reference/reference.fasta");
+	}
+
+	public File getBedFile()
+	{
+		return new File(directory, "regions.bed");
+	}
+
+	public File getSamplesheetFile()
+	{
+		return new File(directory, "samplesheet.csv");
+	}
+
+	public File getToolsArchive()
+	{
+		return new File(directory, "tools.tar.gz");
+	}
+
+	public File getInputDir()
+	{
+		return new File(directory, "input");
+	}
+
+	/**
+	 * Writes the reference files. Only the {@code .dict} file has actual content, as no real alignment is done.
+	 * 
+	 * @throws IOException
+	 */
+	public void writeReference() throws IOException
+	{
+		File fasta = getReferenceFastaFile();
+		fasta.getParentFile().mkdirs();
+		writeText(fasta, ">" + header.getSequence(0).getSequenceName() + "\nN\n");
+		for (String suffix : new String[] { ".amb", ".ann", ".bwt", ".fai", ".pac", ".sa" })
+		{
+			writeText(new File(fasta.getPath() + suffix), "");
+		}
+
+		StringBuilder dict = new StringBuilder("@HD\tVN:1.4\tSO:unsorted\n");
+		for (SAMSequenceRecord sequence : header.getSequenceDictionary().getSequences())
+		{
+			dict.append("@SQ\tSN:" + sequence.getSequenceName() + "\tLN:" + sequence.getSequenceLength() + "\n");
+		}
+		writeText(new File(fasta.getParentFile(), "reference.dict"), dict.toString());
+	}
+
+	/**
+	 * Writes the {@link Region}{@code s} as BED file.
+	 * 
+	 * @param regions
+	 *            {@link List}{@code <}{@link Region}{@code >}
+	 * @throws IOException
+	 */
+	public void writeBed(List<Region> regions) throws IOException
+	{
+		try (Writer writer = openWriter(new FileOutputStream(getBedFile())))
+		{
+			for (Region region : regions)
+			{
+				// BED is 0-based with an exclusive end.
+				writer.write(region.getContig() + "\t" + (region.getStart() - 1) + "\t" + region.getEnd() + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Writes a samplesheet containing all samples.
+	 * 
+	 * @throws IOException
+	 */
+	public void writeSamplesheet() throws IOException
+	{
+		try (Writer writer = openWriter(new FileOutputStream(getSamplesheetFile())))
+		{
+			writer.write("externalSampleID,sequencer,sequencingStartDate,run,flowcell,lane\n");
+			for (Sample sample : samples)
+			{
+				writer.write(sample.getExternalSampleId() + "," + sample.getSequencer() + ","
+						+ sample.getSequencingStartDate() + "," + sample.getRun() + "," + sample.getFlowcell() + ","
+						+ sample.getLane() + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Writes a tools archive where {@code tools/bwa} starts the {@link StubAligner} (using the classpath of the current
+	 * JVM).
+	 * 
+	 * @param pairsPerSecond
+	 *            {@code long} The maximum number of read pairs the {@link StubAligner} outputs per second ({@code 0}
+	 *            for no limit).
+	 * @throws IOException
+	 */
+	public void writeToolsArchive(long pairsPerSecond) throws IOException
+	{
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		String bwa = "#!/bin/sh\nexec \"" + java + "\" -Xmx256m -cp \"" + System.getProperty("java.class.path")
+				+ "\" " + StubAligner.class.getName() + " --pairs-per-second " + pairsPerSecond + " \"$@\"\n";
+		String infoXml = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n<tools>\n"
+				+ "\t<tool fileName=\"bwa\">\n\t\t<id>bwa</id>\n\t\t<name>bwa</name>\n\t\t<version>stub</version>\n"
+				+ "\t</tool>\n</tools>\n";
+
+		try (TarArchiveOutputStream tar = new TarArchiveOutputStream(
+				new GZIPOutputStream(new FileOutputStream(getToolsArchive()))))
+		{
+			addTarEntry(tar, "tools/bwa", bwa, 0755);
+			addTarEntry(tar, "tools/info.xml", infoXml, 0644);
+		}
+	}
+
+	/**
+	 * Writes interleaved FASTQ chunks in the halvade layout ({@code input/<sample comparison name>/halvade_<i>_0.fq.gz}
+	 * ) for each sample. The read names encode the position the {@link StubAligner} should place the reads at, where
+	 * most pairs are placed near one of the {@code targets}.
+	 * 
+	 * @param nPairs
+	 *            {@code int} The number of read pairs per sample.
+	 * @param nChunks
+	 *            {@code int} The number of chunks per sample to divide the read pairs over.
+	 * @param targets
+	 *            {@link List}{@code <}{@link Region}{@code >}
+	 * @param random
+	 *            {@link Random}
+	 * @return {@code long} The total size of the written chunks in bytes.
+	 * @throws IOException
+	 */
+	public long writeFastqChunks(int nPairs, int nChunks, List<Region> targets, Random random) throws IOException
+	{
+		long totalSize = 0;
+		for (int i = 0; i < samples.size(); i++)
+		{
+			totalSize += writeFastqChunks(samples.get(i), (long) i * nPairs, nPairs, nChunks, targets, random);
+		}
+		return totalSize;
+	}
+
+	/**
+	 * Writes the interleaved FASTQ chunks of a single sample.
+	 * 
+	 * @param sample
+	 *            {@link Sample}
+	 * @param firstPair
+	 *            {@code long} The number of the first read pair (used for creating unique read names).
+	 * @param nPairs
+	 *            {@code int}
+	 * @param nChunks
+	 *            {@code int}
+	 * @param targets
+	 *            {@link List}{@code <}{@link Region}{@code >}
+	 * @param random
+	 *            {@link Random}
+	 * @return {@code long} The total size of the written chunks in bytes.
+	 * @throws IOException
+	 */
+	private long writeFastqChunks(Sample sample, long firstPair, int nPairs, int nChunks, List<Region> targets,
+			Random random) throws IOException
+	{
+		File sampleDir = new File(getInputDir(), sample.getComparisonName());
+		sampleDir.mkdirs();
+
+		char[] bases = new char[SyntheticData.READ_LENGTH];
+		char[] qualities = new char[SyntheticData.READ_LENGTH];
+		long totalSize = 0;
+		int pair = 0;
+		for (int chunk = 0; chunk < nChunks; chunk++)
+		{
+			File chunkFile = new File(sampleDir, "halvade_" + chunk + "_0.fq.gz");
+			try (Writer writer = openWriter(new GZIPOutputStream(new FileOutputStream(chunkFile), 65536)))
+			{
+				int chunkEnd = (int) ((long) nPairs * (chunk + 1) / nChunks);
+				for (; pair < chunkEnd; pair++)
+				{
+					// 90% of the pairs are placed near a target, the others randomly on the same contig.
+					Region target = targets.get(random.nextInt(targets.size()));
+					int contigLength = header.getSequence(target.getContig()).getSequenceLength();
+					int start = random.nextInt(10) == 0 ? 1 + random.nextInt(contigLength - 1000)
+							: Math.max(1, target.getStart() - 200 + random.nextInt(target.getEnd() - target.getStart()
+									+ 200));
+					int mateStart = start + random.nextInt(300);
+					String name = "r" + (firstPair + pair) + ":" + target.getContig() + ":" + start + ":" + mateStart;
+
+					for (int read = 1; read <= 2; read++)
+					{
+						for (int i = 0; i < bases.length; i++)
+						{
+							bases[i] = "ACGT".charAt(random.nextInt(4));
+							qualities[i] = "FFFFFF::,#".charAt(random.nextInt(10));
+						}
+						writer.write("@" + name + "/" + read + "\n");
+						writer.write(bases);
+						writer.write("\n+\n");
+						writer.write(qualities);
+						writer.write("\n");
+					}
+				}
+			}
+			totalSize += chunkFile.length();
+		}
+		return totalSize;
+	}
+
+	private static void addTarEntry(TarArchiveOutputStream tar, String name, String content, int mode)
+			throws IOException
+	{
+		byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+		TarArchiveEntry entry = new TarArchiveEntry(name);
+		entry.setSize(bytes.length);
+		entry.setMode(mode);
+		tar.putArchiveEntry(entry);
+		tar.write(bytes);
+		tar.closeArchiveEntry();
+	}
+
+	private static void writeText(File file, String text) throws IOException
+	{
+		try (Writer writer = openWriter(new FileOutputStream(file)))
+		{
+			writer.write(text);
+		}
+	}
+
+	private static Writer openWriter(OutputStream outputStream)
+	{
+		return new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 65536);
+	}
+}
@@ -0,0 +1,79 @@
+package org.molgenis.hadoop.pipeline.spark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.spark.AccumulableParam;
+
+/**
+ * {@link AccumulableParam} summing the Hadoop {@link Counters} of all tasks. As {@link Counters} are not
+ * {@link java.io.Serializable}, they are accumulated as a {@link HashMap} using {@code <group>\t<counter>} as key.
+ */
+public class CountersAccumulableParam implements AccumulableParam<HashMap<String, Long>, HashMap<String, Long>>
+{
+	private static final long serialVersionUID = -1868395837218420519L;
+
+	@Override
+	public HashMap<String, Long> addAccumulator(HashMap<String, Long> counters, HashMap<String, Long> taskCounters)
+	{
+		return addInPlace(counters, taskCounters);
+	}
+
+	@Override
+	public HashMap<String, Long> addInPlace(HashMap<String, Long> counters, HashMap<String, Long> otherCounters)
+	{
+		for (Map.Entry<String, Long> counter : otherCounters.entrySet())
+		{
+			Long value = counters.get(counter.getKey());
+			counters.put(counter.getKey(), value == null ? counter.getValue() : value + counter.getValue());
+		}
+		return counters;
+	}
+
+	@Override
+	public HashMap<String, Long> zero(HashMap<String, Long> initialValue)
+	{
+		return new HashMap<>();
+	}
+
+	/**
+	 * Converts {@link Counters} to the accumulated form.
+	 *
+	 * @param counters
+	 *            {@link Counters}
+	 * @return {@link HashMap}{@code <}{@link String}{@code , }{@link Long}{@code >}
+	 */
+	public static HashMap<String, Long> toMap(Counters counters)
+	{
+		HashMap<String, Long> map = new HashMap<>();
+		for (CounterGroup group : counters)
+		{
+			for (Counter counter : group)
+			{
+				map.put(group.getName() + "\t" + counter.getName(), counter.getValue());
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Converts the accumulated form back to {@link Counters}.
+	 *
+	 * @param map
+	 *            {@link Map}{@code <}{@link String}{@code , }{@link Long}{@code >}
+	 * @return {@link Counters}
+	 */
+	public static Counters toCounters(Map<String, Long> map)
+	{
+		Counters counters = new Counters();
+		for (Map.Entry<String, Long> counter : map.entrySet())
+		{
+			String[] name = counter.getKey().split("\t", 2);
+			counters.findCounter(name[0], name[1]).increment(counter.getValue());
+		}
+		return counters;
+	}
+}
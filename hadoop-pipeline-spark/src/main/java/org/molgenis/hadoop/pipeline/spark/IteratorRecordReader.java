@@ -0,0 +1,72 @@
+package org.molgenis.hadoop.pipeline.spark;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Iterator;
+
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import scala.Tuple2;
+
+/**
+ * {@link RecordReader} over the records of a Spark partition (as read by the job's input format), so they can be
+ * given to the job's mapper.
+ *
+ * @param <K>
+ *            key
+ * @param <V>
+ *            value
+ */
+public class IteratorRecordReader<K, V> extends RecordReader<K, V>
+{
+	private Iterator<Tuple2<K, V>> records;
+	private Tuple2<K, V> current;
+
+	/**
+	 * Creates a new {@link IteratorRecordReader}.
+	 *
+	 * @param records
+	 *            {@link Iterator}{@code <}{@link Tuple2}{@code <K, V>>}
+	 */
+	public IteratorRecordReader(Iterator<Tuple2<K, V>> records)
+	{
+		this.records = requireNonNull(records);
+	}
+
+	@Override
+	public void initialize(InputSplit split, TaskAttemptContext context)
+	{
+	}
+
+	@Override
+	public boolean nextKeyValue()
+	{
+		current = records.hasNext() ? records.next() : null;
+		return current != null;
+	}
+
+	@Override
+	public K getCurrentKey()
+	{
+		return current._1();
+	}
+
+	@Override
+	public V getCurrentValue()
+	{
+		return current._2();
+	}
+
+	@Override
+	public float getProgress()
+	{
+		return current == null ? 1 : 0;
+	}
+
+	@Override
+	public void close()
+	{
+	}
+}
@@ -0,0 +1,50 @@
+package org.molgenis.hadoop.pipeline.spark;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * {@link Serializable} wrapper of a {@link Configuration} (which is only {@link org.apache.hadoop.io.Writable}), so the
+ * job configuration can be shipped to the Spark executors as part of a function.
+ */
+public class SerializableConfiguration implements Serializable
+{
+	private static final long serialVersionUID = 5127946310851842603L;
+
+	private transient Configuration conf;
+
+	/**
+	 * Creates a new {@link SerializableConfiguration}.
+	 *
+	 * @param conf
+	 *            {@link Configuration}
+	 */
+	public SerializableConfiguration(Configuration conf)
+	{
+		this.conf = requireNonNull(conf);
+	}
+
+	public Configuration get()
+	{
+		return conf;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+		conf.write(out);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		conf = new Configuration(false);
+		conf.readFields(in);
+	}
+}
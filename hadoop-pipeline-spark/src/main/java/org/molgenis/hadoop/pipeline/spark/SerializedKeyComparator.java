@@ -0,0 +1,44 @@
+package org.molgenis.hadoop.pipeline.spark;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
+
+/**
+ * {@link Comparator} for serialized map output keys ({@code byte[]}) using the sort comparator of the MapReduce job, so
+ * Spark sorts the records of each reduce partition in the same order as the MapReduce shuffle does.
+ */
+public class SerializedKeyComparator implements Comparator<byte[]>, Serializable
+{
+	private static final long serialVersionUID = 8634011740238105532L;
+
+	private SerializableConfiguration conf;
+
+	private transient RawComparator<?> comparator;
+
+	/**
+	 * Creates a new {@link SerializedKeyComparator}.
+	 *
+	 * @param conf
+	 *            {@link SerializableConfiguration} The job configuration.
+	 */
+	public SerializedKeyComparator(SerializableConfiguration conf)
+	{
+		this.conf = requireNonNull(conf);
+	}
+
+	@Override
+	public int compare(byte[] first, byte[] second)
+	{
+		if (comparator == null)
+		{
+			comparator = new JobContextImpl(conf.get(), new JobID()).getSortComparator();
+		}
+		return comparator.compare(first, 0, first.length, second, 0, second.length);
+	}
+}
@@ -0,0 +1,95 @@
+package org.molgenis.hadoop.pipeline.spark;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.serializer.Deserializer;
+import org.apache.hadoop.io.serializer.SerializationFactory;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.spark.Partitioner;
+
+/**
+ * Spark {@link Partitioner} for serialized map output keys ({@code byte[]}) that deserializes each key and delegates
+ * to the partitioner of the MapReduce job (such as the
+ * {@link org.molgenis.hadoop.pipeline.application.partitioners.RegionSamRecordPartitioner}). The value is not
+ * available to Spark partitioners, so {@code null} is given instead. The job's partitioner should therefore only use
+ * the key.
+ */
+public class SerializedKeyPartitioner extends Partitioner
+{
+	private static final long serialVersionUID = -3254418703377416410L;
+
+	private SerializableConfiguration conf;
+	private int numPartitions;
+
+	private transient org.apache.hadoop.mapreduce.Partitioner<Object, Object> partitioner;
+	private transient Deserializer<Object> deserializer;
+	private transient DataInputBuffer buffer;
+	private transient Object key;
+
+	/**
+	 * Creates a new {@link SerializedKeyPartitioner}.
+	 *
+	 * @param conf
+	 *            {@link SerializableConfiguration} The job configuration.
+	 * @param numPartitions
+	 *            {@code int} The number of reduce tasks.
+	 */
+	public SerializedKeyPartitioner(SerializableConfiguration conf, int numPartitions)
+	{
+		this.conf = requireNonNull(conf);
+		this.numPartitions = numPartitions;
+	}
+
+	@Override
+	public int numPartitions()
+	{
+		return numPartitions;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized int getPartition(Object serializedKey)
+	{
+		try
+		{
+			if (partitioner == null)
+			{
+				Configuration jobConf = conf.get();
+				JobContextImpl jobContext = new JobContextImpl(jobConf, new JobID());
+				partitioner = (org.apache.hadoop.mapreduce.Partitioner<Object, Object>) ReflectionUtils
+						.newInstance(jobContext.getPartitionerClass(), jobConf);
+				deserializer = new SerializationFactory(jobConf)
+						.getDeserializer((Class<Object>) jobContext.getMapOutputKeyClass());
+				buffer = new DataInputBuffer();
+				deserializer.open(buffer);
+			}
+			byte[] bytes = (byte[]) serializedKey;
+			buffer.reset(bytes, bytes.length);
+			key = deserializer.deserialize(key);
+			return partitioner.getPartition(key, null, numPartitions);
+		}
+		catch (IOException | ClassNotFoundException e)
+		{
+			throw new IllegalStateException("Could not partition map output key: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		return other instanceof SerializedKeyPartitioner
+				&& ((SerializedKeyPartitioner) other).numPartitions == numPartitions;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return numPartitions;
+	}
+}
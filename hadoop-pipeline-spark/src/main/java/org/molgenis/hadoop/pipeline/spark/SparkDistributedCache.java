@@ -0,0 +1,123 @@
+package org.molgenis.hadoop.pipeline.spark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.log4j.Logger;
+import org.apache.spark.SparkFiles;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.molgenis.hadoop.pipeline.application.DistributedCacheHandler;
+import org.molgenis.hadoop.pipeline.application.localexecution.LocalDistributedCache;
+
+/**
+ * Ships the files and archives of the distributed cache of a {@link JobContext} to the Spark executors using
+ * {@link JavaSparkContext#addFile(String)}, and makes them available in the working directory of each executor under
+ * their file name (the archives extracted), as YARN does for MapReduce tasks. This way the
+ * {@link DistributedCacheHandler} can be used unchanged by the mappers/reducers.
+ */
+public abstract class SparkDistributedCache
+{
+	/**
+	 * Logger to write information to.
+	 */
+	private static final Logger logger = Logger.getLogger(SparkDistributedCache.class);
+
+	/**
+	 * Whether the cache has already been localized within this JVM.
+	 */
+	private static boolean localized = false;
+
+	/**
+	 * Adds all cache files/archives to the {@link JavaSparkContext} (to be called by the driver).
+	 *
+	 * @param sparkContext
+	 *            {@link JavaSparkContext}
+	 * @param context
+	 *            {@link JobContext}
+	 * @throws IOException
+	 */
+	public static void addFiles(JavaSparkContext sparkContext, JobContext context) throws IOException
+	{
+		for (URI uri : getCacheUris(context))
+		{
+			sparkContext.addFile(uri.toString());
+		}
+	}
+
+	/**
+	 * Makes the cache files/archives available in the working directory (to be called by each task). Only the first
+	 * call within a JVM localizes them, as all tasks of an executor share the same working directory. The created
+	 * files are removed when the JVM exits.
+	 *
+	 * @param context
+	 *            {@link JobContext}
+	 * @throws IOException
+	 *             If a cache file could not be localized.
+	 */
+	public static synchronized void localize(JobContext context) throws IOException
+	{
+		if (localized) return;
+
+		URI[] files = context.getCacheFiles();
+		for (int i = 0; files != null && i < files.length; i++)
+		{
+			String name = FilenameUtils.getName(files[i].getPath());
+			File target = new File(name).getAbsoluteFile();
+			// When the SparkFiles directory is the working directory (such as on YARN), the file is already present.
+			if (!Files.exists(target.toPath(), LinkOption.NOFOLLOW_LINKS))
+			{
+				Files.createSymbolicLink(target.toPath(), new File(SparkFiles.get(name)).getAbsoluteFile().toPath());
+				FileUtils.forceDeleteOnExit(target);
+				logger.debug("Localized " + files[i] + " as " + target);
+			}
+		}
+
+		URI[] archives = context.getCacheArchives();
+		for (int i = 0; archives != null && i < archives.length; i++)
+		{
+			String name = FilenameUtils.getName(archives[i].getPath());
+			File target = new File(name).getAbsoluteFile();
+			if (target.isDirectory()) continue;
+			File archive = new File(SparkFiles.get(name)).getAbsoluteFile();
+
+			// Extracts to a temporary directory first, as the archive itself can be stored under the target name.
+			File extracted = new File(target.getPath() + ".extracting");
+			FileUtils.deleteQuietly(extracted);
+			LocalDistributedCache.unpackArchive(archive, name, extracted);
+			if (target.exists() && !target.delete())
+			{
+				throw new IOException("Could not replace " + target + " by its extracted content.");
+			}
+			Files.move(extracted.toPath(), target.toPath());
+			FileUtils.forceDeleteOnExit(target);
+			logger.debug("Extracted " + archives[i] + " to " + target);
+		}
+
+		localized = true;
+	}
+
+	/**
+	 * @param context
+	 *            {@link JobContext}
+	 * @return {@link URI}{@code []} The cache files followed by the cache archives.
+	 * @throws IOException
+	 */
+	private static URI[] getCacheUris(JobContext context) throws IOException
+	{
+		URI[] files = context.getCacheFiles();
+		URI[] archives = context.getCacheArchives();
+		files = files == null ? new URI[0] : files;
+		archives = archives == null ? new URI[0] : archives;
+
+		URI[] uris = new URI[files.length + archives.length];
+		System.arraycopy(files, 0, uris, 0, files.length);
+		System.arraycopy(archives, 0, uris, files.length, archives.length);
+		return uris;
+	}
+}
@@ -0,0 +1,246 @@
+package org.molgenis.hadoop.pipeline.spark;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.TaskID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.partition.HashPartitioner;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.log4j.Logger;
+import org.apache.spark.Accumulable;
+import org.apache.spark.TaskContext;
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.PairFlatMapFunction;
+import org.apache.spark.api.java.function.VoidFunction;
+import org.molgenis.hadoop.pipeline.application.localexecution.CountersStatusReporter;
+import org.molgenis.hadoop.pipeline.application.localexecution.MapOutputCollector;
+import org.molgenis.hadoop.pipeline.application.localexecution.TaskRunner;
+
+import scala.Tuple2;
+
+/**
+ * Executes a configured MapReduce {@link Job} on Spark. The job's own input format, mapper, partitioner, sort
+ * comparator, grouping comparator, reducer, output format and output committer are used (see {@link TaskRunner}), so
+ * the output is identical to that of the MapReduce job:
+ * <ul>
+ * <li>The input splits are read using {@link JavaSparkContext#newAPIHadoopRDD}, one Spark partition per split.</li>
+ * <li>Each partition is processed by the job's mapper, emitting the serialized map output keys/values.</li>
+ * <li>The map output is shuffled using
+ * {@link JavaPairRDD#repartitionAndSortWithinPartitions(org.apache.spark.Partitioner, java.util.Comparator)} with the
+ * job's partitioner (see {@link SerializedKeyPartitioner}) and sort comparator (see
+ * {@link SerializedKeyComparator}).</li>
+ * <li>Each partition is processed by the job's reducer, which writes and commits the output.</li>
+ * </ul>
+ * The distributed cache is shipped using {@link SparkDistributedCache}. Speculative execution
+ * ({@code spark.speculation}) should be disabled, as the counters of speculative tasks are added as well.
+ */
+public class SparkJobExecutor
+{
+	/**
+	 * Logger to write information to.
+	 */
+	private static final Logger logger = Logger.getLogger(SparkJobExecutor.class);
+
+	/**
+	 * The job to execute.
+	 */
+	private Job job;
+
+	/**
+	 * The id used for the task attempts.
+	 */
+	private JobID jobId = new JobID("spark" + System.currentTimeMillis(), 1);
+
+	/**
+	 * Creates a new {@link SparkJobExecutor}.
+	 *
+	 * @param job
+	 *            {@link Job} A configured (but not submitted) job.
+	 * @throws IllegalArgumentException
+	 *             If the job has no reduce tasks.
+	 */
+	public SparkJobExecutor(Job job) throws IllegalArgumentException
+	{
+		this.job = requireNonNull(job);
+		if (job.getNumReduceTasks() < 1)
+		{
+			throw new IllegalArgumentException("Map-only jobs are not supported.");
+		}
+	}
+
+	/**
+	 * Executes the job.
+	 *
+	 * @param sparkContext
+	 *            {@link JavaSparkContext}
+	 * @return {@link Counters} The counters of all tasks.
+	 * @throws IOException
+	 *             If the output already exists or the job failed.
+	 * @throws InterruptedException
+	 * @throws ClassNotFoundException
+	 *             If any of the configured classes could not be found.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Counters run(JavaSparkContext sparkContext) throws IOException, InterruptedException, ClassNotFoundException
+	{
+		Configuration conf = job.getConfiguration();
+		OutputFormat<?, ?> outputFormat = ReflectionUtils.newInstance(job.getOutputFormatClass(), conf);
+		outputFormat.checkOutputSpecs(job);
+
+		JobContext jobContext = new JobContextImpl(conf, jobId);
+		OutputCommitter committer = outputFormat.getOutputCommitter(
+				new TaskAttemptContextImpl(conf, new TaskAttemptID(new TaskID(jobId, TaskType.JOB_SETUP, 0), 0)));
+		committer.setupJob(jobContext);
+
+		try
+		{
+			SparkDistributedCache.addFiles(sparkContext, job);
+			SerializableConfiguration serializableConf = new SerializableConfiguration(conf);
+			Accumulable<HashMap<String, Long>, HashMap<String, Long>> counters = sparkContext
+					.accumulable(new HashMap<String, Long>(), new CountersAccumulableParam());
+
+			JavaPairRDD<Object, Object> input = sparkContext.newAPIHadoopRDD(conf, (Class) job.getInputFormatClass(),
+					Object.class, Object.class);
+			logger.info("Running " + input.partitions().size() + " map tasks and " + job.getNumReduceTasks()
+					+ " reduce tasks.");
+
+			input.mapPartitionsToPair(new MapFunction(serializableConf, jobId.toString(), counters))
+					.repartitionAndSortWithinPartitions(
+							new SerializedKeyPartitioner(serializableConf, job.getNumReduceTasks()),
+							new SerializedKeyComparator(serializableConf))
+					.foreachPartition(new ReduceFunction(serializableConf, jobId.toString(), counters));
+
+			committer.commitJob(jobContext);
+			return CountersAccumulableParam.toCounters(counters.value());
+		}
+		catch (Exception e) // Spark also throws (undeclared) SparkExceptions.
+		{
+			committer.abortJob(jobContext, JobStatus.State.FAILED);
+			if (e instanceof IOException) throw (IOException) e;
+			if (e instanceof RuntimeException) throw (RuntimeException) e;
+			throw new IOException("Job failed: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Creates the id of a task attempt from the currently running Spark task.
+	 *
+	 * @param jobId
+	 *            {@link String}
+	 * @param type
+	 *            {@link TaskType}
+	 * @return {@link TaskAttemptID}
+	 */
+	private static TaskAttemptID createAttemptId(String jobId, TaskType type)
+	{
+		TaskContext sparkTask = TaskContext.get();
+		return new TaskAttemptID(new TaskID(JobID.forName(jobId), type, sparkTask.partitionId()),
+				sparkTask.attemptNumber());
+	}
+
+	/**
+	 * Runs the mapper on the records of a single input split and emits its serialized output.
+	 */
+	private static class MapFunction
+			implements PairFlatMapFunction<Iterator<Tuple2<Object, Object>>, byte[], byte[]>
+	{
+		private static final long serialVersionUID = 2418773190367254409L;
+
+		private SerializableConfiguration jobConf;
+		private String jobId;
+		private Accumulable<HashMap<String, Long>, HashMap<String, Long>> jobCounters;
+
+		MapFunction(SerializableConfiguration jobConf, String jobId,
+				Accumulable<HashMap<String, Long>, HashMap<String, Long>> jobCounters)
+		{
+			this.jobConf = jobConf;
+			this.jobId = jobId;
+			this.jobCounters = jobCounters;
+		}
+
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public Iterable<Tuple2<byte[], byte[]>> call(Iterator<Tuple2<Object, Object>> records) throws Exception
+		{
+			TaskAttemptID attemptId = createAttemptId(jobId, TaskType.MAP);
+			Configuration conf = TaskRunner.createTaskConf(jobConf.get(), attemptId);
+			SparkDistributedCache.localize(new JobContextImpl(conf, attemptId.getJobID()));
+			CountersStatusReporter reporter = new CountersStatusReporter();
+			TaskAttemptContextImpl taskContext = new TaskAttemptContextImpl(conf, attemptId, reporter);
+
+			// Partitioning is done by Spark, so all output is collected in a single partition.
+			MapOutputCollector collector = new MapOutputCollector(conf, new HashPartitioner(), 1,
+					taskContext.getMapOutputKeyClass(), taskContext.getMapOutputValueClass(),
+					reporter.getCounter(TaskCounter.MAP_OUTPUT_RECORDS));
+			TaskRunner.runMapper(conf, attemptId, null, new IteratorRecordReader<>(records), collector, reporter);
+
+			byte[] data = collector.getData(0);
+			List<Tuple2<byte[], byte[]>> output = new ArrayList<>(collector.getSize(0));
+			for (int i = 0; i < collector.getSize(0); i++)
+			{
+				int keyOffset = collector.getKeyOffset(0, i);
+				int valueOffset = collector.getValueOffset(0, i);
+				output.add(new Tuple2<>(Arrays.copyOfRange(data, keyOffset, keyOffset + collector.getKeyLength(0, i)),
+						Arrays.copyOfRange(data, valueOffset, valueOffset + collector.getValueLength(0, i))));
+			}
+
+			jobCounters.add(CountersAccumulableParam.toMap(reporter.getCounters()));
+			logger.debug("Finished " + attemptId + " (" + output.size() + " records).");
+			return output;
+		}
+	}
+
+	/**
+	 * Runs the reducer on the sorted serialized map output of a single partition and commits its output.
+	 */
+	private static class ReduceFunction implements VoidFunction<Iterator<Tuple2<byte[], byte[]>>>
+	{
+		private static final long serialVersionUID = -6203945826113719460L;
+
+		private SerializableConfiguration jobConf;
+		private String jobId;
+		private Accumulable<HashMap<String, Long>, HashMap<String, Long>> jobCounters;
+
+		ReduceFunction(SerializableConfiguration jobConf, String jobId,
+				Accumulable<HashMap<String, Long>, HashMap<String, Long>> jobCounters)
+		{
+			this.jobConf = jobConf;
+			this.jobId = jobId;
+			this.jobCounters = jobCounters;
+		}
+
+		@Override
+		public void call(Iterator<Tuple2<byte[], byte[]>> records) throws Exception
+		{
+			TaskAttemptID attemptId = createAttemptId(jobId, TaskType.REDUCE);
+			Configuration conf = TaskRunner.createTaskConf(jobConf.get(), attemptId);
+			SparkDistributedCache.localize(new JobContextImpl(conf, attemptId.getJobID()));
+			CountersStatusReporter reporter = new CountersStatusReporter();
+
+			TaskRunner.runReducer(conf, attemptId, new TupleKeyValueIterator(records), reporter);
+
+			jobCounters.add(CountersAccumulableParam.toMap(reporter.getCounters()));
+			logger.debug("Finished " + attemptId + ".");
+		}
+	}
+}
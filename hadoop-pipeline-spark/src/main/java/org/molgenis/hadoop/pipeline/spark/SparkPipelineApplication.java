@@ -0,0 +1,70 @@
+package org.molgenis.hadoop.pipeline.spark;
+
+import java.io.IOException;
+
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.util.GenericOptionsParser;
+import org.apache.log4j.Logger;
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.molgenis.hadoop.pipeline.application.HadoopPipelineApplication;
+
+/**
+ * Alternative main application class that executes the same job as the {@link HadoopPipelineApplication} on Spark
+ * (see {@link SparkJobExecutor}). Uses the same arguments and generates the same output.
+ */
+public class SparkPipelineApplication
+{
+	/**
+	 * Logger to write information to.
+	 */
+	private static final Logger logger = Logger.getLogger(SparkPipelineApplication.class);
+
+	/**
+	 * Main class to be used with {@code spark-submit}.
+	 *
+	 * @param args
+	 *            {@link String}{@code []} User input.
+	 */
+	public static void main(String[] args)
+	{
+		try
+		{
+			// Digests Hadoop's Generic Options.
+			GenericOptionsParser genericOptionsParser = new GenericOptionsParser(args);
+			HadoopPipelineApplication application = new HadoopPipelineApplication();
+			application.setConf(genericOptionsParser.getConfiguration());
+			Job job = application.createJob(genericOptionsParser.getRemainingArgs());
+
+			try
+			{
+				JavaSparkContext sparkContext = new JavaSparkContext(
+						new SparkConf().setAppName(SparkPipelineApplication.class.getSimpleName()));
+				try
+				{
+					Counters counters = new SparkJobExecutor(job).run(sparkContext);
+					logger.info("Job completed successfully. " + counters);
+					application.finishJob(job);
+				}
+				finally
+				{
+					sparkContext.stop();
+				}
+			}
+			finally
+			{
+				application.cleanupJob(job);
+			}
+			System.exit(0);
+		}
+		catch (IOException | ParseException | ClassNotFoundException | InterruptedException | RuntimeException e)
+		{
+			logger.error(e.getMessage());
+			logger.debug(ExceptionUtils.getFullStackTrace(e));
+		}
+		System.exit(1);
+	}
+}
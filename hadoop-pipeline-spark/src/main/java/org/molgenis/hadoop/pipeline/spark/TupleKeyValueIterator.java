@@ -0,0 +1,71 @@
+package org.molgenis.hadoop.pipeline.spark;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Iterator;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.mapred.RawKeyValueIterator;
+import org.apache.hadoop.util.Progress;
+
+import scala.Tuple2;
+
+/**
+ * {@link RawKeyValueIterator} over the serialized (and sorted) map output keys/values of a Spark partition, so they
+ * can be given to the job's reducer.
+ */
+public class TupleKeyValueIterator implements RawKeyValueIterator
+{
+	private Iterator<Tuple2<byte[], byte[]>> records;
+	private DataInputBuffer key = new DataInputBuffer();
+	private DataInputBuffer value = new DataInputBuffer();
+	private Progress progress = new Progress();
+
+	/**
+	 * Creates a new {@link TupleKeyValueIterator}.
+	 *
+	 * @param records
+	 *            {@link Iterator}{@code <}{@link Tuple2}{@code <byte[], byte[]>>}
+	 */
+	public TupleKeyValueIterator(Iterator<Tuple2<byte[], byte[]>> records)
+	{
+		this.records = requireNonNull(records);
+	}
+
+	@Override
+	public DataInputBuffer getKey()
+	{
+		return key;
+	}
+
+	@Override
+	public DataInputBuffer getValue()
+	{
+		return value;
+	}
+
+	@Override
+	public boolean next()
+	{
+		if (!records.hasNext())
+		{
+			progress.complete();
+			return false;
+		}
+		Tuple2<byte[], byte[]> record = records.next();
+		key.reset(record._1(), record._1().length);
+		value.reset(record._2(), record._2().length);
+		return true;
+	}
+
+	@Override
+	public void close()
+	{
+	}
+
+	@Override
+	public Progress getProgress()
+	{
+		return progress;
+	}
+}
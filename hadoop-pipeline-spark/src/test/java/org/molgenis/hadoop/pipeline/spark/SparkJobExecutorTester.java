@@ -0,0 +1,184 @@
+package org.molgenis.hadoop.pipeline.spark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.map.TokenCounterMapper;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.mapreduce.lib.reduce.IntSumReducer;
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tester for {@link SparkJobExecutor} in Spark local mode, using a simple word count job so no external tools are
+ * needed.
+ */
+public class SparkJobExecutorTester
+{
+	private File workDir;
+	private JavaSparkContext sparkContext;
+
+	@BeforeClass
+	public void beforeClass() throws IOException
+	{
+		workDir = Files.createTempDirectory("spark-job-executor").toFile();
+		File inputDir = new File(workDir, "input");
+		inputDir.mkdir();
+		FileUtils.write(new File(inputDir, "a.txt"), "d b a\nc a\n", StandardCharsets.UTF_8);
+		FileUtils.write(new File(inputDir, "b.txt"), "b a e\n", StandardCharsets.UTF_8);
+
+		sparkContext = new JavaSparkContext(
+				new SparkConf().setMaster("local[2]").setAppName(SparkJobExecutorTester.class.getSimpleName())
+						.set("spark.ui.enabled", "false"));
+	}
+
+	@AfterClass
+	public void afterClass() throws IOException
+	{
+		sparkContext.stop();
+		FileUtils.deleteDirectory(workDir);
+	}
+
+	/**
+	 * Creates a word count job.
+	 *
+	 * @param outputDirName
+	 *            {@link String}
+	 * @param reduceTasks
+	 *            {@code int}
+	 * @return {@link Job}
+	 * @throws IOException
+	 */
+	private Job createJob(String outputDirName, int reduceTasks) throws IOException
+	{
+		Configuration conf = new Configuration();
+		conf.set("fs.defaultFS", "file:///");
+		Job job = Job.getInstance(conf);
+		job.setInputFormatClass(FileSplitTextInputFormat.class);
+		job.setMapperClass(TokenCounterMapper.class);
+		job.setReducerClass(IntSumReducer.class);
+		job.setOutputFormatClass(TextOutputFormat.class);
+		job.setMapOutputKeyClass(Text.class);
+		job.setMapOutputValueClass(IntWritable.class);
+		job.setOutputKeyClass(Text.class);
+		job.setOutputValueClass(IntWritable.class);
+		job.setNumReduceTasks(reduceTasks);
+		FileInputFormat.addInputPath(job, new Path(new File(workDir, "input").toURI()));
+		FileOutputFormat.setOutputPath(job, new Path(new File(workDir, outputDirName).toURI()));
+		return job;
+	}
+
+	/**
+	 * {@link TextInputFormat} creating a single split per file without using
+	 * {@link FileInputFormat#getSplits(JobContext)} (which is incompatible with the Guava version on the test
+	 * classpath).
+	 */
+	public static class FileSplitTextInputFormat extends TextInputFormat
+	{
+		@Override
+		public List<InputSplit> getSplits(JobContext job) throws IOException
+		{
+			List<InputSplit> splits = new ArrayList<>();
+			for (Path inputDir : getInputPaths(job))
+			{
+				FileStatus[] files = inputDir.getFileSystem(job.getConfiguration()).listStatus(inputDir);
+				Arrays.sort(files);
+				for (FileStatus file : files)
+				{
+					splits.add(new FileSplit(file.getPath(), 0, file.getLen(), new String[0]));
+				}
+			}
+			return splits;
+		}
+	}
+
+	/**
+	 * Tests whether the reducer receives the sorted and grouped output of all mappers, the output is committed and
+	 * the counters of all tasks are returned.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSingleReducer() throws Exception
+	{
+		Counters counters = new SparkJobExecutor(createJob("single", 1)).run(sparkContext);
+
+		File outputDir = new File(workDir, "single");
+		Assert.assertTrue(new File(outputDir, "_SUCCESS").exists());
+		Assert.assertFalse(new File(outputDir, "_temporary").exists());
+		Assert.assertEquals(FileUtils.readLines(new File(outputDir, "part-r-00000"), StandardCharsets.UTF_8),
+				Arrays.asList("a\t3", "b\t2", "c\t1", "d\t1", "e\t1"));
+		Assert.assertEquals(counters.findCounter(TaskCounter.MAP_OUTPUT_RECORDS).getValue(), 8);
+		Assert.assertEquals(counters.findCounter(TaskCounter.REDUCE_INPUT_GROUPS).getValue(), 5);
+		Assert.assertEquals(counters.findCounter(TaskCounter.REDUCE_INPUT_RECORDS).getValue(), 8);
+	}
+
+	/**
+	 * Tests whether the output is partitioned over multiple reducers using the job's partitioner (each writing its own
+	 * sorted output file).
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMultipleReducers() throws Exception
+	{
+		new SparkJobExecutor(createJob("multiple", 3)).run(sparkContext);
+
+		File outputDir = new File(workDir, "multiple");
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 3; i++)
+		{
+			List<String> partition = FileUtils.readLines(new File(outputDir, "part-r-0000" + i),
+					StandardCharsets.UTF_8);
+			List<String> sorted = new ArrayList<>(partition);
+			Collections.sort(sorted);
+			Assert.assertEquals(partition, sorted);
+			lines.addAll(partition);
+
+			// The default HashPartitioner of the job should have been used.
+			for (String line : partition)
+			{
+				Assert.assertEquals((new Text(line.split("\t")[0]).hashCode() & Integer.MAX_VALUE) % 3, i);
+			}
+		}
+		Collections.sort(lines);
+		Assert.assertEquals(lines, Arrays.asList("a\t3", "b\t2", "c\t1", "d\t1", "e\t1"));
+	}
+
+	/**
+	 * Tests whether an existing output directory is refused (similar to a MapReduce job).
+	 *
+	 * @throws Exception
+	 */
+	@Test(expectedExceptions = IOException.class)
+	public void testExistingOutput() throws Exception
+	{
+		new File(workDir, "existing").mkdir();
+		new SparkJobExecutor(createJob("existing", 1)).run(sparkContext);
+	}
+}